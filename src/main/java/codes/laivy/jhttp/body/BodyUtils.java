@@ -1,12 +1,25 @@
 package codes.laivy.jhttp.body;
 
 import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.encoding.DecompressionGuard;
+import codes.laivy.jhttp.encoding.DictionaryDeflateEncoding;
 import codes.laivy.jhttp.encoding.Encoding;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaders;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_DICTIONARY;
 import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_ENCODING;
 import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
 
@@ -14,40 +27,206 @@ public final class BodyUtils {
 
     // Static initializers
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Applies all the content and transfer encodings of the headers, in order, to the data. The chunked transfer
+     * encoding is always applied last, as by {@link #encoder(HttpHeaders, OutputStream)}.
+     *
+     * @param headers the headers with the encodings
+     * @param bytes the data
+     * @return the encoded data
+     * @throws EncodingException if an encoding fails
+     */
     public static byte[] encode(@NotNull HttpHeaders headers, byte[] bytes) throws EncodingException {
-        for (@NotNull Deferred<Encoding> deferred : headers.first(CONTENT_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0])) {
-            @NotNull Encoding encoding = deferred.retrieve();
+        @NotNull Encoding[] content = headers.first(CONTENT_ENCODING).map(header -> retrieve(header.getValue())).orElse(new Encoding[0]);
+        @NotNull Encoding[] transfer = headers.first(TRANSFER_ENCODING).map(header -> retrieve(header.getValue())).orElse(new Encoding[0]);
 
+        for (@NotNull Encoding encoding : order(content, transfer)) {
             bytes = encoding.compress(bytes);
         }
-        for (@NotNull Deferred<Encoding> deferred : headers.first(TRANSFER_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0])) {
-            @NotNull Encoding encoding = deferred.retrieve();
 
-            // The chunked transfer encoding should always be the last
-            if (deferred.toString().equalsIgnoreCase("chunked")) {
-                continue;
-            }
+        return bytes;
+    }
 
-            bytes = encoding.compress(bytes);
+    /**
+     * Removes all the content and transfer encodings from the data, in the reverse order they were applied. The
+     * chunked transfer encoding is always removed first, as by {@link #decoder(Encoding[], Encoding[], InputStream)}.
+     *
+     * @param content the content encodings, in the order they were applied
+     * @param transfer the transfer encodings, in the order they were applied
+     * @param bytes the encoded data
+     * @return the decoded data
+     * @throws EncodingException if a decoding fails
+     */
+    public static byte[] decode(@NotNull Encoding[] content, @NotNull Encoding[] transfer, byte[] bytes) throws EncodingException {
+        @NotNull List<Encoding> encodings = order(content, transfer);
+
+        // The last encoding applied is the first one removed
+        for (int index = encodings.size() - 1; index >= 0; index--) {
+            bytes = encodings.get(index).decompress(bytes);
         }
 
         return bytes;
     }
-    public static byte[] decode(@NotNull Encoding[] content, @NotNull Encoding[] transfer, byte[] bytes) throws EncodingException {
+
+    /**
+     * Returns a channel that writes to the given stream. The channel of a file stream is used directly (it's
+     * supported by the operating system transfers), the other streams are adapted.
+     *
+     * @param stream the stream
+     * @return the channel that writes to the stream, it must not be closed
+     */
+    public static @NotNull WritableByteChannel channel(@NotNull OutputStream stream) {
+        @Nullable WritableByteChannel channel = stream instanceof FileOutputStream ? ((FileOutputStream) stream).getChannel() : null;
+        return channel != null ? channel : Channels.newChannel(stream);
+    }
+
+    /**
+     * @param headers the headers with the encodings
+     * @return true if the headers doesn't have any content or transfer encoding (an explicit {@code identity}
+     * isn't an encoding), so the data is written as it is
+     */
+    public static boolean identity(@NotNull HttpHeaders headers) {
+        return headers.first(CONTENT_ENCODING).map(header -> identity(header.getValue())).orElse(true) &&
+                headers.first(TRANSFER_ENCODING).map(header -> identity(header.getValue())).orElse(true);
+    }
+    private static boolean identity(@NotNull Deferred<Encoding> @NotNull [] encodings) {
+        for (@NotNull Deferred<Encoding> encoding : encodings) {
+            if (!encoding.toString().equalsIgnoreCase("identity")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a stream that applies all the content and transfer encodings of the headers, in order, to the data
+     * written to it, and writes the result to the given stream. The chunked transfer encoding is always applied last.
+     * <p>
+     * The data is encoded as a single stream, no matter how many times it's written. Closing the returned
+     * stream finishes all the encodings and flushes the given stream, but doesn't close it.
+     *
+     * @param headers the headers with the encodings
+     * @param stream the stream that will receive the encoded data
+     * @return the stream that encodes the data written to it
+     * @throws IOException if an I/O error occurs creating the encoding streams
+     */
+    public static @NotNull OutputStream encoder(@NotNull HttpHeaders headers, @NotNull OutputStream stream) throws IOException {
+        @NotNull Encoding[] content = headers.first(CONTENT_ENCODING).map(header -> retrieve(header.getValue())).orElse(new Encoding[0]);
+        @NotNull Encoding[] transfer = headers.first(TRANSFER_ENCODING).map(header -> retrieve(header.getValue())).orElse(new Encoding[0]);
+        @NotNull List<Encoding> encodings = order(content, transfer);
+
+        // The last encoding applied is the closest to the given stream
+        @NotNull OutputStream encoder = new Shield(stream);
+        for (int index = encodings.size() - 1; index >= 0; index--) {
+            @NotNull Encoding encoding = encodings.get(index);
+
+            if (encoding instanceof DictionaryDeflateEncoding) {
+                // The dictionary negotiated with the client
+                @NotNull DictionaryDeflateEncoding dictionary = (DictionaryDeflateEncoding) encoding;
+                @Nullable String hash = headers.first(CONTENT_DICTIONARY).map(HttpHeader::getValue).orElse(null);
+
+                encoder = dictionary.wrapOutput(encoder, hash != null ? dictionary.select(hash).orElseThrow(() -> new IOException("unknown content dictionary '" + hash + "'")) : dictionary.getDictionary().orElse(null));
+            } else {
+                encoder = encoding.wrapOutput(encoder);
+            }
+        }
+
+        return encoder;
+    }
+
+    /**
+     * Creates a stream that applies the given content and transfer encodings, in order, to the data written to it,
+     * and writes the result to the given stream. The chunked transfer encoding is always applied last. Closing the
+     * returned stream finishes all the encodings and flushes the given stream, but doesn't close it.
+     *
+     * @param content the content encodings, in the order they should be applied
+     * @param transfer the transfer encodings, in the order they should be applied
+     * @param stream the stream that will receive the encoded data
+     * @return the stream that encodes the data written to it
+     * @throws IOException if an I/O error occurs creating the encoding streams
+     */
+    public static @NotNull OutputStream encoder(@NotNull Encoding[] content, @NotNull Encoding[] transfer, @NotNull OutputStream stream) throws IOException {
+        @NotNull List<Encoding> encodings = order(content, transfer);
+
+        // The last encoding applied is the closest to the given stream
+        @NotNull OutputStream encoder = new Shield(stream);
+        for (int index = encodings.size() - 1; index >= 0; index--) {
+            encoder = encodings.get(index).wrapOutput(encoder);
+        }
+
+        return encoder;
+    }
+
+    /**
+     * Creates a stream that removes all the content and transfer encodings from the given stream, in the reverse
+     * order they were applied. Closing the returned stream closes the given stream.
+     *
+     * @param content the content encodings, in the order they were applied
+     * @param transfer the transfer encodings, in the order they were applied
+     * @param stream the stream with the encoded data
+     * @return the stream with the decoded data
+     * @throws IOException if an I/O error occurs creating the decoding streams
+     */
+    public static @NotNull InputStream decoder(@NotNull Encoding[] content, @NotNull Encoding[] transfer, @NotNull InputStream stream) throws IOException {
+        @NotNull List<Encoding> encodings = order(content, transfer);
+
+        // The last encoding applied is the first one removed
+        @NotNull InputStream decoder = stream;
+        for (int index = encodings.size() - 1; index >= 0; index--) {
+            decoder = encodings.get(index).wrapInput(decoder);
+        }
+
+        return decoder;
+    }
+
+    /**
+     * Creates a stream that removes all the content and transfer encodings from the given stream, in the reverse
+     * order they were applied, checking every decoding against the limits of the guard. Closing the returned stream
+     * closes the given stream.
+     *
+     * @param content the content encodings, in the order they were applied
+     * @param transfer the transfer encodings, in the order they were applied
+     * @param stream the stream with the encoded data
+     * @param guard the limits of the decoded data
+     * @return the stream with the decoded data, that throws a {@link codes.laivy.jhttp.exception.encoding.DecompressionLimitException} if the limits are exceeded
+     * @throws IOException if an I/O error occurs creating the decoding streams
+     */
+    public static @NotNull InputStream decoder(@NotNull Encoding[] content, @NotNull Encoding[] transfer, @NotNull InputStream stream, @NotNull DecompressionGuard guard) throws IOException {
+        @NotNull List<Encoding> encodings = order(content, transfer);
+
+        // The last encoding applied is the first one removed
+        @NotNull InputStream decoder = stream;
+        for (int index = encodings.size() - 1; index >= 0; index--) {
+            decoder = guard.wrap(encodings.get(index), decoder);
+        }
+
+        return decoder;
+    }
+
+    private static @NotNull Encoding[] retrieve(@NotNull Deferred<Encoding>[] deferred) {
+        @NotNull Encoding[] encodings = new Encoding[deferred.length];
+        for (int index = 0; index < deferred.length; index++) {
+            encodings[index] = deferred[index].retrieve();
+        }
+
+        return encodings;
+    }
+    private static @NotNull List<Encoding> order(@NotNull Encoding[] content, @NotNull Encoding[] transfer) {
+        @NotNull List<Encoding> encodings = new ArrayList<>(content.length + transfer.length);
+        @NotNull List<Encoding> chunked = new ArrayList<>(1);
+
         for (@NotNull Encoding encoding : content) {
-            bytes = encoding.compress(bytes);
+            encodings.add(encoding);
         }
         for (@NotNull Encoding encoding : transfer) {
             // The chunked transfer encoding should always be the last
-            if (encoding.getName().equalsIgnoreCase("chunked")) {
-                continue;
-            }
-
-            bytes = encoding.compress(bytes);
+            if (encoding.getName().equalsIgnoreCase("chunked")) chunked.add(encoding);
+            else encodings.add(encoding);
         }
 
-        return bytes;
+        encodings.addAll(chunked);
+        return encodings;
     }
 
     // Object
@@ -56,4 +235,37 @@ public final class BodyUtils {
         throw new UnsupportedOperationException("this class cannot be instantiated");
     }
 
+    // Classes
+
+    /**
+     * Keeps the connection stream open when the encoding streams are closed, it's only flushed.
+     */
+    private static final class Shield extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+
+        private Shield(@NotNull OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            stream.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+        @Override
+        public void close() throws IOException {
+            stream.flush();
+        }
+
+    }
+
 }
@@ -1,28 +1,36 @@
 package codes.laivy.jhttp.body;
 
-import codes.laivy.jhttp.deferred.Deferred;
 import codes.laivy.jhttp.encoding.ChunkedEncoding;
-import codes.laivy.jhttp.encoding.ChunkedEncoding.Chunk;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import codes.laivy.jhttp.exception.media.MediaParserException;
 import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaders;
 import codes.laivy.jhttp.media.Content;
 import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
 import codes.laivy.jhttp.network.BitMeasure;
 import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.util.Arrays;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_LENGTH;
-import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
 
 /**
  * This class is designed for handling large HTTP bodies by creating a temporary file
@@ -32,6 +40,13 @@ import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
  * This approach is not recommended for small bodies/data as the overhead of creating, writing,
  * and reading from a temporary file may outweigh the benefits compared to using
  * {@link HttpSimpleBody}, as example.
+ * <p>
+ * The file is memory-mapped when read, the readers share a single read-only mapping (see {@link #map()}) and
+ * don't need a system call for every read. The mapping is released when the body is closed and all the readers
+ * are closed, or when the data is updated.
+ * <p>
+ * All the files of a body are created by the same {@link Spool}. An update rewrites the file in place when it
+ * isn't shared by a clone or a reader, otherwise the new data is written to a new file of the spool.
  */
 // todo: rename this to HttpCacheBody
 public class HttpBigBody implements HttpBody {
@@ -45,11 +60,59 @@ public class HttpBigBody implements HttpBody {
      */
     public static @NotNull BitMeasure MIN_BIG_BODY_SIZE = BitMeasure.create(BitMeasure.Level.KILOBYTES, 32D);
 
+    /**
+     * Defines if the mappings are released immediately by the internal cleaner of the buffers. When it's false, or
+     * if the cleaner isn't accessible, the mappings are released by the garbage collector and a mapped file is
+     * never rewritten in place. The default value is true.
+     */
+    public static volatile boolean UNMAP = true;
+
+    /**
+     * Releases a mapping immediately, instead of waiting for the garbage collector. There's no public API for that,
+     * so it's done by the internal cleaner of the buffer if it's accessible.
+     *
+     * @return true if the mapping has been released, false if it's left to the garbage collector
+     */
+    private static boolean unmap(@NotNull MappedByteBuffer buffer) {
+        if (!UNMAP) {
+            return false;
+        }
+
+        try {
+            // Java 9 or later
+            @NotNull Class<?> type = Class.forName("sun.misc.Unsafe");
+            @NotNull Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            type.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+            return true;
+        } catch (@NotNull NoSuchMethodException e) {
+            // Java 8
+            try {
+                @NotNull Method method = buffer.getClass().getMethod("cleaner");
+                method.setAccessible(true);
+
+                @Nullable Object cleaner = method.invoke(buffer);
+                if (cleaner == null) return false;
+
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+                return true;
+            } catch (@NotNull Throwable ignore) {
+                // It will be released by the garbage collector
+                return false;
+            }
+        } catch (@NotNull Throwable ignore) {
+            // It will be released by the garbage collector
+            return false;
+        }
+    }
+
     // Object
 
     protected final @NotNull Object lock = new Object();
     protected final @NotNull Map<MediaType<?>, Content<?>> contentMap = new HashMap<>();
-    private final @NotNull File file;
+    private volatile @NotNull SpoolFile file;
+    private @Nullable Mapping mapping;
 
     protected volatile boolean closed = false;
 
@@ -61,10 +124,7 @@ public class HttpBigBody implements HttpBody {
      * @throws IOException if an I/O error occurs
      */
     public HttpBigBody(byte @NotNull [] bytes) throws IOException {
-        this.file = File.createTempFile("jhttp-", "-big_body");
-        this.file.deleteOnExit();
-
-        update(new ByteArrayInputStream(bytes));
+        this(new ByteArrayInputStream(bytes));
     }
 
     /**
@@ -75,10 +135,36 @@ public class HttpBigBody implements HttpBody {
      * @throws IOException if an I/O error occurs
      */
     public HttpBigBody(@NotNull InputStream stream) throws IOException {
-        this.file = File.createTempFile("jhttp-", "-big_body");
-        this.file.deleteOnExit();
+        this(stream, Spool.getDefault());
+    }
+
+    /**
+     * Constructs an instance of {@link HttpBigBody} with the provided {@link InputStream}, storing the data at the
+     * files of the given spool.
+     *
+     * @param stream the input stream containing the HTTP body data
+     * @param spool the spool that creates the files of this body
+     * @throws IOException if an I/O error occurs
+     */
+    public HttpBigBody(@NotNull InputStream stream, @NotNull Spool spool) throws IOException {
+        this.file = spool(spool, stream);
+    }
+
+    /**
+     * Constructs an instance of {@link HttpBigBody} sharing the file of another body, without copying it. The file
+     * is only copied when any of the bodies is updated.
+     *
+     * @param body the body with the file to share
+     * @throws IOException if the body is closed
+     */
+    protected HttpBigBody(@NotNull HttpBigBody body) throws IOException {
+        synchronized (body.lock) {
+            if (body.closed) {
+                throw new IOException("this http body is closed");
+            }
 
-        update(stream);
+            this.file = body.file.retain();
+        }
     }
 
     // Getters
@@ -89,30 +175,103 @@ public class HttpBigBody implements HttpBody {
      * @return the temporary file
      */
     public final @NotNull File getFile() {
-        synchronized (lock) {
-            return file;
-        }
+        return file.getFile();
+    }
+
+    /**
+     * @return the spool of the files of this body
+     */
+    public final @NotNull Spool getSpool() {
+        return file.getSpool();
+    }
+
+    @Override
+    public @NotNull OptionalLong getLength() {
+        return OptionalLong.of(file.size());
     }
 
     /**
-     * Updates the content of the temporary file with the data from the provided input stream.
+     * Updates the data with the provided input stream. When the file isn't shared with a clone or a reader, it's
+     * rewritten in place (if it fails, the data of this body is undefined). Otherwise, the data is written to a
+     * new file of the spool, and the clones and the readers keep the previous data.
      *
      * @param stream the input stream containing new data
      * @throws IOException if an I/O error occurs during writing to the file
      */
     protected void update(@NotNull InputStream stream) throws IOException {
-        try (@NotNull FileOutputStream output = new FileOutputStream(file)) {
-            @NotNull BitMeasure size = BitMeasure.create(BitMeasure.Level.KILOBYTES, 8D);
-            byte[] bytes = new byte[(int) size.getBytes()];
+        @NotNull SpoolFile previous;
+
+        synchronized (lock) {
+            // A mapping that can't be released mustn't have its file truncated
+            boolean unmapped = true;
+
+            if (mapping != null) {
+                unmapped = mapping.release();
+                mapping = null;
+            }
+
+            if (unmapped && file.references() == 1) {
+                write(file, stream);
+                return;
+            }
+
+            previous = file;
+            file = spool(previous.getSpool(), stream);
+        }
+
+        previous.release();
+    }
+
+    private static @NotNull SpoolFile spool(@NotNull Spool spool, @NotNull InputStream stream) throws IOException {
+        @NotNull SpoolFile file = spool.create("-big_body");
+
+        try {
+            write(file, stream);
+        } catch (@NotNull IOException e) {
+            file.release();
+            throw e;
+        }
+
+        return file;
+    }
+    private static void write(@NotNull SpoolFile file, @NotNull InputStream stream) throws IOException {
+        try (@NotNull FileOutputStream output = new FileOutputStream(file.getFile());
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+            byte[] bytes = pooled.array();
 
             int read;
             while ((read = stream.read(bytes)) != -1) {
                 output.write(bytes, 0, read);
-                output.flush();
             }
         }
     }
 
+    /**
+     * Maps the file to the memory, read-only. All the views share the same mapping, that is released when the
+     * body is closed (or updated) and all the views are closed.
+     *
+     * @return the view of the mapping, or empty if the file is too large to be mapped
+     * @throws IOException if an I/O error occurs mapping the file, or if the http body is closed
+     */
+    public @NotNull Optional<MappedView> map() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            } else if (mapping == null) {
+                try (@NotNull FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+                    if (channel.size() > Integer.MAX_VALUE) {
+                        return Optional.empty();
+                    }
+
+                    mapping = new Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.retain());
+                }
+            }
+
+            mapping.retain();
+            return Optional.of(new MappedView(mapping));
+        }
+    }
+
     /**
      * Retrieves the content of the specified media type from the temporary file.
      *
@@ -137,8 +296,10 @@ public class HttpBigBody implements HttpBody {
             content = (Content<T>) contentMap.get(mediaType);
         } else {
             synchronized (lock) {
-                @NotNull T data = mediaType.getParser().deserialize(version, getInputStream(), mediaType.getParameters());
-                content = new BigContent<>(version, mediaType, data);
+                try (@NotNull InputStream stream = getInputStream()) {
+                    @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, stream);
+                    content = new BigContent<>(version, mediaType, data);
+                }
             }
 
             contentMap.put(mediaType, content);
@@ -148,89 +309,92 @@ public class HttpBigBody implements HttpBody {
     }
 
     /**
-     * Returns an input stream for reading the temporary file containing the HTTP body data.
+     * Returns an input stream for reading the temporary file containing the HTTP body data. The stream reads the
+     * shared mapping of the file, or the file itself if it cannot be mapped. The file isn't rewritten or deleted
+     * while the stream is open.
      *
      * @return the input stream for reading the file
      * @throws IOException if an I/O error occurs or if the http body is closed
      */
     @Override
     public @NotNull InputStream getInputStream() throws IOException {
-        if (closed) {
-            throw new IOException("this http body is closed");
+        @Nullable MappedView view = map().orElse(null);
+
+        if (view != null) {
+            return new MappedInputStream(view);
         } else synchronized (lock) {
-            return Files.newInputStream(file.toPath());
+            return file.newInputStream();
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void write(@NotNull HttpHeaders headers, @NotNull OutputStream out) throws IOException, EncodingException {
         @Nullable Long limit = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
-        @Nullable ChunkedEncoding chunked = (ChunkedEncoding) Arrays.stream(headers.first(TRANSFER_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0])).filter(deferred -> deferred.toString().equalsIgnoreCase("chunked")).map(Deferred::retrieve).findFirst().orElse(null);
-        @NotNull InputStream stream = getInputStream();
-
-        // Dynamic buffer
-        final int bufferSize = Math.min(64000, Math.max(4096, stream.available() / 16));
-        byte[] buffer = new byte[bufferSize];
-
-        long bytesReadTotal = 0;
-        int bytesRead;
 
-        while (true) {
-            int bytesToRead = (limit != null) ? (int) Math.min(bufferSize, limit - bytesReadTotal) : bufferSize;
-            bytesRead = stream.read(buffer, 0, bytesToRead);
-            if (bytesRead == -1) break;
+        // All the encodings (the chunked included) are applied as a single stream, so the
+        // file is encoded with a constant memory regardless of its size
+        try (@NotNull InputStream stream = getInputStream();
+             @NotNull OutputStream encoder = BodyUtils.encoder(headers, out);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
 
-            byte[] processed = Arrays.copyOf(buffer, bytesRead);
-            processed = BodyUtils.encode(headers, processed);
+            byte[] buffer = pooled.array();
+            long remaining = limit != null ? limit : Long.MAX_VALUE;
 
-            if (chunked != null) {
-                @NotNull Chunk chunk = new Chunk(Chunk.Length.create(processed.length), new ByteArrayInputStream(processed));
-
-                chunk.write(out);
-                out.flush();
-            } else {
-                out.write(processed);
-                if (limit != null) out.flush();
-            }
-
-            bytesReadTotal += bytesRead;
-
-            if (limit != null && bytesReadTotal >= limit) {
-                break;
+            int read;
+            while (remaining > 0 && (read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                encoder.write(buffer, 0, read);
+                remaining -= read;
             }
         }
+    }
 
-        // If it's chunked, send the empty (final) chunk; All the data was delivered successfully.
-        if (chunked != null) {
-            Chunk.empty().write(out);
-            out.flush();
+    /**
+     * Clones this body sharing its temporary file, without copying it. The file is only copied when any of the
+     * bodies is updated (when a content is flushed).
+     * <p>
+     * The subclasses with their own state must override this method with their copy constructor, otherwise they're
+     * cloned by copying their input stream, as the other bodies.
+     *
+     * @param version the http version to create the body
+     * @return a new http body sharing the data
+     * @throws IOException if the http body is closed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        if (getClass() != HttpBigBody.class) {
+            return HttpBody.super.clone(version);
         }
 
-        stream.close();
+        return new HttpBigBody(this);
     }
 
     /**
-     * Closes this {@code HttpBigBody} by deleting the temporary file.
+     * Closes this {@code HttpBigBody} by releasing the temporary file, it's deleted if it isn't shared.
      *
      * @throws IOException if an I/O error occurs, or if this http body is already closed
      */
     @Override
     public void close() throws IOException {
-        if (closed) {
-            throw new IOException("this http body is already closed");
-        } else try {
-            synchronized (lock) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is already closed");
+            } else try {
                 // Close contents
                 for (@NotNull Content<?> content : contentMap.values()) {
                     content.flush();
                 }
 
-                // Delete file
-                Files.delete(file.toPath());
+                // Release the mapping and delete file
+                if (mapping != null) {
+                    mapping.release();
+                    mapping = null;
+                }
+
+                file.release();
+            } finally {
+                // Under the lock, so no mapping is created after the file is released
+                closed = true;
             }
-        } finally {
-            closed = true;
         }
     }
 
@@ -241,22 +405,159 @@ public class HttpBigBody implements HttpBody {
         if (this == object) return true;
         if (object == null || getClass() != object.getClass()) return false;
         @NotNull HttpBigBody that = (HttpBigBody) object;
-        return Objects.equals(file, that.file);
+        return Objects.equals(getFile(), that.getFile());
     }
     @Override
     public int hashCode() {
-        return Objects.hashCode(file);
+        return Objects.hashCode(getFile());
     }
 
     @Override
     public @NotNull String toString() {
         return "HttpBigBody{" +
-                "file=" + file +
+                "file=" + getFile() +
                 '}';
     }
 
     // Classes
 
+    /**
+     * A shared mapping of the file, unmapped when the last reference is released. It holds a reference of the
+     * file, so the file isn't rewritten or deleted while mapped.
+     */
+    private static final class Mapping {
+
+        private final @NotNull MappedByteBuffer buffer;
+        private final @NotNull SpoolFile file;
+        private final @NotNull AtomicInteger references = new AtomicInteger(1);
+
+        private Mapping(@NotNull MappedByteBuffer buffer, @NotNull SpoolFile file) {
+            this.buffer = buffer;
+            this.file = file;
+        }
+
+        private void retain() {
+            references.incrementAndGet();
+        }
+
+        /**
+         * @return true if it was the last reference and the mapping has been released immediately
+         */
+        private boolean release() {
+            if (references.decrementAndGet() != 0) {
+                return false;
+            }
+
+            boolean unmapped = unmap(buffer);
+
+            try {
+                file.release();
+            } catch (@NotNull IOException ignore) {
+                // Left to the orphan sweep
+            }
+
+            return unmapped;
+        }
+
+    }
+
+    /**
+     * A read-only view of the file mapping. The view must be closed after used, the buffer must not be used after
+     * that.
+     */
+    public static final class MappedView implements AutoCloseable {
+
+        private final @NotNull Mapping mapping;
+        private final @NotNull ByteBuffer buffer;
+        private final @NotNull AtomicBoolean closed = new AtomicBoolean(false);
+
+        private MappedView(@NotNull Mapping mapping) {
+            this.mapping = mapping;
+            this.buffer = mapping.buffer.asReadOnlyBuffer();
+        }
+
+        /**
+         * @return the read-only buffer with the whole file, with its own position and limit
+         */
+        public @NotNull ByteBuffer getBuffer() {
+            if (closed.get()) {
+                throw new IllegalStateException("this view is closed");
+            }
+
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                mapping.release();
+            }
+        }
+
+    }
+
+    /**
+     * Reads a view of the mapping. The buffer may be unmapped when the stream is closed, so it's never touched after
+     * that (the accesses are synchronized with the close).
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final @NotNull MappedView view;
+        private final @NotNull ByteBuffer buffer;
+        private boolean closed = false;
+
+        private MappedInputStream(@NotNull MappedView view) {
+            this.view = view;
+            this.buffer = view.getBuffer();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            check();
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        @Override
+        public synchronized int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            check();
+
+            if (length == 0) return 0;
+            else if (!buffer.hasRemaining()) return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+
+            return length;
+        }
+
+        @Override
+        public synchronized long skip(long amount) throws IOException {
+            check();
+
+            int skipped = (int) Math.max(0, Math.min(amount, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+
+            return skipped;
+        }
+        @Override
+        public synchronized int available() throws IOException {
+            check();
+            return buffer.remaining();
+        }
+
+        private void check() throws IOException {
+            if (closed) throw new IOException("the stream is closed");
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+
+            closed = true;
+            view.close();
+        }
+
+    }
+
     /**
      * This inner class represents the content of a specific media type stored in the temporary file.
      *
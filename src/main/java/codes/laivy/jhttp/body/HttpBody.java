@@ -14,6 +14,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.OptionalLong;
 
 /**
  * Represents the body of an HTTP request or response. The raw content is represented as a {@link CharSequence},
@@ -47,30 +49,23 @@ public interface HttpBody extends Closeable {
         return new HttpChunkedBody(chunks);
     }
     static @NotNull HttpBody create(byte @NotNull [] bytes) throws IOException {
-        if (bytes.length >= HttpBigBody.MIN_BIG_BODY_SIZE.getBytes()) {
-            return new HttpBigBody(bytes);
+        if (bytes.length >= HttpTieredBody.HEAP_THRESHOLD.getBytes()) {
+            return new HttpTieredBody(bytes);
         } else {
             return new HttpSimpleBody(bytes);
         }
     }
     static @NotNull HttpBody create(@NotNull InputStream stream) throws IOException {
-        if (stream.available() >= HttpBigBody.MIN_BIG_BODY_SIZE.getBytes()) {
-            return new HttpBigBody(stream);
-        } else {
-            return new HttpSimpleBody(stream);
-        }
+        // The tier is chosen while reading, the available bytes of a stream aren't reliable
+        return new HttpTieredBody(stream);
+    }
+    static @NotNull HttpBody create(@NotNull Path path) throws IOException {
+        // The file is referenced, not copied
+        return new HttpFileBody(path);
     }
     static <T> @NotNull Content<T> create(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType, @NotNull T data) {
         try (@NotNull InputStream stream = mediaType.getParser().serialize(version, data, mediaType.getParameters())) {
-            int available = stream.available();
-
-            @NotNull HttpBody body;
-            if (available >= HttpBigBody.MIN_BIG_BODY_SIZE.getBytes()) {
-                body = new HttpBigBody(stream);
-            } else {
-                body = new HttpSimpleBody(stream);
-            }
-
+            @NotNull HttpBody body = new HttpTieredBody(stream);
             return body.getContent(version, mediaType);
         } catch (@NotNull IOException | @NotNull MediaParserException e) {
             throw new RuntimeException(e);
@@ -100,6 +95,16 @@ public interface HttpBody extends Closeable {
      */
     @NotNull InputStream getInputStream() throws IOException;
 
+    /**
+     * Retrieves the length of the raw content of the HTTP body, without reading it.
+     *
+     * @return the length in bytes, or empty if it's unknown without reading the body
+     * @throws IOException if an I/O exception occurs reading the length
+     */
+    default @NotNull OptionalLong getLength() throws IOException {
+        return OptionalLong.empty();
+    }
+
     /**
      * Writes the body content to an output stream according the headers specifications
      * It auto applies the content encodings and transfer encodings.
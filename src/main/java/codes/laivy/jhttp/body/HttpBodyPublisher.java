@@ -0,0 +1,277 @@
+package codes.laivy.jhttp.body;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the data of an HTTP body as a Reactive Streams {@link Publisher} of {@link ByteBuffer}, so non-blocking
+ * applications consume a body without blocking on {@link HttpBody#getInputStream()}. The
+ * {@code org.reactivestreams.FlowAdapters} converts it to a {@code java.util.concurrent.Flow.Publisher}.
+ * <p>
+ * The body is only read when there's demand: every requested buffer is read from the body and delivered, by the
+ * executor, so a slow subscriber applies backpressure instead of having the data buffered. Every subscription
+ * reads the body from the start, and the single-use bodies (as the {@link HttpStreamBody}) only support one.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class HttpBodyPublisher implements Publisher<ByteBuffer> {
+
+    // Static initializers
+
+    private static final @NotNull AtomicInteger THREADS = new AtomicInteger();
+    private static final @NotNull ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        @NotNull Thread thread = new Thread(runnable, "jhttp-body-publisher-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    public static @NotNull HttpBodyPublisher create(@NotNull HttpBody body) {
+        return builder(body).build();
+    }
+    public static @NotNull Builder builder(@NotNull HttpBody body) {
+        return new Builder(body);
+    }
+
+    // Object
+
+    private final @NotNull HttpBody body;
+    private final @NotNull Executor executor;
+    private final int bufferSize;
+
+    private HttpBodyPublisher(@NotNull HttpBody body, @NotNull Executor executor, int bufferSize) {
+        this.body = body;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+    // Getters
+
+    public @NotNull HttpBody getBody() {
+        return body;
+    }
+    public @NotNull Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return the maximum size of the buffers published, in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    // Modules
+
+    @Override
+    public void subscribe(@NotNull Subscriber<? super ByteBuffer> subscriber) {
+        //noinspection ConstantValue
+        if (subscriber == null) {
+            throw new NullPointerException("the subscriber cannot be null");
+        }
+
+        @NotNull BodySubscription subscription = new BodySubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "HttpBodyPublisher{" +
+                "body=" + body +
+                ", bufferSize=" + bufferSize +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private final @NotNull HttpBody body;
+        private @NotNull Executor executor = EXECUTOR;
+        private int bufferSize = 8192;
+
+        private Builder(@NotNull HttpBody body) {
+            this.body = body;
+        }
+
+        // Modules
+
+        /**
+         * Sets the executor that reads the body and signals the subscribers. The default is a shared pool of
+         * daemon threads.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder executor(@NotNull Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the buffers published. The default is 8 kilobytes.
+         *
+         * @param bufferSize the buffer size, in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder bufferSize(int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("the buffer size must be positive");
+            }
+
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull HttpBodyPublisher build() {
+            return new HttpBodyPublisher(body, executor, bufferSize);
+        }
+
+    }
+
+    /**
+     * Reads the body while there's demand. The signals are serialized by the drain loop, only one thread runs it
+     * at a time.
+     */
+    private final class BodySubscription implements Subscription {
+
+        private final @NotNull Subscriber<? super ByteBuffer> subscriber;
+
+        private final @NotNull AtomicLong demand = new AtomicLong();
+        private final @NotNull AtomicInteger pending = new AtomicInteger();
+
+        private volatile boolean cancelled = false;
+        private volatile @Nullable Throwable failure;
+
+        // Only accessed by the drain loop
+        private @Nullable InputStream stream;
+        private boolean terminated = false;
+
+        private BodySubscription(@NotNull Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        // Modules
+
+        @Override
+        public void request(long amount) {
+            if (amount <= 0) {
+                failure = new IllegalArgumentException("the requested amount must be positive (rule 3.9), but was " + amount);
+                cancelled = true;
+            } else {
+                demand.getAndUpdate(current -> current + amount < 0 ? Long.MAX_VALUE : current + amount);
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+
+            do {
+                if (!terminated) try {
+                    @Nullable Throwable failure = this.failure;
+
+                    if (failure != null) {
+                        terminate();
+                        subscriber.onError(failure);
+                    } else if (cancelled) {
+                        terminate();
+                    } else while (!cancelled && demand.get() > 0) {
+                        byte @Nullable [] bytes;
+
+                        try {
+                            bytes = read();
+                        } catch (@NotNull Throwable throwable) {
+                            // Only the failures of the body are signalled to the subscriber
+                            terminate();
+                            subscriber.onError(throwable);
+                            break;
+                        }
+
+                        if (bytes == null) {
+                            terminate();
+                            subscriber.onComplete();
+                            break;
+                        } else if (bytes.length == 0) {
+                            continue;
+                        }
+
+                        demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+                        subscriber.onNext(ByteBuffer.wrap(bytes));
+                    }
+                } catch (@NotNull Throwable throwable) {
+                    // The subscriber has thrown (rule 2.13), the subscription is considered cancelled and no other
+                    // signal is sent, the failure is reported to the thread
+                    terminate();
+
+                    @NotNull Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, throwable);
+                }
+
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * @return the next part of the body, empty if nothing has been read, or null at the end of the body
+         */
+        private byte @Nullable [] read() throws IOException {
+            if (stream == null) {
+                stream = body.getInputStream();
+            }
+
+            byte[] bytes = new byte[bufferSize];
+            int read = stream.read(bytes);
+
+            if (read == -1) return null;
+            else return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+        }
+
+        private void terminate() {
+            terminated = true;
+            cancelled = true;
+
+            if (stream != null) try {
+                stream.close();
+            } catch (@NotNull IOException ignore) {
+                // Already terminated
+            }
+        }
+
+    }
+
+}
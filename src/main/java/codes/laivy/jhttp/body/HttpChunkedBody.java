@@ -7,19 +7,23 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
-public class HttpChunkedBody extends HttpBigBody {
+public class HttpChunkedBody extends HttpCompositeBody {
 
     // Static initializers
 
-    private static @NotNull InputStream read(@NotNull Chunk @NotNull ... chunks) {
-        @NotNull Collection<InputStream> collection = Arrays.stream(chunks).map(Chunk::getContent).collect(Collectors.toList());
-        return new SequenceInputStream(Collections.enumeration(collection));
+    private static @NotNull Builder segments(@NotNull Chunk @NotNull ... chunks) {
+        // Every chunk is a segment, the chunks aren't copied to a temporary file
+        @NotNull Builder builder = HttpCompositeBody.builder();
+
+        for (@NotNull Chunk chunk : chunks) {
+            builder.bytes(chunk.getContent().getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        return builder;
     }
 
     // Object
@@ -27,7 +31,7 @@ public class HttpChunkedBody extends HttpBigBody {
     private final @NotNull Chunk @NotNull [] chunks;
 
     public HttpChunkedBody(@NotNull Chunk @NotNull ... chunks) throws IOException {
-        super(read(chunks));
+        super(segments(chunks));
         this.chunks = chunks;
     }
 
@@ -50,13 +54,12 @@ public class HttpChunkedBody extends HttpBigBody {
     public boolean equals(@Nullable Object object) {
         if (this == object) return true;
         if (!(object instanceof HttpChunkedBody)) return false;
-        if (!super.equals(object)) return false;
         @NotNull HttpChunkedBody that = (HttpChunkedBody) object;
         return Objects.deepEquals(getChunks(), that.getChunks());
     }
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), Arrays.hashCode(getChunks()));
+        return Arrays.hashCode(getChunks());
     }
     
 }
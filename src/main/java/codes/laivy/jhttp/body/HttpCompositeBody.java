@@ -0,0 +1,669 @@
+package codes.laivy.jhttp.body;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_LENGTH;
+
+/**
+ * An HTTP body made of segments (byte arrays, buffers, file regions and other bodies) concatenated without
+ * copying them. It's useful to assemble templated responses, as example a static header, a dynamic middle and a
+ * static footer, where the static segments are shared by all the responses.
+ * <p>
+ * When the body is written without any encoding, the consecutive memory segments are written together by a
+ * gathering write, and the file segments are transferred by the operating system. The total length is known if
+ * the length of every segment is known.
+ * <p>
+ * The segments aren't copied nor closed by this body, the buffers and arrays must not be modified after added.
+ * The only exception is the body created by a flushed content, that replaces the segments: it's owned by this
+ * body and closed when replaced again or when this body is closed.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class HttpCompositeBody implements HttpBody {
+
+    // Static initializers
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    // Object
+
+    protected final @NotNull Object lock = new Object();
+    protected final @NotNull Map<MediaType<?>, Content<?>> contentMap = new HashMap<>();
+
+    private volatile @NotNull List<Segment> segments;
+    // The body created by a flushed content
+    private @Nullable HttpBody owned;
+
+    protected volatile boolean closed = false;
+
+    /**
+     * Constructs an instance of {@link HttpCompositeBody} with the segments of a builder.
+     *
+     * @param builder the builder with the segments
+     */
+    protected HttpCompositeBody(@NotNull Builder builder) {
+        this.segments = Collections.unmodifiableList(new ArrayList<>(builder.segments));
+    }
+
+    private HttpCompositeBody(@NotNull List<Segment> segments, @Nullable HttpBody owned) {
+        this.segments = segments;
+        this.owned = owned;
+    }
+
+    // Getters
+
+    /**
+     * @return the amount of segments of this body
+     */
+    public int size() {
+        return segments.size();
+    }
+
+    /**
+     * @return the total length of the body, in bytes, or empty if the length of any segment is unknown
+     * @throws IOException if an I/O error occurs reading the length of a segment
+     */
+    @Override
+    public @NotNull OptionalLong getLength() throws IOException {
+        long total = 0;
+
+        for (@NotNull Segment segment : segments) {
+            long length = segment.length();
+            if (length < 0) return OptionalLong.empty();
+
+            total += length;
+        }
+
+        return OptionalLong.of(total);
+    }
+
+    // Modules
+
+    /**
+     * Transfers all the segments to a channel. The consecutive memory segments are written by a single gathering
+     * write if the channel supports it, and the file segments are transferred by the operating system.
+     *
+     * @param channel the channel that will receive the data
+     * @return the amount of bytes transferred
+     * @throws IOException if an I/O error occurs, or if the body is closed
+     */
+    public long transferTo(@NotNull WritableByteChannel channel) throws IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull List<ByteBuffer> pending = new ArrayList<>();
+        long transferred = 0;
+
+        for (@NotNull Segment segment : segments) {
+            @NotNull ByteBuffer @Nullable [] buffers = segment.buffers();
+
+            if (buffers != null) {
+                pending.addAll(Arrays.asList(buffers));
+            } else {
+                transferred += gather(channel, pending);
+                transferred += segment.transferTo(channel);
+            }
+        }
+
+        return transferred + gather(channel, pending);
+    }
+
+    private static long gather(@NotNull WritableByteChannel channel, @NotNull List<ByteBuffer> pending) throws IOException {
+        if (pending.isEmpty()) return 0;
+
+        @NotNull ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+        pending.clear();
+
+        long remaining = 0;
+        for (@NotNull ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+
+        long written = 0;
+        if (channel instanceof GatheringByteChannel) {
+            @NotNull GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            int offset = 0;
+
+            while (written < remaining) {
+                while (!buffers[offset].hasRemaining()) offset++;
+                written += gathering.write(buffers, offset, buffers.length - offset);
+            }
+        } else for (@NotNull ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        }
+
+        return written;
+    }
+
+    @Override
+    public @NotNull <T> Content<T> getContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType) throws MediaParserException, IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull Content<T> content;
+
+        if (contentMap.containsKey(mediaType)) {
+            //noinspection unchecked
+            content = (Content<T>) contentMap.get(mediaType);
+        } else {
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getInputStream()) {
+                    @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, stream);
+                    content = new CompositeContent<>(version, mediaType, data);
+                }
+            }
+
+            contentMap.put(mediaType, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Returns an input stream reading all the segments in order, every segment is only opened when reached.
+     *
+     * @return the input stream of the segments
+     * @throws IOException if the body is closed
+     */
+    @Override
+    public @NotNull InputStream getInputStream() throws IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull Iterator<Segment> iterator = segments.iterator();
+
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+            @Override
+            public @NotNull InputStream nextElement() {
+                try {
+                    return iterator.next().open();
+                } catch (@NotNull IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }) {
+            @Override
+            public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+                try {
+                    return super.read(bytes, offset, length);
+                } catch (@NotNull UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (@NotNull UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void write(@NotNull HttpHeaders headers, @NotNull OutputStream out) throws IOException, EncodingException {
+        @Nullable Long limit = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
+        @NotNull OptionalLong length = getLength();
+
+        if (BodyUtils.identity(headers) && (limit == null || (length.isPresent() && limit >= length.getAsLong()))) {
+            transferTo(BodyUtils.channel(out));
+            out.flush();
+
+            return;
+        }
+
+        // Apply all the encodings (the chunked included) as a single stream
+        try (@NotNull InputStream stream = getInputStream();
+             @NotNull OutputStream encoder = BodyUtils.encoder(headers, out);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+
+            byte[] buffer = pooled.array();
+            long remaining = limit != null ? limit : Long.MAX_VALUE;
+
+            int read;
+            while (remaining > 0 && (read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                encoder.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Clones this body sharing its segments, without copying them. The body created by a flushed content is
+     * cloned too, since it's closed with this body.
+     *
+     * @param version the http version to create the body
+     * @return a new http body with the same segments
+     * @throws IOException if the http body is closed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            } else if (owned == null) {
+                return new HttpCompositeBody(segments, null);
+            }
+
+            @NotNull HttpBody body = owned.clone(version);
+            return new HttpCompositeBody(Collections.singletonList(new BodySegment(body)), body);
+        }
+    }
+
+    /**
+     * Closes all the contents of this body and the body created by a flushed content, the other segments aren't
+     * closed.
+     *
+     * @throws IOException if this http body is already closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            throw new IOException("this http body is already closed");
+        } else try {
+            synchronized (lock) {
+                for (@NotNull Content<?> content : contentMap.values()) {
+                    content.flush();
+                }
+            }
+        } finally {
+            closed = true;
+
+            synchronized (lock) {
+                @Nullable HttpBody owned = this.owned;
+                this.owned = null;
+
+                if (owned != null) owned.close();
+            }
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "HttpCompositeBody{" +
+                "segments=" + segments +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private final @NotNull List<Segment> segments = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        // Modules
+
+        @Contract("_->this")
+        public @NotNull Builder bytes(byte @NotNull [] bytes) {
+            return buffer(ByteBuffer.wrap(bytes));
+        }
+        @Contract("_,_,_->this")
+        public @NotNull Builder bytes(byte @NotNull [] bytes, int offset, int length) {
+            return buffer(ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        /**
+         * Adds the remaining bytes of a buffer, the buffer position isn't changed
+         *
+         * @param buffer the buffer
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder buffer(@NotNull ByteBuffer buffer) {
+            segments.add(new BufferSegment(buffer.slice().asReadOnlyBuffer()));
+            return this;
+        }
+
+        /**
+         * Adds a whole file, its length is read when the body is written
+         *
+         * @param path the file
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder file(@NotNull Path path) {
+            segments.add(new FileSegment(path, 0, -1));
+            return this;
+        }
+
+        /**
+         * Adds a region of a file
+         *
+         * @param path the file
+         * @param position the position of the region
+         * @param length the length of the region
+         * @return this builder
+         */
+        @Contract("_,_,_->this")
+        public @NotNull Builder file(@NotNull Path path, long position, long length) {
+            if (position < 0 || length < 0) {
+                throw new IllegalArgumentException("the file region cannot be negative");
+            }
+
+            segments.add(new FileSegment(path, position, length));
+            return this;
+        }
+
+        /**
+         * Adds another body. It's written without any encoding, the data is the one returned by
+         * {@link HttpBody#getInputStream()}.
+         *
+         * @param body the body
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder body(@NotNull HttpBody body) {
+            segments.add(new BodySegment(body));
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull HttpCompositeBody build() {
+            return new HttpCompositeBody(this);
+        }
+
+    }
+
+    /**
+     * A part of the composite body
+     */
+    private static abstract class Segment {
+
+        /**
+         * @return the length, in bytes, or -1 if it's unknown
+         */
+        abstract long length() throws IOException;
+
+        abstract @NotNull InputStream open() throws IOException;
+
+        /**
+         * @return new views of the memory of this segment, or null if it isn't stored at the memory
+         */
+        @NotNull ByteBuffer @Nullable [] buffers() throws IOException {
+            return null;
+        }
+
+        long transferTo(@NotNull WritableByteChannel channel) throws IOException {
+            try (@NotNull InputStream stream = open();
+                 @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+
+                byte[] array = pooled.array();
+                long transferred = 0;
+
+                int read;
+                while ((read = stream.read(array)) != -1) {
+                    @NotNull ByteBuffer buffer = ByteBuffer.wrap(array, 0, read);
+                    while (buffer.hasRemaining()) channel.write(buffer);
+
+                    transferred += read;
+                }
+
+                return transferred;
+            }
+        }
+
+    }
+
+    private static final class BufferSegment extends Segment {
+
+        private final @NotNull ByteBuffer buffer;
+
+        private BufferSegment(@NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        long length() {
+            return buffer.remaining();
+        }
+        @Override
+        @NotNull InputStream open() {
+            return new HttpTieredBody.BuffersInputStream(new ByteBuffer[] { buffer.duplicate() });
+        }
+        @Override
+        @NotNull ByteBuffer @NotNull [] buffers() {
+            return new ByteBuffer[] { buffer.duplicate() };
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return "Buffer{length=" + buffer.remaining() + "}";
+        }
+
+    }
+
+    private static final class FileSegment extends Segment {
+
+        private final @NotNull Path path;
+        private final long position;
+        private final long length;
+
+        private FileSegment(@NotNull Path path, long position, long length) {
+            this.path = path;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        long length() throws IOException {
+            return length >= 0 ? length : Files.size(path);
+        }
+        @Override
+        @NotNull InputStream open() throws IOException {
+            @NotNull FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            long end = position + length();
+
+            return new InputStream() {
+                private final byte[] single = new byte[1];
+                private long current = position;
+
+                @Override
+                public int read() throws IOException {
+                    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+                }
+                @Override
+                public int read(byte @NotNull [] bytes, int offset, int amount) throws IOException {
+                    if (amount == 0) return 0;
+                    else if (current >= end) return -1;
+
+                    int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(amount, end - current)), current);
+                    if (read > 0) current += read;
+
+                    return read;
+                }
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+        @Override
+        long transferTo(@NotNull WritableByteChannel target) throws IOException {
+            try (@NotNull FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long length = this.length >= 0 ? this.length : channel.size() - position;
+                long transferred = 0;
+
+                while (transferred < length) {
+                    long amount = channel.transferTo(position + transferred, length - transferred, target);
+                    if (amount <= 0) break;
+
+                    transferred += amount;
+                }
+
+                return transferred;
+            }
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return "File{path=" + path + ", position=" + position + ", length=" + length + "}";
+        }
+
+    }
+
+    private static final class BodySegment extends Segment {
+
+        private final @NotNull HttpBody body;
+
+        private BodySegment(@NotNull HttpBody body) {
+            this.body = body;
+        }
+
+        @Override
+        long length() throws IOException {
+            return body.getLength().orElse(-1);
+        }
+        @Override
+        @NotNull InputStream open() throws IOException {
+            return body.getInputStream();
+        }
+        @Override
+        @NotNull ByteBuffer @Nullable [] buffers() throws IOException {
+            if (body instanceof HttpSimpleBody) {
+                return new ByteBuffer[] { ByteBuffer.wrap(((HttpSimpleBody) body).getBytes()) };
+            } else if (body instanceof HttpTieredBody && ((HttpTieredBody) body).getTier() != HttpTieredBody.Tier.DISK) {
+                return ((HttpTieredBody) body).getBuffers();
+            } else {
+                return null;
+            }
+        }
+        @Override
+        long transferTo(@NotNull WritableByteChannel channel) throws IOException {
+            if (body instanceof HttpFileBody) {
+                return ((HttpFileBody) body).transferTo(channel, Long.MAX_VALUE);
+            } else if (body instanceof HttpTieredBody) {
+                return ((HttpTieredBody) body).transferTo(channel);
+            } else if (body instanceof HttpCompositeBody) {
+                return ((HttpCompositeBody) body).transferTo(channel);
+            } else {
+                return super.transferTo(channel);
+            }
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return "Body{" + body + "}";
+        }
+
+    }
+
+    /**
+     * This inner class represents the content of a specific media type of the composite body. When flushed, the
+     * segments are replaced by the serialized content.
+     *
+     * @param <T> the type of the content
+     */
+    protected class CompositeContent<T> implements Content<T> {
+
+        private final @NotNull HttpVersion<?> version;
+        private final @NotNull MediaType<T> mediaType;
+        private volatile @NotNull T data;
+
+        public CompositeContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType, @NotNull T data) {
+            this.version = version;
+            this.mediaType = mediaType;
+            this.data = data;
+        }
+
+        // Getters
+
+        @Override
+        public @NotNull MediaType<T> getMediaType() {
+            return mediaType;
+        }
+        @Override
+        public @NotNull HttpBody getBody() {
+            return HttpCompositeBody.this;
+        }
+        @Override
+        public @NotNull HttpVersion<?> getVersion() {
+            return version;
+        }
+
+        @Override
+        public @NotNull T getData() {
+            return data;
+        }
+        @Override
+        public void setData(@NotNull T data, boolean autoFlush) throws IOException {
+            this.data = data;
+            if (autoFlush) flush();
+        }
+
+        // Modules
+
+        /**
+         * Flushes the current content data to the body, replacing all the segments by a single one. The body
+         * created by a previous flush is closed, its readers keep reading it.
+         *
+         * @throws IOException if an I/O error occurs or if the http body is closed
+         */
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getMediaType().getParser().serialize(getVersion(), getData(), getMediaType().getParameters())) {
+                    @NotNull HttpBody body = HttpBody.create(stream);
+                    @Nullable HttpBody previous = owned;
+
+                    segments = Collections.singletonList(new BodySegment(body));
+                    owned = body;
+
+                    if (previous != null) previous.close();
+                } catch (@NotNull MediaParserException e) {
+                    throw new RuntimeException("cannot flush http composite body", e);
+                }
+            }
+        }
+    }
+
+}
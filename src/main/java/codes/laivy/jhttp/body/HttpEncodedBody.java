@@ -4,13 +4,23 @@ import codes.laivy.jhttp.deferred.Deferred;
 import codes.laivy.jhttp.encoding.Encoding;
 import codes.laivy.jhttp.exception.DeferredException;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaders;
-import jdk.internal.util.xml.impl.Input;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_ENCODING;
+import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
 
 /**
  * Represents an HTTP body that has been encoded with transfer and content encodings that may not be
@@ -70,8 +80,33 @@ public class HttpEncodedBody extends HttpBigBody {
         this.contentEncodings = contentEncodings;
     }
 
+    /**
+     * Constructs an {@link HttpEncodedBody} sharing the file and the encodings of another encoded body, without
+     * copying the data.
+     *
+     * @param body the encoded body to share
+     * @throws IOException if the body is closed
+     */
+    protected HttpEncodedBody(@NotNull HttpEncodedBody body) throws IOException {
+        super(body);
+        this.transferEncodings = body.transferEncodings.clone();
+        this.contentEncodings = body.contentEncodings.clone();
+    }
+
     // Modules
 
+    /**
+     * Clones this body sharing its encoded file, the clone keeps the encodings of this body.
+     *
+     * @param version the http version to create the body
+     * @return a new encoded body sharing the data
+     * @throws IOException if the http body is closed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        return new HttpEncodedBody(this);
+    }
+
     @Override
     public @NotNull InputStream getInputStream() throws IOException {
         throw new UnsupportedOperationException("cannot read the body of an encoded body");
@@ -80,6 +115,16 @@ public class HttpEncodedBody extends HttpBigBody {
         return super.getInputStream();
     }
 
+    /**
+     * The decoded length of an encoded body is unknown
+     *
+     * @return always empty
+     */
+    @Override
+    public @NotNull OptionalLong getLength() {
+        return OptionalLong.empty();
+    }
+
     // Getters
 
     /**
@@ -118,10 +163,61 @@ public class HttpEncodedBody extends HttpBigBody {
         this.contentEncodings = contentEncodings;
     }
 
+    /**
+     * Writes the encoded data as it is, without decoding it. The content encodings of the headers must be the same
+     * content encodings of this body, and the transfer encodings of this body must be the first transfer encodings
+     * of the headers; the remaining transfer encodings (as the chunked one) are applied while writing.
+     *
+     * @param headers the headers used to retrieve the encodings
+     * @param out the output stream the data will be written
+     *
+     * @throws IOException if an I/O exception occurs while writing.
+     * @throws EncodingException if the encodings of the headers doesn't match the encodings of this body
+     * @throws DeferredException if any of the remaining transfer encodings isn't available
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public void write(@NotNull HttpHeaders headers, @NotNull OutputStream out) throws IOException, EncodingException {
-        // todo: write encoded body mechanic
-        throw new DeferredException("you cannot write an deferred encoded body");
+        @NotNull Deferred<Encoding>[] content = headers.first(CONTENT_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0]);
+        @NotNull Deferred<Encoding>[] transfer = headers.first(TRANSFER_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0]);
+
+        // The encoded data cannot be re-encoded, the content encodings must match exactly
+        if (!names(content).equals(names(getContentEncodings()))) {
+            throw new EncodingException("the content encodings " + Arrays.toString(content) + " doesn't match the encoded body " + Arrays.toString(getContentEncodings()));
+        }
+
+        @NotNull List<String> applied = names(getTransferEncodings());
+        @NotNull List<String> declared = names(transfer);
+
+        if (declared.size() < applied.size() || !declared.subList(0, applied.size()).equals(applied)) {
+            throw new EncodingException("the transfer encodings " + Arrays.toString(transfer) + " doesn't match the encoded body " + Arrays.toString(getTransferEncodings()));
+        }
+
+        @NotNull Encoding[] remaining = new Encoding[transfer.length - applied.size()];
+        for (int index = 0; index < remaining.length; index++) {
+            remaining[index] = transfer[applied.size() + index].retrieve();
+        }
+
+        try (@NotNull InputStream stream = getEncodedInputStream();
+             @NotNull OutputStream encoder = BodyUtils.encoder(new Encoding[0], remaining, out);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+
+            byte[] buffer = pooled.array();
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                encoder.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static @NotNull List<String> names(@NotNull Deferred<Encoding> @NotNull [] encodings) {
+        @NotNull List<String> names = new ArrayList<>(encodings.length);
+        for (@NotNull Deferred<Encoding> encoding : encodings) {
+            // The aliases are compared by the name of the encoding
+            names.add((encoding.available() ? encoding.retrieve().getName() : encoding.toString()).toLowerCase());
+        }
+
+        return names;
     }
 
 }
\ No newline at end of file
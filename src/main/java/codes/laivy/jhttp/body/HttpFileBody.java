@@ -0,0 +1,366 @@
+package codes.laivy.jhttp.body;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_LENGTH;
+
+/**
+ * An HTTP body that references an existing file, without copying it. It's the body used to serve the files.
+ * <p>
+ * When the body is written without any content or transfer encoding, the file is transferred by
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, that uses the operating system (sendfile at
+ * Linux) to send the data without copying it to the user space. With encodings, the file is read with positional
+ * reads into pooled buffers.
+ * <p>
+ * The file is never modified nor deleted by the body. The contents flushed are written to a {@link Spool} file,
+ * that replaces the file as the data of this body, and it's deleted when the body and its readers are closed.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class HttpFileBody implements HttpBody {
+
+    // Object
+
+    protected final @NotNull Object lock = new Object();
+    protected final @NotNull Map<MediaType<?>, Content<?>> contentMap = new HashMap<>();
+    private volatile @NotNull Path path;
+    private @Nullable SpoolFile spool;
+
+    protected volatile boolean closed = false;
+
+    /**
+     * Constructs an instance of {@link HttpFileBody} referencing the provided file.
+     *
+     * @param path the file with the HTTP body data
+     * @throws IOException if the file doesn't exist or isn't a regular file
+     */
+    public HttpFileBody(@NotNull Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("the path '" + path + "' isn't a regular file");
+        }
+
+        this.path = path;
+    }
+
+    // Getters
+
+    /**
+     * @return the file with the HTTP body data, the spool file with the flushed data if a content has been flushed
+     */
+    public final @NotNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the current size of the file, in bytes
+     * @throws IOException if an I/O error occurs reading the file attributes
+     */
+    public long length() throws IOException {
+        return Files.size(path);
+    }
+
+    @Override
+    public @NotNull OptionalLong getLength() throws IOException {
+        return OptionalLong.of(length());
+    }
+
+    // Modules
+
+    /**
+     * Transfers the file to a channel, by the operating system when it's supported
+     *
+     * @param channel the channel that will receive the data
+     * @param limit the maximum amount of bytes to transfer
+     * @return the amount of bytes transferred
+     * @throws IOException if an I/O error occurs, or if the body is closed
+     */
+    public long transferTo(@NotNull WritableByteChannel channel, long limit) throws IOException {
+        @Nullable SpoolFile spool;
+        @NotNull Path path;
+
+        synchronized (lock) {
+            spool = acquire();
+            path = this.path;
+        }
+
+        try (@NotNull FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = Math.min(file.size(), limit);
+            long position = 0;
+
+            while (position < length) {
+                long transferred = file.transferTo(position, length - position, channel);
+                if (transferred <= 0) break;
+
+                position += transferred;
+            }
+
+            return position;
+        } finally {
+            if (spool != null) spool.release();
+        }
+    }
+
+    /**
+     * Retains the spool file with the flushed data (if there's one), so it isn't deleted while read
+     *
+     * @return the retained spool file, or null if the data is at the original file
+     * @throws IOException if the body is closed
+     */
+    private @Nullable SpoolFile acquire() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            return spool != null ? spool.retain() : null;
+        }
+    }
+
+    @Override
+    public @NotNull <T> Content<T> getContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType) throws MediaParserException, IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull Content<T> content;
+
+        if (contentMap.containsKey(mediaType)) {
+            //noinspection unchecked
+            content = (Content<T>) contentMap.get(mediaType);
+        } else {
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getInputStream()) {
+                    @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, stream);
+                    content = new FileContent<>(version, mediaType, data);
+                }
+            }
+
+            contentMap.put(mediaType, content);
+        }
+
+        return content;
+    }
+
+    @Override
+    public @NotNull InputStream getInputStream() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            return spool != null ? spool.newInputStream() : Files.newInputStream(path);
+        }
+    }
+
+    @Override
+    public void write(@NotNull HttpHeaders headers, @NotNull OutputStream out) throws IOException, EncodingException {
+        @Nullable Long limit = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
+        long remaining = limit != null ? limit : Long.MAX_VALUE;
+
+        if (BodyUtils.identity(headers)) {
+            transferTo(BodyUtils.channel(out), remaining);
+            out.flush();
+
+            return;
+        }
+
+        @Nullable SpoolFile spool;
+        @NotNull Path path;
+
+        synchronized (lock) {
+            spool = acquire();
+            path = this.path;
+        }
+
+        try (@NotNull FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+             @NotNull OutputStream encoder = BodyUtils.encoder(headers, out);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(64 * 1024)) {
+
+            byte[] array = pooled.array();
+            long position = 0;
+
+            while (remaining > 0) {
+                @NotNull ByteBuffer buffer = ByteBuffer.wrap(array, 0, (int) Math.min(array.length, remaining));
+
+                int read = file.read(buffer, position);
+                if (read == -1) break;
+
+                encoder.write(array, 0, read);
+
+                position += read;
+                remaining -= read;
+            }
+        } finally {
+            if (spool != null) spool.release();
+        }
+    }
+
+    /**
+     * Replaces the data of this body by a new spool file with the given data. The original file isn't touched,
+     * the readers of the previous data keep reading it.
+     *
+     * @param stream the input stream containing the new data
+     * @throws IOException if an I/O error occurs writing the spool file
+     */
+    protected void update(@NotNull InputStream stream) throws IOException {
+        @NotNull SpoolFile replacement = Spool.getDefault().create("-file_body");
+        @Nullable SpoolFile previous;
+
+        try {
+            Files.copy(stream, replacement.getPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (@NotNull IOException e) {
+            replacement.release();
+            throw e;
+        }
+
+        synchronized (lock) {
+            previous = spool;
+
+            spool = replacement;
+            path = replacement.getPath();
+        }
+
+        if (previous != null) previous.release();
+    }
+
+    /**
+     * Closes this {@code HttpFileBody}. The original file isn't deleted, the spool file with the flushed data
+     * (if there's one) is released.
+     *
+     * @throws IOException if this http body is already closed
+     */
+    @Override
+    public void close() throws IOException {
+        @Nullable SpoolFile spool;
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is already closed");
+            }
+
+            closed = true;
+            spool = this.spool;
+            this.spool = null;
+        }
+
+        if (spool != null) spool.release();
+    }
+
+    // Implementations
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        @NotNull HttpFileBody that = (HttpFileBody) object;
+        return Objects.equals(path, that.path);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(path);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "HttpFileBody{" +
+                "path=" + path +
+                '}';
+    }
+
+    // Classes
+
+    /**
+     * This inner class represents the content of a specific media type stored at the file.
+     *
+     * @param <T> the type of the content
+     */
+    protected class FileContent<T> implements Content<T> {
+
+        private final @NotNull HttpVersion<?> version;
+        private final @NotNull MediaType<T> mediaType;
+        private volatile @NotNull T data;
+
+        public FileContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType, @NotNull T data) {
+            this.version = version;
+            this.mediaType = mediaType;
+            this.data = data;
+        }
+
+        // Getters
+
+        @Override
+        public @NotNull MediaType<T> getMediaType() {
+            return mediaType;
+        }
+        @Override
+        public @NotNull HttpBody getBody() {
+            return HttpFileBody.this;
+        }
+        @Override
+        public @NotNull HttpVersion<?> getVersion() {
+            return version;
+        }
+
+        @Override
+        public @NotNull T getData() {
+            return data;
+        }
+        @Override
+        public void setData(@NotNull T data, boolean autoFlush) throws IOException {
+            this.data = data;
+            if (autoFlush) flush();
+        }
+
+        // Modules
+
+        /**
+         * Flushes the current content data to a new spool file, that becomes the data of the body. The original
+         * file isn't modified.
+         *
+         * @throws IOException if an I/O error occurs during writing to the file or if the http body is closed
+         */
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getMediaType().getParser().serialize(getVersion(), getData(), getMediaType().getParameters())) {
+                    update(stream);
+                } catch (@NotNull MediaParserException e) {
+                    throw new RuntimeException("cannot flush http file body", e);
+                }
+            }
+        }
+    }
+
+}
@@ -1,8 +1,6 @@
 package codes.laivy.jhttp.body;
 
-import codes.laivy.jhttp.deferred.Deferred;
 import codes.laivy.jhttp.encoding.ChunkedEncoding;
-import codes.laivy.jhttp.encoding.ChunkedEncoding.Chunk;
 import codes.laivy.jhttp.encoding.Encoding;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import codes.laivy.jhttp.exception.media.MediaParserException;
@@ -10,8 +8,11 @@ import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaders;
 import codes.laivy.jhttp.media.Content;
 import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
 import codes.laivy.jhttp.network.BitMeasure;
 import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -20,6 +21,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 
 import static codes.laivy.jhttp.headers.HttpHeaderKey.*;
 
@@ -50,14 +52,13 @@ public class HttpSimpleBody implements HttpBody {
      * @throws IOException if an I/O exception occurs.
      */
     public HttpSimpleBody(@NotNull InputStream stream) throws IOException {
-        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-            @NotNull BitMeasure size = BitMeasure.create(BitMeasure.Level.KILOBYTES, 2D);
-            byte[] bytes = new byte[(int) size.getBytes()];
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(2048)) {
+            byte[] bytes = pooled.array();
 
             int read;
             while ((read = stream.read(bytes)) != -1) {
                 output.write(bytes, 0, read);
-                output.flush();
             }
 
             this.bytes = output.toByteArray();
@@ -67,7 +68,8 @@ public class HttpSimpleBody implements HttpBody {
     // Getters
 
     /**
-     * Returns the byte array containing the HTTP body data.
+     * Returns the byte array containing the HTTP body data. The array is shared with the clones of this body, and
+     * must not be modified.
      *
      * @return the byte array
      * @throws IOException if the http body is closed
@@ -79,6 +81,11 @@ public class HttpSimpleBody implements HttpBody {
         return bytes;
     }
 
+    @Override
+    public @NotNull OptionalLong getLength() throws IOException {
+        return OptionalLong.of(getBytes().length);
+    }
+
     /**
      * Retrieves the content of the specified media type from the byte array.
      *
@@ -102,7 +109,7 @@ public class HttpSimpleBody implements HttpBody {
             //noinspection unchecked
             content = (Content<T>) contentMap.get(mediaType);
         } else {
-            @NotNull T data = mediaType.getParser().deserialize(version, getInputStream(), mediaType.getParameters());
+            @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, getInputStream());
             content = new SimpleContent<>(version, mediaType, data);
 
             contentMap.put(mediaType, content);
@@ -125,30 +132,34 @@ public class HttpSimpleBody implements HttpBody {
         return new ByteArrayInputStream(bytes);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void write(@NotNull HttpHeaders headers, @NotNull OutputStream stream) throws IOException, EncodingException {
         @Nullable Long length = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
-        @Nullable ChunkedEncoding chunked = (ChunkedEncoding) Arrays.stream(headers.first(TRANSFER_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0])).filter(deferred -> deferred.toString().equalsIgnoreCase("chunked")).map(Deferred::retrieve).findFirst().orElse(null);
 
         byte[] bytes = getBytes(); // Get the bytes
-        bytes = Arrays.copyOf(bytes, length != null ? Math.toIntExact(length) : bytes.length); // Copy the bytes (with the length applied if specified)
-        bytes = BodyUtils.encode(headers, bytes);
-
-        // Apply the chunked encoding
-        if (chunked != null) {
-            for (@NotNull Chunk chunk : chunked.chunked(bytes)) {
-                chunk.write(stream);
-                stream.flush();
-            }
-        } else {
-            stream.write(bytes);
-            stream.flush();
+        int size = length != null ? (int) Math.min(length, bytes.length) : bytes.length; // The length applied if specified
+
+        // Apply all the encodings (the chunked included) as a single stream
+        try (@NotNull OutputStream encoder = BodyUtils.encoder(headers, stream)) {
+            encoder.write(bytes, 0, size);
         }
     }
 
     // Modules
 
+    /**
+     * Clones this body sharing its byte array, without copying it. The flushed contents replace the array
+     * instead of modifying it, so the bodies stay independent.
+     *
+     * @param version the http version to create the body
+     * @return a new http body sharing the data
+     * @throws IOException if the http body is closed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        return new HttpSimpleBody(getBytes());
+    }
+
     /**
      * Closes all the contents and flush the byte array
      *
@@ -285,15 +296,14 @@ public class HttpSimpleBody implements HttpBody {
             }
 
             try (@NotNull InputStream stream = getMediaType().getParser().serialize(getVersion(), getData(), getMediaType().getParameters());
-                 @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()
+                 @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+                 @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(2048)
             ) {
-                @NotNull BitMeasure size = BitMeasure.create(BitMeasure.Level.KILOBYTES, 2D);
-                byte[] buffer = new byte[(int) size.getBytes()];
+                byte[] buffer = pooled.array();
 
                 int read;
                 while ((read = stream.read(buffer)) != -1) {
                     output.write(buffer, 0, read);
-                    output.flush();
                 }
 
                 HttpSimpleBody.this.bytes = output.toByteArray();
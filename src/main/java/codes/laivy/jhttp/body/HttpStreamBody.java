@@ -0,0 +1,704 @@
+package codes.laivy.jhttp.body;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_LENGTH;
+
+/**
+ * An HTTP body produced while it's written, instead of stored. The data is pushed by the application to a sink
+ * ({@link Producer}) or pulled from a {@link Source}, so large or live contents (a CSV export, a proxied feed) are
+ * sent without being buffered first.
+ * <p>
+ * The data is flushed to the client every time the pending bytes reach the flush size, or the flush interval
+ * elapses, so the first bytes arrive immediately. When the length is unknown, the response factories select the
+ * chunked transfer encoding automatically, and every flush sends a chunk.
+ * <p>
+ * The body can only be consumed once, by {@link #write(HttpHeaders, OutputStream)} or {@link #getInputStream()}.
+ * When the length is declared, producing more or less data than it fails the write.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class HttpStreamBody implements HttpBody {
+
+    // Static initializers
+
+    private static final @NotNull ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        @NotNull Thread thread = new Thread(runnable, "jhttp-stream-flusher");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * The default executor of the producers read by {@link #getInputStream()}, the producers beyond its threads
+     * wait for a free one.
+     */
+    private static final @NotNull ThreadPoolExecutor PRODUCERS;
+
+    static {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        @NotNull AtomicInteger count = new AtomicInteger();
+
+        PRODUCERS = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            @NotNull Thread thread = new Thread(runnable, "jhttp-stream-producer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        PRODUCERS.allowCoreThreadTimeOut(true);
+    }
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    public static @NotNull HttpStreamBody push(@NotNull Producer producer) {
+        return builder().producer(producer).build();
+    }
+    public static @NotNull HttpStreamBody pull(@NotNull Source source) {
+        return builder().source(source).build();
+    }
+    public static @NotNull HttpStreamBody publisher(@NotNull Publisher<ByteBuffer> publisher) {
+        return builder().publisher(publisher).build();
+    }
+
+    // Object
+
+    protected final @NotNull Object lock = new Object();
+    protected final @NotNull Map<MediaType<?>, Content<?>> contentMap = new HashMap<>();
+
+    private final @Nullable Producer producer;
+    private final @Nullable Source source;
+    private final long length;
+    private final int flushSize;
+    private final @NotNull Duration flushInterval;
+    private final @NotNull Executor executor;
+
+    private final @NotNull AtomicBoolean consumed = new AtomicBoolean(false);
+
+    // The data flushed by a content, it replaces the stream
+    private volatile @Nullable HttpBody replacement;
+    protected volatile boolean closed = false;
+
+    private HttpStreamBody(@Nullable Producer producer, @Nullable Source source, long length, int flushSize, @NotNull Duration flushInterval, @NotNull Executor executor) {
+        this.producer = producer;
+        this.source = source;
+        this.length = length;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.executor = executor;
+    }
+
+    // Getters
+
+    /**
+     * @return the declared length of the data, in bytes, or empty if it's unknown
+     */
+    @Override
+    public @NotNull OptionalLong getLength() {
+        return length >= 0 ? OptionalLong.of(length) : OptionalLong.empty();
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+    public @NotNull Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @return true if the stream has already been consumed
+     */
+    public boolean isConsumed() {
+        return consumed.get();
+    }
+
+    // Modules
+
+    private void consume() throws IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        } else if (!consumed.compareAndSet(false, true)) {
+            throw new IOException("this http stream body has already been consumed");
+        }
+    }
+
+    @Override
+    public @NotNull <T> Content<T> getContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType) throws MediaParserException, IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull Content<T> content;
+
+        if (contentMap.containsKey(mediaType)) {
+            //noinspection unchecked
+            content = (Content<T>) contentMap.get(mediaType);
+        } else {
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getInputStream()) {
+                    @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, stream);
+                    content = new StreamContent<>(version, mediaType, data);
+                }
+            }
+
+            contentMap.put(mediaType, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Returns a stream with the produced data. A producer runs at a thread of the executor, writing to the stream.
+     *
+     * @return the stream with the data
+     * @throws IOException if the stream has already been consumed, or if the body is closed
+     */
+    @Override
+    public @NotNull InputStream getInputStream() throws IOException {
+        @Nullable HttpBody replacement = this.replacement;
+        if (replacement != null) return replacement.getInputStream();
+
+        consume();
+
+        if (source != null) {
+            return new SourceInputStream(source);
+        }
+
+        @NotNull Producer producer = this.producer;
+        @NotNull ProducerInputStream input = new ProducerInputStream();
+        @NotNull PipedOutputStream output = new PipedOutputStream(input);
+
+        @NotNull Runnable task = () -> {
+            try {
+                producer.produce(output);
+            } catch (@NotNull Throwable throwable) {
+                // Before closing, so the reader sees it at the end of the data
+                input.failure = throwable;
+            } finally {
+                try {
+                    output.close();
+                } catch (@NotNull IOException ignore) {
+                    // The reader has been closed
+                }
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (@NotNull RejectedExecutionException e) {
+            throw new IOException("cannot start the stream body producer", e);
+        }
+
+        return input;
+    }
+
+    @Override
+    public void write(@NotNull HttpHeaders headers, @NotNull OutputStream out) throws IOException, EncodingException {
+        @Nullable HttpBody replacement = this.replacement;
+        if (replacement != null) {
+            replacement.write(headers, out);
+            return;
+        }
+
+        consume();
+
+        // The declared length, or the content length when the data is written as it is
+        @Nullable Long limit = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
+        long expected = length >= 0 ? length : limit != null && BodyUtils.identity(headers) ? limit : -1;
+
+        // Apply all the encodings (the chunked included) as a single stream, flushed by the thresholds
+        @NotNull Gate gate = new Gate(out);
+        @NotNull OutputStream encoder = BodyUtils.encoder(headers, gate);
+        boolean success = false;
+
+        try {
+            try (@NotNull Sink sink = new Sink(encoder, expected)) {
+                if (producer != null) {
+                    producer.produce(sink);
+                } else if (source != null) try (@NotNull Source source = this.source) {
+                    byte[] bytes;
+                    while ((bytes = source.next()) != null) {
+                        sink.write(bytes);
+                    }
+                }
+            }
+
+            // Finishes the encodings, as the terminating chunk and the gzip trailer
+            encoder.close();
+            success = true;
+        } finally {
+            if (!success) {
+                // The encodings are released without being finished, so the truncated data isn't
+                // framed as a complete message and the connection must be aborted
+                gate.open = false;
+
+                try {
+                    encoder.close();
+                } catch (@NotNull IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A stream body can't be cloned, the data is only produced once
+     *
+     * @param version the http version to create the body
+     * @return never returns
+     * @throws IOException always, unless a content has been flushed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        @Nullable HttpBody replacement = this.replacement;
+
+        if (replacement != null) {
+            return replacement.clone(version);
+        } else {
+            throw new IOException("an http stream body cannot be cloned");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            throw new IOException("this http body is already closed");
+        }
+
+        closed = true;
+
+        @Nullable HttpBody replacement = this.replacement;
+        if (replacement != null) replacement.close();
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "HttpStreamBody{" +
+                "length=" + length +
+                ", flushSize=" + flushSize +
+                ", flushInterval=" + flushInterval +
+                ", consumed=" + isConsumed() +
+                '}';
+    }
+
+    // Classes
+
+    /**
+     * Pushes the data of a stream body to a sink. The sink must not be closed by the producer.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        void produce(@NotNull OutputStream sink) throws IOException;
+    }
+
+    /**
+     * Supplies the data of a stream body, part by part. The source is closed when the body stops consuming it,
+     * even before the end of the data.
+     */
+    @FunctionalInterface
+    public interface Source extends Closeable {
+
+        /**
+         * @return the next part of the data, or null if there's no more data
+         * @throws IOException if an I/O error occurs producing the data
+         */
+        byte @Nullable [] next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+
+    }
+
+    public static final class Builder {
+
+        private @Nullable Producer producer;
+        private @Nullable Source source;
+        private long length = -1;
+        private int flushSize = 8192;
+        private @NotNull Duration flushInterval = Duration.ofMillis(200);
+        private @NotNull Executor executor = PRODUCERS;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        @Contract("_->this")
+        public @NotNull Builder producer(@NotNull Producer producer) {
+            this.producer = producer;
+            this.source = null;
+            return this;
+        }
+        @Contract("_->this")
+        public @NotNull Builder source(@NotNull Source source) {
+            this.source = source;
+            this.producer = null;
+            return this;
+        }
+
+        /**
+         * Uses a Reactive Streams publisher as the source. The buffers are requested from the publisher as they're
+         * written, with a bounded prefetch, so a slow client applies backpressure to the publisher.
+         *
+         * @param publisher the publisher of the data
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder publisher(@NotNull Publisher<ByteBuffer> publisher) {
+            return source(new PublisherSource(publisher, PublisherSource.PREFETCH));
+        }
+
+        /**
+         * Declares the length of the data, the response factories write a {@code Content-Length} instead of the
+         * chunked transfer encoding. The write fails if the data is longer or shorter than it.
+         *
+         * @param length the length, in bytes, or -1 if it's unknown
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder length(long length) {
+            this.length = length;
+            return this;
+        }
+
+        /**
+         * Sets the amount of pending bytes that flushes the data to the client. The default is 8 kilobytes.
+         *
+         * @param flushSize the flush size, in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder flushSize(int flushSize) {
+            if (flushSize <= 0) {
+                throw new IllegalArgumentException("the flush size must be positive");
+            }
+
+            this.flushSize = flushSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time the pending bytes wait to be flushed to the client. The default is 200 milliseconds.
+         *
+         * @param flushInterval the flush interval, or zero to only flush by the size
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder flushInterval(@NotNull Duration flushInterval) {
+            if (flushInterval.isNegative()) {
+                throw new IllegalArgumentException("the flush interval cannot be negative");
+            }
+
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs the producer when the body is read by {@link HttpStreamBody#getInputStream()}.
+         * The default is a shared pool with a bounded amount of threads.
+         *
+         * @param executor the executor of the producer
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder executor(@NotNull Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull HttpStreamBody build() {
+            if (producer == null && source == null) {
+                throw new IllegalStateException("a producer or source must be defined");
+            }
+
+            return new HttpStreamBody(producer, source, length, flushSize, flushInterval, executor);
+        }
+
+    }
+
+    /**
+     * Writes to the encoders, flushing by the size and time thresholds. When the length is expected, the data
+     * beyond it fails the write, and a shorter data fails the close.
+     */
+    private final class Sink extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+        private final @Nullable ScheduledFuture<?> timer;
+        private final byte[] single = new byte[1];
+
+        private final long expected;
+        private long remaining;
+        private int pending = 0;
+        private long written = System.nanoTime();
+        private boolean closed = false;
+
+        private Sink(@NotNull OutputStream stream, long expected) {
+            this.stream = stream;
+            this.expected = expected;
+            this.remaining = expected >= 0 ? expected : Long.MAX_VALUE;
+
+            long interval = flushInterval.toNanos();
+            this.timer = interval > 0 ? FLUSHER.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.NANOSECONDS) : null;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+        @Override
+        public synchronized void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("the stream body sink is closed");
+            } else if (length > remaining) {
+                throw new IOException("the stream body produced more than the declared length of " + expected + " bytes");
+            } else if (length <= 0) {
+                return;
+            }
+
+            stream.write(bytes, offset, length);
+            remaining -= length;
+
+            if (pending == 0) written = System.nanoTime();
+            pending += length;
+
+            if (pending >= flushSize) flush();
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (closed || pending == 0) return;
+
+            stream.flush();
+            pending = 0;
+        }
+
+        private synchronized void tick() {
+            if (!closed && pending > 0 && System.nanoTime() - written >= flushInterval.toNanos()) try {
+                flush();
+            } catch (@NotNull IOException ignore) {
+                // The next write will fail too
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) return;
+
+            // The encoders are finished by the body
+            closed = true;
+            if (timer != null) timer.cancel(false);
+
+            if (expected >= 0 && remaining > 0) {
+                throw new IOException("the stream body produced " + (expected - remaining) + " bytes of the declared length of " + expected + " bytes");
+            }
+        }
+
+    }
+
+    /**
+     * Passes the encoded data to the stream, until the body fails. After that, everything written is discarded.
+     */
+    private static final class Gate extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+        private volatile boolean open = true;
+
+        private Gate(@NotNull OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (open) stream.write(b);
+        }
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (open) stream.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (open) stream.flush();
+        }
+        @Override
+        public void close() {
+            // The given stream is never closed by the body
+        }
+
+    }
+
+    private static final class SourceInputStream extends InputStream {
+
+        private final @NotNull Source source;
+        private byte @Nullable [] current = new byte[0];
+        private int position = 0;
+        private boolean closed = false;
+
+        private SourceInputStream(@NotNull Source source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            else if (closed) throw new IOException("the stream is closed");
+
+            while (current != null && position == current.length) {
+                current = source.next();
+                position = 0;
+            }
+
+            if (current == null) return -1;
+
+            length = Math.min(length, current.length - position);
+            System.arraycopy(current, position, bytes, offset, length);
+            position += length;
+
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+
+            closed = true;
+            source.close();
+        }
+
+    }
+
+    private static final class ProducerInputStream extends PipedInputStream {
+
+        private volatile @Nullable Throwable failure;
+
+        private ProducerInputStream() {
+            super(8192);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            return check(super.read());
+        }
+        @Override
+        public synchronized int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            return check(super.read(bytes, offset, length));
+        }
+
+        private int check(int read) throws IOException {
+            @Nullable Throwable failure = this.failure;
+
+            if (read == -1 && failure != null) {
+                throw new IOException("the stream body producer has failed", failure);
+            }
+
+            return read;
+        }
+
+    }
+
+    /**
+     * This inner class represents the content of a specific media type of the stream body. When flushed, the
+     * stream is replaced by the serialized content.
+     *
+     * @param <T> the type of the content
+     */
+    protected class StreamContent<T> implements Content<T> {
+
+        private final @NotNull HttpVersion<?> version;
+        private final @NotNull MediaType<T> mediaType;
+        private volatile @NotNull T data;
+
+        public StreamContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType, @NotNull T data) {
+            this.version = version;
+            this.mediaType = mediaType;
+            this.data = data;
+        }
+
+        // Getters
+
+        @Override
+        public @NotNull MediaType<T> getMediaType() {
+            return mediaType;
+        }
+        @Override
+        public @NotNull HttpBody getBody() {
+            return HttpStreamBody.this;
+        }
+        @Override
+        public @NotNull HttpVersion<?> getVersion() {
+            return version;
+        }
+
+        @Override
+        public @NotNull T getData() {
+            return data;
+        }
+        @Override
+        public void setData(@NotNull T data, boolean autoFlush) throws IOException {
+            this.data = data;
+            if (autoFlush) flush();
+        }
+
+        // Modules
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getMediaType().getParser().serialize(getVersion(), getData(), getMediaType().getParameters())) {
+                    @Nullable HttpBody previous = replacement;
+                    replacement = HttpBody.create(stream);
+
+                    if (previous != null) previous.close();
+                } catch (@NotNull MediaParserException e) {
+                    throw new RuntimeException("cannot flush http stream body", e);
+                }
+            }
+        }
+    }
+
+}
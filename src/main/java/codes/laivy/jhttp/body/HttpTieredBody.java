@@ -0,0 +1,736 @@
+package codes.laivy.jhttp.body;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_LENGTH;
+
+/**
+ * An HTTP body stored at the cheapest tier for its size:
+ * <ul>
+ *     <li>{@link Tier#HEAP}: the small bodies, below {@link #HEAP_THRESHOLD}, are stored as a byte array.</li>
+ *     <li>{@link Tier#DIRECT}: the medium bodies are stored at direct buffers leased from a
+ *     {@link BufferAllocator}, without creating any file.</li>
+ *     <li>{@link Tier#DISK}: the large bodies, from {@link #DISK_THRESHOLD}, or the bodies that doesn't fit at
+ *     the {@link #DIRECT_BUDGET}, are spilled to a temporary file.</li>
+ * </ul>
+ * The tier is chosen while the data is read, so the size doesn't need to be known in advance. All the tiers are
+ * read by the same zero-copy API: {@link #getBuffers()} returns read-only views of the stored data (the file is
+ * memory-mapped), and {@link #transferTo(WritableByteChannel)} transfers the data to a channel (the file is
+ * transferred by the operating system).
+ * <p>
+ * The stored data is reference counted by the bodies sharing it and by its readers, it's only given back to the
+ * allocator (or deleted) when the last of them is done. A flushed content replaces the data without invalidating
+ * the streams and views already open.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class HttpTieredBody implements HttpBody {
+
+    // Static initializers
+
+    /**
+     * The bodies smaller than this size are stored at the heap. The default value is 32 kilobytes.
+     */
+    public static @NotNull BitMeasure HEAP_THRESHOLD = BitMeasure.create(BitMeasure.Level.KILOBYTES, 32D);
+
+    /**
+     * The bodies with this size or larger are spilled to the disk. The default value is 4 megabytes.
+     */
+    public static @NotNull BitMeasure DISK_THRESHOLD = BitMeasure.create(BitMeasure.Level.MEGABYTES, 4D);
+
+    /**
+     * The maximum amount of bytes stored at the direct tier by all the bodies, the bodies that doesn't fit are
+     * spilled to the disk. The default value is 64 megabytes.
+     */
+    public static @NotNull BitMeasure DIRECT_BUDGET = BitMeasure.create(BitMeasure.Level.MEGABYTES, 64D);
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final @NotNull AtomicLong direct = new AtomicLong();
+
+    /**
+     * @return the amount of bytes currently stored at the direct tier by all the bodies
+     */
+    public static long getDirectUsage() {
+        return direct.get();
+    }
+
+    private static boolean reserve() {
+        long budget = DIRECT_BUDGET.getBytes();
+        long current;
+
+        do {
+            current = direct.get();
+            if (current + SEGMENT_SIZE > budget) return false;
+        } while (!direct.compareAndSet(current, current + SEGMENT_SIZE));
+
+        return true;
+    }
+    private static void release(@NotNull List<PooledBuffer> segments) {
+        for (@NotNull PooledBuffer segment : segments) {
+            segment.release();
+        }
+
+        direct.addAndGet(-((long) segments.size() * SEGMENT_SIZE));
+    }
+
+    // Object
+
+    protected final @NotNull Object lock = new Object();
+    protected final @NotNull Map<MediaType<?>, Content<?>> contentMap = new HashMap<>();
+    private final @NotNull BufferAllocator allocator;
+
+    private volatile @NotNull Storage storage;
+    protected volatile boolean closed = false;
+
+    // The storages with views returned by the getBuffers, kept until this body is closed
+    private final @NotNull Set<Storage> viewed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Constructs an instance of {@link HttpTieredBody} with the provided byte array, using the default allocator.
+     *
+     * @param bytes the bytes containing the HTTP body data
+     * @throws IOException if an I/O error occurs spilling the data to the disk
+     */
+    public HttpTieredBody(byte @NotNull [] bytes) throws IOException {
+        this(new ByteArrayInputStream(bytes), BufferAllocator.getDefault());
+    }
+
+    /**
+     * Constructs an instance of {@link HttpTieredBody} with the provided stream, using the default allocator.
+     *
+     * @param stream the input stream containing the HTTP body data
+     * @throws IOException if an I/O error occurs reading the stream or spilling the data to the disk
+     */
+    public HttpTieredBody(@NotNull InputStream stream) throws IOException {
+        this(stream, BufferAllocator.getDefault());
+    }
+
+    /**
+     * Constructs an instance of {@link HttpTieredBody} with the provided stream and allocator.
+     *
+     * @param stream the input stream containing the HTTP body data
+     * @param allocator the allocator of the direct buffers
+     * @throws IOException if an I/O error occurs reading the stream or spilling the data to the disk
+     */
+    public HttpTieredBody(@NotNull InputStream stream, @NotNull BufferAllocator allocator) throws IOException {
+        this.allocator = allocator;
+        this.storage = store(stream);
+    }
+
+    /**
+     * Constructs an instance of {@link HttpTieredBody} sharing the storage of another body, without copying it. The
+     * data is only copied when any of the bodies is updated.
+     *
+     * @param body the body with the storage to share
+     * @throws IOException if the body is closed
+     */
+    protected HttpTieredBody(@NotNull HttpTieredBody body) throws IOException {
+        synchronized (body.lock) {
+            if (body.closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            this.allocator = body.allocator;
+            this.storage = body.storage.retain();
+        }
+    }
+
+    // Getters
+
+    /**
+     * @return the tier where the data is currently stored
+     */
+    public final @NotNull Tier getTier() {
+        return storage.tier;
+    }
+
+    /**
+     * @return the size of the data, in bytes
+     */
+    public final long length() {
+        return storage.length;
+    }
+
+    @Override
+    public @NotNull OptionalLong getLength() {
+        return OptionalLong.of(length());
+    }
+
+    /**
+     * Returns read-only views of the data, without copying it. The views are valid until the body is closed, the
+     * data replaced by a flushed content is kept until then.
+     *
+     * @return the buffers with the data, in order
+     * @throws IOException if an I/O error occurs mapping the file, or if the body is closed
+     */
+    public @NotNull ByteBuffer @NotNull [] getBuffers() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            if (viewed.add(storage)) {
+                storage.retain();
+            }
+
+            return storage.buffers();
+        }
+    }
+
+    /**
+     * Retains the current storage for a reader, it must be freed when the reader is done
+     */
+    private @NotNull Storage acquire() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            return storage.retain();
+        }
+    }
+
+    // Modules
+
+    /**
+     * Transfers all the data to a channel. The disk tier is transferred directly by the operating system, without
+     * copying the data to the user space.
+     *
+     * @param channel the channel that will receive the data
+     * @return the amount of bytes transferred
+     * @throws IOException if an I/O error occurs, or if the body is closed
+     */
+    public long transferTo(@NotNull WritableByteChannel channel) throws IOException {
+        @NotNull Storage storage = acquire();
+
+        try {
+            if (storage.file != null) {
+                try (@NotNull FileChannel file = FileChannel.open(storage.file.getPath(), StandardOpenOption.READ)) {
+                    long position = 0;
+
+                    while (position < storage.length) {
+                        position += file.transferTo(position, storage.length - position, channel);
+                    }
+
+                    return position;
+                }
+            }
+
+            long transferred = 0;
+            for (@NotNull ByteBuffer buffer : storage.buffers()) {
+                while (buffer.hasRemaining()) {
+                    transferred += channel.write(buffer);
+                }
+            }
+
+            return transferred;
+        } finally {
+            storage.free();
+        }
+    }
+
+    /**
+     * Replaces the data of this body, the tier is chosen again. The previous data is freed when its readers are
+     * done.
+     *
+     * @param stream the input stream containing the new data
+     * @throws IOException if an I/O error occurs reading the stream or spilling the data to the disk
+     */
+    protected void update(@NotNull InputStream stream) throws IOException {
+        @NotNull Storage storage = store(stream);
+        @NotNull Storage previous;
+
+        synchronized (lock) {
+            previous = this.storage;
+            this.storage = storage;
+        }
+
+        previous.free();
+    }
+
+    @Override
+    public @NotNull <T> Content<T> getContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType) throws MediaParserException, IOException {
+        if (closed) {
+            throw new IOException("this http body is closed");
+        }
+
+        @NotNull Content<T> content;
+
+        if (contentMap.containsKey(mediaType)) {
+            //noinspection unchecked
+            content = (Content<T>) contentMap.get(mediaType);
+        } else {
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getInputStream()) {
+                    @NotNull T data = ParseMetrics.getDefault().deserialize(this, version, mediaType, stream);
+                    content = new TieredContent<>(version, mediaType, data);
+                }
+            }
+
+            contentMap.put(mediaType, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Returns a stream of the data, it retains the data until it's closed.
+     *
+     * @return the input stream
+     * @throws IOException if an I/O error occurs mapping the file, or if the body is closed
+     */
+    @Override
+    public @NotNull InputStream getInputStream() throws IOException {
+        @NotNull Storage storage = acquire();
+
+        try {
+            return new StorageInputStream(storage);
+        } catch (@NotNull Throwable throwable) {
+            storage.free();
+            throw throwable;
+        }
+    }
+
+    /**
+     * Clones this body sharing its storage, without copying it. The storage is immutable, the flushed contents
+     * replace it, so the data is only copied when a content of any of the bodies is flushed.
+     *
+     * @param version the http version to create the body
+     * @return a new http body sharing the data
+     * @throws IOException if the http body is closed
+     */
+    @Override
+    public @NotNull HttpBody clone(@NotNull HttpVersion<?> version) throws IOException {
+        return new HttpTieredBody(this);
+    }
+
+    @Override
+    public void write(@NotNull HttpHeaders headers, @NotNull OutputStream stream) throws IOException, EncodingException {
+        @Nullable Long limit = headers.first(CONTENT_LENGTH).map(HttpHeader::getValue).map(BitMeasure::getBytes).orElse(null);
+        long remaining = limit != null ? limit : Long.MAX_VALUE;
+
+        @NotNull Storage storage = acquire();
+
+        // Apply all the encodings (the chunked included) as a single stream
+        try (@NotNull OutputStream encoder = BodyUtils.encoder(headers, stream);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+            byte[] transfer = pooled.array();
+
+            for (@NotNull ByteBuffer buffer : storage.buffers()) {
+                while (remaining > 0 && buffer.hasRemaining()) {
+                    int length = (int) Math.min(buffer.remaining(), remaining);
+
+                    if (buffer.hasArray()) {
+                        encoder.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                        buffer.position(buffer.position() + length);
+                    } else {
+                        length = Math.min(length, transfer.length);
+                        buffer.get(transfer, 0, length);
+                        encoder.write(transfer, 0, length);
+                    }
+
+                    remaining -= length;
+                }
+            }
+        } finally {
+            storage.free();
+        }
+    }
+
+    /**
+     * Closes all the contents and frees the data: the direct buffers are given back to the allocator and the
+     * spilled file is deleted, when the streams still open are closed too.
+     *
+     * @throws IOException if an I/O error occurs, or if this http body is already closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            throw new IOException("this http body is already closed");
+        } else try {
+            synchronized (lock) {
+                // Close contents
+                for (@NotNull Content<?> content : contentMap.values()) {
+                    content.flush();
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                closed = true;
+
+                for (@NotNull Storage viewed : this.viewed) {
+                    viewed.free();
+                }
+
+                this.viewed.clear();
+                storage.free();
+            }
+        }
+    }
+
+    /**
+     * Reads the stream, moving the data to the next tier when the current one is full
+     */
+    private @NotNull Storage store(@NotNull InputStream stream) throws IOException {
+        try (@NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+            return store(stream, pooled.array());
+        }
+    }
+    private @NotNull Storage store(@NotNull InputStream stream, byte @NotNull [] transfer) throws IOException {
+        long heap = HEAP_THRESHOLD.getBytes();
+        long disk = DISK_THRESHOLD.getBytes();
+
+        // Heap
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int read = 0;
+
+        while (output.size() < heap && (read = stream.read(transfer)) != -1) {
+            output.write(transfer, 0, read);
+        }
+
+        if (read == -1 || output.size() < heap) {
+            return new Storage(Tier.HEAP, output.toByteArray(), null, null, output.size());
+        }
+
+        // Direct
+        @NotNull List<PooledBuffer> segments = new ArrayList<>();
+        @NotNull InputStream remaining = new SequenceInputStream(new ByteArrayInputStream(output.toByteArray()), stream);
+        output = null;
+
+        long length = 0;
+        boolean spill = false;
+
+        try {
+            while (!(spill = length >= disk) && (read = remaining.read(transfer)) != -1) {
+                int offset = 0;
+
+                while (offset < read) {
+                    @Nullable ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1).getBuffer();
+
+                    if (segment == null || !segment.hasRemaining()) {
+                        if (!reserve()) {
+                            // The direct budget is exhausted, the rest of this chunk is spilled with the data
+                            remaining = new SequenceInputStream(new ByteArrayInputStream(Arrays.copyOfRange(transfer, offset, read)), remaining);
+                            spill = true;
+                            break;
+                        }
+
+                        @NotNull PooledBuffer pooled = allocator.direct(SEGMENT_SIZE);
+                        segments.add(pooled);
+                        segment = pooled.getBuffer();
+                    }
+
+                    int amount = Math.min(segment.remaining(), read - offset);
+                    segment.put(transfer, offset, amount);
+
+                    offset += amount;
+                    length += amount;
+                }
+
+                if (spill) break;
+            }
+        } catch (@NotNull Throwable throwable) {
+            release(segments);
+            throw throwable;
+        }
+
+        if (!spill) {
+            return new Storage(Tier.DIRECT, null, segments.toArray(new PooledBuffer[0]), null, length);
+        }
+
+        // Disk
+        @NotNull SpoolFile file;
+
+        try {
+            file = Spool.getDefault().create("-tiered_body");
+        } catch (@NotNull Throwable throwable) {
+            release(segments);
+            throw throwable;
+        }
+
+        try (@NotNull FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.WRITE)) {
+            for (@NotNull PooledBuffer segment : segments) {
+                @NotNull ByteBuffer buffer = segment.getBuffer();
+
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+
+            while ((read = remaining.read(transfer)) != -1) {
+                @NotNull ByteBuffer wrap = ByteBuffer.wrap(transfer, 0, read);
+                while (wrap.hasRemaining()) channel.write(wrap);
+
+                length += read;
+            }
+        } catch (@NotNull IOException e) {
+            file.release();
+            throw e;
+        } finally {
+            release(segments);
+        }
+
+        return new Storage(Tier.DISK, null, null, file, length);
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "HttpTieredBody{" +
+                "tier=" + getTier() +
+                ", length=" + length() +
+                '}';
+    }
+
+    // Classes
+
+    /**
+     * The tiers where the data of a body can be stored, from the cheapest to the most expensive
+     */
+    public enum Tier {
+        HEAP,
+        DIRECT,
+        DISK,
+    }
+
+    private static final class Storage {
+
+        private final @NotNull Tier tier;
+        private final byte @Nullable [] heap;
+        private final @NotNull PooledBuffer @Nullable [] segments;
+        private final @Nullable SpoolFile file;
+        private final long length;
+
+        // The bodies sharing this storage and its readers
+        private final @NotNull AtomicInteger references = new AtomicInteger(1);
+
+        private Storage(@NotNull Tier tier, byte @Nullable [] heap, @NotNull PooledBuffer @Nullable [] segments, @Nullable SpoolFile file, long length) {
+            this.tier = tier;
+            this.heap = heap;
+            this.segments = segments;
+            this.file = file;
+            this.length = length;
+        }
+
+        private @NotNull ByteBuffer @NotNull [] buffers() throws IOException {
+            if (heap != null) {
+                return new ByteBuffer[] { ByteBuffer.wrap(heap).asReadOnlyBuffer() };
+            } else if (segments != null) {
+                @NotNull ByteBuffer[] views = new ByteBuffer[segments.length];
+
+                for (int index = 0; index < segments.length; index++) {
+                    @NotNull ByteBuffer view = segments[index].getBuffer().duplicate();
+                    view.flip();
+
+                    views[index] = view.asReadOnlyBuffer();
+                }
+
+                return views;
+            } else if (file != null) {
+                try (@NotNull FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+                    @NotNull List<ByteBuffer> views = new ArrayList<>();
+
+                    for (long position = 0; position < length; position += Integer.MAX_VALUE) {
+                        views.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, length - position)));
+                    }
+
+                    return views.toArray(new ByteBuffer[0]);
+                }
+            } else {
+                throw new IllegalStateException("empty storage");
+            }
+        }
+
+        private @NotNull Storage retain() {
+            references.incrementAndGet();
+            return this;
+        }
+
+        private void free() throws IOException {
+            if (references.decrementAndGet() > 0) {
+                return;
+            }
+
+            if (segments != null) {
+                release(Arrays.asList(segments));
+            } else if (file != null) {
+                file.release();
+            }
+        }
+
+    }
+
+    /**
+     * Reads a storage, freeing it when closed
+     */
+    private static final class StorageInputStream extends BuffersInputStream {
+
+        private final @NotNull Storage storage;
+        private boolean closed = false;
+
+        private StorageInputStream(@NotNull Storage storage) throws IOException {
+            super(storage.buffers());
+            this.storage = storage;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            storage.free();
+        }
+
+    }
+
+    /**
+     * Reads a sequence of buffers
+     */
+    static class BuffersInputStream extends InputStream {
+
+        private final @NotNull ByteBuffer @NotNull [] buffers;
+        private int index = 0;
+
+        BuffersInputStream(@NotNull ByteBuffer @NotNull [] buffers) {
+            this.buffers = buffers;
+        }
+
+        private @Nullable ByteBuffer current() {
+            while (index < buffers.length && !buffers[index].hasRemaining()) {
+                index++;
+            }
+
+            return index < buffers.length ? buffers[index] : null;
+        }
+
+        @Override
+        public int read() {
+            @Nullable ByteBuffer buffer = current();
+            return buffer != null ? buffer.get() & 0xFF : -1;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) {
+            if (length == 0) return 0;
+
+            @Nullable ByteBuffer buffer = current();
+            if (buffer == null) return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+
+            return length;
+        }
+
+        @Override
+        public long skip(long amount) {
+            long skipped = 0;
+            @Nullable ByteBuffer buffer;
+
+            while (skipped < amount && (buffer = current()) != null) {
+                int step = (int) Math.min(buffer.remaining(), amount - skipped);
+                buffer.position(buffer.position() + step);
+                skipped += step;
+            }
+
+            return skipped;
+        }
+        @Override
+        public int available() {
+            long available = 0;
+            for (int i = index; i < buffers.length; i++) {
+                available += buffers[i].remaining();
+            }
+
+            return (int) Math.min(Integer.MAX_VALUE, available);
+        }
+
+    }
+
+    /**
+     * This inner class represents the content of a specific media type stored at the tiered body.
+     *
+     * @param <T> the type of the content
+     */
+    protected class TieredContent<T> implements Content<T> {
+
+        private final @NotNull HttpVersion<?> version;
+        private final @NotNull MediaType<T> mediaType;
+        private volatile @NotNull T data;
+
+        public TieredContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType, @NotNull T data) {
+            this.version = version;
+            this.mediaType = mediaType;
+            this.data = data;
+        }
+
+        // Getters
+
+        @Override
+        public @NotNull MediaType<T> getMediaType() {
+            return mediaType;
+        }
+        @Override
+        public @NotNull HttpBody getBody() {
+            return HttpTieredBody.this;
+        }
+        @Override
+        public @NotNull HttpVersion<?> getVersion() {
+            return version;
+        }
+
+        @Override
+        public @NotNull T getData() {
+            return data;
+        }
+        @Override
+        public void setData(@NotNull T data, boolean autoFlush) throws IOException {
+            this.data = data;
+            if (autoFlush) flush();
+        }
+
+        // Modules
+
+        /**
+         * Flushes the current content data to the body, the tier is chosen again.
+         *
+         * @throws IOException if an I/O error occurs or if the http body is closed
+         */
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                throw new IOException("this http body is closed");
+            }
+
+            synchronized (lock) {
+                try (@NotNull InputStream stream = getMediaType().getParser().serialize(getVersion(), getData(), getMediaType().getParameters())) {
+                    update(stream);
+                } catch (@NotNull MediaParserException e) {
+                    throw new RuntimeException("cannot flush http tiered body", e);
+                }
+            }
+        }
+    }
+
+}
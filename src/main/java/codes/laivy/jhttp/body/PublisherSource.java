@@ -0,0 +1,157 @@
+package codes.laivy.jhttp.body;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The source of a {@link HttpStreamBody} fed by a Reactive Streams publisher.
+ * <p>
+ * The publisher is subscribed at the first part requested, with a demand of {@link #PREFETCH} buffers. The demand
+ * is only renewed after half of it has been taken by the body, what happens when the previous buffers were
+ * written to the client; a slow client stops the demand and the buffered data never exceeds the prefetch.
+ * <p>
+ * The buffers are copied when received, the publisher keeps their ownership and can reuse them (and their
+ * arrays) as soon as {@link Subscriber#onNext(Object)} returns.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+final class PublisherSource implements HttpStreamBody.Source {
+
+    // Static initializers
+
+    static final int PREFETCH = 16;
+
+    private static final @NotNull Object COMPLETE = new Object();
+
+    // Object
+
+    private final @NotNull Publisher<ByteBuffer> publisher;
+    private final int prefetch;
+    private final int limit;
+
+    // The copied data, the failure or the completion. The publisher never has more demand than the free slots.
+    private final @NotNull BlockingQueue<Object> queue;
+
+    private volatile @Nullable Subscription subscription;
+    private boolean subscribed = false;
+    private boolean done = false;
+    private int taken = 0;
+
+    PublisherSource(@NotNull Publisher<ByteBuffer> publisher, int prefetch) {
+        this.publisher = publisher;
+        this.prefetch = prefetch;
+        this.limit = Math.max(1, prefetch / 2);
+        this.queue = new ArrayBlockingQueue<>(prefetch + 1);
+    }
+
+    // Modules
+
+    @Override
+    public byte @Nullable [] next() throws IOException {
+        if (done) {
+            return null;
+        } else if (!subscribed) {
+            subscribed = true;
+            publisher.subscribe(new Inner());
+        }
+
+        while (true) {
+            @NotNull Object item;
+
+            try {
+                item = queue.take();
+            } catch (@NotNull InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+
+                throw new InterruptedIOException("interrupted waiting for the publisher");
+            }
+
+            if (item == COMPLETE) {
+                done = true;
+                return null;
+            } else if (item instanceof Throwable) {
+                done = true;
+                throw new IOException("the publisher of the stream body has failed", (Throwable) item);
+            }
+
+            // Renew the demand of the buffers taken
+            if (++taken == limit) {
+                taken = 0;
+
+                @Nullable Subscription subscription = this.subscription;
+                if (subscription != null) subscription.request(limit);
+            }
+
+            byte[] bytes = (byte[]) item;
+            if (bytes.length > 0) return bytes;
+        }
+    }
+
+    /**
+     * Cancels the subscription, if the data hasn't been entirely consumed
+     */
+    @Override
+    public void close() {
+        done = true;
+
+        @Nullable Subscription subscription = this.subscription;
+        if (subscription != null) subscription.cancel();
+
+        queue.clear();
+    }
+
+    // Classes
+
+    private final class Inner implements Subscriber<ByteBuffer> {
+
+        @Override
+        public void onSubscribe(@NotNull Subscription subscription) {
+            if (PublisherSource.this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+
+            PublisherSource.this.subscription = subscription;
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(@NotNull ByteBuffer buffer) {
+            // The empty buffers are queued too, they're part of the demand
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+
+            if (!queue.offer(bytes)) {
+                // The publisher ignored the demand
+                @Nullable Subscription subscription = PublisherSource.this.subscription;
+                if (subscription != null) subscription.cancel();
+
+                queue.clear();
+                queue.offer(new IllegalStateException("the publisher has emitted more buffers than requested (rule 1.1)"));
+            }
+        }
+
+        @Override
+        public void onError(@NotNull Throwable throwable) {
+            queue.offer(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            queue.offer(COMPLETE);
+        }
+
+    }
+
+}
@@ -0,0 +1,554 @@
+package codes.laivy.jhttp.body;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Manages the temporary files of the bodies (and the media types) stored at the disk, at a single configurable
+ * directory, instead of the {@link java.io.File#deleteOnExit()}, that keeps every path at the memory until the
+ * JVM exits.
+ * <ul>
+ *     <li>Every file is represented by a reference counted {@link SpoolFile}, and it's deleted as soon as the last
+ *     reference is released.</li>
+ *     <li>Every spool keeps its files at its own subdirectory of the directory, locked while the spool is alive,
+ *     so the directory can be shared by many processes and spools.</li>
+ *     <li>A background sweeper deletes the files of the handles collected without being released, the untracked
+ *     files of its subdirectory older than the orphan age, and the subdirectories of the spools that died without
+ *     being closed (a killed process, as example), those whose lock isn't held anymore.</li>
+ *     <li>The files still alive when the JVM exits are deleted by a single shutdown hook.</li>
+ * </ul>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class Spool implements Closeable {
+
+    // Static initializers
+
+    private static final @NotNull String PREFIX = "jhttp-";
+    private static final @NotNull String LOCK = ".lock";
+
+    private static volatile @NotNull Spool def = builder().build();
+    private static volatile @Nullable ScheduledExecutorService sweeper;
+
+    // The subdirectories locked by this JVM. Their lock files must not be opened by the sweep, closing a channel
+    // can release all the locks of the process on the file.
+    private static final @NotNull Set<Path> owned = ConcurrentHashMap.newKeySet();
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the spool used by the default bodies and media types
+     */
+    public static @NotNull Spool getDefault() {
+        return def;
+    }
+    public static void setDefault(@NotNull Spool spool) {
+        def = spool;
+    }
+
+    private static @NotNull ScheduledExecutorService sweeper() {
+        @Nullable ScheduledExecutorService service = sweeper;
+
+        if (service == null) synchronized (Spool.class) {
+            if ((service = sweeper) == null) {
+                @NotNull AtomicInteger count = new AtomicInteger();
+
+                sweeper = service = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    @NotNull Thread thread = new Thread(runnable, "jhttp-spool-sweeper-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+            }
+        }
+
+        return service;
+    }
+
+    // Object
+
+    private final @NotNull Path directory;
+    private final @NotNull Duration interval;
+    private final @NotNull Duration orphanAge;
+
+    private final @NotNull Map<Path, Tracker> trackers = new ConcurrentHashMap<>();
+    private final @NotNull ReferenceQueue<SpoolFile> queue = new ReferenceQueue<>();
+
+    private final @NotNull LongAdder created = new LongAdder();
+    private final @NotNull LongAdder deleted = new LongAdder();
+    private final @NotNull LongAdder leaked = new LongAdder();
+    private final @NotNull LongAdder orphans = new LongAdder();
+
+    private final @NotNull Object lock = new Object();
+    private volatile @Nullable Path own;
+    private @Nullable FileChannel channel;
+    private @Nullable ScheduledFuture<?> task;
+    private @Nullable Thread hook;
+    private boolean closed = false;
+
+    private Spool(@NotNull Path directory, @NotNull Duration interval, @NotNull Duration orphanAge) {
+        this.directory = directory;
+        this.interval = interval;
+        this.orphanAge = orphanAge;
+    }
+
+    // Getters
+
+    /**
+     * @return the directory shared by the spools, with their subdirectories
+     */
+    public @NotNull Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the subdirectory with the files of this spool, or empty if no file has been created yet
+     */
+    public @NotNull Optional<Path> getOwnDirectory() {
+        return Optional.ofNullable(own);
+    }
+    public @NotNull Duration getSweepInterval() {
+        return interval;
+    }
+    public @NotNull Duration getOrphanAge() {
+        return orphanAge;
+    }
+
+    /**
+     * @return the amount of files currently alive
+     */
+    public int getFiles() {
+        return trackers.size();
+    }
+
+    /**
+     * @return the amount of bytes used by the files currently alive
+     */
+    public long getUsage() {
+        long usage = 0;
+
+        for (@NotNull Path path : trackers.keySet()) {
+            try {
+                usage += Files.size(path);
+            } catch (@NotNull IOException ignore) {
+                // Deleted meanwhile
+            }
+        }
+
+        return usage;
+    }
+
+    /**
+     * @return the amount of files created by this spool
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * @return the amount of files deleted by this spool, the leaked and orphans included
+     */
+    public long getDeleted() {
+        return deleted.sum();
+    }
+
+    /**
+     * @return the amount of files deleted because their handles were collected without being released
+     */
+    public long getLeaked() {
+        return leaked.sum();
+    }
+
+    /**
+     * @return the amount of orphan files deleted, the files of the dead spools included
+     */
+    public long getOrphans() {
+        return orphans.sum();
+    }
+
+    // Modules
+
+    /**
+     * Creates a new empty file at the spool directory
+     *
+     * @param suffix the suffix of the file name
+     * @return the handle of the file, with one reference
+     * @throws IOException if an I/O error occurs creating the file, or if the spool is closed
+     */
+    public @NotNull SpoolFile create(@NotNull String suffix) throws IOException {
+        @NotNull Path own;
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("this spool is closed");
+            } else if (this.own == null) {
+                this.own = acquire();
+
+                long millis = interval.toMillis();
+                task = sweeper().scheduleWithFixedDelay(this::sweep, millis, millis, TimeUnit.MILLISECONDS);
+
+                hook = new Thread(this::close, "jhttp-spool-cleaner");
+                Runtime.getRuntime().addShutdownHook(hook);
+            }
+
+            own = this.own;
+        }
+
+        @NotNull Path path = Files.createTempFile(own, PREFIX, suffix);
+        @NotNull SpoolFile file = new SpoolFile(this, path);
+
+        trackers.put(path, new Tracker(file, queue));
+        created.increment();
+
+        return file;
+    }
+
+    /**
+     * Creates the subdirectory of this spool and locks it, the lock is held until the spool is closed
+     */
+    private @NotNull Path acquire() throws IOException {
+        Files.createDirectories(directory);
+        @NotNull Path own = Files.createTempDirectory(directory, PREFIX);
+
+        try {
+            @NotNull FileChannel channel = FileChannel.open(own.resolve(LOCK), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+            try {
+                channel.lock();
+            } catch (@NotNull IOException e) {
+                channel.close();
+                throw e;
+            }
+
+            this.channel = channel;
+            owned.add(own);
+
+            return own;
+        } catch (@NotNull IOException e) {
+            try {
+                Files.deleteIfExists(own.resolve(LOCK));
+                Files.deleteIfExists(own);
+            } catch (@NotNull IOException ignore) {
+                // Reclaimed by the other spools later
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Called by the handle when its last reference is released
+     */
+    void delete(@NotNull Path path) throws IOException {
+        @Nullable Tracker tracker = trackers.remove(path);
+        if (tracker != null) tracker.clear();
+
+        if (Files.deleteIfExists(path)) {
+            deleted.increment();
+        }
+    }
+
+    /**
+     * Deletes the files of the handles collected without being released, and the orphan files of the directory.
+     * It's called periodically by the sweeper.
+     */
+    public void sweep() {
+        // Leaked handles
+        @Nullable Tracker tracker;
+        while ((tracker = (Tracker) queue.poll()) != null) {
+            if (!trackers.remove(tracker.path, tracker) || tracker.references.get() <= 0) {
+                continue;
+            }
+
+            try {
+                if (Files.deleteIfExists(tracker.path)) {
+                    deleted.increment();
+                    leaked.increment();
+                }
+            } catch (@NotNull IOException ignore) {
+                // It will be tried again as an orphan
+            }
+        }
+
+        long limit = System.currentTimeMillis() - orphanAge.toMillis();
+
+        // Orphan files of this spool
+        @Nullable Path own = this.own;
+
+        if (own != null) try (@NotNull DirectoryStream<Path> stream = Files.newDirectoryStream(own, PREFIX + "*")) {
+            for (@NotNull Path path : stream) {
+                try {
+                    if (!trackers.containsKey(path) && Files.isRegularFile(path) && Files.getLastModifiedTime(path).toMillis() < limit && Files.deleteIfExists(path)) {
+                        deleted.increment();
+                        orphans.increment();
+                    }
+                } catch (@NotNull IOException ignore) {
+                    // It will be swept again later
+                }
+            }
+        } catch (@NotNull IOException ignore) {
+            // The directory will be swept again later
+        }
+
+        // Subdirectories of the dead spools
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (@NotNull DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (@NotNull Path path : stream) {
+                if (!owned.contains(path) && Files.isDirectory(path)) {
+                    reclaim(path, limit);
+                }
+            }
+        } catch (@NotNull IOException ignore) {
+            // The directory will be swept again later
+        }
+    }
+
+    /**
+     * Deletes the subdirectory of another spool if its owner is dead, that is, if its lock isn't held. A
+     * subdirectory without lock file is only deleted after the orphan age, it may be being created.
+     */
+    private void reclaim(@NotNull Path path, long limit) {
+        try (@NotNull FileChannel channel = FileChannel.open(path.resolve(LOCK), StandardOpenOption.WRITE)) {
+            @Nullable FileLock held;
+
+            try {
+                held = channel.tryLock();
+            } catch (@NotNull OverlappingFileLockException e) {
+                // Held by a spool of this JVM
+                return;
+            }
+
+            if (held == null) {
+                // Held by another process
+                return;
+            }
+
+            try {
+                purge(path);
+            } finally {
+                held.release();
+            }
+        } catch (@NotNull NoSuchFileException e) {
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() >= limit) {
+                    return;
+                }
+
+                purge(path);
+            } catch (@NotNull IOException ignore) {
+                // Deleted meanwhile
+                return;
+            }
+        } catch (@NotNull IOException ignore) {
+            // It will be swept again later
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(path.resolve(LOCK));
+            Files.deleteIfExists(path);
+        } catch (@NotNull IOException ignore) {
+            // Not empty, it will be swept again later
+        }
+    }
+
+    /**
+     * Deletes the files of a subdirectory, except its lock file
+     */
+    private void purge(@NotNull Path path) {
+        try (@NotNull DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (@NotNull Path file : stream) {
+                if (file.getFileName().toString().equals(LOCK)) {
+                    continue;
+                }
+
+                try {
+                    if (Files.deleteIfExists(file)) {
+                        deleted.increment();
+                        orphans.increment();
+                    }
+                } catch (@NotNull IOException ignore) {
+                    // It will be swept again later
+                }
+            }
+        } catch (@NotNull IOException ignore) {
+            // Deleted meanwhile
+        }
+    }
+
+    /**
+     * Stops the sweeper, deletes all the files alive of this spool and its subdirectory
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+
+            if (task != null) task.cancel(false);
+            if (hook != null) try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (@NotNull IllegalStateException ignore) {
+                // The JVM is shutting down, the hook is running
+            }
+        }
+
+        clear();
+
+        @Nullable Path own = this.own;
+        if (own == null) return;
+
+        try {
+            if (channel != null) channel.close();
+            Files.deleteIfExists(own.resolve(LOCK));
+            Files.deleteIfExists(own);
+        } catch (@NotNull IOException ignore) {
+            // Not empty, it's reclaimed by the other spools later
+        } finally {
+            owned.remove(own);
+        }
+    }
+
+    private void clear() {
+        for (@NotNull Path path : trackers.keySet()) {
+            try {
+                delete(path);
+            } catch (@NotNull IOException ignore) {
+                // Left to the orphan sweep
+            }
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "Spool{" +
+                "directory=" + directory +
+                ", files=" + getFiles() +
+                ", created=" + getCreated() +
+                ", deleted=" + getDeleted() +
+                ", leaked=" + getLeaked() +
+                ", orphans=" + getOrphans() +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private @NotNull Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "jhttp-spool");
+        private @NotNull Duration interval = Duration.ofSeconds(30);
+        private @NotNull Duration orphanAge = Duration.ofHours(1);
+
+        private Builder() {
+        }
+
+        // Modules
+
+        /**
+         * Sets the directory of the files, it's created if it doesn't exist. The files of the spool are kept at
+         * its own subdirectory, so the directory can be shared. A memory file system (tmpfs) can be used to keep
+         * the bodies out of the heap without touching the disk. The default is the {@code jhttp-spool} directory
+         * at the system temporary directory.
+         *
+         * @param directory the spool directory
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder directory(@NotNull Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Sets the interval between the sweeps. The default is 30 seconds.
+         *
+         * @param interval the sweep interval
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder sweepInterval(@NotNull Duration interval) {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("the sweep interval must be positive");
+            }
+
+            this.interval = interval;
+            return this;
+        }
+
+        /**
+         * Sets the minimum age of the untracked files at the directory to be deleted by the sweeper. The default
+         * is one hour, it should be greater than the time to write a body.
+         *
+         * @param orphanAge the orphan age
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder orphanAge(@NotNull Duration orphanAge) {
+            if (orphanAge.isNegative()) {
+                throw new IllegalArgumentException("the orphan age cannot be negative");
+            }
+
+            this.orphanAge = orphanAge;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull Spool build() {
+            return new Spool(directory.toAbsolutePath(), interval, orphanAge);
+        }
+
+    }
+
+    /**
+     * Tracks a handle, it's enqueued when the handle is collected
+     */
+    private static final class Tracker extends PhantomReference<SpoolFile> {
+
+        private final @NotNull Path path;
+        private final @NotNull AtomicInteger references;
+
+        private Tracker(@NotNull SpoolFile file, @NotNull ReferenceQueue<SpoolFile> queue) {
+            super(file, queue);
+
+            this.path = file.getPath();
+            this.references = file.references;
+        }
+
+    }
+
+}
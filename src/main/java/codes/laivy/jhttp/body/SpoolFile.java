@@ -0,0 +1,172 @@
+package codes.laivy.jhttp.body;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted handle of a temporary file created by a {@link Spool}. It starts with one reference, and
+ * the file is deleted when the last reference is released. The handles collected by the garbage collector
+ * without being released have their files deleted by the spool sweeper.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class SpoolFile implements Closeable {
+
+    // Object
+
+    private final @NotNull Spool spool;
+    private final @NotNull Path path;
+
+    // It's shared with the spool tracker, which can't reference this handle
+    final @NotNull AtomicInteger references = new AtomicInteger(1);
+
+    SpoolFile(@NotNull Spool spool, @NotNull Path path) {
+        this.spool = spool;
+        this.path = path;
+    }
+
+    // Getters
+
+    public @NotNull Spool getSpool() {
+        return spool;
+    }
+
+    public @NotNull Path getPath() {
+        return path;
+    }
+    public @NotNull File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * @return the amount of references of this handle, zero if the file has been deleted
+     */
+    public int references() {
+        return references.get();
+    }
+
+    /**
+     * @return the size of the file, in bytes, or zero if it doesn't exist anymore
+     */
+    public long size() {
+        try {
+            return Files.size(path);
+        } catch (@NotNull IOException e) {
+            return 0L;
+        }
+    }
+
+    // Modules
+
+    /**
+     * Adds a reference to this handle, the file will only be deleted when it's released too
+     *
+     * @return this handle
+     * @throws IllegalStateException if the file has already been deleted
+     */
+    @Contract("->this")
+    public @NotNull SpoolFile retain() {
+        int current;
+
+        do {
+            current = references.get();
+            if (current <= 0) throw new IllegalStateException("this spool file has been deleted");
+        } while (!references.compareAndSet(current, current + 1));
+
+        return this;
+    }
+
+    /**
+     * Removes a reference from this handle, deleting the file if it was the last one
+     *
+     * @return true if the file has been deleted
+     * @throws IOException if an I/O error occurs deleting the file
+     * @throws IllegalStateException if the file has already been deleted
+     */
+    public boolean release() throws IOException {
+        int current;
+
+        do {
+            current = references.get();
+            if (current <= 0) throw new IllegalStateException("this spool file has already been deleted");
+        } while (!references.compareAndSet(current, current - 1));
+
+        if (current == 1) {
+            spool.delete(path);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Opens the file for reading. The stream holds its own reference, released when it's closed, so the file isn't
+     * deleted while it's read.
+     *
+     * @return the input stream of the file
+     * @throws IOException if an I/O error occurs opening the file
+     * @throws IllegalStateException if the file has already been deleted
+     */
+    public @NotNull InputStream newInputStream() throws IOException {
+        retain();
+
+        try {
+            return new Reader(Files.newInputStream(path));
+        } catch (@NotNull IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "SpoolFile{" +
+                "path=" + path +
+                ", references=" + references() +
+                '}';
+    }
+
+    // Classes
+
+    private final class Reader extends FilterInputStream {
+
+        private final @NotNull AtomicBoolean closed = new AtomicBoolean(false);
+
+        private Reader(@NotNull InputStream stream) {
+            super(stream);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,590 @@
+package codes.laivy.jhttp.body;
+
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.module.EntityTag;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_ENCODING;
+import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
+
+/**
+ * A bounded cache of the encoded variants of the responses, keyed by the resource (the request target, as
+ * example), the entity tag of the response and the encoding. The cacheable responses that are generated
+ * dynamically are then compressed only once per entity tag, the next requests that accept the same encoding are
+ * served with the pre-encoded bytes.
+ * <p>
+ * The entity tags are only unique per resource, so the resource is part of the key. The encodings are compared by
+ * instance, the variants of encodings with the same name and different settings (the compression levels chosen by
+ * an {@link codes.laivy.jhttp.encoding.AdaptiveCompression}, as example) are cached apart.
+ * <p>
+ * The memory used is bounded by the sum of the encoded sizes, the least recently used variants are evicted first.
+ * If a {@link Spool} is configured, the evicted variants are moved to spool files (also bounded by size) and
+ * moved back to memory when used again. The variants bigger than the memory capacity are kept at the spool files,
+ * they're read from the disk on every use.
+ * <p>
+ * The hits, misses and bytes saved are counted and exposed by the getters of this cache.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class VariantCache {
+
+    // Static initializers
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    // Object
+
+    private final @NotNull Object lock = new Object();
+
+    private final long capacity;
+    private final @Nullable Spool spool;
+    private final long diskCapacity;
+
+    // Access ordered, the first entries are the least recently used
+    private final @NotNull LinkedHashMap<Key, Variant> memory = new LinkedHashMap<>(16, 0.75F, true);
+    private final @NotNull LinkedHashMap<Key, Spilled> disk = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size = 0;
+    private long diskSize = 0;
+
+    private final @NotNull LongAdder hits = new LongAdder();
+    private final @NotNull LongAdder misses = new LongAdder();
+    private final @NotNull LongAdder saved = new LongAdder();
+    private final @NotNull LongAdder evictions = new LongAdder();
+
+    private VariantCache(long capacity, @Nullable Spool spool, long diskCapacity) {
+        this.capacity = capacity;
+        this.spool = spool;
+        this.diskCapacity = diskCapacity;
+    }
+
+    // Getters
+
+    /**
+     * @return the maximum amount of bytes of the variants kept in memory
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the spool where the evicted variants are spilled, if configured
+     */
+    public @NotNull Optional<Spool> getSpool() {
+        return Optional.ofNullable(spool);
+    }
+
+    /**
+     * @return the amount of bytes of the variants in memory
+     */
+    public long getSize() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * @return the amount of bytes of the variants spilled to the disk
+     */
+    public long getDiskSize() {
+        synchronized (lock) {
+            return diskSize;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+    public long getMisses() {
+        return misses.sum();
+    }
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the ratio of the lookups served by this cache, from 0 to 1
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    /**
+     * @return the amount of bytes that didn't need to be encoded again, because their variants were cached
+     */
+    public long getSavedBytes() {
+        return saved.sum();
+    }
+
+    // Modules
+
+    /**
+     * Retrieves the encoded variant of an entity tag, as a body. The body must be written with headers that have
+     * the same content encoding, only the transfer encodings are applied when it's written.
+     *
+     * @param resource the resource of the response, as the request target
+     * @param tag the entity tag of the response
+     * @param encoding the content encoding
+     * @return the encoded variant, or empty if it isn't cached
+     * @throws IOException if an I/O error occurs reading a spilled variant
+     */
+    public @NotNull Optional<Variant> get(@NotNull String resource, @NotNull EntityTag tag, @NotNull Encoding encoding) throws IOException {
+        @Nullable Variant variant = lookup(new Key(resource, tag, encoding));
+
+        if (variant == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        saved.add(variant.original);
+
+        return Optional.of(variant);
+    }
+
+    /**
+     * Retrieves the encoded variant of an entity tag, encoding and caching the body if it isn't cached yet.
+     *
+     * @param resource the resource of the response, as the request target
+     * @param tag the entity tag of the response
+     * @param encoding the content encoding
+     * @param body the decoded body of the response, only read if the variant isn't cached
+     * @return the encoded variant
+     * @throws IOException if an I/O error occurs encoding the body or reading a spilled variant
+     */
+    public @NotNull Variant get(@NotNull String resource, @NotNull EntityTag tag, @NotNull Encoding encoding, @NotNull HttpBody body) throws IOException {
+        @Nullable Variant variant = get(resource, tag, encoding).orElse(null);
+        if (variant != null) return variant;
+
+        // Encodes the body, concurrent misses of the same variant may encode it more than once
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long original = 0;
+
+        try (@NotNull InputStream stream = body.getInputStream();
+             @NotNull OutputStream encoder = encoding.wrapOutput(output);
+             @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+
+            byte[] buffer = pooled.array();
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                encoder.write(buffer, 0, read);
+                original += read;
+            }
+        }
+
+        return put(resource, tag, encoding, output.toByteArray(), original);
+    }
+
+    /**
+     * Caches an encoded variant
+     *
+     * @param resource the resource of the response, as the request target
+     * @param tag the entity tag of the response
+     * @param encoding the content encoding
+     * @param bytes the encoded bytes
+     * @param original the size of the decoded data
+     * @return the variant cached, as a body
+     */
+    public @NotNull Variant put(@NotNull String resource, @NotNull EntityTag tag, @NotNull Encoding encoding, byte @NotNull [] bytes, long original) {
+        return put(new Key(resource, tag, encoding), bytes, original);
+    }
+    private @NotNull Variant put(@NotNull Key key, byte @NotNull [] bytes, long original) {
+        @NotNull Variant variant = new Variant(key, bytes, original);
+        @NotNull List<Variant> evicted = new LinkedList<>();
+
+        synchronized (lock) {
+            remove(key);
+
+            if (bytes.length > capacity) {
+                // Bigger than the whole cache, it goes directly to the disk (if available)
+                evicted.add(variant);
+            } else {
+                memory.put(key, variant);
+                size += bytes.length;
+
+                @NotNull Iterator<Variant> iterator = memory.values().iterator();
+                while (size > capacity && iterator.hasNext()) {
+                    @NotNull Variant eldest = iterator.next();
+                    iterator.remove();
+
+                    size -= eldest.bytes.length;
+                    evicted.add(eldest);
+                }
+            }
+        }
+
+        for (@NotNull Variant eldest : evicted) {
+            evictions.increment();
+            spill(eldest);
+        }
+
+        return variant;
+    }
+
+    /**
+     * Removes all the variants of a resource, it should be called when the resource changes without changing its
+     * entity tag (the weak tags, as example).
+     *
+     * @param resource the resource
+     */
+    public void invalidate(@NotNull String resource) {
+        invalidate(key -> key.resource.equals(resource));
+    }
+
+    /**
+     * Removes all the variants of an entity tag, of every resource
+     *
+     * @param tag the entity tag
+     */
+    public void invalidate(@NotNull EntityTag tag) {
+        invalidate(key -> key.tag.equals(tag));
+    }
+
+    private void invalidate(@NotNull Predicate<Key> predicate) {
+        synchronized (lock) {
+            @NotNull List<Key> keys = new LinkedList<>();
+
+            for (@NotNull Key key : memory.keySet()) if (predicate.test(key)) keys.add(key);
+            for (@NotNull Key key : disk.keySet()) if (predicate.test(key)) keys.add(key);
+
+            for (@NotNull Key key : keys) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all the variants of this cache, deleting the spilled files
+     */
+    public void clear() {
+        synchronized (lock) {
+            for (@NotNull Spilled spilled : disk.values()) {
+                release(spilled.file);
+            }
+
+            memory.clear();
+            disk.clear();
+
+            size = 0;
+            diskSize = 0;
+        }
+    }
+
+    private @Nullable Variant lookup(@NotNull Key key) throws IOException {
+        @Nullable Spilled spilled;
+        boolean promote;
+
+        synchronized (lock) {
+            @Nullable Variant variant = memory.get(key);
+            if (variant != null) return variant;
+
+            spilled = disk.get(key);
+            if (spilled == null) return null;
+
+            // The variants bigger than the memory would be spilled again, they're kept at the disk
+            promote = spilled.size <= capacity;
+
+            if (promote) {
+                disk.remove(key);
+                diskSize -= spilled.size;
+            }
+        }
+
+        if (!promote) {
+            try {
+                return new Variant(key, Files.readAllBytes(spilled.file.getPath()), spilled.original);
+            } catch (@NotNull NoSuchFileException ignore) {
+                // Evicted or invalidated meanwhile
+                return null;
+            }
+        }
+
+        // Moves the spilled variant back to the memory
+        try {
+            byte[] bytes = Files.readAllBytes(spilled.file.getPath());
+            return put(key, bytes, spilled.original);
+        } finally {
+            release(spilled.file);
+        }
+    }
+    private void remove(@NotNull Key key) {
+        @Nullable Variant variant = memory.remove(key);
+        if (variant != null) size -= variant.bytes.length;
+
+        @Nullable Spilled spilled = disk.remove(key);
+        if (spilled != null) {
+            diskSize -= spilled.size;
+            release(spilled.file);
+        }
+    }
+    private void spill(@NotNull Variant variant) {
+        if (spool == null || variant.bytes.length > diskCapacity) {
+            return;
+        }
+
+        @NotNull SpoolFile file;
+        try {
+            file = spool.create("-variant");
+        } catch (@NotNull IOException ignore) {
+            // The disk is only a second level, the variant is just dropped
+            return;
+        }
+
+        try {
+            Files.write(file.getPath(), variant.bytes);
+        } catch (@NotNull IOException ignore) {
+            release(file);
+            return;
+        }
+
+        @NotNull List<SpoolFile> deleted = new LinkedList<>();
+
+        synchronized (lock) {
+            @Nullable Spilled previous = disk.put(variant.key, new Spilled(file, variant.bytes.length, variant.original));
+            if (previous != null) {
+                diskSize -= previous.size;
+                deleted.add(previous.file);
+            }
+            diskSize += variant.bytes.length;
+
+            @NotNull Iterator<Spilled> iterator = disk.values().iterator();
+            while (diskSize > diskCapacity && iterator.hasNext()) {
+                @NotNull Spilled eldest = iterator.next();
+                iterator.remove();
+
+                diskSize -= eldest.size;
+                deleted.add(eldest.file);
+            }
+        }
+
+        for (@NotNull SpoolFile eldest : deleted) {
+            release(eldest);
+        }
+    }
+    private static void release(@NotNull SpoolFile file) {
+        try {
+            file.release();
+        } catch (@NotNull IOException ignore) {
+            // Left to the spool sweeper
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "VariantCache{" +
+                "capacity=" + capacity +
+                ", size=" + getSize() +
+                ", disk=" + getDiskSize() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private long capacity = 16L * 1024 * 1024;
+        private @Nullable Spool spool;
+        private long diskCapacity = 256L * 1024 * 1024;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        public long capacity() {
+            return capacity;
+        }
+        /**
+         * Sets the maximum amount of bytes of the variants kept in memory, the default is 16 MiB
+         *
+         * @param capacity the capacity in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder capacity(long capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("the capacity must be positive");
+            }
+
+            this.capacity = capacity;
+            return this;
+        }
+
+        public @Nullable Spool spill() {
+            return spool;
+        }
+        /**
+         * Spills the variants evicted from the memory to files of a spool
+         *
+         * @param spool the spool, or null to drop the evicted variants
+         * @param capacity the maximum amount of bytes of the spilled variants
+         * @return this builder
+         */
+        @Contract("_,_->this")
+        public @NotNull Builder spill(@Nullable Spool spool, long capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("the disk capacity must be positive");
+            }
+
+            this.spool = spool;
+            this.diskCapacity = capacity;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull VariantCache build() {
+            return new VariantCache(capacity, spool, diskCapacity);
+        }
+
+    }
+
+    private static final class Key {
+
+        private final @NotNull String resource;
+        private final @NotNull EntityTag tag;
+        private final @NotNull Encoding encoding;
+        private final @NotNull String name;
+
+        private Key(@NotNull String resource, @NotNull EntityTag tag, @NotNull Encoding encoding) {
+            this.resource = resource;
+            this.tag = tag;
+            this.encoding = encoding;
+            this.name = encoding.getName().toLowerCase();
+        }
+
+        @Override
+        public boolean equals(@Nullable Object object) {
+            if (this == object) return true;
+            if (!(object instanceof Key)) return false;
+            @NotNull Key key = (Key) object;
+            return resource.equals(key.resource) && tag.equals(key.tag) && encoding == key.encoding;
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, tag, System.identityHashCode(encoding));
+        }
+
+    }
+
+    private static final class Spilled {
+
+        private final @NotNull SpoolFile file;
+        private final long size;
+        private final long original;
+
+        private Spilled(@NotNull SpoolFile file, long size, long original) {
+            this.file = file;
+            this.size = size;
+            this.original = original;
+        }
+
+    }
+
+    /**
+     * An encoded variant. It's immutable, the contents are parsed from a decoded copy, so changing them doesn't
+     * change the cached variant.
+     */
+    public static final class Variant implements HttpBody {
+
+        private final @NotNull Key key;
+        private final byte @NotNull [] bytes;
+        private final long original;
+
+        private Variant(@NotNull Key key, byte @NotNull [] bytes, long original) {
+            this.key = key;
+            this.bytes = bytes;
+            this.original = original;
+        }
+
+        // Getters
+
+        /**
+         * @return the content encoding of this variant
+         */
+        public @NotNull Encoding getEncoding() {
+            return key.encoding;
+        }
+
+        /**
+         * @return the size of the encoded bytes
+         */
+        @Override
+        public @NotNull OptionalLong getLength() {
+            return OptionalLong.of(bytes.length);
+        }
+
+        // Modules
+
+        @Override
+        public <T> @NotNull Content<T> getContent(@NotNull HttpVersion<?> version, @NotNull MediaType<T> mediaType) throws MediaParserException, IOException {
+            return new HttpSimpleBody(getInputStream()).getContent(version, mediaType);
+        }
+        @Override
+        public @NotNull InputStream getInputStream() throws IOException {
+            return key.encoding.wrapInput(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(@NotNull HttpHeaders headers, @NotNull OutputStream stream) throws IOException, EncodingException {
+            @NotNull Deferred<Encoding>[] content = headers.first(CONTENT_ENCODING).map(HttpHeader::getValue).orElse(new Deferred[0]);
+
+            if (content.length != 1 || !content[0].available() || !content[0].retrieve().getName().equalsIgnoreCase(key.name)) {
+                throw new EncodingException("the content encodings " + Arrays.toString(content) + " doesn't match the variant encoding '" + key.name + "'");
+            }
+
+            // Only the transfer encodings are applied, the bytes are already encoded
+            @NotNull Encoding[] transfer = headers.first(TRANSFER_ENCODING).map(header -> Arrays.stream(header.getValue()).map(Deferred::retrieve).toArray(Encoding[]::new)).orElse(new Encoding[0]);
+
+            try (@NotNull OutputStream encoder = BodyUtils.encoder(new Encoding[0], transfer, stream)) {
+                encoder.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        // Implementations
+
+        @Override
+        public @NotNull String toString() {
+            return "Variant{" +
+                    "encoding=" + key.name +
+                    ", size=" + bytes.length +
+                    '}';
+        }
+
+    }
+
+}
@@ -7,8 +7,11 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
 import java.nio.charset.Charset;
-import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A deferred class represents data that is not yet available but can be accessed
@@ -20,27 +23,43 @@ public class Deferred<T> {
 
     // Static initializers
 
+    private static final @NotNull Map<String, Optional<Charset>> charsets = new ConcurrentHashMap<>();
+
     public static @NotNull Deferred<Encoding> encoding(final @NotNull String name) {
         return new Deferred<Encoding>(name) {
+            // The encoding is resolved once, and again only if the encodings collection changes
+            private volatile int version = -1;
+
+            private void sync() {
+                int current = Encoding.getVersion();
+
+                if (version != current) {
+                    data = Encoding.retrieve(name).orElse(null);
+                    version = current;
+                }
+            }
+
             @Override
             public @NotNull Encoding retrieve() {
-                data = Encoding.retrieve(name).orElse(null);
+                sync();
                 return super.retrieve();
             }
             @Override
             public boolean available() {
-                data = Encoding.retrieve(name).orElse(null);
+                sync();
                 return super.available();
             }
         };
     }
     public static @NotNull Deferred<Charset> charset(@NotNull String name) {
         return new Deferred<Charset>(name) {
+            // The available charsets doesn't change at runtime, so it's resolved only once
+            private volatile boolean synced = false;
+
             private void sync() {
-                try {
-                    data = Charset.forName(name);
-                } catch (@NotNull UnsupportedCharsetException ignore) {
-                    data = null;
+                if (!synced) {
+                    data = lookup(name);
+                    synced = true;
                 }
             }
 
@@ -58,6 +77,27 @@ public class Deferred<T> {
         };
     }
 
+    private static @Nullable Charset lookup(@NotNull String name) {
+        // The charset names are case-insensitive
+        @NotNull String key = name.toLowerCase(Locale.ENGLISH);
+        @Nullable Optional<Charset> charset = charsets.get(key);
+
+        if (charset == null) {
+            try {
+                charset = Optional.of(Charset.forName(name));
+            } catch (@NotNull IllegalArgumentException ignore) {
+                // Unsupported or illegal charset name
+                charset = Optional.empty();
+            }
+
+            // The names come from the messages, the cache must not grow indefinitely
+            if (charsets.size() >= 64) charsets.clear();
+            charsets.put(key, charset);
+        }
+
+        return charset.orElse(null);
+    }
+
     // Object
 
     private final @NotNull String raw;
@@ -5,7 +5,6 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -14,22 +13,13 @@ public final class HttpStatus {
     // Static initializers
 
     public static @NotNull HttpStatus getByCode(int code) throws NullPointerException {
-        try {
-            for (@NotNull Field field : HttpStatus.class.getDeclaredFields()) {
-                if (field.getType() == HttpStatus.class) {
-                    field.setAccessible(true);
+        @Nullable HttpStatus status = code >= 0 && code < CODES.length ? CODES[code] : null;
 
-                    @NotNull HttpStatus status = (HttpStatus) field.get(null);
-
-                    if (status.getCode() == code) {
-                        return status;
-                    }
-                }
-            }
-        } catch (@NotNull IllegalAccessException ignore) {
+        if (status == null) {
+            throw new NullPointerException("cannot find a http status with code '" + code + "'");
         }
 
-        throw new NullPointerException("cannot find a http status with code '" + code + "'");
+        return status;
     }
 
     // Static providers
@@ -101,6 +91,28 @@ public final class HttpStatus {
     public static @NotNull HttpStatus NOT_EXTENDED = new HttpStatus(510, "Not Extended");
     public static @NotNull HttpStatus NETWORK_AUTHENTICATION_REQUIRED = new HttpStatus(511, "Network Authentication Required");
 
+    // Initialization
+
+    private static final @Nullable HttpStatus @NotNull [] CODES = new HttpStatus[600];
+
+    static {
+        for (@NotNull HttpStatus status : new HttpStatus[] {
+                CONTINUE, SWITCHING_PROTOCOLS, PROCESSING, EARLY_HINTS, OK, CREATED, ACCEPTED, NON_AUTHORITATIVE_INFORMATION,
+                NO_CONTENT, RESET_CONTENT, PARTIAL_CONTENT, MULTI_STATUS, ALREADY_REPORTED, IM_USED, MULTIPLE_CHOICES,
+                MOVED_PERMANENTLY, FOUND, SEE_OTHER, NOT_MODIFIED, TEMPORARY_REDIRECT, PERMANENT_REDIRECT, BAD_REQUEST,
+                UNAUTHORIZED, PAYMENT_REQUIRED, FORBIDDEN, NOT_FOUND, METHOD_NOT_ALLOWED, NOT_ACCEPTABLE,
+                PROXY_AUTHENTICATION_REQUIRED, REQUEST_TIMEOUT, CONFLICT, GONE, LENGTH_REQUIRED, PRECONDITION_FAILED,
+                CONTENT_TOO_LARGE, URI_TOO_LONG, UNSUPPORTED_MEDIA_TYPE, RANGE_NOT_SATISFIABLE, EXPECTATION_FAILED,
+                IM_A_TEAPOT, MISDIRECTED_REQUEST, UNPROCESSABLE_CONTENT, LOCKED, FAILED_DEPENDENCY, TOO_EARLY,
+                UPGRADE_REQUIRED, PRECONDITION_REQUIRED, TOO_MANY_REQUESTS, REQUEST_HEADER_FIELDS_TOO_LARGE,
+                UNAVAILABLE_FOR_LEGAL_REASONS, INTERNAL_SERVER_ERROR, NOT_IMPLEMENTED, BAD_GATEWAY, SERVICE_UNAVAILABLE,
+                GATEWAY_TIMEOUT, HTTP_VERSION_NOT_SUPPORTED, VARIANT_ALSO_NEGOTIATES, INSUFFICIENT_STORAGE, LOOP_DETECTED,
+                NOT_EXTENDED, NETWORK_AUTHENTICATION_REQUIRED
+        }) {
+            CODES[status.getCode()] = status;
+        }
+    }
+
     // Object
 
     private final int code;
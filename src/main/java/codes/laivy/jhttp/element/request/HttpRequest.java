@@ -20,8 +20,9 @@ import codes.laivy.jhttp.module.Location;
 import codes.laivy.jhttp.module.UserAgent;
 import codes.laivy.jhttp.protocol.HttpVersion;
 import codes.laivy.jhttp.url.Host;
+import codes.laivy.jhttp.url.QueryParameters;
+import codes.laivy.jhttp.url.RequestTarget;
 import codes.laivy.jhttp.url.URIAuthority;
-import codes.laivy.jhttp.utilities.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -61,6 +62,16 @@ public interface HttpRequest extends HttpElement {
     ) {
         return version.getRequestFactory().create(method, authority, uri, headers, body);
     }
+    static @NotNull HttpRequest create(
+            final @NotNull HttpVersion version,
+            final @NotNull Method method,
+            final @Nullable URIAuthority authority,
+            final @NotNull RequestTarget target,
+            final @NotNull HttpHeaders headers,
+            final @NotNull HttpBody body
+    ) {
+        return version.getRequestFactory().create(method, authority, target, headers, body);
+    }
 
     // Object
 
@@ -82,6 +93,21 @@ public interface HttpRequest extends HttpElement {
      */
     @NotNull URI getUri();
 
+    /**
+     * Retrieves the request target of this request, as received at the request line. Prefer this method
+     * over the {@link #getUri()} when only the path or query are needed, since the target doesn't need to
+     * create a {@link URI} instance.
+     * <p>
+     * The provided requests keep the target parsed once, at the request line. This default implementation
+     * parses the {@link #getUri()} again at every call, the implementations should override it with the target
+     * they already have.
+     *
+     * @return The request target of the request
+     */
+    default @NotNull RequestTarget getTarget() {
+        return RequestTarget.create(getUri());
+    }
+
     // Modules
 
     default @Nullable Credentials getAuthorization() {
@@ -229,26 +255,46 @@ public interface HttpRequest extends HttpElement {
      * @return the path from the URI
      */
     default @NotNull String getPath() {
-        return getUri().getPath();
+        return getTarget().getPath();
+    }
+
+    /**
+     * Retrieves the query parameters index of the request target. The index is created only once per request,
+     * keeps repeated parameters and decodes the values lazily.
+     *
+     * @return the query parameters of the request
+     */
+    default @NotNull QueryParameters getQueryParameters() {
+        return getTarget().getQueryParameters();
     }
 
     /**
-     * Retrieves a query parameter from the URI.
+     * Retrieves a query parameter from the URI. If the parameter is repeated, the first value is returned.
      *
      * @param name the name of the query parameter
-     * @return an optional containing the query parameter value, or empty if not found
+     * @return an optional containing the decoded query parameter value, or empty if not found
      */
     default @NotNull Optional<String> getQuery(@NotNull String name) {
-        return Optional.ofNullable(getQueries().getOrDefault(name, null));
+        return Optional.ofNullable(getQueryParameters().get(name));
+    }
+
+    /**
+     * Retrieves all the values of a repeated query parameter from the URI.
+     *
+     * @param name the name of the query parameter
+     * @return a list containing the decoded values, empty if not found
+     */
+    default @NotNull List<String> getQueries(@NotNull String name) {
+        return getQueryParameters().getAll(name);
     }
 
     /**
-     * Retrieves all query parameters from the URI.
+     * Retrieves all query parameters from the URI, with the first value of each parameter.
      *
-     * @return a map containing all query parameters
+     * @return an unmodifiable map containing all query parameters
      */
     default @NotNull Map<String, String> getQueries() {
-        return StringUtils.readQueryParams(getUri());
+        return getQueryParameters().toMap();
     }
 
     // Classes
@@ -0,0 +1,473 @@
+package codes.laivy.jhttp.encoding;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.module.connection.EffectiveConnectionType;
+import codes.laivy.jhttp.network.BitMeasure;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.*;
+
+/**
+ * Chooses the compression algorithm and level of the responses by the client hints ({@code Save-Data},
+ * {@code ECT}, {@code RTT} and {@code Downlink} request headers) and the current CPU load of the server.
+ * <ul>
+ *     <li>Clients that ask to save data, or with a slow connection, receive the best compression, with the
+ *     algorithm of the best ratio they accept.</li>
+ *     <li>Clients with a fast connection receive a lower compression as the load grows, and no compression at all
+ *     when the load is high, the transfer time saved doesn't pay the CPU time.</li>
+ *     <li>The other clients receive the default compression, or the fast one if the load is high.</li>
+ * </ul>
+ * The algorithm is only chosen between the encodings that the client prefers equally, the q-values of the
+ * {@code Accept-Encoding} header are respected. The decisions and the bytes saved are counted by the
+ * {@link Metrics}, use it with the {@link ResponseCompression.Builder#adaptive(AdaptiveCompression)} stage.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class AdaptiveCompression {
+
+    // Static initializers
+
+    private static final long SAMPLE_INTERVAL = 1_000_000_000L;
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The system load average divided by the processors, from 0 to 1. It's 0 if the system doesn't provide it.
+     */
+    private static double system() {
+        @NotNull OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        double average = bean.getSystemLoadAverage();
+
+        if (average < 0) return 0D;
+        return Math.min(1D, average / bean.getAvailableProcessors());
+    }
+
+    // Object
+
+    private final @NotNull DoubleSupplier load;
+    private final double moderate;
+    private final double high;
+
+    private final @NotNull Metrics metrics = new Metrics();
+    private final @NotNull Map<String, Encoding> variants = new ConcurrentHashMap<>();
+
+    // The load is sampled at most once per interval
+    private volatile long sampled;
+    private volatile double current = 0D;
+
+    private AdaptiveCompression(@NotNull DoubleSupplier load, double moderate, double high) {
+        this.load = load;
+        this.moderate = moderate;
+        this.high = high;
+
+        // The first call samples the load
+        this.sampled = System.nanoTime() - SAMPLE_INTERVAL - 1;
+    }
+
+    // Getters
+
+    public double getModerateLoad() {
+        return moderate;
+    }
+    public double getHighLoad() {
+        return high;
+    }
+
+    public @NotNull Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the current CPU load, from 0 to 1
+     */
+    public double getLoad() {
+        long now = System.nanoTime();
+
+        if (now - sampled > SAMPLE_INTERVAL) {
+            current = load.getAsDouble();
+            sampled = now;
+        }
+
+        return current;
+    }
+
+    // Modules
+
+    /**
+     * Decides the compression tier of a response by the request client hints and the current load.
+     *
+     * @param request the request headers
+     * @return the compression tier
+     */
+    public @NotNull Tier decide(@NotNull HttpHeaders request) {
+        return decide(
+                request.first(SAVE_DATA).map(HttpHeader::getValue).orElse(false),
+                request.first(ECT).map(HttpHeader::getValue).orElse(null),
+                request.first(RTT).map(HttpHeader::getValue).orElse(null),
+                request.first(DOWNLINK).map(HttpHeader::getValue).orElse(null)
+        );
+    }
+
+    /**
+     * Decides the compression tier of a response by the client hints and the current load.
+     *
+     * @param save if the client asks to save data
+     * @param ect the effective connection type of the client, or null if unknown
+     * @param rtt the round trip time of the client, or null if unknown
+     * @param downlink the downlink of the client, or null if unknown
+     * @return the compression tier
+     */
+    public @NotNull Tier decide(boolean save, @Nullable EffectiveConnectionType ect, @Nullable Duration rtt, @Nullable BitMeasure downlink) {
+        @NotNull Tier tier = decide(save, ect, rtt, downlink, getLoad());
+
+        metrics.decisions.get(tier).increment();
+        return tier;
+    }
+
+    private @NotNull Tier decide(boolean save, @Nullable EffectiveConnectionType ect, @Nullable Duration rtt, @Nullable BitMeasure downlink, double load) {
+        double megabits = downlink != null ? downlink.getBits(BitMeasure.Level.MEGABITS) : -1;
+
+        if (save || (ect != null && ect != EffectiveConnectionType._4G)) {
+            return Tier.BEST;
+        } else if ((rtt != null && rtt.toMillis() >= 300) || (downlink != null && megabits < 1.5)) {
+            return Tier.BEST;
+        }
+
+        // Fast networks, where the transfer time is cheaper than the compression
+        boolean fast = (rtt != null && rtt.toMillis() <= 50) && (downlink != null && megabits >= 10);
+
+        if (load >= high) {
+            return fast ? Tier.NONE : Tier.FAST;
+        } else if (fast && load >= moderate) {
+            return Tier.FAST;
+        } else {
+            return Tier.DEFAULT;
+        }
+    }
+
+    /**
+     * Chooses the algorithm of a compression tier between the encodings accepted equally by the client, and adapts
+     * it to the tier (see {@link #adapt(Encoding, Tier)}). The best tier chooses the encoding with the best
+     * compression ratio, the other tiers keep the first encoding.
+     *
+     * @param encodings the encodings accepted, in the order of preference
+     * @param tier the compression tier
+     * @return the encoding to use, or null if the response shouldn't be compressed
+     */
+    public @Nullable Encoding select(@NotNull List<Encoding> encodings, @NotNull Tier tier) {
+        if (encodings.isEmpty() || tier == Tier.NONE) {
+            return null;
+        }
+
+        @NotNull Encoding selected = encodings.get(0);
+
+        if (tier == Tier.BEST) for (@NotNull Encoding encoding : encodings) {
+            if (ratio(encoding) > ratio(selected)) {
+                selected = encoding;
+            }
+        }
+
+        return adapt(selected, tier);
+    }
+
+    /**
+     * The rank of the compression ratio of an encoding algorithm, higher is smaller
+     */
+    private static int ratio(@NotNull Encoding encoding) {
+        if (encoding instanceof DictionaryDeflateEncoding) {
+            return 2;
+        } else if (encoding instanceof GZipEncoding || encoding instanceof ParallelGZipEncoding || encoding instanceof DeflateEncoding) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Adapts an encoding to a compression tier. The gzip and deflate encodings are replaced by variants with the
+     * tier compression level, the other encodings are kept. The parallel gzip is replaced by the single thread gzip
+     * at the fast tier, since the load is high or the client is fast. The encoding returned counts the bytes saved
+     * at the metrics.
+     *
+     * @param encoding the negotiated encoding
+     * @param tier the compression tier
+     * @return the encoding to use, or null if the response shouldn't be compressed
+     */
+    public @Nullable Encoding adapt(@NotNull Encoding encoding, @NotNull Tier tier) {
+        if (tier == Tier.NONE) {
+            return null;
+        } else if (encoding instanceof DictionaryDeflateEncoding) {
+            // It's identified by its instance when written
+            return encoding;
+        }
+
+        return variants.computeIfAbsent(encoding.getName().toLowerCase() + ";" + tier.name(), key -> {
+            @NotNull Encoding variant = encoding;
+
+            if (encoding instanceof ParallelGZipEncoding) {
+                @NotNull ParallelGZipEncoding parallel = (ParallelGZipEncoding) encoding;
+
+                if (tier == Tier.FAST) {
+                    variant = GZipEncoding.builder().buffer(parallel.getBuffer()).level(tier.getLevel()).strategy(parallel.getStrategy()).build();
+                } else {
+                    variant = ParallelGZipEncoding.builder().buffer(parallel.getBuffer()).level(tier.getLevel()).strategy(parallel.getStrategy()).blockSize(parallel.getBlockSize()).threshold(parallel.getThreshold()).pool(parallel.getPool()).build();
+                }
+            } else if (encoding instanceof GZipEncoding) {
+                @NotNull GZipEncoding gzip = (GZipEncoding) encoding;
+                variant = GZipEncoding.builder().buffer(gzip.getBuffer()).level(tier.getLevel()).strategy(gzip.getStrategy()).build();
+            } else if (encoding instanceof DeflateEncoding) {
+                @NotNull DeflateEncoding deflate = (DeflateEncoding) encoding;
+                variant = DeflateEncoding.builder().level(tier.getLevel()).strategy(deflate.getStrategy()).build();
+            }
+
+            return new Measured(variant, metrics);
+        });
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "AdaptiveCompression{" +
+                "moderate=" + moderate +
+                ", high=" + high +
+                ", metrics=" + metrics +
+                '}';
+    }
+
+    // Classes
+
+    /**
+     * The compression tiers, from no compression to the best one
+     */
+    public enum Tier {
+
+        NONE(0),
+        FAST(1),
+        DEFAULT(6),
+        BEST(9),
+        ;
+
+        private final int level;
+
+        Tier(int level) {
+            this.level = level;
+        }
+
+        /**
+         * @return the deflate compression level of this tier
+         */
+        public int getLevel() {
+            return level;
+        }
+
+    }
+
+    /**
+     * The decisions and the bytes saved by an adaptive compression
+     */
+    public static final class Metrics {
+
+        private final @NotNull Map<Tier, LongAdder> decisions = new EnumMap<>(Tier.class);
+        private final @NotNull LongAdder input = new LongAdder();
+        private final @NotNull LongAdder output = new LongAdder();
+
+        private Metrics() {
+            for (@NotNull Tier tier : Tier.values()) {
+                decisions.put(tier, new LongAdder());
+            }
+        }
+
+        // Getters
+
+        /**
+         * @param tier the compression tier
+         * @return the amount of responses that have been decided with the tier
+         */
+        public long getDecisions(@NotNull Tier tier) {
+            return decisions.get(tier).sum();
+        }
+
+        /**
+         * @return the bytes compressed by the adapted encodings
+         */
+        public long getInput() {
+            return input.sum();
+        }
+
+        /**
+         * @return the bytes produced by the adapted encodings
+         */
+        public long getOutput() {
+            return output.sum();
+        }
+
+        /**
+         * @return the bytes saved by the adapted encodings
+         */
+        public long getSavings() {
+            return getInput() - getOutput();
+        }
+
+        // Implementations
+
+        @Override
+        public @NotNull String toString() {
+            return "Metrics{" +
+                    "decisions=" + decisions +
+                    ", input=" + getInput() +
+                    ", output=" + getOutput() +
+                    '}';
+        }
+
+    }
+
+    public static final class Builder {
+
+        private @NotNull DoubleSupplier load = AdaptiveCompression::system;
+        private double moderate = 0.5D;
+        private double high = 0.8D;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        /**
+         * Sets the supplier of the CPU load, from 0 to 1. The default is the system load average divided by the
+         * available processors.
+         *
+         * @param load the load supplier
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder load(@NotNull DoubleSupplier load) {
+            this.load = load;
+            return this;
+        }
+
+        public double moderateLoad() {
+            return moderate;
+        }
+        @Contract("_->this")
+        public @NotNull Builder moderateLoad(@Range(from = 0, to = 1) double moderate) {
+            if (moderate < 0 || moderate > 1) {
+                throw new IllegalArgumentException("the load must be between 0 and 1");
+            }
+
+            this.moderate = moderate;
+            return this;
+        }
+
+        public double highLoad() {
+            return high;
+        }
+        @Contract("_->this")
+        public @NotNull Builder highLoad(@Range(from = 0, to = 1) double high) {
+            if (high < 0 || high > 1) {
+                throw new IllegalArgumentException("the load must be between 0 and 1");
+            }
+
+            this.high = high;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull AdaptiveCompression build() {
+            if (moderate > high) {
+                throw new IllegalStateException("the moderate load cannot be higher than the high load");
+            }
+
+            return new AdaptiveCompression(load, moderate, high);
+        }
+
+    }
+
+    /**
+     * Delegates to an encoding, counting the bytes compressed and produced
+     */
+    private static final class Measured extends Encoding {
+
+        private final @NotNull Encoding encoding;
+        private final @NotNull Metrics metrics;
+
+        private Measured(@NotNull Encoding encoding, @NotNull Metrics metrics) {
+            super(encoding.getName(), encoding.getAliases());
+
+            this.encoding = encoding;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
+            return encoding.decompress(bytes);
+        }
+        @Override
+        public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
+            byte[] compressed = encoding.compress(bytes);
+
+            metrics.input.add(bytes.length);
+            metrics.output.add(compressed.length);
+
+            return compressed;
+        }
+
+        @Override
+        public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) throws IOException {
+            @NotNull OutputStream counter = new FilterOutputStream(stream) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    metrics.output.increment();
+                }
+                @Override
+                public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+                    out.write(bytes, offset, length);
+                    metrics.output.add(length);
+                }
+            };
+
+            return new FilterOutputStream(encoding.wrapOutput(counter)) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    metrics.input.increment();
+                }
+                @Override
+                public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+                    out.write(bytes, offset, length);
+                    metrics.input.add(length);
+                }
+            };
+        }
+        @Override
+        public @NotNull InputStream wrapInput(@NotNull InputStream stream) throws IOException {
+            return encoding.wrapInput(stream);
+        }
+
+    }
+
+}
@@ -9,6 +9,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,12 +39,28 @@ public class ChunkedEncoding extends Encoding {
     @Range(from = 1, to = Integer.MAX_VALUE)
     private final int blockSize;
 
+    // Whether a subclass provides the extensions from the chunk text, so the chunks are only copied to a string then
+    private final boolean text;
+
     protected ChunkedEncoding(
             @Range(from = 1, to = Integer.MAX_VALUE)
             int blockSize
     ) {
         super("chunked");
         this.blockSize = blockSize;
+        this.text = overrides(getClass());
+    }
+
+    private static boolean overrides(@NotNull Class<?> type) {
+        for (@Nullable Class<?> current = type; current != null && current != ChunkedEncoding.class; current = current.getSuperclass()) {
+            try {
+                current.getDeclaredMethod("extensions", String.class);
+                return true;
+            } catch (@NotNull NoSuchMethodException ignore) {
+            }
+        }
+
+        return false;
     }
 
     // Getters
@@ -56,6 +76,19 @@ public class ChunkedEncoding extends Encoding {
         return new Extension[0];
     }
 
+    /**
+     * Provides the extensions of a chunk. By default, the chunk is only copied to a string (for
+     * {@link #extensions(String)}) if a subclass overrides it, otherwise there are no extensions.
+     *
+     * @param bytes the array with the chunk
+     * @param offset the offset of the chunk at the array
+     * @param length the length of the chunk
+     * @return the extensions of the chunk
+     */
+    protected @NotNull Extension @NotNull [] extensions(byte @NotNull [] bytes, int offset, int length) {
+        return text ? extensions(new String(bytes, offset, length, ISO_8859_1)) : new Extension[0];
+    }
+
     @Override
     public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
         // As you can see, the compression is pretty much simpler than the decompression
@@ -65,15 +98,15 @@ public class ChunkedEncoding extends Encoding {
 
         for (byte[] block : StringUtils.explode(bytes, getBlockSize())) {
             // Length and extensions
-            @NotNull Length length = new Length(block.length, extensions(new String(block, ISO_8859_1)));
+            @NotNull Length length = new Length(block.length, extensions(block, 0, block.length));
             builder.append(length).append(CRLF);
 
             // Content
-            builder.append(new String(block)).append(CRLF);
+            builder.append(new String(block, ISO_8859_1)).append(CRLF);
         }
 
         // Ending
-        @NotNull Length length = new Length(0, extensions(new String(new byte[0], ISO_8859_1)));
+        @NotNull Length length = new Length(0, extensions(new byte[0], 0, 0));
         builder.append(length).append(CRLF).append(CRLF);
 
         // Finish
@@ -109,9 +142,9 @@ public class ChunkedEncoding extends Encoding {
                     }
                 }
 
-                // todo: 03/06/2024 according to Wikipedia, the length number may be a hexadecimal value
+                // The chunk size is a hexadecimal value
                 //  https://en.wikipedia.org/wiki/Chunked_transfer_encoding#Example
-                int length = Integer.parseInt(data[0].replace("\r", "").replace("\n", ""));
+                int length = Integer.parseInt(data[0].replace("\r", "").replace("\n", "").trim(), 16);
 
                 return new Length(length, extensions);
             }
@@ -163,8 +196,201 @@ public class ChunkedEncoding extends Encoding {
         return decompressed;
     }
 
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) {
+        return new Encoder(stream);
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) {
+        return new Decoder(stream);
+    }
+
     // Classes
 
+    /**
+     * Splits the data written into chunks of the block size, a {@link #flush()} also writes the pending data
+     * as a (smaller) chunk. The last (empty) chunk is written when the stream is closed.
+     */
+    private final class Encoder extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+        private final byte @NotNull [] buffer = new byte[getBlockSize()];
+
+        private int count = 0;
+        private boolean closed = false;
+
+        private Encoder(@NotNull OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[count++] = (byte) b;
+            if (count == buffer.length) drain();
+        }
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == 0 && length >= buffer.length) {
+                    // There's nothing buffered, write the block directly
+                    chunk(bytes, offset, buffer.length);
+                    offset += buffer.length;
+                    length -= buffer.length;
+                } else {
+                    int amount = Math.min(length, buffer.length - count);
+                    System.arraycopy(bytes, offset, buffer, count, amount);
+
+                    count += amount;
+                    offset += amount;
+                    length -= amount;
+
+                    if (count == buffer.length) drain();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            stream.flush();
+        }
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try (@NotNull OutputStream stream = this.stream) {
+                drain();
+
+                // Ending
+                @NotNull Length length = new Length(0, extensions(new byte[0], 0, 0));
+                stream.write((length + CRLF + CRLF).getBytes(ISO_8859_1));
+                stream.flush();
+            }
+        }
+
+        private void drain() throws IOException {
+            if (count == 0) return;
+
+            chunk(buffer, 0, count);
+            count = 0;
+        }
+        private void chunk(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            @NotNull Length size = new Length(length, extensions(bytes, offset, length));
+
+            stream.write((size + CRLF).getBytes(ISO_8859_1));
+            stream.write(bytes, offset, length);
+            stream.write(CRLF.getBytes(ISO_8859_1));
+        }
+
+    }
+
+    /**
+     * Reads the chunks content until the last (empty) chunk, the extensions and trailers are ignored.
+     * The stream ends right after the last chunk, so it can be used directly over a connection.
+     */
+    private static final class Decoder extends InputStream {
+
+        private static final int MAX_LINE_LENGTH = 8192;
+
+        private final @NotNull InputStream stream;
+
+        private long remaining = 0;
+        private boolean started = false;
+        private boolean finished = false;
+
+        private Decoder(@NotNull InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            int read;
+
+            while ((read = read(bytes, 0, 1)) == 0);
+            return read == -1 ? -1 : bytes[0] & 0xFF;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            } else if (finished || !next()) {
+                return -1;
+            }
+
+            int read = stream.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read == -1) throw new EOFException("unexpected end of the chunked stream");
+
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return finished ? 0 : (int) Math.min(remaining, stream.available());
+        }
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+
+        /**
+         * Moves to the next chunk if the current one has been fully read
+         *
+         * @return {@code true} if there's chunk content to read, {@code false} if the last chunk was reached
+         */
+        private boolean next() throws IOException {
+            if (remaining > 0) return true;
+
+            // The content of every chunk ends with a CRLF
+            if (started && !line().isEmpty()) {
+                throw new IOException("chunk specified length not equals to chunk content length");
+            }
+            started = true;
+
+            @NotNull String line = line();
+            int extensions = line.indexOf(';');
+            if (extensions != -1) line = line.substring(0, extensions);
+
+            try {
+                remaining = Long.parseLong(line.trim(), 16);
+            } catch (@NotNull NumberFormatException e) {
+                throw new IOException("illegal chunk size '" + line + "'", e);
+            }
+
+            if (remaining < 0) {
+                throw new IOException("illegal chunk size '" + line + "'");
+            } else if (remaining == 0) {
+                // Trailers, until an empty line
+                //noinspection StatementWithEmptyBody
+                while (!line().isEmpty());
+
+                finished = true;
+                return false;
+            }
+
+            return true;
+        }
+        private @NotNull String line() throws IOException {
+            @NotNull StringBuilder builder = new StringBuilder();
+
+            int b;
+            while ((b = stream.read()) != '\n') {
+                if (b == -1) {
+                    throw new EOFException("unexpected end of the chunked stream");
+                } else if (builder.length() >= MAX_LINE_LENGTH) {
+                    throw new IOException("chunk line exceeds " + MAX_LINE_LENGTH + " characters");
+                } else if (b != '\r') {
+                    builder.append((char) b);
+                }
+            }
+
+            return builder.toString();
+        }
+
+    }
+
     public static final class Builder {
 
         @Range(from = 1, to = Integer.MAX_VALUE)
@@ -350,7 +576,7 @@ public class ChunkedEncoding extends Encoding {
             @Override
             public @NotNull String toString() {
                 @NotNull StringBuilder builder = new StringBuilder();
-                builder.append(getAmount());
+                builder.append(Integer.toHexString(getAmount()));
 
                 for (@NotNull Extension extension : getExtensions()) {
                     builder.append(";").append(extension);
@@ -0,0 +1,90 @@
+package codes.laivy.jhttp.encoding;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A small bounded pool of reusable {@link Deflater} or {@link Inflater} instances.
+ *
+ * <p>The zlib codecs hold native memory that is only reclaimed by {@code end()} (or, much later, by the
+ * garbage collector). Creating one per message makes the process memory grow under heavy compression load,
+ * so the encodings borrow them from this pool, and they're reset and returned after use. When the pool is
+ * full, the returned codec is ended immediately instead of being left to the garbage collector.</p>
+ *
+ * @param <T> the codec type
+ */
+final class CodecPool<T> {
+
+    // Static initializers
+
+    private static final int CAPACITY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    static @NotNull CodecPool<Deflater> deflaters(int level, int strategy, boolean nowrap) {
+        return new CodecPool<>(() -> {
+            @NotNull Deflater deflater = new Deflater(level, nowrap);
+            deflater.setStrategy(strategy);
+
+            return deflater;
+        }, Deflater::reset, Deflater::end);
+    }
+    static @NotNull CodecPool<Inflater> inflaters(boolean nowrap) {
+        return new CodecPool<>(() -> new Inflater(nowrap), Inflater::reset, Inflater::end);
+    }
+
+    // Object
+
+    private final @NotNull Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger size = new AtomicInteger(0);
+
+    private final @NotNull Supplier<T> supplier;
+    private final @NotNull Consumer<T> reset;
+    private final @NotNull Consumer<T> end;
+
+    private CodecPool(@NotNull Supplier<T> supplier, @NotNull Consumer<T> reset, @NotNull Consumer<T> end) {
+        this.supplier = supplier;
+        this.reset = reset;
+        this.end = end;
+    }
+
+    // Modules
+
+    /**
+     * Borrows a codec from the pool, or creates a new one if the pool is empty
+     *
+     * @return a codec ready to use
+     */
+    @NotNull T acquire() {
+        @Nullable T codec = queue.poll();
+
+        if (codec == null) {
+            return supplier.get();
+        } else {
+            size.decrementAndGet();
+            return codec;
+        }
+    }
+
+    /**
+     * Resets a codec and gives it back to the pool, it's ended if the pool is already full
+     *
+     * @param codec the codec borrowed using {@link #acquire()}
+     */
+    void release(@NotNull T codec) {
+        if (size.incrementAndGet() > CAPACITY) {
+            size.decrementAndGet();
+            end.accept(codec);
+        } else {
+            reset.accept(codec);
+            queue.offer(codec);
+        }
+    }
+
+}
@@ -1,126 +1,517 @@
 package codes.laivy.jhttp.encoding;
 
 import codes.laivy.jhttp.exception.encoding.EncodingException;
+import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.*;
+import java.util.Arrays;
 
+/**
+ * The compress encoding, the LZW format of the Unix {@code compress} program (.Z files).
+ *
+ * <p>The codes start with 9 bits and grow up to the maximum bits (16 by default) as the dictionary grows, they're
+ * packed in groups of eight codes, and the "block mode" clear code resets the dictionary when the compression ratio
+ * starts to drop, exactly as the {@code compress} program does. The dictionaries are plain int/byte arrays: the
+ * compression uses an open-addressing hash table of (prefix code, byte) pairs, and the decompression a prefix/suffix
+ * table, so both run in linear time and don't allocate anything per byte.</p>
+ */
 public class CompressEncoding extends Encoding {
 
     // Static initializers
 
+    private static final int MAGIC_1 = 0x1F;
+    private static final int MAGIC_2 = 0x9D;
+
+    private static final int BLOCK_MODE = 0x80;
+    private static final int BITS_MASK = 0x1F;
+
+    private static final int INITIAL_BITS = 9;
+    private static final int CLEAR = 256;
+    private static final int FIRST = 257;
+
+    // The compression ratio is checked every time this amount of bytes is read, after the dictionary is full
+    private static final int CHECK_GAP = 10000;
+
     public static @NotNull Builder builder() {
         return new Builder();
     }
 
     // Object
 
-    protected CompressEncoding() {
-        super("compress");
+    private final int maxBits;
+
+    protected CompressEncoding(int maxBits) {
+        super("compress", "x-compress");
+        this.maxBits = maxBits;
     }
 
+    // Getters
+
+    public final int getMaxBits() {
+        return maxBits;
+    }
+
+    // Modules
+
     @Override
     public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
         if (bytes.length == 0) return new byte[0];
 
-        // Dictionary
-        @NotNull Map<Integer, String> dictionary = new HashMap<>();
-        for (int i = 0; i < 256; i++) {
-            dictionary.put(i, "" + (char) i);
-        }
-
-        // Start decompression
-        @NotNull ByteArrayOutputStream result = new ByteArrayOutputStream();
-        int dictSize = 256;
-
-        try {
-            int oldCode = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
-            @NotNull String oldString = dictionary.get(oldCode);
-            result.write(oldString.getBytes(StandardCharsets.ISO_8859_1));
-
-            int i = 2;
-            while (i < bytes.length) {
-                int code = ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
-                i += 2;
-
-                @NotNull String current;
-                if (dictionary.containsKey(code)) {
-                    current = dictionary.get(code);
-                } else if (code == dictSize) {
-                    current = oldString + oldString.charAt(0);
-                } else {
-                    throw new IllegalArgumentException("Bad compressed code");
-                }
-
-                result.write(current.getBytes(StandardCharsets.ISO_8859_1));
+        try (@NotNull InputStream stream = wrapInput(new ByteArrayInputStream(bytes));
+             @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 2)) {
 
-                dictionary.put(dictSize++, oldString + current.charAt(0));
-                oldString = current;
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
             }
+
+            return output.toByteArray();
+        } catch (@NotNull IOException e) {
+            throw new EncodingException("cannot decompress with lzw", e);
+        }
+    }
+    @Override
+    public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
+
+        try (@NotNull OutputStream stream = wrapOutput(output)) {
+            stream.write(bytes);
         } catch (@NotNull IOException e) {
-            throw new RuntimeException(e);
+            throw new EncodingException("cannot compress with lzw", e);
         }
 
-        // Finish
-        return result.toByteArray();
+        return output.toByteArray();
     }
 
     @Override
-    public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
-        // Dictionary
-        @NotNull Map<String, Integer> dictionary = new HashMap<>();
-        for (int i = 0; i < 256; i++) {
-            dictionary.put("" + (char) i, i);
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) throws IOException {
+        return new Encoder(stream, getMaxBits());
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) {
+        return new Decoder(stream);
+    }
+
+    /**
+     * Checks if the codes grow when the dictionary reaches the current code size. The {@code compress} program
+     * always grows the 9 bits codes, even if the maximum is 9 bits, so the same is done here to be compatible.
+     */
+    private static boolean grows(int bits, int maxBits) {
+        return bits < maxBits || bits == INITIAL_BITS;
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private int maxBits = 16;
+
+        private Builder() {
+        }
+
+        public int maxBits() {
+            return maxBits;
+        }
+        /**
+         * Sets the maximum bits of the codes, from 9 to 16. The default is 16, as the {@code compress} program.
+         *
+         * @param maxBits the maximum code bits
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder maxBits(@Range(from = 9, to = 16) int maxBits) {
+            if (maxBits < INITIAL_BITS || maxBits > 16) {
+                throw new IllegalArgumentException("illegal lzw maximum bits " + maxBits);
+            }
+
+            this.maxBits = maxBits;
+            return this;
+        }
+
+        public @NotNull CompressEncoding build() {
+            return new CompressEncoding(maxBits);
+        }
+
+    }
+
+    private static final class Encoder extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+        private final int maxBits;
+        private final int maxCodes;
+
+        // Dictionary, the keys are (prefix << 8 | byte) and -1 is an empty slot
+        private final int @NotNull [] keys;
+        private final int @NotNull [] codes;
+        private final int mask;
+        private final int shift;
+
+        private int bits = INITIAL_BITS;
+        private int next = FIRST;
+        private int current = -1;
+
+        // Compression ratio
+        private long read = 0;
+        private long written = 3;
+        private long checkpoint = CHECK_GAP;
+        private long ratio = 0;
+
+        // Output
+        private final byte @NotNull [] buffer = new byte[4096];
+        private int count = 0;
+        private long accumulator = 0;
+        private int accumulated = 0;
+        private long total = 0;
+
+        private boolean closed = false;
+
+        private Encoder(@NotNull OutputStream stream, int maxBits) throws IOException {
+            this.stream = stream;
+            this.maxBits = maxBits;
+            this.maxCodes = 1 << maxBits;
+
+            // The load factor is kept at 50% at most
+            int size = Integer.highestOneBit(maxCodes) << 1;
+            this.keys = new int[size];
+            this.codes = new int[size];
+            this.mask = size - 1;
+            this.shift = 32 - Integer.numberOfTrailingZeros(size);
+            Arrays.fill(keys, -1);
+
+            stream.write(new byte[] { (byte) MAGIC_1, (byte) MAGIC_2, (byte) (BLOCK_MODE | maxBits) });
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
         }
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (closed) throw new IOException("the stream is closed");
+
+            int end = offset + length;
+            int index = offset;
+
+            if (current == -1 && index < end) {
+                current = bytes[index++] & 0xFF;
+            }
+
+            for (; index < end; index++) {
+                int c = bytes[index] & 0xFF;
+                int key = (current << 8) | c;
+
+                // Find the (current, c) pair
+                int slot = (key * 0x9E3779B1) >>> shift;
+                while (keys[slot] != -1 && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+
+                if (keys[slot] == key) {
+                    current = codes[slot];
+                    continue;
+                }
+
+                code(current);
+
+                if (next < maxCodes) {
+                    keys[slot] = key;
+                    codes[slot] = next++;
+                } else if (read + index - offset >= checkpoint) {
+                    check(read + index - offset);
+                }
+
+                current = c;
+            }
+
+            read += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.write(buffer, 0, count);
+            count = 0;
+            stream.flush();
+        }
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try (@NotNull OutputStream stream = this.stream) {
+                if (current != -1) code(current);
 
-        // Start compression
-        @NotNull List<Integer> result = new ArrayList<>();
-        @NotNull String current = "";
+                // The remaining bits
+                if (accumulated > 0) {
+                    put((int) accumulator);
+                }
 
-        int dictSize = 256;
-        for (byte b : bytes) {
-            char c = (char) (b & 0xFF);
+                stream.write(buffer, 0, count);
+                count = 0;
+            }
+        }
 
-            @NotNull String combined = current + c;
-            if (dictionary.containsKey(combined)) {
-                current = combined;
+        /**
+         * The dictionary is full, clears it if the compression ratio has dropped since the last check
+         */
+        private void check(long read) throws IOException {
+            checkpoint = read + CHECK_GAP;
+            long ratio = written == 0 ? Long.MAX_VALUE : (read << 8) / written;
+
+            if (ratio > this.ratio) {
+                this.ratio = ratio;
             } else {
-                result.add(dictionary.get(current));
-                dictionary.put(combined, dictSize++);
-                current = "" + c;
+                this.ratio = 0;
+                Arrays.fill(keys, -1);
+                next = FIRST;
+
+                code(CLEAR);
             }
         }
 
-        if (!current.isEmpty()) {
-            result.add(dictionary.get(current));
+        private void code(int code) throws IOException {
+            accumulator |= (long) code << accumulated;
+            accumulated += bits;
+            total++;
+
+            while (accumulated >= 8) {
+                put((int) accumulator);
+                accumulator >>>= 8;
+                accumulated -= 8;
+            }
+
+            if (code == CLEAR) {
+                align();
+                bits = INITIAL_BITS;
+            } else if (grows(bits, maxBits) && next > (1 << bits) - 1) {
+                // The next entry doesn't fit, the codes must grow
+                align();
+                bits++;
+            }
         }
+        private void align() throws IOException {
+            // The codes are written in groups of eight, the group is padded before the codes size change
+            while (total % 8 != 0) {
+                total++;
+                accumulated += bits;
 
-        // Finish
-        @NotNull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        for (int code : result) {
-            outputStream.write((code >> 8) & 0xFF);
-            outputStream.write(code & 0xFF);
+                while (accumulated >= 8) {
+                    put((int) accumulator);
+                    accumulator >>>= 8;
+                    accumulated -= 8;
+                }
+            }
+        }
+        private void put(int b) throws IOException {
+            if (count == buffer.length) {
+                stream.write(buffer, 0, count);
+                count = 0;
+            }
+
+            buffer[count++] = (byte) b;
+            written++;
         }
 
-        return outputStream.toByteArray();
     }
 
+    private static final class Decoder extends InputStream {
 
-    // Classes
+        private final @NotNull InputStream stream;
 
-    public static final class Builder {
+        // Input
+        private final byte @NotNull [] buffer = new byte[4096];
+        private int position = 0;
+        private int limit = 0;
+        private long accumulator = 0;
+        private int accumulated = 0;
+        private long total = 0;
 
-        private Builder() {
+        // Dictionary
+        private int maxBits;
+        private boolean block;
+        private int @NotNull [] prefixes = new int[0];
+        private byte @NotNull [] suffixes = new byte[0];
+        private byte @NotNull [] stack = new byte[0];
+        private int pending = 0;
+
+        private int bits = INITIAL_BITS;
+        private int next;
+        private int previous = -1;
+        private int first = 0;
+
+        private boolean started = false;
+        private boolean finished = false;
+
+        private Decoder(@NotNull InputStream stream) {
+            this.stream = stream;
         }
 
-        public @NotNull CompressEncoding build() {
-            return new CompressEncoding();
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!started) start();
+
+            int read = 0;
+
+            while (read < length) {
+                if (pending > 0) {
+                    // The strings are at the stack in the reverse order
+                    int amount = Math.min(pending, length - read);
+                    for (int index = 0; index < amount; index++) {
+                        bytes[offset + read++] = stack[--pending];
+                    }
+                } else if (finished || !decode()) {
+                    finished = true;
+                    break;
+                }
+            }
+
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public int available() {
+            return pending;
+        }
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+
+        private void start() throws IOException {
+            started = true;
+
+            int first = input();
+            if (first == -1) {
+                // An empty stream
+                finished = true;
+                return;
+            } else if (first != MAGIC_1 || input() != MAGIC_2) {
+                throw new IOException("not in compress (.Z) format");
+            }
+
+            int flags = input();
+            if (flags == -1) throw new EOFException("unexpected end of the compress stream");
+
+            this.maxBits = flags & BITS_MASK;
+            this.block = (flags & BLOCK_MODE) != 0;
+
+            if (maxBits < INITIAL_BITS || maxBits > 16) {
+                throw new IOException("unsupported compress maximum bits " + maxBits);
+            }
+
+            this.prefixes = new int[1 << maxBits];
+            this.suffixes = new byte[1 << maxBits];
+            this.stack = new byte[1 << maxBits];
+            this.next = block ? FIRST : CLEAR;
+        }
+
+        /**
+         * Decodes the next code into the stack
+         *
+         * @return {@code true} if a code was read, {@code false} if the stream has ended
+         */
+        private boolean decode() throws IOException {
+            if (!started || finished) return false;
+
+            int code = code();
+            if (code == -1) return false;
+
+            if (block && code == CLEAR) {
+                align();
+
+                bits = INITIAL_BITS;
+                next = FIRST;
+                previous = -1;
+
+                return true;
+            } else if (previous == -1) {
+                if (code >= CLEAR) throw new IOException("illegal first compress code " + code);
+
+                previous = code;
+                first = code;
+                stack[pending++] = (byte) code;
+
+                return true;
+            }
+
+            int in = code;
+
+            if (code == next) {
+                // The code being defined right now (the KwKwK case)
+                stack[pending++] = (byte) first;
+                code = previous;
+            } else if (code > next) {
+                throw new IOException("illegal compress code " + code);
+            }
+
+            while (code >= CLEAR) {
+                stack[pending++] = suffixes[code];
+                code = prefixes[code];
+            }
+
+            first = code;
+            stack[pending++] = (byte) code;
+
+            if (next < (1 << maxBits)) {
+                prefixes[next] = previous;
+                suffixes[next] = (byte) first;
+                next++;
+
+                if (next == (1 << bits) && grows(bits, maxBits)) {
+                    align();
+                    bits++;
+                }
+            }
+
+            previous = in;
+            return true;
+        }
+
+        private int code() throws IOException {
+            while (accumulated < bits) {
+                int b = input();
+                if (b == -1) return -1;
+
+                accumulator |= (long) b << accumulated;
+                accumulated += 8;
+            }
+
+            int code = (int) (accumulator & ((1 << bits) - 1));
+            accumulator >>>= bits;
+            accumulated -= bits;
+            total++;
+
+            return code;
+        }
+        private void align() throws IOException {
+            // Skip the padding codes of the current group of eight codes
+            while (total % 8 != 0) {
+                if (code() == -1) break;
+            }
+
+            accumulator = 0;
+            accumulated = 0;
+        }
+        private int input() throws IOException {
+            if (position == limit) {
+                limit = stream.read(buffer, 0, buffer.length);
+                position = 0;
+
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+
+            return buffer[position++] & 0xFF;
         }
 
     }
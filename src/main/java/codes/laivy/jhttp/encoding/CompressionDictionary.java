@@ -0,0 +1,122 @@
+package codes.laivy.jhttp.encoding;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Adler32;
+
+/**
+ * A preset dictionary shared between the server and the clients, used by the {@link DictionaryDeflateEncoding}.
+ *
+ * <p>The dictionary should contain the strings that most of the contents have (the JSON keys and envelopes
+ * of an API, as example), the most common strings at the end. The dictionaries are identified at the headers by
+ * the SHA-256 hash of their data, as a structured field byte sequence ({@code :base64:}), and at the compressed
+ * data by the Adler-32 checksum that zlib writes at the stream header.</p>
+ *
+ * <p>The id is a free name of the dictionary, like "api-v3". Multiple versions of a dictionary can be registered
+ * at the same encoding, they're always distinguished by their hashes.</p>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class CompressionDictionary {
+
+    // Static initializers
+
+    public static @NotNull CompressionDictionary create(@NotNull String id, byte @NotNull [] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("the dictionary cannot be empty");
+        }
+
+        return new CompressionDictionary(id, Arrays.copyOf(data, data.length));
+    }
+
+    // Object
+
+    private final @NotNull String id;
+    private final byte @NotNull [] data;
+
+    private final byte @NotNull [] hash;
+    private final @NotNull String header;
+    private final int adler;
+
+    private CompressionDictionary(@NotNull String id, byte @NotNull [] data) {
+        this.id = id;
+        this.data = data;
+
+        try {
+            this.hash = MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (@NotNull NoSuchAlgorithmException e) {
+            throw new IllegalStateException("the SHA-256 algorithm isn't available", e);
+        }
+        this.header = ":" + Base64.getEncoder().encodeToString(hash) + ":";
+
+        @NotNull Adler32 adler = new Adler32();
+        adler.update(data, 0, data.length);
+        this.adler = (int) adler.getValue();
+    }
+
+    // Getters
+
+    public @NotNull String getId() {
+        return id;
+    }
+    public byte @NotNull [] getData() {
+        return Arrays.copyOf(data, data.length);
+    }
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * @return the SHA-256 hash of the dictionary data
+     */
+    public byte @NotNull [] getHash() {
+        return Arrays.copyOf(hash, hash.length);
+    }
+
+    /**
+     * @return the SHA-256 hash as a structured field byte sequence, the value of the
+     * {@code Available-Dictionary} and {@code Content-Dictionary} headers
+     */
+    public @NotNull String getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the Adler-32 checksum of the dictionary data, the dictionary id of the zlib streams
+     */
+    public int getAdler32() {
+        return adler;
+    }
+
+    // Modules
+
+    byte @NotNull [] data() {
+        return data;
+    }
+
+    // Implementations
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        @NotNull CompressionDictionary that = (CompressionDictionary) object;
+        return Arrays.equals(hash, that.hash);
+    }
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hash);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return id + "=" + header;
+    }
+
+}
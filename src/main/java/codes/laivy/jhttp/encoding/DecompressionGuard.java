@@ -0,0 +1,326 @@
+package codes.laivy.jhttp.encoding;
+
+import codes.laivy.jhttp.exception.encoding.DecompressionLimitException;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the data produced when decoding untrusted contents, a few kilobytes of compressed data can expand to
+ * gigabytes (a "decompression bomb"). The decoding streams created by {@link #wrap(Encoding, InputStream)} count the
+ * bytes read from the encoded stream and the bytes produced, and abort with a {@link DecompressionLimitException}
+ * as soon as one of the limits is exceeded:
+ * <ul>
+ *     <li>The maximum size, the absolute amount of decoded bytes.</li>
+ *     <li>The expansion ratio, the decoded bytes divided by the encoded bytes. It's configurable by encoding, and only
+ *     checked after the grace size, since small contents may have high ratios legitimately.</li>
+ * </ul>
+ * <p>
+ * The limits are checked once per read, not per byte, so the guard costs almost nothing to the legitimate contents.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class DecompressionGuard {
+
+    // Static initializers
+
+    private static final @NotNull DecompressionGuard UNLIMITED = new DecompressionGuard(Long.MAX_VALUE, Double.POSITIVE_INFINITY, 0, Collections.emptyMap());
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a guard without any limit
+     */
+    public static @NotNull DecompressionGuard unlimited() {
+        return UNLIMITED;
+    }
+
+    // Object
+
+    private final long size;
+    private final double ratio;
+    private final long grace;
+    private final @NotNull Map<String, Double> ratios;
+
+    private DecompressionGuard(long size, double ratio, long grace, @NotNull Map<String, Double> ratios) {
+        this.size = size;
+        this.ratio = ratio;
+        this.grace = grace;
+        this.ratios = ratios;
+    }
+
+    // Getters
+
+    /**
+     * @return the maximum amount of decoded bytes
+     */
+    public long getMaxSize() {
+        return size;
+    }
+
+    /**
+     * @return the default maximum expansion ratio
+     */
+    public double getRatio() {
+        return ratio;
+    }
+
+    /**
+     * @param encoding the encoding
+     * @return the maximum expansion ratio of the encoding, or the default one if it hasn't a specific ratio
+     */
+    public double getRatio(@NotNull Encoding encoding) {
+        @Nullable Double ratio = ratios.get(encoding.getName().toLowerCase());
+
+        for (int index = 0; ratio == null && index < encoding.getAliases().length; index++) {
+            ratio = ratios.get(encoding.getAliases()[index].toLowerCase());
+        }
+
+        return ratio != null ? ratio : this.ratio;
+    }
+
+    /**
+     * @return the amount of decoded bytes produced before the expansion ratio starts to be checked
+     */
+    public long getGrace() {
+        return grace;
+    }
+
+    // Modules
+
+    /**
+     * Wraps an encoded stream, the returned stream decodes it using {@link Encoding#wrapInput(InputStream)} and
+     * throws a {@link DecompressionLimitException} when the limits are exceeded.
+     *
+     * @param encoding the encoding of the stream
+     * @param stream the encoded stream
+     * @return the decoded stream
+     * @throws IOException if an I/O error occurs creating the decoding stream
+     */
+    public @NotNull InputStream wrap(@NotNull Encoding encoding, @NotNull InputStream stream) throws IOException {
+        if (this == UNLIMITED) {
+            return encoding.wrapInput(stream);
+        }
+
+        @NotNull Counter counter = new Counter(stream);
+        return new Guarded(encoding, counter, encoding.wrapInput(counter));
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "DecompressionGuard{" +
+                "size=" + size +
+                ", ratio=" + ratio +
+                ", grace=" + grace +
+                ", ratios=" + ratios +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private long size = 32L * 1024 * 1024;
+        private double ratio = 100D;
+        private long grace = 64L * 1024;
+        private final @NotNull Map<String, Double> ratios = new HashMap<>();
+
+        private Builder() {
+        }
+
+        // Modules
+
+        public long maxSize() {
+            return size;
+        }
+        /**
+         * Sets the maximum amount of decoded bytes, the default is 32 MiB
+         *
+         * @param size the maximum size in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder maxSize(long size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("the maximum size must be positive");
+            }
+
+            this.size = size;
+            return this;
+        }
+
+        public double ratio() {
+            return ratio;
+        }
+        /**
+         * Sets the default maximum expansion ratio, the default is 100
+         *
+         * @param ratio the ratio between the decoded and encoded sizes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder ratio(double ratio) {
+            if (!(ratio >= 1)) {
+                throw new IllegalArgumentException("the expansion ratio must be at least 1");
+            }
+
+            this.ratio = ratio;
+            return this;
+        }
+        /**
+         * Sets the maximum expansion ratio of a specific encoding
+         *
+         * @param encoding the name or alias of the encoding
+         * @param ratio the ratio between the decoded and encoded sizes
+         * @return this builder
+         */
+        @Contract("_,_->this")
+        public @NotNull Builder ratio(@NotNull String encoding, double ratio) {
+            if (!(ratio >= 1)) {
+                throw new IllegalArgumentException("the expansion ratio must be at least 1");
+            }
+
+            ratios.put(encoding.toLowerCase(), ratio);
+            return this;
+        }
+
+        public long grace() {
+            return grace;
+        }
+        /**
+         * Sets the amount of decoded bytes produced before the expansion ratio starts to be checked, the default
+         * is 64 KiB
+         *
+         * @param grace the grace size in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder grace(long grace) {
+            if (grace < 0) {
+                throw new IllegalArgumentException("the grace size cannot be negative");
+            }
+
+            this.grace = grace;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull DecompressionGuard build() {
+            return new DecompressionGuard(size, ratio, grace, Collections.unmodifiableMap(new HashMap<>(ratios)));
+        }
+
+    }
+
+    /**
+     * Counts the encoded bytes read by the decoding stream
+     */
+    private static final class Counter extends FilterInputStream {
+
+        private long count = 0;
+
+        private Counter(@NotNull InputStream stream) {
+            super(stream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = in.read();
+            if (read != -1) count++;
+
+            return read;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0) count += read;
+
+            return read;
+        }
+        @Override
+        public long skip(long amount) throws IOException {
+            long skipped = in.skip(amount);
+            count += skipped;
+
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Counts the decoded bytes and checks the limits after every read
+     */
+    private final class Guarded extends FilterInputStream {
+
+        private final @NotNull Encoding encoding;
+        private final @NotNull Counter counter;
+        private final double ratio;
+
+        private long produced = 0;
+
+        private Guarded(@NotNull Encoding encoding, @NotNull Counter counter, @NotNull InputStream stream) {
+            super(stream);
+
+            this.encoding = encoding;
+            this.counter = counter;
+            this.ratio = getRatio(encoding);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = in.read();
+            if (read != -1) produced(1);
+
+            return read;
+        }
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0) produced(read);
+
+            return read;
+        }
+        @Override
+        public long skip(long amount) throws IOException {
+            long skipped = in.skip(amount);
+            if (skipped > 0) produced(skipped);
+
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void produced(long amount) throws DecompressionLimitException {
+            produced += amount;
+            long consumed = counter.count;
+
+            if (produced > size) {
+                throw new DecompressionLimitException("the decoded content exceeds the maximum size of " + size + " bytes", encoding.getName(), consumed, produced);
+            } else if (produced > grace && produced > ratio * Math.max(consumed, 1)) {
+                throw new DecompressionLimitException("the decoded content exceeds the maximum expansion ratio of " + ratio + " for encoding '" + encoding.getName() + "'", encoding.getName(), consumed, produced);
+            }
+        }
+
+    }
+
+}
@@ -3,10 +3,13 @@ package codes.laivy.jhttp.encoding;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -22,31 +25,36 @@ public class DeflateEncoding extends Encoding {
 
     // Object
 
-    private final @NotNull Inflater inflater;
-    private final @NotNull Deflater deflater;
+    private final int level;
+    private final int strategy;
 
-    protected DeflateEncoding(@NotNull Inflater inflater, @NotNull Deflater deflater) {
+    private final @NotNull CodecPool<Deflater> deflaters;
+    private final @NotNull CodecPool<Inflater> inflaters;
+
+    protected DeflateEncoding(int level, int strategy) {
         super("deflate");
 
-        this.inflater = inflater;
-        this.deflater = deflater;
+        this.level = level;
+        this.strategy = strategy;
+
+        this.deflaters = CodecPool.deflaters(level, strategy, false);
+        this.inflaters = CodecPool.inflaters(false);
     }
 
     // Getters
 
-    public final @NotNull Inflater getInflater() {
-        return inflater;
+    public final int getLevel() {
+        return level;
     }
-    public final @NotNull Deflater getDeflater() {
-        return deflater;
+    public final int getStrategy() {
+        return strategy;
     }
 
     // Modules
 
     @Override
     public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
-        try (@NotNull ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
-             @NotNull InflaterInputStream stream = new InflaterInputStream(byteStream);
+        try (@NotNull InputStream stream = wrapInput(new ByteArrayInputStream(bytes));
              @NotNull ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
 
             byte[] buffer = new byte[1024];
@@ -57,57 +65,130 @@ public class DeflateEncoding extends Encoding {
 
             return outputStream.toByteArray();
         } catch (IOException e) {
-            throw new EncodingException("cannot decompress with gzip native stream", e);
+            throw new EncodingException("cannot decompress with inflater native stream", e);
         }
     }
     @Override
     public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
-        try (@NotNull ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-             @NotNull DeflaterOutputStream stream = new DeflaterOutputStream(byteStream, getDeflater())) {
+        @NotNull ByteArrayOutputStream byteStream = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
 
+        try (@NotNull OutputStream stream = wrapOutput(byteStream)) {
             stream.write(bytes);
-            stream.finish();
-
-            return byteStream.toByteArray();
         } catch (IOException e) {
             throw new EncodingException("cannot compress with deflater native stream", e);
         }
+
+        return byteStream.toByteArray();
+    }
+
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) throws IOException {
+        // The deflater is borrowed from the pool, and given back when the stream is closed
+        @NotNull Deflater deflater = deflaters.acquire();
+
+        try {
+            return new DeflaterOutputStream(stream, deflater, 4096) {
+                private boolean closed = false;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+
+                    try {
+                        super.close();
+                    } finally {
+                        closed = true;
+                        deflaters.release(def);
+                    }
+                }
+            };
+        } catch (@NotNull Throwable throwable) {
+            deflaters.release(deflater);
+            throw throwable;
+        }
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) throws IOException {
+        // The inflater is borrowed from the pool, and given back when the stream is closed
+        @NotNull Inflater inflater = inflaters.acquire();
+
+        try {
+            return new InflaterInputStream(stream, inflater, 4096) {
+                private boolean closed = false;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+
+                    try {
+                        super.close();
+                    } finally {
+                        closed = true;
+                        inflaters.release(inf);
+                    }
+                }
+            };
+        } catch (@NotNull Throwable throwable) {
+            inflaters.release(inflater);
+            throw throwable;
+        }
     }
 
     // Classes
 
     public static final class Builder {
 
-        private @NotNull Inflater inflater = new Inflater();
-        private @NotNull Deflater deflater = new Deflater();
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int strategy = Deflater.DEFAULT_STRATEGY;
 
         private Builder() {
         }
 
         // Methods
 
-        public @NotNull Deflater deflater() {
-            return deflater;
+        public int level() {
+            return level;
         }
+        /**
+         * Sets the compression level, from 0 (no compression) to 9 (best compression), or -1 for the zlib default.
+         *
+         * @param level the compression level
+         * @return this builder
+         */
         @Contract("_->this")
-        public @NotNull Builder deflater(@NotNull Deflater deflater) {
-            this.deflater = deflater;
+        public @NotNull Builder level(@Range(from = -1, to = 9) int level) {
+            if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("illegal compression level " + level);
+            }
+
+            this.level = level;
             return this;
         }
 
-        public @NotNull Inflater inflater() {
-            return inflater;
+        public int strategy() {
+            return strategy;
         }
+        /**
+         * Sets the compression strategy, one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}
+         * or {@link Deflater#HUFFMAN_ONLY}.
+         *
+         * @param strategy the compression strategy
+         * @return this builder
+         */
         @Contract("_->this")
-        public @NotNull Builder inflater(@NotNull Inflater inflater) {
-            this.inflater = inflater;
+        public @NotNull Builder strategy(int strategy) {
+            if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentException("illegal compression strategy " + strategy);
+            }
+
+            this.strategy = strategy;
             return this;
         }
 
         // Builder
 
         public @NotNull DeflateEncoding build() {
-            return new DeflateEncoding(inflater, deflater);
+            return new DeflateEncoding(level, strategy);
         }
 
     }
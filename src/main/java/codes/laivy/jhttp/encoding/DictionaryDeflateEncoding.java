@@ -0,0 +1,304 @@
+package codes.laivy.jhttp.encoding;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.*;
+
+/**
+ * The deflate encoding with a preset dictionary shared between the server and the clients, the small contents
+ * with a lot of boilerplate (JSON API responses, as example) are much smaller when compressed this way.
+ *
+ * <p>The dictionaries are negotiated by a header pair: the client sends the hash of the dictionary it has at the
+ * {@code Available-Dictionary} request header, and if this encoding has a dictionary with that hash (see
+ * {@link #select(String)}) the response is encoded with "deflate-dict" and the hash is sent back at the
+ * {@code Content-Dictionary} response header. Otherwise, the response should fall back to the plain deflate or
+ * gzip encodings.</p>
+ *
+ * <p>The data is a standard zlib stream, the dictionary id (the Adler-32 of the dictionary) is written at the zlib
+ * header, so the decompression finds the dictionary by itself. Multiple versions of the dictionaries can be
+ * registered, the last registered one is the default for the new contents, and the old ones are still available to
+ * decompress the contents (and serve the clients) that use them.</p>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class DictionaryDeflateEncoding extends Encoding {
+
+    // Static initializers
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    // Object
+
+    private final int level;
+    private final int strategy;
+
+    private final @NotNull CodecPool<Deflater> deflaters;
+    private final @NotNull CodecPool<Inflater> inflaters;
+
+    private final @NotNull Map<String, CompressionDictionary> hashes = new ConcurrentHashMap<>();
+    private final @NotNull Map<Integer, CompressionDictionary> checksums = new ConcurrentHashMap<>();
+    private final @NotNull List<CompressionDictionary> versions = new LinkedList<>();
+    private volatile @Nullable CompressionDictionary current;
+
+    protected DictionaryDeflateEncoding(int level, int strategy, @NotNull CompressionDictionary @NotNull [] dictionaries) {
+        super("deflate-dict");
+
+        this.level = level;
+        this.strategy = strategy;
+
+        this.deflaters = CodecPool.deflaters(level, strategy, false);
+        this.inflaters = CodecPool.inflaters(false);
+
+        for (@NotNull CompressionDictionary dictionary : dictionaries) {
+            register(dictionary);
+        }
+    }
+
+    // Getters
+
+    public final int getLevel() {
+        return level;
+    }
+    public final int getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return the default dictionary, used to compress when no dictionary is specified
+     */
+    public @NotNull Optional<CompressionDictionary> getDictionary() {
+        return Optional.ofNullable(current);
+    }
+    public synchronized @NotNull List<CompressionDictionary> getDictionaries() {
+        return Collections.unmodifiableList(new ArrayList<>(versions));
+    }
+
+    // Dictionaries
+
+    /**
+     * Registers a dictionary, it becomes the default dictionary of this encoding. The previous dictionaries
+     * are kept to decompress the contents that use them.
+     *
+     * @param dictionary the dictionary to register
+     */
+    public synchronized void register(@NotNull CompressionDictionary dictionary) {
+        @Nullable CompressionDictionary collision = checksums.get(dictionary.getAdler32());
+
+        if (collision != null && !collision.equals(dictionary)) {
+            // The zlib streams only have the Adler-32 of the dictionary, it must be unique
+            throw new IllegalArgumentException("the dictionary '" + dictionary.getId() + "' has the same checksum of '" + collision.getId() + "'");
+        }
+
+        hashes.put(dictionary.getHeader(), dictionary);
+        checksums.put(dictionary.getAdler32(), dictionary);
+
+        versions.remove(dictionary);
+        versions.add(dictionary);
+        current = dictionary;
+    }
+
+    /**
+     * Unregisters a dictionary, if it's the default one, the previously registered dictionary becomes the default.
+     *
+     * @param dictionary the dictionary to unregister
+     * @return {@code true} if the dictionary was registered, {@code false} otherwise
+     */
+    public synchronized boolean unregister(@NotNull CompressionDictionary dictionary) {
+        if (!versions.remove(dictionary)) {
+            return false;
+        }
+
+        hashes.remove(dictionary.getHeader());
+        checksums.remove(dictionary.getAdler32());
+        current = versions.isEmpty() ? null : versions.get(versions.size() - 1);
+
+        return true;
+    }
+
+    /**
+     * Selects the dictionary advertised by a client
+     *
+     * @param available the value of the {@code Available-Dictionary} request header (a sf-binary SHA-256 hash)
+     * @return the dictionary if it's registered, or empty if the content must use another encoding
+     */
+    public @NotNull Optional<CompressionDictionary> select(@Nullable String available) {
+        if (available == null) return Optional.empty();
+        return Optional.ofNullable(hashes.get(available.trim()));
+    }
+
+    // Modules
+
+    @Override
+    public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
+        try (@NotNull InputStream stream = wrapInput(new ByteArrayInputStream(bytes));
+             @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4)) {
+
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return output.toByteArray();
+        } catch (@NotNull IOException e) {
+            throw new EncodingException("cannot decompress with dictionary inflater", e);
+        }
+    }
+    @Override
+    public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
+        return compress(bytes, current);
+    }
+
+    public byte @NotNull [] compress(byte @NotNull [] bytes, @Nullable CompressionDictionary dictionary) throws EncodingException {
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
+
+        try (@NotNull OutputStream stream = wrapOutput(output, dictionary)) {
+            stream.write(bytes);
+        } catch (@NotNull IOException e) {
+            throw new EncodingException("cannot compress with dictionary deflater", e);
+        }
+
+        return output.toByteArray();
+    }
+
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) {
+        return wrapOutput(stream, current);
+    }
+
+    /**
+     * Wraps an output stream, compressing with the given dictionary.
+     *
+     * @param stream the stream that will receive the compressed data
+     * @param dictionary the dictionary, or null to compress without a dictionary
+     * @return the stream that compresses the data written to it
+     */
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream, @Nullable CompressionDictionary dictionary) {
+        @NotNull Deflater deflater = deflaters.acquire();
+        if (dictionary != null) deflater.setDictionary(dictionary.data());
+
+        // The deflater is borrowed from the pool, and given back when the stream is closed
+        return new DeflaterOutputStream(stream, deflater, 4096) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+
+                try {
+                    super.close();
+                } finally {
+                    closed = true;
+                    deflaters.release(def);
+                }
+            }
+        };
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) {
+        return new InflaterInputStream(stream, inflaters.acquire(), 4096) {
+            private boolean closed = false;
+
+            @Override
+            public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+                while (true) {
+                    int read = super.read(bytes, offset, length);
+
+                    if (read == -1 && inf.needsDictionary()) {
+                        // The zlib header has the dictionary id
+                        @Nullable CompressionDictionary dictionary = checksums.get(inf.getAdler());
+                        if (dictionary == null) {
+                            throw new ZipException("unknown deflate dictionary " + Integer.toHexString(inf.getAdler()));
+                        }
+
+                        inf.setDictionary(dictionary.data());
+                    } else {
+                        return read;
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+
+                try {
+                    super.close();
+                } finally {
+                    closed = true;
+                    inflaters.release(inf);
+                }
+            }
+        };
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int strategy = Deflater.DEFAULT_STRATEGY;
+        private final @NotNull List<CompressionDictionary> dictionaries = new LinkedList<>();
+
+        private Builder() {
+        }
+
+        // Modules
+
+        public int level() {
+            return level;
+        }
+        @Contract("_->this")
+        public @NotNull Builder level(@Range(from = -1, to = 9) int level) {
+            if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("illegal compression level " + level);
+            }
+
+            this.level = level;
+            return this;
+        }
+
+        public int strategy() {
+            return strategy;
+        }
+        @Contract("_->this")
+        public @NotNull Builder strategy(int strategy) {
+            if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentException("illegal compression strategy " + strategy);
+            }
+
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Adds a dictionary, the last one added is the default dictionary of the encoding
+         *
+         * @param dictionary the dictionary
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder dictionary(@NotNull CompressionDictionary dictionary) {
+            dictionaries.add(dictionary);
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull DictionaryDeflateEncoding build() {
+            return new DictionaryDeflateEncoding(level, strategy, dictionaries.toArray(new CompressionDictionary[0]));
+        }
+
+    }
+
+}
@@ -1,10 +1,13 @@
 package codes.laivy.jhttp.encoding;
 
 import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import codes.laivy.jhttp.utilities.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.*;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -29,6 +32,11 @@ public abstract class Encoding {
 
     private static final @NotNull Set<Encoding> collection = new HashSet<>();
 
+    // Copy-on-write views of the collection, they're only rebuilt when an encoding is added or removed
+    private static volatile @NotNull Set<Encoding> snapshot = Collections.emptySet();
+    private static volatile @NotNull Map<String, Encoding> index = Collections.emptyMap();
+    private static volatile int version = 0;
+
     static {
         add(ChunkedEncoding.builder().build());
         add(GZipEncoding.builder().build());
@@ -44,20 +52,39 @@ public abstract class Encoding {
      * @author Daniel Meinicke (Laivy)
      */
     public static @NotNull Collection<Encoding> retrieve() {
-        synchronized (collection) {
-            return Collections.unmodifiableSet(collection);
-        }
+        return snapshot;
     }
 
     /**
-     * Retrieves an encoding by its name or alias.
+     * Retrieves an encoding by its name or alias, ignoring the case. The lookup uses a hashed index
+     * of all the names and aliases, it doesn't iterate over the encodings.
      *
      * @param string the name or alias of the encoding to retrieve
      * @return an optional containing the encoding if found, otherwise an empty optional
      * @author Daniel Meinicke (Laivy)
      */
     public static @NotNull Optional<Encoding> retrieve(@NotNull String string) {
-        return stream().filter(encoding -> encoding.getName().equalsIgnoreCase(string) || Arrays.stream(encoding.getAliases()).anyMatch(alias -> alias.equalsIgnoreCase(string))).findFirst();
+        @NotNull Map<String, Encoding> index = Encoding.index;
+        @Nullable Encoding encoding = index.get(string);
+
+        // Most of the names are already in lower case, only convert if needed
+        if (encoding == null) {
+            encoding = index.get(string.toLowerCase(Locale.ENGLISH));
+        }
+
+        return Optional.ofNullable(encoding);
+    }
+
+    /**
+     * Retrieves the version of the encodings collection. The version changes every time an encoding is
+     * added or removed, so it can be used to invalidate anything resolved from the collection, like the
+     * {@link codes.laivy.jhttp.deferred.Deferred} encodings.
+     *
+     * @return the current version of the encodings collection
+     * @author Daniel Meinicke (Laivy)
+     */
+    public static int getVersion() {
+        return version;
     }
 
     /**
@@ -75,13 +102,18 @@ public abstract class Encoding {
             }
 
             // Check if there's another encoding with the same aliases
-            for (@NotNull Encoding that : retrieve()) {
+            for (@NotNull Encoding that : collection) {
                 if (Arrays.stream(that.getAliases()).anyMatch(new HashSet<>(Arrays.asList(encoding.getAliases()))::contains)) {
                     return false;
                 }
             }
 
-            return collection.add(encoding);
+            if (collection.add(encoding)) {
+                update();
+                return true;
+            } else {
+                return false;
+            }
         }
     }
 
@@ -94,8 +126,34 @@ public abstract class Encoding {
      */
     public static boolean remove(@NotNull Encoding encoding) {
         synchronized (collection) {
-            return collection.remove(encoding);
+            if (collection.remove(encoding)) {
+                update();
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the copy-on-write views, it must be called while holding the collection lock
+     */
+    private static void update() {
+        @NotNull Map<String, Encoding> index = new HashMap<>();
+
+        // The aliases are indexed first, this way a name always takes precedence over an alias
+        for (@NotNull Encoding encoding : collection) {
+            for (@NotNull String alias : encoding.getAliases()) {
+                index.put(alias.toLowerCase(Locale.ENGLISH), encoding);
+            }
+        }
+        for (@NotNull Encoding encoding : collection) {
+            index.put(encoding.getName().toLowerCase(Locale.ENGLISH), encoding);
         }
+
+        Encoding.snapshot = Collections.unmodifiableSet(new HashSet<>(collection));
+        Encoding.index = index;
+        Encoding.version++;
     }
 
     /**
@@ -196,6 +254,60 @@ public abstract class Encoding {
     public abstract byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException;
     public abstract byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException;
 
+    /**
+     * Wraps an output stream with this encoding: everything written to the returned stream is compressed
+     * and written to the given stream. Closing the returned stream finishes the encoding (writing any pending
+     * data and trailers) and closes the given stream too.
+     *
+     * <p>The streams can be chained to apply multiple encodings, the data is then encoded as a single stream
+     * regardless of how many writes are performed. The default implementation buffers all the data and calls
+     * {@link #compress(byte[])} when closed, the encodings should override it to compress with a constant memory.</p>
+     *
+     * @param stream the stream that will receive the compressed data
+     * @return the stream that compresses the data written to it
+     * @throws IOException if an I/O error occurs creating the stream
+     * @author Daniel Meinicke (Laivy)
+     */
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) throws IOException {
+        return new BufferedEncoder(this, stream);
+    }
+
+    /**
+     * Wraps an input stream with this encoding: the data read from the returned stream is the decompressed
+     * data of the given stream. Closing the returned stream closes the given stream too.
+     *
+     * <p>The default implementation reads the whole given stream and calls {@link #decompress(byte[])},
+     * the encodings should override it to decompress with a constant memory.</p>
+     *
+     * @param stream the stream with the compressed data
+     * @return the stream with the decompressed data
+     * @throws IOException if an I/O error occurs reading the stream, or the data cannot be decompressed
+     * @author Daniel Meinicke (Laivy)
+     */
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) throws IOException {
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (@NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(4096)) {
+            byte[] buffer = pooled.array();
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+
+        try {
+            return new FilterInputStream(new ByteArrayInputStream(decompress(output.toByteArray()))) {
+                @Override
+                public void close() throws IOException {
+                    stream.close();
+                }
+            };
+        } catch (@NotNull EncodingException e) {
+            throw new IOException("cannot decompress with '" + getName() + "' encoding", e);
+        }
+    }
+
     public final synchronized void register() {
         add(this);
     }
@@ -219,4 +331,31 @@ public abstract class Encoding {
         return name.toLowerCase();
     }
 
+    // Classes
+
+    private static final class BufferedEncoder extends ByteArrayOutputStream {
+
+        private final @NotNull Encoding encoding;
+        private final @NotNull OutputStream stream;
+        private boolean closed = false;
+
+        private BufferedEncoder(@NotNull Encoding encoding, @NotNull OutputStream stream) {
+            this.encoding = encoding;
+            this.stream = stream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try (@NotNull OutputStream stream = this.stream) {
+                stream.write(encoding.compress(toByteArray()));
+            } catch (@NotNull EncodingException e) {
+                throw new IOException("cannot compress with '" + encoding.getName() + "' encoding", e);
+            }
+        }
+
+    }
+
 }
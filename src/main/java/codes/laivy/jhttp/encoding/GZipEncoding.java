@@ -3,17 +3,30 @@ package codes.laivy.jhttp.encoding;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.*;
+import java.util.zip.*;
 
+/**
+ * The gzip encoding (<a href="https://www.rfc-editor.org/rfc/rfc1952">RFC 1952</a>). The gzip members are written
+ * and read by this class itself, this way the {@link Deflater} and {@link Inflater} instances are borrowed from
+ * a pool instead of being created (and left to the garbage collector) for every message.
+ */
 public class GZipEncoding extends Encoding {
 
     // Static initializers
 
+    private static final int MAGIC = 0x8b1f;
+
+    // ID1, ID2, CM (deflate), FLG, MTIME (4), XFL, OS (unknown)
+    static final byte @NotNull [] HEADER = new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private static final int FLAG_HEADER_CRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+
     public static @NotNull Builder builder() {
         return new Builder();
     }
@@ -21,10 +34,21 @@ public class GZipEncoding extends Encoding {
     // Object
 
     private final int buffer;
+    private final int level;
+    private final int strategy;
+
+    private final @NotNull CodecPool<Deflater> deflaters;
+    private final @NotNull CodecPool<Inflater> inflaters;
 
-    protected GZipEncoding(int buffer) {
+    protected GZipEncoding(int buffer, int level, int strategy) {
         super("gzip", "x-gzip");
+
         this.buffer = buffer;
+        this.level = level;
+        this.strategy = strategy;
+
+        this.deflaters = CodecPool.deflaters(level, strategy, true);
+        this.inflaters = CodecPool.inflaters(true);
     }
 
     // Getters
@@ -32,18 +56,23 @@ public class GZipEncoding extends Encoding {
     public int getBuffer() {
         return buffer;
     }
+    public int getLevel() {
+        return level;
+    }
+    public int getStrategy() {
+        return strategy;
+    }
 
     // Implementations
 
     @Override
     public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
-        try (@NotNull ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
-             @NotNull GZIPInputStream gzipStream = new GZIPInputStream(byteStream, getBuffer());
+        try (@NotNull InputStream stream = wrapInput(new ByteArrayInputStream(bytes));
              @NotNull ByteArrayOutputStream outStream = new ByteArrayOutputStream()) {
 
             byte[] buffer = new byte[getBuffer()];
             int len;
-            while ((len = gzipStream.read(buffer)) > 0) {
+            while ((len = stream.read(buffer)) > 0) {
                 outStream.write(buffer, 0, len);
             }
 
@@ -54,16 +83,40 @@ public class GZipEncoding extends Encoding {
     }
     @Override
     public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
-        try (@NotNull ByteArrayOutputStream byteStream = new ByteArrayOutputStream(bytes.length);
-             @NotNull GZIPOutputStream stream = new GZIPOutputStream(byteStream)) {
+        @NotNull ByteArrayOutputStream byteStream = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
 
+        try (@NotNull OutputStream stream = wrapOutput(byteStream)) {
             stream.write(bytes);
-            stream.finish();
-
-            return byteStream.toByteArray();
         } catch (IOException e) {
             throw new EncodingException("cannot compress with gzip native stream", e);
         }
+
+        return byteStream.toByteArray();
+    }
+
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) throws IOException {
+        // The deflater is only owned by the stream once it's constructed, the header write may fail
+        @NotNull Deflater deflater = deflaters.acquire();
+
+        try {
+            return new Output(stream, deflater);
+        } catch (@NotNull Throwable throwable) {
+            deflaters.release(deflater);
+            throw throwable;
+        }
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) throws IOException {
+        // The inflater is only owned by the stream once it's constructed, the header read may fail
+        @NotNull Inflater inflater = inflaters.acquire();
+
+        try {
+            return new Input(new PushbackInputStream(stream, getBuffer()), inflater);
+        } catch (@NotNull Throwable throwable) {
+            inflaters.release(inflater);
+            throw throwable;
+        }
     }
 
     // Classes
@@ -71,6 +124,8 @@ public class GZipEncoding extends Encoding {
     public static final class Builder {
 
         private int buffer = 2048;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int strategy = Deflater.DEFAULT_STRATEGY;
 
         private Builder() {
         }
@@ -86,12 +141,250 @@ public class GZipEncoding extends Encoding {
             return this;
         }
 
+        public int level() {
+            return level;
+        }
+        /**
+         * Sets the compression level, from 0 (no compression) to 9 (best compression), or -1 for the zlib default.
+         *
+         * @param level the compression level
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder level(@Range(from = -1, to = 9) int level) {
+            if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("illegal compression level " + level);
+            }
+
+            this.level = level;
+            return this;
+        }
+
+        public int strategy() {
+            return strategy;
+        }
+        /**
+         * Sets the compression strategy, one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}
+         * or {@link Deflater#HUFFMAN_ONLY}.
+         *
+         * @param strategy the compression strategy
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder strategy(int strategy) {
+            if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentException("illegal compression strategy " + strategy);
+            }
+
+            this.strategy = strategy;
+            return this;
+        }
+
         // Builder
 
         public @NotNull GZipEncoding build() {
-            return new GZipEncoding(buffer);
+            return new GZipEncoding(buffer, level, strategy);
+        }
+
+    }
+
+    /**
+     * Writes a single gzip member: the header, the deflated data and the CRC-32/size trailer.
+     * The deflater is given back to the pool when the stream is closed.
+     */
+    private final class Output extends DeflaterOutputStream {
+
+        private final @NotNull CRC32 crc = new CRC32();
+        private boolean closed = false;
+
+        private Output(@NotNull OutputStream stream, @NotNull Deflater deflater) throws IOException {
+            super(stream, deflater, getBuffer());
+
+            stream.write(HEADER);
+        }
+
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) return;
+            super.finish();
+
+            out.write(trailer(crc.getValue(), def.getBytesRead()));
+        }
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+
+            try {
+                super.close();
+            } finally {
+                closed = true;
+                deflaters.release(def);
+            }
+        }
+
+    }
+
+    /**
+     * Reads the gzip members until the end of the stream, checking the CRC-32 and size of each one. The
+     * bytes read ahead by the inflater are pushed back, so the trailer and the next member are read from them.
+     * The inflater is given back to the pool when the stream is closed.
+     */
+    private final class Input extends InflaterInputStream {
+
+        private final @NotNull PushbackInputStream stream;
+        private final @NotNull CRC32 crc = new CRC32();
+
+        private int members = 0;
+        private boolean finished = false;
+        private boolean closed = false;
+
+        private Input(@NotNull PushbackInputStream stream, @NotNull Inflater inflater) throws IOException {
+            super(stream, inflater, getBuffer());
+            this.stream = stream;
+
+            try {
+                if (!header()) throw new EOFException("empty gzip stream");
+            } catch (@NotNull IOException e) {
+                // The inflater is given back by the caller
+                closed = true;
+                super.close();
+
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            while (true) {
+                if (finished) return -1;
+
+                int read = super.read(bytes, offset, length);
+
+                if (read == -1) {
+                    // End of this member, check the trailer and move to the next one
+                    trailer();
+                    if (header()) inf.reset();
+                    else finished = true;
+                } else {
+                    crc.update(bytes, offset, read);
+                    return read;
+                }
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            // The inflater may have reached the end of a member, but not the end of the stream
+            return finished ? 0 : 1;
+        }
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+
+            try {
+                super.close();
+            } finally {
+                closed = true;
+                inflaters.release(inf);
+            }
+        }
+
+        /**
+         * Reads the member header
+         *
+         * @return {@code true} if there's a member, {@code false} if the stream has ended
+         */
+        private boolean header() throws IOException {
+            int first = stream.read();
+            if (first == -1) return false;
+
+            int second = stream.read();
+            if (second == -1 || (first | (second << 8)) != MAGIC) {
+                if (members > 0) {
+                    // Trailing garbage after a valid member is ignored, as the native streams do
+                    return false;
+                }
+
+                throw new ZipException("not in gzip format");
+            }
+
+            if (stream.read() != Deflater.DEFLATED) {
+                throw new ZipException("unsupported gzip compression method");
+            }
+
+            int flags = required();
+            skip(6); // MTIME, XFL and OS
+
+            if ((flags & FLAG_EXTRA) != 0) {
+                skip(required() | (required() << 8));
+            }
+            if ((flags & FLAG_NAME) != 0) {
+                //noinspection StatementWithEmptyBody
+                while (required() != 0);
+            }
+            if ((flags & FLAG_COMMENT) != 0) {
+                //noinspection StatementWithEmptyBody
+                while (required() != 0);
+            }
+            if ((flags & FLAG_HEADER_CRC) != 0) {
+                skip(2);
+            }
+
+            crc.reset();
+            members++;
+
+            return true;
+        }
+        private void trailer() throws IOException {
+            // Give back the bytes the inflater has read ahead
+            int remaining = inf.getRemaining();
+            if (remaining > 0) stream.unread(buf, len - remaining, remaining);
+
+            long expected = readInt() & 0xFFFFFFFFL;
+            long size = readInt() & 0xFFFFFFFFL;
+
+            if (expected != crc.getValue()) {
+                throw new ZipException("corrupt gzip trailer, invalid CRC-32");
+            } else if (size != (inf.getBytesWritten() & 0xFFFFFFFFL)) {
+                throw new ZipException("corrupt gzip trailer, invalid size");
+            }
+        }
+
+        private int required() throws IOException {
+            int b = stream.read();
+            if (b == -1) throw new EOFException("unexpected end of the gzip stream");
+
+            return b;
+        }
+        private int readInt() throws IOException {
+            return required() | (required() << 8) | (required() << 16) | (required() << 24);
+        }
+        private void skip(int amount) throws IOException {
+            for (int index = 0; index < amount; index++) {
+                required();
+            }
+        }
+
+    }
+
+    /**
+     * Creates the member trailer: the CRC-32 and the size (modulo 2^32) of the uncompressed data, little-endian
+     */
+    static byte @NotNull [] trailer(long crc, long size) {
+        byte[] bytes = new byte[8];
+
+        for (int index = 0; index < 4; index++) {
+            bytes[index] = (byte) (crc >> (index * 8));
+            bytes[index + 4] = (byte) (size >> (index * 8));
         }
 
+        return bytes;
     }
 
 }
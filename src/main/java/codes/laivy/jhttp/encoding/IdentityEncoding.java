@@ -3,6 +3,9 @@ package codes.laivy.jhttp.encoding;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class IdentityEncoding extends Encoding {
 
     // Static initializers
@@ -28,6 +31,15 @@ public class IdentityEncoding extends Encoding {
         return bytes;
     }
 
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) {
+        return stream;
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) {
+        return stream;
+    }
+
     // Classes
 
     public static final class Builder {
@@ -0,0 +1,503 @@
+package codes.laivy.jhttp.encoding;
+
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip encoding that compresses the large contents using multiple threads, the same way
+ * <a href="https://zlib.net/pigz/">pigz</a> does.
+ *
+ * <p>The data is split into blocks that are compressed concurrently at a {@link ForkJoinPool}. Each block uses
+ * the last 32 KB of the previous block as the preset dictionary, so the compression ratio is almost the same as
+ * the sequential one. The blocks end at a byte boundary (sync flush) and are written in order, so the result is a
+ * single standard gzip member, with the CRC-32 combined from the CRC-32 of each block.</p>
+ *
+ * <p>The parallel compression only starts when the content is larger than the threshold, smaller contents are
+ * compressed sequentially as the {@link GZipEncoding} does. The decompression is always sequential. This encoding
+ * has the "gzip" name, so it replaces the default gzip encoding:</p>
+ * <pre>{@code
+ * Encoding.retrieve("gzip").ifPresent(Encoding::remove);
+ * Encoding.add(ParallelGZipEncoding.builder().build());
+ * }</pre>
+ */
+public class ParallelGZipEncoding extends Encoding {
+
+    // Static initializers
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // The largest array the buffer can grow to
+    private static final int MAX_THRESHOLD = Integer.MAX_VALUE - 8;
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    // Object
+
+    private final @NotNull GZipEncoding sequential;
+
+    private final int blockSize;
+    private final long threshold;
+    private final @NotNull ForkJoinPool pool;
+
+    private final @NotNull CodecPool<Deflater> deflaters;
+
+    protected ParallelGZipEncoding(int buffer, int level, int strategy, int blockSize, long threshold, @NotNull ForkJoinPool pool) {
+        super("gzip", "x-gzip");
+
+        // The small contents and the decompression are handled by the sequential gzip
+        this.sequential = new GZipEncoding(buffer, level, strategy);
+        this.blockSize = blockSize;
+        this.threshold = threshold;
+        this.pool = pool;
+
+        this.deflaters = CodecPool.deflaters(level, strategy, true);
+    }
+
+    // Getters
+
+    public int getBuffer() {
+        return sequential.getBuffer();
+    }
+    public int getLevel() {
+        return sequential.getLevel();
+    }
+    public int getStrategy() {
+        return sequential.getStrategy();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+    public long getThreshold() {
+        return threshold;
+    }
+    public @NotNull ForkJoinPool getPool() {
+        return pool;
+    }
+
+    // Implementations
+
+    @Override
+    public byte @NotNull [] decompress(byte @NotNull [] bytes) throws EncodingException {
+        return sequential.decompress(bytes);
+    }
+    @Override
+    public byte @NotNull [] compress(byte @NotNull [] bytes) throws EncodingException {
+        if (bytes.length <= getThreshold()) {
+            return sequential.compress(bytes);
+        }
+
+        @NotNull ByteArrayOutputStream byteStream = new ByteArrayOutputStream(bytes.length / 2);
+
+        try (@NotNull OutputStream stream = wrapOutput(byteStream)) {
+            stream.write(bytes);
+        } catch (IOException e) {
+            throw new EncodingException("cannot compress with parallel gzip", e);
+        }
+
+        return byteStream.toByteArray();
+    }
+
+    @Override
+    public @NotNull OutputStream wrapOutput(@NotNull OutputStream stream) {
+        return new Output(stream);
+    }
+    @Override
+    public @NotNull InputStream wrapInput(@NotNull InputStream stream) throws IOException {
+        return sequential.wrapInput(stream);
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private int buffer = 2048;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int strategy = Deflater.DEFAULT_STRATEGY;
+
+        private int blockSize = 128 * 1024;
+        private long threshold = 1024 * 1024;
+        private @Nullable ForkJoinPool pool;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        public int buffer() {
+            return buffer;
+        }
+        @Contract("_->this")
+        public @NotNull Builder buffer(int buffer) {
+            this.buffer = buffer;
+            return this;
+        }
+
+        public int level() {
+            return level;
+        }
+        @Contract("_->this")
+        public @NotNull Builder level(@Range(from = -1, to = 9) int level) {
+            if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("illegal compression level " + level);
+            }
+
+            this.level = level;
+            return this;
+        }
+
+        public int strategy() {
+            return strategy;
+        }
+        @Contract("_->this")
+        public @NotNull Builder strategy(int strategy) {
+            if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+                throw new IllegalArgumentException("illegal compression strategy " + strategy);
+            }
+
+            this.strategy = strategy;
+            return this;
+        }
+
+        public int blockSize() {
+            return blockSize;
+        }
+        /**
+         * Sets the size of the blocks compressed concurrently, the default is 128 KB.
+         *
+         * @param blockSize the block size, at least 32 KB
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder blockSize(@Range(from = DICTIONARY_SIZE, to = Integer.MAX_VALUE) int blockSize) {
+            if (blockSize < DICTIONARY_SIZE) {
+                throw new IllegalArgumentException("the block size must be at least " + DICTIONARY_SIZE + " bytes");
+            }
+
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        public long threshold() {
+            return threshold;
+        }
+        /**
+         * Sets the minimum content size to compress it concurrently, the default is 1 MB. The content is buffered
+         * until the threshold, so it can't be larger than an array.
+         *
+         * @param threshold the minimum size in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder threshold(@Range(from = 0, to = MAX_THRESHOLD) long threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("the threshold cannot be negative");
+            } else if (threshold > MAX_THRESHOLD) {
+                throw new IllegalArgumentException("the threshold cannot be greater than " + MAX_THRESHOLD + " bytes");
+            }
+
+            this.threshold = threshold;
+            return this;
+        }
+
+        public @NotNull ForkJoinPool pool() {
+            return pool != null ? pool : ForkJoinPool.commonPool();
+        }
+        @Contract("_->this")
+        public @NotNull Builder pool(@NotNull ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull ParallelGZipEncoding build() {
+            return new ParallelGZipEncoding(buffer, level, strategy, blockSize, threshold, pool());
+        }
+
+    }
+
+    private static final class Block {
+
+        private final byte @NotNull [] data;
+        private final long crc;
+        private final int length;
+
+        private Block(byte @NotNull [] data, long crc, int length) {
+            this.data = data;
+            this.crc = crc;
+            this.length = length;
+        }
+
+    }
+
+    /**
+     * Buffers the data until the threshold, the data is compressed sequentially if the stream is closed
+     * before reaching it. After that, the data is split into blocks compressed at the pool, and the compressed
+     * blocks are written in order as soon as they're done. The amount of pending blocks is limited, so a slow
+     * compression blocks the writer instead of buffering the whole content.
+     */
+    private final class Output extends OutputStream {
+
+        private final @NotNull OutputStream stream;
+        private final int limit = Math.max(2, pool.getParallelism() * 2);
+        private final @NotNull Deque<Future<Block>> pending = new ArrayDeque<>();
+
+        private byte @NotNull [] block;
+        private int count = 0;
+
+        // The buffer grows until the threshold, then it's split into blocks
+        private boolean parallel = false;
+        private byte @Nullable [] previous;
+        private int previousLength;
+
+        private long crc = 0;
+        private long size = 0;
+
+        private boolean closed = false;
+
+        private Output(@NotNull OutputStream stream) {
+            this.stream = stream;
+            this.block = new byte[Math.max(1, (int) Math.min(getThreshold(), getBlockSize()))];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+        @Override
+        public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (closed) throw new IOException("the stream is closed");
+
+            while (length > 0) {
+                if (count == block.length) {
+                    if (parallel) {
+                        submit(false);
+                    } else if (block.length < Math.min(getThreshold(), MAX_THRESHOLD)) {
+                        // Still below the threshold, grow the buffer (never beyond the largest array)
+                        block = Arrays.copyOf(block, (int) Math.min(Math.min(getThreshold(), MAX_THRESHOLD), (long) block.length * 2));
+                    } else {
+                        start();
+                    }
+                }
+
+                int amount = Math.min(length, block.length - count);
+                System.arraycopy(bytes, offset, block, count, amount);
+
+                count += amount;
+                offset += amount;
+                length -= amount;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try (@NotNull OutputStream stream = this.stream) {
+                if (!parallel) {
+                    // The threshold wasn't reached, compress sequentially
+                    try (@NotNull OutputStream output = sequential.wrapOutput(stream)) {
+                        output.write(block, 0, count);
+                    }
+                } else {
+                    submit(true);
+
+                    while (!pending.isEmpty()) {
+                        drain();
+                    }
+
+                    stream.write(GZipEncoding.trailer(crc, size));
+                }
+            } finally {
+                // Something failed, the remaining blocks aren't needed anymore
+                for (@NotNull Future<Block> future : pending) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * The threshold was reached, starts the parallel compression with the buffered data
+         */
+        private void start() throws IOException {
+            parallel = true;
+            stream.write(GZipEncoding.HEADER);
+
+            byte[] buffered = block;
+            int length = count;
+
+            block = new byte[getBlockSize()];
+            count = 0;
+
+            for (int offset = 0; offset < length; offset += getBlockSize()) {
+                int amount = Math.min(getBlockSize(), length - offset);
+                System.arraycopy(buffered, offset, block, 0, amount);
+                count = amount;
+
+                if (offset + amount < length) submit(false);
+            }
+        }
+
+        private void submit(boolean last) throws IOException {
+            byte[] data = block;
+            int length = count;
+
+            byte @Nullable [] dictionary = previous;
+            int dictionaryLength = Math.min(DICTIONARY_SIZE, previousLength);
+            int dictionaryOffset = previousLength - dictionaryLength;
+
+            pending.add(pool.submit(() -> compress(data, length, dictionary, dictionaryOffset, dictionaryLength, last)));
+
+            // The blocks are never reused, the next one uses this one as its dictionary
+            previous = data;
+            previousLength = length;
+
+            if (!last) {
+                block = new byte[getBlockSize()];
+                count = 0;
+            }
+
+            // Write everything that is already done, and wait if there are too many pending blocks
+            while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > limit)) {
+                drain();
+            }
+        }
+        private void drain() throws IOException {
+            @NotNull Block block;
+
+            try {
+                block = pending.poll().get();
+            } catch (@NotNull InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while compressing with parallel gzip");
+            } catch (@NotNull ExecutionException e) {
+                throw new IOException("cannot compress block with parallel gzip", e.getCause());
+            }
+
+            stream.write(block.data);
+
+            crc = size == 0 ? block.crc : combine(crc, block.crc, block.length);
+            size += block.length;
+        }
+
+    }
+
+    private @NotNull Block compress(byte @NotNull [] data, int length, byte @Nullable [] dictionary, int dictionaryOffset, int dictionaryLength, boolean last) {
+        @NotNull CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        @NotNull Deflater deflater = deflaters.acquire();
+
+        try {
+            if (dictionary != null && dictionaryLength > 0) {
+                deflater.setDictionary(dictionary, dictionaryOffset, dictionaryLength);
+            }
+
+            deflater.setInput(data, 0, length);
+            if (last) deflater.finish();
+
+            @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[Math.max(getBuffer(), 8192)];
+
+            if (last) {
+                while (!deflater.finished()) {
+                    int amount = deflater.deflate(buffer);
+                    output.write(buffer, 0, amount);
+                }
+            } else {
+                // A sync flush ends the block at a byte boundary, without ending the deflate stream
+                int amount;
+                do {
+                    amount = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    output.write(buffer, 0, amount);
+                } while (amount == buffer.length);
+            }
+
+            return new Block(output.toByteArray(), crc.getValue(), length);
+        } finally {
+            deflaters.release(deflater);
+        }
+    }
+
+    /**
+     * Combines the CRC-32 of two sequential blocks, the same way zlib's {@code crc32_combine} does
+     *
+     * @param first the CRC-32 of the first block
+     * @param second the CRC-32 of the second block
+     * @param length the length of the second block
+     * @return the CRC-32 of both blocks
+     */
+    static long combine(long first, long second, long length) {
+        if (length <= 0) return first;
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // The operator for one zero bit
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int index = 1; index < 32; index++) {
+            odd[index] = row;
+            row <<= 1;
+        }
+
+        // Two and four zero bits
+        square(even, odd);
+        square(odd, even);
+
+        // Apply the zeros to the first CRC-32, one byte (eight zero bits) at the first iteration
+        do {
+            square(even, odd);
+            if ((length & 1) != 0) first = times(even, first);
+            length >>= 1;
+
+            if (length == 0) break;
+
+            square(odd, even);
+            if ((length & 1) != 0) first = times(odd, first);
+            length >>= 1;
+        } while (length != 0);
+
+        return first ^ second;
+    }
+    private static long times(long @NotNull [] matrix, long vector) {
+        long sum = 0;
+
+        for (int index = 0; vector != 0; index++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[index];
+        }
+
+        return sum;
+    }
+    private static void square(long @NotNull [] square, long @NotNull [] matrix) {
+        for (int index = 0; index < 32; index++) {
+            square[index] = times(matrix, matrix[index]);
+        }
+    }
+
+}
@@ -0,0 +1,432 @@
+package codes.laivy.jhttp.encoding;
+
+import codes.laivy.jhttp.body.VariantCache;
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.element.HttpStatus;
+import codes.laivy.jhttp.element.request.HttpRequest;
+import codes.laivy.jhttp.element.response.HttpResponse;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaderKey;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.headers.Weight;
+import codes.laivy.jhttp.headers.Wildcard;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.MediaType.Type;
+import codes.laivy.jhttp.media.jar.JarMediaType;
+import codes.laivy.jhttp.module.CacheControl;
+import codes.laivy.jhttp.module.EntityTag;
+import codes.laivy.jhttp.network.BitMeasure;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.*;
+
+/**
+ * The automatic compression of the responses, negotiated with the {@code Accept-Encoding} header of the request.
+ * <p>
+ * The {@link #apply(HttpRequest, HttpResponse)} method picks the registered encoding with the highest q-value
+ * accepted by the client (the order of the encodings at this stage breaks the ties), and sets the
+ * {@code Content-Encoding} and {@code Vary} headers of the response. The body isn't compressed here, it's compressed
+ * while written by {@link codes.laivy.jhttp.body.HttpBody#write(HttpHeaders, java.io.OutputStream)}, as a stream.
+ * <p>
+ * The responses are left untouched if they're smaller than the threshold, already have a content encoding, are
+ * marked with the {@code no-transform} cache directive, or have a media type that is already compressed
+ * (images, audio, video, archives and jars, as example). The size is taken from the {@code Content-Length} or
+ * {@link codes.laivy.jhttp.body.HttpBody#getLength()}, the bodies of unknown size (as the streaming ones) are
+ * never read to decide, and are compressed.
+ * <p>
+ * If a {@link DictionaryDeflateEncoding} is added to this stage, it's only picked when the client advertises one of
+ * its dictionaries at the {@code Available-Dictionary} header, otherwise the next encoding accepted is picked.
+ * <p>
+ * With an {@link AdaptiveCompression}, the encoding is picked between the ones accepted with the highest q-value,
+ * and its compression level adapted, by the client hints of the request and the server load.
+ * <p>
+ * With a {@link VariantCache}, the {@link #compress(HttpRequest, HttpResponse)} method serves the responses that
+ * have an {@code ETag} with the encoded variants cached, the body is encoded only once per resource, entity tag
+ * and encoding.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class ResponseCompression {
+
+    // Static initializers
+
+    private static final @NotNull Set<Type> COMPRESSED = new HashSet<>(Arrays.asList(
+            JarMediaType.TYPE,
+            new Type("application", "zip"),
+            new Type("application", "gzip"),
+            new Type("application", "x-gzip"),
+            new Type("application", "x-bzip2"),
+            new Type("application", "x-xz"),
+            new Type("application", "x-7z-compressed"),
+            new Type("application", "x-rar-compressed"),
+            new Type("application", "vnd.rar"),
+            new Type("application", "zstd"),
+            new Type("application", "pdf"),
+            new Type("font", "woff"),
+            new Type("font", "woff2")
+    ));
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    // Object
+
+    private final long threshold;
+    private final @NotNull Encoding @NotNull [] encodings;
+    private final @NotNull Set<Type> excluded;
+    private final @Nullable AdaptiveCompression adaptive;
+    private final @Nullable VariantCache cache;
+
+    private ResponseCompression(long threshold, @NotNull Encoding @NotNull [] encodings, @NotNull Set<Type> excluded, @Nullable AdaptiveCompression adaptive, @Nullable VariantCache cache) {
+        this.threshold = threshold;
+        this.encodings = encodings;
+        this.excluded = excluded;
+        this.adaptive = adaptive;
+        this.cache = cache;
+    }
+
+    // Getters
+
+    /**
+     * @return the minimum size (in bytes) of the bodies to be compressed
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the encodings of this stage, by preference order
+     */
+    public @NotNull Encoding @NotNull [] getEncodings() {
+        return Arrays.copyOf(encodings, encodings.length);
+    }
+
+    /**
+     * @return the adaptive compression that chooses the compression algorithms and levels, if present
+     */
+    public @NotNull Optional<AdaptiveCompression> getAdaptive() {
+        return Optional.ofNullable(adaptive);
+    }
+
+    /**
+     * @return the cache of the encoded variants, if present
+     */
+    public @NotNull Optional<VariantCache> getCache() {
+        return Optional.ofNullable(cache);
+    }
+
+    // Modules
+
+    /**
+     * Checks if the content of a media type is worth compressing. The images (except svg), audio, video and the
+     * archive formats are already compressed.
+     *
+     * @param media the media type, or null if unknown
+     * @return {@code true} if the content should be compressed, {@code false} otherwise
+     */
+    public boolean isCompressible(@Nullable MediaType<?> media) {
+        if (media == null) return true;
+
+        @NotNull Type type = media.getType();
+        @NotNull String main = type.getType().toLowerCase();
+        @Nullable String sub = type.getSubType() != null ? type.getSubType().toLowerCase() : null;
+
+        if (excluded.contains(type) || COMPRESSED.contains(type)) {
+            return false;
+        } else if (main.equals("image")) {
+            return sub != null && sub.endsWith("+xml");
+        } else {
+            return !main.equals("audio") && !main.equals("video");
+        }
+    }
+
+    /**
+     * Picks the best encoding accepted by the request headers, by q-value. The encodings with the same q-value
+     * are picked by the order of this stage.
+     *
+     * @param request the request headers
+     * @return the encoding, or empty if the client doesn't accept any encoding of this stage
+     */
+    public @NotNull Optional<Encoding> negotiate(@NotNull HttpHeaders request) {
+        @NotNull List<Encoding> accepted = accepted(request);
+        return accepted.isEmpty() ? Optional.empty() : Optional.of(accepted.get(0));
+    }
+
+    /**
+     * The encodings of this stage accepted by the request headers with the highest q-value, by the order of this
+     * stage.
+     */
+    private @NotNull List<Encoding> accepted(@NotNull HttpHeaders request) {
+        @Nullable Wildcard<Weight<Deferred<Encoding>>[]> accept = request.first(ACCEPT_ENCODING).map(HttpHeader::getValue).orElse(null);
+        if (accept == null) return Collections.emptyList();
+
+        @Nullable String available = request.first(AVAILABLE_DICTIONARY).map(HttpHeader::getValue).orElse(null);
+
+        // The q-value of every name accepted, the "*" name matches the encodings that aren't listed
+        @NotNull Map<String, Float> weights = new HashMap<>();
+        if (accept.isWildcard()) {
+            weights.put("*", 1F);
+        } else for (@NotNull Weight<Deferred<Encoding>> weight : accept.getValue()) {
+            weights.put(weight.getValue().toString().toLowerCase(), weight.getWeight() != null ? weight.getWeight() : 1F);
+        }
+
+        @NotNull List<Encoding> accepted = new ArrayList<>();
+        float quality = 0F;
+
+        for (@NotNull Encoding encoding : encodings) {
+            if (encoding instanceof DictionaryDeflateEncoding && !((DictionaryDeflateEncoding) encoding).select(available).isPresent()) {
+                // The client doesn't have any dictionary of this encoding
+                continue;
+            }
+
+            float weight = weight(weights, encoding);
+            if (weight > quality) {
+                accepted.clear();
+                quality = weight;
+            }
+            if (weight == quality && weight > 0F) {
+                accepted.add(encoding);
+            }
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Applies the compression to a response, if the request accepts any encoding of this stage and the response
+     * is worth compressing. The {@code Vary} header is always updated when the response could be compressed,
+     * since the caches must distinguish the representations by the {@code Accept-Encoding} header.
+     *
+     * @param request the request
+     * @param response the response that will be compressed
+     * @return the encoding applied, or empty if the response will be sent as is
+     * @throws IOException if an I/O error occurs reading the size of the body
+     */
+    public @NotNull Optional<Encoding> apply(@NotNull HttpRequest request, @NotNull HttpResponse response) throws IOException {
+        @NotNull HttpHeaders headers = response.getHeaders();
+        @NotNull HttpStatus status = response.getStatus();
+
+        if (status.getCode() < 200 || status.getCode() == 204 || status.getCode() == 304) {
+            return Optional.empty();
+        } else if (headers.contains(CONTENT_ENCODING) || headers.contains(CONTENT_RANGE)) {
+            return Optional.empty();
+        } else if (headers.first(CACHE_CONTROL).map(header -> header.getValue().has(CacheControl.Key.NO_TRANSFORM)).orElse(false)) {
+            return Optional.empty();
+        } else if (!isCompressible(headers.first(CONTENT_TYPE).map(HttpHeader::getValue).orElse(null)) || size(response).orElse(Long.MAX_VALUE) < threshold) {
+            return Optional.empty();
+        }
+
+        @Nullable Encoding encoding;
+        if (adaptive != null) {
+            @NotNull List<Encoding> accepted = accepted(request.getHeaders());
+            encoding = accepted.isEmpty() ? null : adaptive.select(accepted, adaptive.decide(request.getHeaders()));
+        } else {
+            encoding = negotiate(request.getHeaders()).orElse(null);
+        }
+
+        vary(headers, encoding instanceof DictionaryDeflateEncoding, adaptive != null);
+
+        if (encoding == null) {
+            return Optional.empty();
+        }
+
+        // The encoding instance is kept, so the unregistered encodings are also used to write the body
+        headers.put(CONTENT_ENCODING.create(new Deferred[] { new Deferred<>(encoding.getName(), encoding) }));
+        headers.remove(CONTENT_LENGTH);
+
+        if (encoding instanceof DictionaryDeflateEncoding) {
+            @NotNull CompressionDictionary dictionary = ((DictionaryDeflateEncoding) encoding).select(request.getHeaders().first(AVAILABLE_DICTIONARY).map(HttpHeader::getValue).orElse(null)).orElseThrow(IllegalStateException::new);
+            headers.put(CONTENT_DICTIONARY.create(dictionary.getHeader()));
+        }
+
+        return Optional.of(encoding);
+    }
+
+    /**
+     * Applies the compression to a response (see {@link #apply(HttpRequest, HttpResponse)}), and if the response
+     * has an {@code ETag} and this stage has a {@link VariantCache}, replaces the body by the encoded variant
+     * cached. The variants are encoded only once per resource (the {@code Host} header and the request target),
+     * entity tag and encoding, and have a known length.
+     *
+     * @param request the request
+     * @param response the response that will be compressed
+     * @return the response to send, the same response if the body isn't replaced
+     * @throws IOException if an I/O error occurs reading or encoding the body
+     */
+    public @NotNull HttpResponse compress(@NotNull HttpRequest request, @NotNull HttpResponse response) throws IOException {
+        @Nullable Encoding encoding = apply(request, response).orElse(null);
+        @NotNull HttpHeaders headers = response.getHeaders();
+        @Nullable EntityTag tag = headers.first(ETAG).map(HttpHeader::getValue).orElse(null);
+
+        if (encoding == null || cache == null || tag == null || encoding instanceof DictionaryDeflateEncoding) {
+            // The dictionary variants depend on the dictionary of each client
+            return response;
+        }
+
+        @NotNull String resource = request.getHeaders().first(HOST).map(header -> String.valueOf(header.getValue())).orElse("") + request.getTarget().toOriginForm();
+        @NotNull VariantCache.Variant variant = cache.get(resource, tag, encoding, response.getBody());
+        headers.put(CONTENT_LENGTH.create(BitMeasure.create(BitMeasure.Level.BYTES, variant.getLength().getAsLong())));
+
+        return HttpResponse.create(response.getVersion(), response.getStatus(), headers, variant);
+    }
+
+    private static float weight(@NotNull Map<String, Float> weights, @NotNull Encoding encoding) {
+        @Nullable Float weight = weights.get(encoding.getName().toLowerCase());
+
+        for (int index = 0; weight == null && index < encoding.getAliases().length; index++) {
+            weight = weights.get(encoding.getAliases()[index].toLowerCase());
+        }
+
+        return weight != null ? weight : weights.getOrDefault("*", 0F);
+    }
+
+    /**
+     * @return the size of the response body, or empty if it's unknown without reading the body (as the streaming
+     * bodies), the body is never opened
+     */
+    private static @NotNull OptionalLong size(@NotNull HttpResponse response) throws IOException {
+        @Nullable BitMeasure length = response.getHeaders().first(CONTENT_LENGTH).map(HttpHeader::getValue).orElse(null);
+        if (length != null) return OptionalLong.of(length.getBytes());
+
+        return response.getBody().getLength();
+    }
+    private static void vary(@NotNull HttpHeaders headers, boolean dictionary, boolean hints) {
+        @Nullable Wildcard<HttpHeaderKey<?>[]> vary = headers.first(VARY).map(HttpHeader::getValue).orElse(null);
+        if (vary != null && vary.isWildcard()) return;
+
+        @NotNull Set<HttpHeaderKey<?>> keys = new LinkedHashSet<>();
+        if (vary != null) keys.addAll(Arrays.asList(vary.getValue()));
+
+        keys.add(ACCEPT_ENCODING);
+        if (dictionary) keys.add(AVAILABLE_DICTIONARY);
+        if (hints) keys.addAll(Arrays.asList(SAVE_DATA, ECT, RTT, DOWNLINK));
+
+        headers.put(VARY.create(Wildcard.create(keys.toArray(new HttpHeaderKey[0]))));
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "ResponseCompression{" +
+                "threshold=" + threshold +
+                ", encodings=" + Arrays.toString(encodings) +
+                ", adaptive=" + adaptive +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private long threshold = 1024;
+        private final @NotNull List<Encoding> encodings = new LinkedList<>();
+        private final @NotNull Set<Type> excluded = new HashSet<>();
+        private @Nullable AdaptiveCompression adaptive;
+        private @Nullable VariantCache cache;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        public long threshold() {
+            return threshold;
+        }
+        /**
+         * Sets the minimum size of the bodies to be compressed, the default is 1 KiB. Smaller bodies usually don't
+         * compensate the compression overhead.
+         *
+         * @param threshold the minimum size in bytes
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder threshold(long threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("the threshold cannot be negative");
+            }
+
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * Adds encodings to this stage, by preference order. If no encoding is added, the registered gzip and
+         * deflate encodings are used.
+         *
+         * @param encodings the encodings
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder encoding(@NotNull Encoding @NotNull ... encodings) {
+            this.encodings.addAll(Arrays.asList(encodings));
+            return this;
+        }
+
+        /**
+         * Excludes media types from the compression, in addition to the types already compressed.
+         *
+         * @param types the media types
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder exclude(@NotNull Type @NotNull ... types) {
+            this.excluded.addAll(Arrays.asList(types));
+            return this;
+        }
+
+        public @Nullable AdaptiveCompression adaptive() {
+            return adaptive;
+        }
+        /**
+         * Adapts the compression algorithms and levels to the client hints and the server load, the responses of fast clients
+         * may not be compressed under high load.
+         *
+         * @param adaptive the adaptive compression, or null to always use the encodings as they are
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder adaptive(@Nullable AdaptiveCompression adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        public @Nullable VariantCache cache() {
+            return cache;
+        }
+        /**
+         * Caches the encoded variants of the responses with an {@code ETag}, used by
+         * {@link ResponseCompression#compress(HttpRequest, HttpResponse)}.
+         *
+         * @param cache the variant cache, or null to encode every response
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder cache(@Nullable VariantCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull ResponseCompression build() {
+            @NotNull List<Encoding> encodings = new ArrayList<>(this.encodings);
+
+            if (encodings.isEmpty()) {
+                Encoding.retrieve("gzip").ifPresent(encodings::add);
+                Encoding.retrieve("deflate").ifPresent(encodings::add);
+            }
+
+            return new ResponseCompression(threshold, encodings.toArray(new Encoding[0]), Collections.unmodifiableSet(new HashSet<>(excluded)), adaptive, cache);
+        }
+
+    }
+
+}
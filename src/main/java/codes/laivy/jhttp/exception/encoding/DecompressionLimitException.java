@@ -0,0 +1,62 @@
+package codes.laivy.jhttp.exception.encoding;
+
+import codes.laivy.jhttp.element.HttpStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a decoded content exceeds the limits of a {@link codes.laivy.jhttp.encoding.DecompressionGuard},
+ * the absolute size of the decoded data or its expansion ratio. The decoding is aborted as soon as the limit is
+ * reached, and the message should be answered with {@link HttpStatus#CONTENT_TOO_LARGE}.
+ * <p>
+ * It's an {@link IOException} because it's thrown from the decoding streams.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public class DecompressionLimitException extends IOException {
+
+    private final @NotNull String encoding;
+    private final long consumed;
+    private final long produced;
+
+    public DecompressionLimitException(@NotNull String message, @NotNull String encoding, long consumed, long produced) {
+        super(message);
+
+        this.encoding = encoding;
+        this.consumed = consumed;
+        this.produced = produced;
+    }
+
+    // Getters
+
+    /**
+     * @return the name of the encoding that exceeded the limits
+     */
+    public final @NotNull String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the amount of encoded bytes read until the decoding was aborted
+     */
+    public final long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return the amount of decoded bytes produced until the decoding was aborted
+     */
+    public final long getProduced() {
+        return produced;
+    }
+
+    /**
+     * @return the status the message should be answered with
+     */
+    public @NotNull HttpStatus getStatus() {
+        return HttpStatus.CONTENT_TOO_LARGE;
+    }
+
+}
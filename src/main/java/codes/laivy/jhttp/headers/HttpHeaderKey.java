@@ -29,11 +29,9 @@ import codes.laivy.jhttp.url.email.Email;
 import codes.laivy.jhttp.utilities.DateUtils;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.jlogm.Logger;
 import org.jetbrains.annotations.*;
 
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
@@ -55,10 +53,13 @@ public abstract class HttpHeaderKey<T> {
 
     public static final @NotNull Pattern NAME_FORMAT_REGEX = Pattern.compile("^[A-Za-z][A-Za-z0-9-]*$");
 
-    private static final @NotNull Map<String, HttpHeaderKey<?>> map = new HashMap<>();
+    private static final @NotNull Map<String, HttpHeaderKey<?>> map = new HashMap<>(128);
 
     public static @NotNull HttpHeaderKey<?> retrieve(@NotNull String name) {
-        @Nullable HttpHeaderKey<?> key = map.getOrDefault(name.replace("-", "_").toLowerCase(), null);
+        @NotNull String id = id(name);
+
+        @Nullable HttpHeaderKey<?> key = map.get(id);
+        if (key == null) key = Rare.map.get(id);
         if (key != null) return key;
 
         return new HttpHeaderKey<String>(name, Target.BOTH) {
@@ -73,6 +74,15 @@ public abstract class HttpHeaderKey<T> {
         };
     }
 
+    private static @NotNull String id(@NotNull String name) {
+        return name.replace("-", "_").toLowerCase(Locale.ENGLISH);
+    }
+    private static void register(@NotNull Map<String, HttpHeaderKey<?>> map, @NotNull HttpHeaderKey<?> @NotNull ... keys) {
+        for (@NotNull HttpHeaderKey<?> key : keys) {
+            map.put(id(key.getName()), key);
+        }
+    }
+
     // Provided
 
     public static @NotNull HttpHeaderKey<@NotNull MediaType<?> @NotNull []> ACCEPT = new Provided.AcceptHeaderKey();
@@ -105,10 +115,14 @@ public abstract class HttpHeaderKey<T> {
     @ApiStatus.Experimental
     // todo: attribution reporting register trigger object
     public static @NotNull HttpHeaderKey<@NotNull JsonObject> ATTRIBUTION_REPORTING_REGISTER_TRIGGER = new Provided.AttributionReportingRegisterTriggerHeaderKey();
+    @ApiStatus.Experimental
+    public static @NotNull HttpHeaderKey<@NotNull String> AVAILABLE_DICTIONARY = new Provided.StringHeaderKey("Available-Dictionary", Target.REQUEST);
     public static @NotNull HttpHeaderKey<@NotNull Credentials> AUTHORIZATION = new Provided.AuthorizationHeaderKey();
     public static @NotNull HttpHeaderKey<@NotNull CacheControl> CACHE_CONTROL = new Provided.CacheControlHeaderKey();
     public static @NotNull HttpHeaderKey<@NotNull Wildcard<@NotNull SiteData @NotNull []>> CLEAR_SITE_DATA = new Provided.ClearSiteDataHeaderKey();
     public static @NotNull HttpHeaderKey<@NotNull Connection> CONNECTION = new Provided.ConnectionHeaderKey();
+    @ApiStatus.Experimental
+    public static @NotNull HttpHeaderKey<@NotNull String> CONTENT_DICTIONARY = new Provided.StringHeaderKey("Content-Dictionary", Target.RESPONSE);
     public static @NotNull HttpHeaderKey<@NotNull ContentDisposition> CONTENT_DISPOSITION = new Provided.ContentDispositionHeaderKey();
     @Deprecated
     public static @NotNull HttpHeaderKey<@NotNull Float> CONTENT_DPR = new Provided.ContentDPRHeaderKey();
@@ -290,29 +304,32 @@ public abstract class HttpHeaderKey<T> {
     public static @NotNull HttpHeaderKey<@NotNull String> X_XSS_PROTECTION = new Provided.StringHeaderKey("X-XSS-Protection", Target.RESPONSE);
 
     static {
-        for (@NotNull Field field : HttpHeaderKey.class.getDeclaredFields()) {
-            if (field.getType() == HttpHeaderKey.class) {
-                try {
-                    field.setAccessible(true);
-
-                    map.put(field.getName().toLowerCase(), (HttpHeaderKey<?>) field.get(null));
-                } catch (@NotNull IllegalAccessException e) {
-                    Logger.create(HttpHeaderKey.class).severe().withCause(e).log("cannot load http header key native headers");
-                }
-            }
-        }
+        // Only the stable keys are registered eagerly, the deprecated and experimental ones are registered
+        // at the first lookup that misses this table (see Rare)
+        register(map,
+                ACCEPT, ACCEPT_CH, ACCEPT_CHARSET, ACCEPT_ENCODING, ACCEPT_LANGUAGE, ACCEPT_PATCH, ACCEPT_POST, ACCEPT_RANGES,
+                ACCESS_CONTROL_ALLOW_CREDENTIALS, ACCESS_CONTROL_ALLOW_HEADERS, ACCESS_CONTROL_ALLOW_METHODS,
+                ACCESS_CONTROL_ALLOW_ORIGIN, ACCESS_CONTROL_EXPOSE_HEADERS, ACCESS_CONTROL_MAX_AGE,
+                ACCEPT_CONTROL_REQUEST_HEADERS, ACCESS_CONTROL_REQUEST_METHOD, AGE, ALLOW, ALT_SVC, ALT_USED, AUTHORIZATION,
+                CACHE_CONTROL, CLEAR_SITE_DATA, CONNECTION, CONTENT_DISPOSITION, CONTENT_ENCODING, CONTENT_LANGUAGE,
+                CONTENT_LENGTH, CONTENT_LOCATION, CONTENT_RANGE, CONTENT_SECURITY_POLICY, CONTENT_SECURITY_POLICY_REPORT_ONLY,
+                CONTENT_TYPE, COOKIE, CRITICAL_CH, CROSS_ORIGIN_EMBEDDER_POLICY, CROSS_ORIGIN_OPENER_POLICY,
+                CROSS_ORIGIN_RESOURCE_POLICY, DATE, DEVICE_MEMORY, ETAG, EXPECT, EXPIRES, FORWARDED, FROM, HOST, IF_MATCH,
+                IF_MODIFIED_SINCE, IF_NONE_MATCH, IF_UNMODIFIED_SINCE, KEEP_ALIVE, LAST_MODIFIED, LOCATION, MAX_FORWARDS,
+                ORIGIN, PROXY_AUTHORIZATION, REFERER, RETRY_AFTER, SAVE_DATA, SERVER, SERVICE_WORKER_NAVIGATION_PRELOAD,
+                SET_COOKIE, SOURCEMAP, TRAILER, TRANSFER_ENCODING, UPGRADE, VARY, USER_AGENT
+        );
     }
 
     // Object
 
     private final @NotNull String name;
     private final @NotNull Target target;
-    private final @NotNull Type[] types;
+    private volatile @NotNull Type @Nullable [] types;
 
     protected HttpHeaderKey(@NotNull String name, @NotNull Target target) {
         this.name = name;
         this.target = target;
-        this.types = Arrays.stream(Type.values()).filter(type -> type.matches(this)).toArray(Type[]::new);
 
         if (name.isEmpty()) {
             throw new IllegalArgumentException("header name cannot be null");
@@ -331,6 +348,13 @@ public abstract class HttpHeaderKey<T> {
     }
     @Contract(pure = true)
     public final @NotNull Type[] getTypes() {
+        @NotNull Type @Nullable [] types = this.types;
+
+        // The types are only computed when requested, most of the keys never need them
+        if (types == null) {
+            this.types = types = Arrays.stream(Type.values()).filter(type -> type.matches(this)).toArray(Type[]::new);
+        }
+
         return types;
     }
     public final boolean hasType(@NotNull Type type) {
@@ -384,6 +408,30 @@ public abstract class HttpHeaderKey<T> {
 
     // Classes
 
+    private static final class Rare {
+
+        private static final @NotNull Map<String, HttpHeaderKey<?>> map = new HashMap<>(128);
+
+        static {
+            register(map,
+                    ACCEPT_CH_LIFETIME, ATTRIBUTION_REPORTING_ELIGIBLE, ATTRIBUTION_REPORTING_REGISTER_SOURCE,
+                    ATTRIBUTION_REPORTING_REGISTER_TRIGGER, AVAILABLE_DICTIONARY, CONTENT_DICTIONARY, CONTENT_DPR, DIGEST, DNT,
+                    DOWNLINK, DPR, EARLY_DATA, ECT, EXPECT_CT, LARGE_ALLOCATION, LINK, NEL, NO_VARY_SEARCH,
+                    OBSERVE_BROWSING_TOPICS, ORIGIN_AGENT_CLUSTER,
+                    PERMISSIONS_POLICY, PRAGMA, PROXY_AUTHENTICATE, RANGE, REFERRER_POLICY, REPORTING_ENDPOINTS, REPR_DIGEST, RTT,
+                    SEC_BROWSING_TOPICS, SEC_CH_PREFERS_COLOR_SCHEME, SEC_CH_PREFERS_REDUCED_MOTION,
+                    SEC_CH_PREFERS_REDUCED_TRANSPARENCY, SEC_CH_UA, SEC_CH_UA_ARCH, SEC_CH_UA_BITNESS, SEC_CH_UA_FULL_VERSION,
+                    SEC_CH_UA_FULL_VERSION_LIST, SEC_CH_UA_MOBILE, SEC_CH_UA_MODEL, SEC_CH_UA_PLATFORM,
+                    SEC_CH_UA_PLATFORM_VERSION, SEC_FETCH_DEST, SEC_FETCH_MODE, SEC_FETCH_SITE, SEC_FETCH_USER, SEC_GPC,
+                    SEC_PURPOSE, SEC_WEBSOCKET_ACCEPT, SERVER_TIMING, SET_LOGIN, SPECULATION_RULES, STRICT_TRANSPORT_SECURITY,
+                    SUPPORTS_LOADING_MODE, TE, TIMING_ALLOW_ORIGIN, TK, UPGRADE_INSECURE_REQUESTS, VIA, VIEWPORT_WIDTH,
+                    CONTENT_DIGEST, WANT_CONTENT_DIGEST, WANT_DIGEST, WANT_REPR_DIGEST, WARNING, WIDTH, WWW_AUTHENTICATE,
+                    X_CONTENT_TYPE_OPTIONS, X_DNS_PREFETCH_CONTROL, X_FORWARDED_FOR, X_FORWARDED_HOST, X_FORWARDED_PROTO,
+                    X_FRAME_OPTIONS, X_XSS_PROTECTION
+            );
+        }
+
+    }
     private static final class Provided {
         private Provided() {
             throw new UnsupportedOperationException();
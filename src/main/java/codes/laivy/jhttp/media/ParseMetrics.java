@@ -0,0 +1,275 @@
+package codes.laivy.jhttp.media;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.exception.media.MediaParserException;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the cost of the media parsing, per media type.
+ * <p>
+ * The bodies parsed by the factories have their contents deferred until the first
+ * {@link HttpBody#getContent(HttpVersion, MediaType)} call, and every deferred body is flagged. The parses are
+ * counted and timed, and the first parse of a flagged body is counted as a resolved deferral, so the skipped
+ * parses (the requests only forwarded or rejected) and the time they would have cost can be compared. The parses of
+ * the bodies never deferred (created by the application, as example) don't change the skipped parses.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class ParseMetrics {
+
+    // Static initializers
+
+    private static final @NotNull ParseMetrics def = new ParseMetrics();
+
+    /**
+     * @return the metrics used by the bodies and the body factories
+     */
+    public static @NotNull ParseMetrics getDefault() {
+        return def;
+    }
+
+    // Object
+
+    private final @NotNull Map<MediaType.Type, Entry> entries = new ConcurrentHashMap<>();
+
+    // The deferred bodies not parsed yet, by identity, with the media type they were deferred with
+    private final @NotNull Map<Deferral, MediaType.Type> deferrals = new ConcurrentHashMap<>();
+    private final @NotNull ReferenceQueue<HttpBody> collected = new ReferenceQueue<>();
+
+    private ParseMetrics() {
+    }
+
+    // Getters
+
+    /**
+     * @param type the media type
+     * @return the metrics of the media type, or empty if it has never been deferred or parsed
+     */
+    public @NotNull Optional<Entry> get(@NotNull MediaType.Type type) {
+        return Optional.ofNullable(entries.get(type));
+    }
+
+    /**
+     * @return the metrics of all the media types recorded
+     */
+    public @Unmodifiable @NotNull Map<MediaType.Type, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    // Modules
+
+    private @NotNull Entry entry(@NotNull MediaType<?> media) {
+        return entries.computeIfAbsent(media.getType(), Entry::new);
+    }
+
+    /**
+     * Records a body whose content has been deferred, instead of parsed, when it was created. The body is flagged
+     * until its first parse, without being retained.
+     *
+     * @param body the body created
+     * @param media the media type of the content
+     */
+    public void defer(@NotNull HttpBody body, @NotNull MediaType<?> media) {
+        // Forget the bodies collected without being parsed, they remain as skipped
+        @Nullable Reference<? extends HttpBody> reference;
+        while ((reference = collected.poll()) != null) {
+            deferrals.remove((Deferral) reference);
+        }
+
+        deferrals.put(new Deferral(body, collected), media.getType());
+        entry(media).deferred.increment();
+    }
+
+    /**
+     * Deserializes the stream of a body with the parser of the media type, recording the time spent
+     *
+     * @param body the body being parsed
+     * @param version the version to deserialize
+     * @param media the media type of the content
+     * @param stream the stream with the data
+     * @param <T> the type of the content
+     * @return the deserialized content
+     * @throws MediaParserException if the parser cannot deserialize the data
+     * @throws IOException if an I/O error occurs reading the stream
+     */
+    public <T> @NotNull T deserialize(@NotNull HttpBody body, @NotNull HttpVersion<?> version, @NotNull MediaType<T> media, @NotNull InputStream stream) throws MediaParserException, IOException {
+        @NotNull Entry entry = entry(media);
+        long start = System.nanoTime();
+        boolean success = false;
+
+        // The first parse of a deferred body resolves it, at the media type it was deferred with
+        @Nullable MediaType.Type deferred = deferrals.remove(new Deferral(body, null));
+        if (deferred != null) entries.computeIfAbsent(deferred, Entry::new).resolved.increment();
+
+        try {
+            @NotNull T data = media.getParser().deserialize(version, stream, media.getParameters());
+            success = true;
+
+            return data;
+        } finally {
+            entry.time.add(System.nanoTime() - start);
+
+            if (success) entry.parsed.increment();
+            else entry.failures.increment();
+        }
+    }
+
+    /**
+     * Clears all the metrics recorded
+     */
+    public void reset() {
+        entries.clear();
+        deferrals.clear();
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "ParseMetrics{" +
+                "entries=" + entries.values() +
+                '}';
+    }
+
+    // Classes
+
+    /**
+     * The parses of a media type
+     */
+    public static final class Entry {
+
+        private final @NotNull MediaType.Type type;
+
+        private final @NotNull LongAdder deferred = new LongAdder();
+        private final @NotNull LongAdder resolved = new LongAdder();
+        private final @NotNull LongAdder parsed = new LongAdder();
+        private final @NotNull LongAdder failures = new LongAdder();
+        private final @NotNull LongAdder time = new LongAdder();
+
+        private Entry(@NotNull MediaType.Type type) {
+            this.type = type;
+        }
+
+        // Getters
+
+        public @NotNull MediaType.Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the amount of contents deferred by the body factories
+         */
+        public long getDeferred() {
+            return deferred.sum();
+        }
+
+        /**
+         * @return the amount of deferred contents that have been parsed later
+         */
+        public long getResolved() {
+            return resolved.sum();
+        }
+
+        /**
+         * @return the amount of contents parsed successfully, the ones never deferred included
+         */
+        public long getParsed() {
+            return parsed.sum();
+        }
+
+        /**
+         * @return the amount of parses that have failed
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the total time spent parsing, the failures included
+         */
+        public @NotNull Duration getTime() {
+            return Duration.ofNanos(time.sum());
+        }
+
+        /**
+         * @return the average time of a parse, or zero if there's no parses
+         */
+        public @NotNull Duration getAverage() {
+            long parses = getParsed() + getFailures();
+            return parses == 0 ? Duration.ZERO : Duration.ofNanos(time.sum() / parses);
+        }
+
+        /**
+         * @return the amount of deferred contents that have never been parsed
+         */
+        public long getSkipped() {
+            return Math.max(0, getDeferred() - getResolved());
+        }
+
+        /**
+         * @return the estimated time saved by the skipped parses, using the average parse time
+         */
+        public @NotNull Duration getSavings() {
+            return getAverage().multipliedBy(getSkipped());
+        }
+
+        // Implementations
+
+        @Override
+        public @NotNull String toString() {
+            return "Entry{" +
+                    "type=" + type +
+                    ", deferred=" + getDeferred() +
+                    ", resolved=" + getResolved() +
+                    ", parsed=" + getParsed() +
+                    ", failures=" + getFailures() +
+                    ", time=" + getTime() +
+                    '}';
+        }
+
+    }
+
+    /**
+     * A weak reference of a deferred body, compared by the identity of the body
+     */
+    private static final class Deferral extends WeakReference<HttpBody> {
+
+        private final int hash;
+
+        private Deferral(@NotNull HttpBody body, @Nullable ReferenceQueue<HttpBody> queue) {
+            super(body, queue);
+            this.hash = System.identityHashCode(body);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object object) {
+            if (this == object) return true;
+            if (!(object instanceof Deferral)) return false;
+
+            @Nullable HttpBody body = get();
+            return body != null && body == ((Deferral) object).get();
+        }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -1,14 +1,18 @@
 package codes.laivy.jhttp.media.jar;
 
+import codes.laivy.jhttp.body.Spool;
+import codes.laivy.jhttp.body.SpoolFile;
 import codes.laivy.jhttp.exception.media.MediaParserException;
 import codes.laivy.jhttp.media.MediaParser;
 import codes.laivy.jhttp.media.MediaType;
 import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -50,11 +54,11 @@ public class JarMediaType extends MediaType<@NotNull JarFile> {
 
         @Override
         public @NotNull JarFile deserialize(@NotNull HttpVersion version, @NotNull InputStream stream, @NotNull Parameter @NotNull ... parameters) throws MediaParserException, IOException {
-            @NotNull File file = File.createTempFile("jhttp-", "-jar_media_type");
-            file.deleteOnExit();
+            @NotNull SpoolFile file = Spool.getDefault().create("-jar_media_type");
 
-            try (@NotNull FileOutputStream write = new FileOutputStream(file)) {
-                byte[] buffer = new byte[1024];
+            try (@NotNull FileOutputStream write = new FileOutputStream(file.getFile());
+                 @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+                byte[] buffer = pooled.array();
 
                 int bytesRead;
                 while ((bytesRead = stream.read(buffer)) != -1) {
@@ -62,23 +66,27 @@ public class JarMediaType extends MediaType<@NotNull JarFile> {
                 }
 
                 write.flush();
+            } catch (@NotNull IOException e) {
+                file.release();
+                throw e;
             }
 
-            return new JarFile(file, true);
+            return new SpooledJarFile(file);
         }
         @Override
         public @NotNull InputStream serialize(@NotNull HttpVersion version, @NotNull JarFile jar, @NotNull Parameter @NotNull ... parameters) throws IOException {
-            @NotNull File file = File.createTempFile("jhttp-", "-jar_media_type");
-            file.deleteOnExit();
+            @NotNull SpoolFile file = Spool.getDefault().create("-jar_media_type");
+
+            try (@NotNull JarOutputStream write = new JarOutputStream(Files.newOutputStream(file.getPath()));
+                 @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+                byte[] buffer = pooled.array();
 
-            try (@NotNull JarOutputStream write = new JarOutputStream(Files.newOutputStream(file.toPath()))) {
                 @NotNull Enumeration<JarEntry> enumeration = jar.entries();
                 while (enumeration.hasMoreElements()) {
                     @NotNull JarEntry entry = enumeration.nextElement();
                     write.putNextEntry(entry);
 
                     @NotNull InputStream inputStream = jar.getInputStream(entry);
-                    byte[] buffer = new byte[1024];
 
                     int bytesRead;
                     while ((bytesRead = inputStream.read(buffer)) != -1) {
@@ -88,9 +96,56 @@ public class JarMediaType extends MediaType<@NotNull JarFile> {
                     write.closeEntry();
                     inputStream.close();
                 }
+            } catch (@NotNull IOException e) {
+                file.release();
+                throw e;
             }
 
-            return Files.newInputStream(file.toPath());
+            // The file is deleted when the stream is closed
+            return new FilterInputStream(Files.newInputStream(file.getPath())) {
+                private boolean closed = false;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            file.release();
+                        }
+                    }
+                }
+            };
+        }
+
+    }
+
+    /**
+     * A jar file at the spool, the file is deleted when the jar is closed
+     */
+    private static final class SpooledJarFile extends JarFile {
+
+        private final @NotNull SpoolFile file;
+        private volatile boolean released = false;
+
+        private SpooledJarFile(@NotNull SpoolFile file) throws IOException {
+            super(file.getFile(), true);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                synchronized (this) {
+                    if (!released) {
+                        released = true;
+                        file.release();
+                    }
+                }
+            }
         }
 
     }
@@ -5,67 +5,51 @@ import codes.laivy.jhttp.protocol.factory.HttpBodyFactory;
 import codes.laivy.jhttp.protocol.factory.HttpHeaderFactory;
 import codes.laivy.jhttp.protocol.factory.HttpRequestFactory;
 import codes.laivy.jhttp.protocol.factory.HttpResponseFactory;
+import codes.laivy.jhttp.protocol.v1_0.HttpVersion1_0;
+import codes.laivy.jhttp.protocol.v1_1.HttpVersion1_1;
 import org.jetbrains.annotations.*;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
 public abstract class HttpVersion {
     
     // Static initializers
 
-    private static @NotNull HttpVersion version(@NotNull String name) {
-        try {
-            //noinspection unchecked
-            @NotNull Class<HttpVersion> clazz = (Class<HttpVersion>) Class.forName(name);
-            @NotNull Constructor<HttpVersion> constructor = clazz.getConstructor();
-            return constructor.newInstance();
-        } catch (ClassNotFoundException | NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-            throw new RuntimeException("cannot obtain class/constructor '" + name + "' for http version", e);
-        }
-    }
-
     @ApiStatus.Internal
     private static final @NotNull Set<HttpVersion> versions = new TreeSet<>(Comparator.comparingInt(o -> (o.getMajor() + o.getMinor())));
 
+    private static final @NotNull HttpVersion HTTP1_0;
+    private static final @NotNull HttpVersion HTTP1_1;
+
     public static @NotNull HttpVersion[] getVersions() {
         return versions.toArray(new HttpVersion[0]);
     }
     public static @Nullable HttpVersion getVersion(@NotNull String string) {
-        @NotNull Optional<HttpVersion> optional = Arrays.stream(getVersions()).filter(version -> version.toString().equalsIgnoreCase(string)).findFirst();
-        return optional.orElse(null);
+        for (@NotNull HttpVersion version : getVersions()) {
+            if (version.toString().equalsIgnoreCase(string)) {
+                return version;
+            }
+        }
+
+        return null;
     }
 
     public static @NotNull HttpVersion HTTP1_0() {
-        return Arrays.stream(getVersions()).filter(version -> version.getMajor() == 1 && version.getMinor() == 0).findFirst().orElseThrow(NullPointerException::new);
+        return HTTP1_0;
     }
     public static @NotNull HttpVersion HTTP1_1() {
-        return Arrays.stream(getVersions()).filter(version -> version.getMajor() == 1 && version.getMinor() == 1).findFirst().orElseThrow(NullPointerException::new);
+        return HTTP1_1;
     }
 
     // Initialization
 
     static {
-        for (@NotNull String name : new String[] {
-                "codes.laivy.jhttp.protocol.v1_0.HttpVersion1_0",
-                "codes.laivy.jhttp.protocol.v1_1.HttpVersion1_1"
-        }) {
-            try {
-                //noinspection unchecked
-                @NotNull Class<HttpVersion> clazz = (Class<HttpVersion>) Class.forName(name);
-
-                @NotNull Constructor<HttpVersion> constructor = clazz.getConstructor();
-                constructor.setAccessible(true);
-
-                @NotNull HttpVersion version = constructor.newInstance();
-
-                // Initialize
-                version.init();
-            } catch (ClassNotFoundException | NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-                throw new RuntimeException("cannot load provided http version '" + name + "'", e);
-            }
-        }
+        // The provided versions are created directly, without reflection
+        HTTP1_0 = new HttpVersion1_0();
+        HTTP1_1 = new HttpVersion1_1();
+
+        HTTP1_0.init();
+        HTTP1_1.init();
     }
 
     // Object
@@ -1,6 +1,7 @@
 package codes.laivy.jhttp.protocol.factory;
 
 import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.encoding.DecompressionGuard;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import codes.laivy.jhttp.exception.parser.element.HttpBodyParseException;
 import codes.laivy.jhttp.headers.HttpHeaders;
@@ -27,6 +28,23 @@ public interface HttpBodyFactory {
      */
     @NotNull HttpVersion getVersion();
 
+    /**
+     * Retrieves the limits applied when decoding the content encodings of the parsed bodies. Bodies that exceed
+     * them are rejected with a {@link HttpBodyParseException} caused by a
+     * {@link codes.laivy.jhttp.exception.encoding.DecompressionLimitException}, that should be answered with
+     * {@link codes.laivy.jhttp.element.HttpStatus#CONTENT_TOO_LARGE}.
+     *
+     * @return The decompression guard of this factory. Never null.
+     */
+    @NotNull DecompressionGuard getDecompressionGuard();
+
+    /**
+     * Changes the limits applied when decoding the content encodings of the parsed bodies.
+     *
+     * @param guard The new decompression guard, use {@link DecompressionGuard#unlimited()} to disable the limits.
+     */
+    void setDecompressionGuard(@NotNull DecompressionGuard guard);
+
     // Modules
 
     @NotNull HttpBody parse(@NotNull HttpHeaders headers, @NotNull String content) throws HttpBodyParseException;
@@ -10,6 +10,7 @@ import codes.laivy.jhttp.exception.parser.element.HttpBodyParseException;
 import codes.laivy.jhttp.exception.parser.element.HttpRequestParseException;
 import codes.laivy.jhttp.headers.HttpHeaders;
 import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.url.RequestTarget;
 import codes.laivy.jhttp.url.URIAuthority;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,7 +36,10 @@ public interface HttpRequestFactory {
 
     // Modules
 
-    @NotNull HttpRequest create(@NotNull Method method, @Nullable URIAuthority authority, @NotNull URI uri, @NotNull HttpHeaders headers, @NotNull HttpBody body);
+    default @NotNull HttpRequest create(@NotNull Method method, @Nullable URIAuthority authority, @NotNull URI uri, @NotNull HttpHeaders headers, @NotNull HttpBody body) {
+        return create(method, authority, RequestTarget.create(uri), headers, body);
+    }
+    @NotNull HttpRequest create(@NotNull Method method, @Nullable URIAuthority authority, @NotNull RequestTarget target, @NotNull HttpHeaders headers, @NotNull HttpBody body);
 
     /**
      * Transforms an HTTP request into a string representation.
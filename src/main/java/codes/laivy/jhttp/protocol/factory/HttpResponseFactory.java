@@ -13,6 +13,8 @@ import codes.laivy.jhttp.protocol.HttpVersion;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 public interface HttpResponseFactory {
 
@@ -25,6 +27,20 @@ public interface HttpResponseFactory {
     @NotNull HttpResponse create(@NotNull HttpStatus status, @NotNull HttpHeaders headers, @NotNull HttpBody body);
 
     @NotNull String serialize(@NotNull HttpResponse response) throws EncodingException, IOException;
+
+    /**
+     * Writes the response to a stream. The versions that support it write the body directly to the stream, without
+     * materializing it first, as required by the streaming bodies.
+     *
+     * @param response the response to be written
+     * @param stream the stream that will receive the response
+     * @throws EncodingException if an encoding error occurs writing the body
+     * @throws IOException if an I/O error occurs writing the response
+     */
+    default void write(@NotNull HttpResponse response, @NotNull OutputStream stream) throws EncodingException, IOException {
+        stream.write(serialize(response).getBytes(StandardCharsets.ISO_8859_1));
+        stream.flush();
+    }
     @NotNull HttpResponse parse(@NotNull String string) throws HttpResponseParseException, HttpBodyParseException;
     @NotNull Future parse(@NotNull HttpClient client, @NotNull String string) throws HttpResponseParseException;
     boolean validate(@NotNull String string);
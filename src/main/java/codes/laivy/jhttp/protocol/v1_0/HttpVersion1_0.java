@@ -17,7 +17,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @ApiStatus.Internal
-final class HttpVersion1_0 extends HttpVersion {
+public final class HttpVersion1_0 extends HttpVersion {
 
     public static final @NotNull ScheduledExecutorService FUTURE_TIMEOUT_SCHEDULED = Executors.newScheduledThreadPool(1);
 
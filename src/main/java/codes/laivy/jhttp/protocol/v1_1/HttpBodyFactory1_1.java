@@ -1,20 +1,27 @@
 package codes.laivy.jhttp.protocol.v1_1;
 
+import codes.laivy.jhttp.body.BodyUtils;
 import codes.laivy.jhttp.body.HttpBody;
 import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.encoding.DecompressionGuard;
 import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.exception.encoding.DecompressionLimitException;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
-import codes.laivy.jhttp.exception.media.MediaParserException;
 import codes.laivy.jhttp.exception.parser.element.HttpBodyParseException;
 import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaders;
 import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
 import codes.laivy.jhttp.network.BitMeasure;
 import codes.laivy.jhttp.protocol.HttpVersion;
 import codes.laivy.jhttp.protocol.factory.HttpBodyFactory;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,6 +33,7 @@ import static codes.laivy.jhttp.headers.HttpHeaderKey.*;
 final class HttpBodyFactory1_1 implements HttpBodyFactory {
 
     private final @NotNull HttpVersion version;
+    private volatile @NotNull DecompressionGuard guard = DecompressionGuard.builder().build();
 
     public HttpBodyFactory1_1(@NotNull HttpVersion1_1 version) {
         this.version = version;
@@ -38,6 +46,15 @@ final class HttpBodyFactory1_1 implements HttpBodyFactory {
         return version;
     }
 
+    @Override
+    public @NotNull DecompressionGuard getDecompressionGuard() {
+        return guard;
+    }
+    @Override
+    public void setDecompressionGuard(@NotNull DecompressionGuard guard) {
+        this.guard = guard;
+    }
+
     // Modules
 
     @Override
@@ -64,23 +81,32 @@ final class HttpBodyFactory1_1 implements HttpBodyFactory {
             // Decode
             @NotNull Encoding[] encodings = Arrays.stream(headers.get(CONTENT_ENCODING)).flatMap(header -> Arrays.stream(header.getValue())).map(Deferred::retrieve).toArray(Encoding[]::new);
 
-            // Decompress
-            for (@NotNull Encoding encoding : encodings) {
-                try {
-                    content = encoding.decompress(content);
-                } catch (@NotNull EncodingException e) {
-                    throw new HttpBodyParseException("cannot decompress content using encoding '" + encoding.getName() + "'", e);
+            // Decompress, streaming through the guard to abort the oversized contents early
+            try (@NotNull InputStream stream = BodyUtils.decoder(encodings, new Encoding[0], new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), getDecompressionGuard());
+                 @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream(content.length() * 2);
+                 @NotNull PooledBuffer pooled = BufferAllocator.getDefault().heap(8192)) {
+
+                byte[] buffer = pooled.array();
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
                 }
+
+                content = new String(output.toByteArray(), StandardCharsets.ISO_8859_1);
+            } catch (@NotNull DecompressionLimitException e) {
+                throw new HttpBodyParseException("the decoded content is too large", e);
+            } catch (@NotNull IOException e) {
+                throw new HttpBodyParseException("cannot decompress content using encodings " + Arrays.toString(encodings), e);
             }
         }
 
-        // Interpret Message
+        // Interpret Message, the content is only parsed at the first 'getContent' call
         try {
             @NotNull HttpBody body = HttpBody.create(content.getBytes(StandardCharsets.ISO_8859_1));
-            if (media != null) body.getContent(getVersion(), media);
+            if (media != null) ParseMetrics.getDefault().defer(body, media);
 
             return body;
-        } catch (@NotNull MediaParserException | @NotNull IOException e) {
+        } catch (@NotNull IOException e) {
             throw new HttpBodyParseException("cannot create http body", e);
         }
     }
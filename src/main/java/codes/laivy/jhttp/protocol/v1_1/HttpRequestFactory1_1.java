@@ -3,7 +3,6 @@ package codes.laivy.jhttp.protocol.v1_1;
 import codes.laivy.jhttp.body.HttpBody;
 import codes.laivy.jhttp.client.HttpClient;
 import codes.laivy.jhttp.deferred.Deferred;
-import codes.laivy.jhttp.element.HttpProtocol;
 import codes.laivy.jhttp.element.Method;
 import codes.laivy.jhttp.element.Target;
 import codes.laivy.jhttp.element.request.HttpRequest;
@@ -20,6 +19,7 @@ import codes.laivy.jhttp.headers.HttpHeaders;
 import codes.laivy.jhttp.protocol.HttpVersion;
 import codes.laivy.jhttp.protocol.factory.HttpRequestFactory;
 import codes.laivy.jhttp.url.Host;
+import codes.laivy.jhttp.url.RequestTarget;
 import codes.laivy.jhttp.url.URIAuthority;
 import codes.laivy.jhttp.utilities.StringUtils;
 import org.jetbrains.annotations.Contract;
@@ -28,10 +28,8 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URLDecoder;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -45,32 +43,6 @@ import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
 
 final class HttpRequestFactory1_1 implements HttpRequestFactory {
 
-    // Static initializers
-
-    private static @NotNull URI uri(@NotNull String string) throws URISyntaxException {
-        try {
-            string = URLDecoder.decode(string, "UTF-8");
-        } catch (@NotNull UnsupportedEncodingException e) {
-            throw new RuntimeException("cannot find UTF-8 charset on system", e);
-        }
-
-        // Remove protocol
-        for (@NotNull HttpProtocol protocol : HttpProtocol.values()) {
-            if (string.startsWith(protocol.getName())) {
-                string = string.replaceFirst(protocol.getName(), "");
-            }
-        }
-
-        // Parse
-        @NotNull String[] split = string.split("/", 2);
-
-        if (split.length == 1) {
-            return new URI("/");
-        } else {
-            return new URI("/" + split[1]);
-        }
-    }
-
     // Object
 
     private final @NotNull HttpVersion version;
@@ -89,8 +61,8 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
     }
 
     @Override
-    public @NotNull HttpRequest create(@NotNull Method method, @Nullable URIAuthority authority, @NotNull URI uri, @NotNull HttpHeaders headers, @NotNull HttpBody body) {
-        return new HttpRequestImpl(method, authority, uri, headers, body);
+    public @NotNull HttpRequest create(@NotNull Method method, @Nullable URIAuthority authority, @NotNull RequestTarget target, @NotNull HttpHeaders headers, @NotNull HttpBody body) {
+        return new HttpRequestImpl(method, authority, target, headers, body);
     }
 
     // Modules
@@ -110,10 +82,10 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
         // Write request line
         @NotNull String authority = request.getAuthority() != null ? request.getAuthority().toString() : "";
 
-        @NotNull String uri = request.getUri().toString();
+        @NotNull String uri = request.getTarget().toOriginForm();
         if (!StringUtils.isBlank(uri)) {
-            if (!uri.startsWith("/")) authority += "/";
-            authority += request.getUri().toString();
+            if (!uri.startsWith("/") && !uri.equals("*")) authority += "/";
+            authority += uri;
         }
 
         builder.append(request.getMethod().name()).append(" ").append(authority).append(" ").append(getVersion());
@@ -168,29 +140,31 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
         @NotNull String[] requestLine = parts[0].split(" ");
         @NotNull Method method = Method.valueOf(requestLine[0].toUpperCase());
         @Nullable URIAuthority authority = null;
-        @NotNull URI uri;
+        @NotNull RequestTarget target;
 
-        // Uri
+        // Target
         if (!requestLine[2].equals(getVersion().toString())) {
             throw new HttpRequestParseException("the http version '" + requestLine[2] + "' isn't compatible with the '" + getVersion() + "' http request parser");
         } else try {
-            uri = uri(requestLine[1]);
+            target = RequestTarget.parse(requestLine[1]);
         } catch (@NotNull URISyntaxException e) {
-            throw new HttpRequestParseException("cannot parse uri '" + requestLine[1] + "' from http request", e);
+            throw new HttpRequestParseException("cannot parse request target '" + requestLine[1] + "' from http request", e);
         }
 
         // Authority
-        if (URIAuthority.validate(requestLine[1])) try {
-            authority = URIAuthority.parse(requestLine[1]);
+        @Nullable String rawAuthority = target.getRawAuthority();
+
+        if (rawAuthority != null) try {
+            authority = URIAuthority.parse(rawAuthority);
         } catch (@NotNull URISyntaxException e) {
-            throw new HttpRequestParseException("cannot parse uri authority '" + requestLine[1] + "' from http request", e);
+            throw new HttpRequestParseException("cannot parse uri authority '" + rawAuthority + "' from http request", e);
         }
 
         // Message
         @NotNull HttpBody body = content.length == 2 ? getVersion().getBodyFactory().parse(headers, content[1]) : HttpBody.empty();
 
         // Finish
-        return HttpRequest.create(getVersion(), method, authority, uri, headers, body);
+        return HttpRequest.create(getVersion(), method, authority, target, headers, body);
     }
 
     @Override
@@ -247,20 +221,20 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
 
         private final @NotNull Method method;
         private final @Nullable URIAuthority authority;
-        private final @NotNull URI uri;
+        private final @NotNull RequestTarget target;
         private final @NotNull HttpHeaders headers;
         private final @NotNull HttpBody body;
 
         private HttpRequestImpl(
                 @NotNull Method method,
                 @Nullable URIAuthority authority,
-                @NotNull URI uri,
+                @NotNull RequestTarget target,
                 @NotNull HttpHeaders headers,
                 @NotNull HttpBody body
         ) {
             this.method = method;
             this.authority = authority;
-            this.uri = uri;
+            this.target = target;
             this.headers = headers;
             this.body = body;
         }
@@ -277,7 +251,11 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
         }
         @Override
         public @NotNull URI getUri() {
-            return uri;
+            return target.toURI();
+        }
+        @Override
+        public @NotNull RequestTarget getTarget() {
+            return target;
         }
 
         @Override
@@ -300,11 +278,11 @@ final class HttpRequestFactory1_1 implements HttpRequestFactory {
             if (this == object) return true;
             if (!(object instanceof HttpRequest)) return false;
             @NotNull HttpRequest that = (HttpRequest) object;
-            return getMethod() == that.getMethod() && Objects.equals(getAuthority(), that.getAuthority()) && Objects.equals(getUri(), that.getUri()) && Objects.equals(getHeaders(), that.getHeaders()) && Objects.equals(getBody(), that.getBody());
+            return getMethod() == that.getMethod() && Objects.equals(getAuthority(), that.getAuthority()) && Objects.equals(getTarget().toOriginForm(), that.getTarget().toOriginForm()) && Objects.equals(getHeaders(), that.getHeaders()) && Objects.equals(getBody(), that.getBody());
         }
         @Override
         public int hashCode() {
-            return Objects.hash(getMethod(), getAuthority(), getUri(), getHeaders(), getBody());
+            return Objects.hash(getMethod(), getAuthority(), getTarget().toOriginForm(), getHeaders(), getBody());
         }
         @Override
         public @NotNull String toString() {
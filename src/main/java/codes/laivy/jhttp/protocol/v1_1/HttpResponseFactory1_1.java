@@ -1,6 +1,7 @@
 package codes.laivy.jhttp.protocol.v1_1;
 
 import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.HttpStreamBody;
 import codes.laivy.jhttp.client.HttpClient;
 import codes.laivy.jhttp.deferred.Deferred;
 import codes.laivy.jhttp.element.HttpStatus;
@@ -15,6 +16,7 @@ import codes.laivy.jhttp.exception.parser.element.HttpResponseParseException;
 import codes.laivy.jhttp.headers.HttpHeader;
 import codes.laivy.jhttp.headers.HttpHeaderKey;
 import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.network.BitMeasure;
 import codes.laivy.jhttp.protocol.HttpVersion;
 import codes.laivy.jhttp.protocol.factory.HttpResponseFactory;
 import codes.laivy.jhttp.utilities.StringUtils;
@@ -24,6 +26,9 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.OptionalLong;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -85,6 +90,52 @@ final class HttpResponseFactory1_1 implements HttpResponseFactory {
         return builder.toString();
     }
 
+    /**
+     * Writes the response to the stream, the body is written directly by {@link HttpBody#write(HttpHeaders, OutputStream)}.
+     * <p>
+     * The {@link HttpStreamBody} without a {@code Content-Length} or {@code Transfer-Encoding} header receive
+     * the {@code Content-Length} of its declared length, or the chunked transfer encoding if it's unknown.
+     */
+    @Override
+    public void write(@NotNull HttpResponse response, @NotNull OutputStream stream) throws EncodingException, IOException {
+        if (!response.getVersion().equals(getVersion())) {
+            throw new IllegalArgumentException("cannot write a '" + response.getVersion() + "' http response using a '" + getVersion() + "' http response factory");
+        }
+
+        @NotNull HttpHeaders headers = response.getHeaders();
+        @NotNull HttpBody body = response.getBody();
+
+        // Select the framing of the streaming bodies
+        if (body instanceof HttpStreamBody && !headers.contains(CONTENT_LENGTH) && !headers.contains(TRANSFER_ENCODING)) {
+            @NotNull OptionalLong length = ((HttpStreamBody) body).getLength();
+
+            if (length.isPresent()) {
+                headers.put(CONTENT_LENGTH.create(BitMeasure.create(BitMeasure.Level.BYTES, length.getAsLong())));
+            } else {
+                //noinspection unchecked
+                headers.put(TRANSFER_ENCODING.create(new Deferred[] { Deferred.encoding("chunked") }));
+            }
+        }
+
+        @NotNull StringBuilder builder = new StringBuilder(getVersion() + " " + response.getStatus().getCode() + " " + response.getStatus().getMessage() + CRLF);
+
+        // Write headers
+        for (@NotNull HttpHeader<?> header : headers) {
+            if (!header.getKey().getTarget().isResponses()) continue;
+            builder.append(getVersion().getHeaderFactory().serialize(header)).append(CRLF);
+        }
+
+        // End response configurations
+        builder.append(CRLF);
+
+        stream.write(builder.toString().getBytes(StandardCharsets.ISO_8859_1));
+        stream.flush();
+
+        // Write the body
+        body.write(headers, stream);
+        stream.flush();
+    }
+
     public @NotNull HttpResponse parse(@NotNull String string) throws HttpResponseParseException, HttpBodyParseException {
         // Content
         @NotNull String[] content = string.split(CRLF + CRLF, 2);
@@ -1,6 +1,7 @@
 package codes.laivy.jhttp.url;
 
 import codes.laivy.jhttp.url.domain.Port;
+import codes.laivy.jhttp.url.domain.PublicSuffixList;
 import codes.laivy.jhttp.url.domain.SLD;
 import codes.laivy.jhttp.url.domain.Subdomain;
 import codes.laivy.jhttp.url.domain.TLD;
@@ -16,19 +17,75 @@ public abstract class Host {
 
     // Static initializers
 
+    private static final @NotNull ParseCache<Host> CACHE = new ParseCache<>(128);
+
+    private static final int NAME = 0;
+    private static final int IPV4 = 1;
+    private static final int IPV6 = 2;
+
+    /**
+     * Decides in a single scan which kind of host the string can be. It doesn't validate the string,
+     * only tells which validator should be used: a bracket or more than one colon can only be an ipv6, and
+     * only digits and dots (before the port) can only be an ipv4, since the TLDs are alphabetic.
+     */
+    private static int classify(@NotNull String string) {
+        if (!string.isEmpty() && string.charAt(0) == '[') {
+            return IPV6;
+        }
+
+        int colons = 0;
+        boolean numeric = true;
+
+        for (int index = 0; index < string.length(); index++) {
+            char c = string.charAt(index);
+
+            if (c == ':') {
+                colons++;
+            } else if (colons == 0 && c != '.' && (c < '0' || c > '9')) {
+                numeric = false;
+            }
+        }
+
+        if (colons > 1) return IPV6;
+        else return numeric ? IPV4 : NAME;
+    }
+
     public static boolean validate(@NotNull String string) {
-        return Name.validate(string) || IPv4.validate(string) || IPv6.validate(string);
+        if (CACHE.contains(string)) {
+            return true;
+        }
+
+        switch (classify(string)) {
+            case IPV4:
+                return IPv4.validate(string);
+            case IPV6:
+                return IPv6.validate(string);
+            default:
+                return Name.validate(string);
+        }
     }
     public static @NotNull Host parse(@NotNull String string) throws IllegalArgumentException {
-        if (Name.validate(string)) {
-            return Name.parse(string);
-        } else if (IPv4.validate(string)) {
-            return IPv4.parse(string);
-        } else if (IPv6.validate(string)) {
-            return IPv6.parse(string);
-        } else {
-            throw new IllegalArgumentException("the value '" + string + "' isn't a valid host");
+        @Nullable Host host = CACHE.get(string);
+
+        if (host != null) {
+            return host;
+        } else try {
+            switch (classify(string)) {
+                case IPV4:
+                    host = IPv4.parse(string);
+                    break;
+                case IPV6:
+                    host = IPv6.parse(string);
+                    break;
+                default:
+                    host = Name.parse(string);
+                    break;
+            }
+        } catch (@NotNull IllegalArgumentException e) {
+            throw new IllegalArgumentException("the value '" + string + "' isn't a valid host", e);
         }
+
+        return CACHE.put(string, host);
     }
 
     // Object
@@ -50,10 +107,10 @@ public abstract class Host {
     // Modules
 
     public final boolean isIPv4() {
-        return IPv4.validate(toString());
+        return this instanceof IPv4;
     }
     public final boolean isIPv6() {
-        return IPv6.validate(toString());
+        return this instanceof IPv6;
     }
 
     // Implementations
@@ -93,6 +150,8 @@ public abstract class Host {
 
                 if (parts.length == 0) {
                     return false;
+                } else if (parts.length == 1 && !parts[0].equalsIgnoreCase("localhost")) {
+                    return false;
                 } else if (parts[parts.length - 1].equalsIgnoreCase("localhost")) {
                     if (parts.length > 1 && Arrays.stream(Arrays.copyOfRange(parts, 0, parts.length - 1)).anyMatch(subdomain -> !Subdomain.validate(subdomain))) {
                         return false;
@@ -117,7 +176,11 @@ public abstract class Host {
 
             if (validate(string)) {
                 @Nullable Port port = parts.length == 2 ? Port.parse(parts[1]) : null;
-                parts = parts[0].split("\\.");
+                @NotNull String name = parts[0];
+                parts = name.split("\\.");
+
+                // The fully qualified names ("example.com.") have the same public suffix
+                if (name.endsWith(".")) name = name.substring(0, name.length() - 1);
 
                 @Nullable TLD tld;
                 @NotNull SLD sld;
@@ -129,10 +192,18 @@ public abstract class Host {
                     sld = SLD.parse(parts[parts.length - 1]);
                     subdomains = parts.length > 1 ? Arrays.stream(Arrays.copyOfRange(parts, 0, parts.length - 1)).map(Subdomain::create).toArray(Subdomain[]::new) : new Subdomain[0];
                 } else {
-                    tld = TLD.parse(parts[parts.length - 1]);
-                    sld = SLD.parse(parts[parts.length - 2]);
-                    subdomains = parts.length > 2 ? Arrays.stream(Arrays.copyOfRange(parts, 0, parts.length - 2)).map(Subdomain::create).toArray(Subdomain[]::new) : new Subdomain[0];
+                    // The TLD is the public suffix, that can have more than one label ("co.uk"). If the name
+                    // itself is a public suffix, the last label is used as the TLD.
+                    int suffix = PublicSuffixList.getDefault().getPublicSuffixIndex(name);
+                    int labels = 1;
 
+                    if (suffix > 0) for (int index = suffix; index < name.length(); index++) {
+                        if (name.charAt(index) == '.') labels++;
+                    }
+
+                    tld = TLD.parse(labels == 1 ? parts[parts.length - 1] : name.substring(suffix));
+                    sld = SLD.parse(parts[parts.length - labels - 1]);
+                    subdomains = parts.length > labels + 1 ? Arrays.stream(Arrays.copyOfRange(parts, 0, parts.length - labels - 1)).map(Subdomain::create).toArray(Subdomain[]::new) : new Subdomain[0];
                 }
 
                 return new Name(subdomains, sld, tld, port);
@@ -165,15 +236,19 @@ public abstract class Host {
             return getTLD() == null && getSLD().equalsIgnoreCase("localhost");
         }
 
+        /**
+         * @return a copy of the subdomains of this name, the parsed hosts are shared by the cache
+         */
         public @NotNull Subdomain @NotNull [] getSubdomains() {
-            return subdomains;
+            return subdomains.clone();
         }
         public @NotNull SLD getSLD() {
             return sld;
         }
 
         /**
-         * The TLD name may be null if the SLD is localhost.
+         * The TLD name may be null if the SLD is localhost. It's the public suffix of the name, so it
+         * can have more than one label ("co.uk" as example).
          *
          * @return The host name TLD (maybe null)
          */
@@ -181,11 +256,22 @@ public abstract class Host {
             return tld;
         }
 
+        /**
+         * Retrieves the registrable domain of this name, the public suffix plus one label ("example.co.uk" for
+         * "www.example.co.uk" as example). It's the domain that should be used to scope cookies or group
+         * the requests of the same site.
+         *
+         * @return the registrable domain, or null if this name is localhost or a public suffix
+         */
+        public @Nullable String getRegistrableDomain() {
+            return isLocalhost() ? null : PublicSuffixList.getDefault().getRegistrableDomain(getName());
+        }
+
         @Override
         public @NotNull String getName() {
             @NotNull StringBuilder builder = new StringBuilder();
 
-            for (@NotNull Subdomain subdomain : getSubdomains()) {
+            for (@NotNull Subdomain subdomain : subdomains) {
                 builder.append(subdomain).append(".");
             }
 
@@ -206,11 +292,11 @@ public abstract class Host {
             if (!(object instanceof Name)) return false;
             if (!super.equals(object)) return false;
             @NotNull Name name = (Name) object;
-            return Objects.deepEquals(getSubdomains(), name.getSubdomains()) && Objects.equals(getSLD(), name.getSLD()) && Objects.equals(getTLD(), name.getTLD());
+            return Arrays.equals(subdomains, name.subdomains) && Objects.equals(getSLD(), name.getSLD()) && Objects.equals(getTLD(), name.getTLD());
         }
         @Override
         public int hashCode() {
-            return Objects.hash(super.hashCode(), Arrays.hashCode(getSubdomains()), getSLD(), getTLD());
+            return Objects.hash(super.hashCode(), Arrays.hashCode(subdomains), getSLD(), getTLD());
         }
 
         @Override
@@ -298,13 +384,16 @@ public abstract class Host {
 
         // Getters
 
+        /**
+         * @return a copy of the octets of this address, the parsed hosts are shared by the cache
+         */
         public int[] getOctets() {
-            return octets;
+            return octets.clone();
         }
 
         @Override
         public @NotNull String getName() {
-            return getOctets()[0] + "." + getOctets()[1] + "." + getOctets()[2] + "." + getOctets()[3];
+            return octets[0] + "." + octets[1] + "." + octets[2] + "." + octets[3];
         }
 
         // Implementations
@@ -315,11 +404,11 @@ public abstract class Host {
             if (!(object instanceof IPv4)) return false;
             if (!super.equals(object)) return false;
             @NotNull IPv4 iPv4 = (IPv4) object;
-            return Objects.deepEquals(getOctets(), iPv4.getOctets());
+            return Arrays.equals(octets, iPv4.octets);
         }
         @Override
         public int hashCode() {
-            return Objects.hash(super.hashCode(), Arrays.hashCode(getOctets()));
+            return Objects.hash(super.hashCode(), Arrays.hashCode(octets));
         }
 
         @Override
@@ -440,8 +529,11 @@ public abstract class Host {
 
         // Getters
 
+        /**
+         * @return a copy of the groups of this address, the parsed hosts are shared by the cache
+         */
         public short[] getGroups() {
-            return groups;
+            return groups.clone();
         }
 
         @Override
@@ -461,14 +553,14 @@ public abstract class Host {
             @NotNull StringBuilder builder = new StringBuilder();
 
             for (int index = 0; index < 8; index++) {
-                short group = getGroups()[index];
+                short group = groups[index];
 
                 // Generate representation
                 @NotNull String representation = function.apply(group);
                 if (representation.equals("0000")) representation = "0";
 
                 // Zero abbreviation check
-                if (group == 0 && index != 7 && getGroups()[index + 1] == 0) {
+                if (group == 0 && index != 7 && groups[index + 1] == 0) {
                     continue;
                 }
 
@@ -491,11 +583,11 @@ public abstract class Host {
             if (!(object instanceof IPv6)) return false;
             if (!super.equals(object)) return false;
             @NotNull IPv6 iPv6 = (IPv6) object;
-            return Objects.deepEquals(getGroups(), iPv6.getGroups());
+            return Arrays.equals(groups, iPv6.groups);
         }
         @Override
         public int hashCode() {
-            return Objects.hash(super.hashCode(), Arrays.hashCode(getGroups()));
+            return Objects.hash(super.hashCode(), Arrays.hashCode(groups));
         }
 
         @Override
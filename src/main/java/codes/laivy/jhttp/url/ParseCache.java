@@ -0,0 +1,51 @@
+package codes.laivy.jhttp.url;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small concurrent cache of parsed immutable values, keyed by the raw string they were parsed from.
+ *
+ * <p>The servers usually see only a few dozen distinct hosts, so a tiny cache avoids parsing the same values for
+ * every request. The cache is bounded: when it reaches the capacity it's simply cleared, this way a client
+ * sending random values cannot make it grow, and the common values are cached again right after.</p>
+ *
+ * @param <T> the type of the parsed values
+ */
+final class ParseCache<T> {
+
+    // Object
+
+    private final @NotNull Map<String, T> map;
+    private final int capacity;
+
+    ParseCache(int capacity) {
+        this.map = new ConcurrentHashMap<>(capacity);
+        this.capacity = capacity;
+    }
+
+    // Modules
+
+    @Nullable T get(@NotNull String key) {
+        return map.get(key);
+    }
+    boolean contains(@NotNull String key) {
+        return map.containsKey(key);
+    }
+
+    @NotNull T put(@NotNull String key, @NotNull T value) {
+        if (key.length() > 255) {
+            // Too long to be a common value, do not cache it
+            return value;
+        } else if (map.size() >= capacity) {
+            map.clear();
+        }
+
+        map.put(key, value);
+        return value;
+    }
+
+}
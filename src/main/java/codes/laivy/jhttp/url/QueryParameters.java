@@ -0,0 +1,388 @@
+package codes.laivy.jhttp.url;
+
+import codes.laivy.jhttp.utilities.StringUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+
+/**
+ * Represents the parameters of a query string ({@code name=value&other=value}) as an immutable index.
+ *
+ * <p>The index is built once in a single pass over the raw query, and only stores the offsets of each name and
+ * value into the raw string. Names are stored into a compact open-addressing hash table of integers (there's no
+ * {@link Map.Entry} per parameter), and repeated names are kept and linked in the order they appear at the query.
+ * Values are only percent-decoded (with '+' as space) when retrieved for the first time.</p>
+ *
+ * <p>Instances of this class are immutable and thread-safe.</p>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class QueryParameters {
+
+    // Static initializers
+
+    private static final @NotNull QueryParameters EMPTY = new QueryParameters("", new int[0], new String[0], new int[0], new int[1]);
+
+    /**
+     * Retrieves an empty query parameters instance.
+     *
+     * @return the empty query parameters
+     */
+    public static @NotNull QueryParameters empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parses the raw (still encoded) query string, without the leading '?' character.
+     *
+     * @param query the raw query string
+     * @return the query parameters index
+     */
+    public static @NotNull QueryParameters parse(@NotNull String query) {
+        return parse(query, 0, query.length());
+    }
+
+    static @NotNull QueryParameters parse(@NotNull String raw, int start, int end) {
+        if (start >= end) {
+            return EMPTY;
+        }
+
+        // Count parameters, to allocate the arrays only once
+        int count = 1;
+        for (int index = start; index < end; index++) {
+            if (raw.charAt(index) == '&') count++;
+        }
+
+        int[] offsets = new int[count * 4];
+        @Nullable String[] names = new String[count];
+        int size = 0;
+
+        int index = start;
+        while (index <= end) {
+            int parameterEnd = raw.indexOf('&', index);
+            if (parameterEnd == -1 || parameterEnd > end) parameterEnd = end;
+
+            // Empty parameters ("a&&b") are ignored
+            if (parameterEnd > index) {
+                int separator = index;
+                while (separator < parameterEnd && raw.charAt(separator) != '=') separator++;
+
+                int offset = size * 4;
+                offsets[offset] = index;
+                offsets[offset + 1] = separator;
+                offsets[offset + 2] = separator == parameterEnd ? parameterEnd : separator + 1;
+                offsets[offset + 3] = parameterEnd;
+
+                // Encoded names are decoded now, since they must be compared decoded
+                if (requiresDecoding(raw, index, separator)) {
+                    names[size] = StringUtils.decode(raw, index, separator, true);
+                }
+
+                size++;
+            }
+
+            index = parameterEnd + 1;
+        }
+
+        if (size == 0) {
+            return EMPTY;
+        } else if (size != count) {
+            offsets = Arrays.copyOf(offsets, size * 4);
+            names = Arrays.copyOf(names, size);
+        }
+
+        // Build the open-addressing table, it stores the index (plus one) of the first parameter with the name
+        int capacity = Integer.highestOneBit(Math.max(size * 2 - 1, 1)) << 1;
+        int[] table = new int[capacity];
+        int[] next = new int[size];
+        int[] last = new int[size];
+
+        for (int parameter = 0; parameter < size; parameter++) {
+            next[parameter] = -1;
+            int hash = hash(raw, offsets, names, parameter);
+
+            for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+                int first = table[slot] - 1;
+
+                if (first == -1) {
+                    table[slot] = parameter + 1;
+                    last[parameter] = parameter;
+                    break;
+                } else if (equals(raw, offsets, names, first, parameter)) {
+                    // Repeated name, link at the end of the chain
+                    next[last[first]] = parameter;
+                    last[first] = parameter;
+                    break;
+                }
+            }
+        }
+
+        return new QueryParameters(raw, offsets, names, next, table);
+    }
+
+    private static boolean requiresDecoding(@NotNull String raw, int start, int end) {
+        for (int index = start; index < end; index++) {
+            char c = raw.charAt(index);
+            if (c == '%' || c == '+') return true;
+        }
+
+        return false;
+    }
+    private static int hash(@NotNull String raw, int @NotNull [] offsets, @Nullable String @NotNull [] names, int parameter) {
+        @Nullable String name = names[parameter];
+        if (name != null) return spread(name.hashCode());
+
+        // Same as String#hashCode, without creating the substring
+        int hash = 0;
+        for (int index = offsets[parameter * 4]; index < offsets[parameter * 4 + 1]; index++) {
+            hash = 31 * hash + raw.charAt(index);
+        }
+
+        return spread(hash);
+    }
+    private static boolean equals(@NotNull String raw, int @NotNull [] offsets, @Nullable String @NotNull [] names, int first, int second) {
+        @Nullable String name = names[second];
+
+        if (name != null) {
+            return matches(raw, offsets, names, first, name);
+        } else {
+            int start = offsets[second * 4];
+            return matches(raw, offsets, names, first, raw, start, offsets[second * 4 + 1] - start);
+        }
+    }
+    private static boolean matches(@NotNull String raw, int @NotNull [] offsets, @Nullable String @NotNull [] names, int parameter, @NotNull String name) {
+        return matches(raw, offsets, names, parameter, name, 0, name.length());
+    }
+    private static boolean matches(@NotNull String raw, int @NotNull [] offsets, @Nullable String @NotNull [] names, int parameter, @NotNull String other, int start, int length) {
+        @Nullable String name = names[parameter];
+
+        if (name != null) {
+            return name.length() == length && name.regionMatches(0, other, start, length);
+        } else {
+            int nameStart = offsets[parameter * 4];
+            return offsets[parameter * 4 + 1] - nameStart == length && raw.regionMatches(nameStart, other, start, length);
+        }
+    }
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Object
+
+    private final @NotNull String raw;
+
+    // Four offsets per parameter: name start, name end, value start and value end
+    private final int @NotNull [] offsets;
+    // Decoded names, only present for the names that have escapes
+    private final @Nullable String @NotNull [] names;
+    // The next parameter with the same name, or -1
+    private final int @NotNull [] next;
+    // Open-addressing table with the index (plus one) of the first parameter of each name, 0 is an empty slot
+    private final int @NotNull [] table;
+
+    // Lazy views
+    private final @Nullable String @NotNull [] values;
+    private volatile @Nullable Map<String, String> map;
+
+    private QueryParameters(@NotNull String raw, int @NotNull [] offsets, @Nullable String @NotNull [] names, int @NotNull [] next, int @NotNull [] table) {
+        this.raw = raw;
+        this.offsets = offsets;
+        this.names = names;
+        this.next = next;
+        this.table = table;
+        this.values = new String[names.length];
+    }
+
+    // Getters
+
+    /**
+     * Retrieves the number of parameters, including the repeated names.
+     *
+     * @return the number of parameters
+     */
+    @Contract(pure = true)
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Checks if there's no parameters.
+     *
+     * @return {@code true} if there's no parameters, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    /**
+     * Retrieves the decoded name of the parameter at the index, in the order they appear at the query.
+     *
+     * @param index the index of the parameter
+     * @return the decoded name of the parameter
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public @NotNull String getName(@Range(from = 0, to = Integer.MAX_VALUE) int index) {
+        @Nullable String name = names[index];
+        return name != null ? name : raw.substring(offsets[index * 4], offsets[index * 4 + 1]);
+    }
+
+    /**
+     * Retrieves the decoded value of the parameter at the index, in the order they appear at the query.
+     * Parameters without value ({@code ?flag}) have an empty value.
+     *
+     * @param index the index of the parameter
+     * @return the decoded value of the parameter
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public @NotNull String getValue(@Range(from = 0, to = Integer.MAX_VALUE) int index) {
+        @Nullable String value = values[index];
+
+        if (value == null) {
+            values[index] = value = StringUtils.decode(raw, offsets[index * 4 + 2], offsets[index * 4 + 3], true);
+        }
+
+        return value;
+    }
+
+    // Modules
+
+    /**
+     * Checks if there's at least one parameter with the name.
+     *
+     * @param name the decoded name of the parameter
+     * @return {@code true} if the parameter exists, {@code false} otherwise
+     */
+    public boolean contains(@NotNull String name) {
+        return first(name) != -1;
+    }
+
+    /**
+     * Retrieves the value of the first parameter with the name.
+     *
+     * @param name the decoded name of the parameter
+     * @return the decoded value, or null if there's no parameter with that name
+     */
+    public @Nullable String get(@NotNull String name) {
+        int index = first(name);
+        return index == -1 ? null : getValue(index);
+    }
+
+    /**
+     * Retrieves the values of all the parameters with the name, in the order they appear at the query.
+     *
+     * @param name the decoded name of the parameter
+     * @return the decoded values, or an empty list if there's no parameter with that name
+     */
+    public @Unmodifiable @NotNull List<String> getAll(@NotNull String name) {
+        int index = first(name);
+
+        if (index == -1) {
+            return Collections.emptyList();
+        } else if (next[index] == -1) {
+            return Collections.singletonList(getValue(index));
+        }
+
+        @NotNull List<String> list = new ArrayList<>();
+        for (; index != -1; index = next[index]) {
+            list.add(getValue(index));
+        }
+
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Retrieves the distinct decoded names of the parameters, in the order they first appear at the query.
+     *
+     * @return the parameter names
+     */
+    public @Unmodifiable @NotNull Set<String> names() {
+        return toMap().keySet();
+    }
+
+    /**
+     * Retrieves a map view of the parameters with the value of the first parameter of each name. The map is
+     * created only once and keeps the order of the query.
+     *
+     * @return an unmodifiable map of the parameters
+     */
+    public @Unmodifiable @NotNull Map<String, String> toMap() {
+        @Nullable Map<String, String> map = this.map;
+
+        if (map == null) {
+            @NotNull Map<String, String> created = new LinkedHashMap<>();
+
+            for (int index = 0; index < size(); index++) {
+                created.putIfAbsent(getName(index), getValue(index));
+            }
+
+            this.map = map = Collections.unmodifiableMap(created);
+        }
+
+        return map;
+    }
+
+    private int first(@NotNull String name) {
+        if (table.length == 0) {
+            return -1;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = spread(name.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+
+            if (index == -1) {
+                return -1;
+            } else if (matches(raw, offsets, names, index, name)) {
+                return index;
+            }
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (!(object instanceof QueryParameters)) return false;
+        @NotNull QueryParameters that = (QueryParameters) object;
+
+        if (size() != that.size()) return false;
+        for (int index = 0; index < size(); index++) {
+            if (!getName(index).equals(that.getName(index)) || !getValue(index).equals(that.getValue(index))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+    @Override
+    public int hashCode() {
+        int hash = 1;
+
+        for (int index = 0; index < size(); index++) {
+            hash = 31 * hash + getName(index).hashCode();
+            hash = 31 * hash + getValue(index).hashCode();
+        }
+
+        return hash;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        @NotNull StringBuilder builder = new StringBuilder();
+
+        for (int index = 0; index < size(); index++) {
+            if (index > 0) builder.append('&');
+            builder.append(raw, offsets[index * 4], offsets[index * 4 + 3]);
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,504 @@
+package codes.laivy.jhttp.url;
+
+import codes.laivy.jhttp.utilities.StringUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Objects;
+
+/**
+ * Represents the request-target of an HTTP request line, as specified at the RFC 9112 (section 3.2).
+ *
+ * <p>The target is parsed in a single pass over the raw string, and only the offsets of each component
+ * (authority, path, query and fragment) are recorded. Nothing is decoded at parse time: the path segments are
+ * percent-decoded individually and lazily when requested, which also means that an encoded slash ({@code %2F})
+ * never splits a segment. A {@link URI} view is only created (and then cached) if someone calls {@link #toURI()}.</p>
+ *
+ * <p>All the four request-target forms are supported:</p>
+ * <ul>
+ *   <li>{@link Form#ORIGIN}: {@code /where?q=now}</li>
+ *   <li>{@link Form#ABSOLUTE}: {@code http://www.example.org/pub/WWW/TheProject.html}</li>
+ *   <li>{@link Form#AUTHORITY}: {@code www.example.com:80} (used by CONNECT requests)</li>
+ *   <li>{@link Form#ASTERISK}: {@code *} (used by server-wide OPTIONS requests)</li>
+ * </ul>
+ *
+ * <p>Instances of this class are immutable and thread-safe.</p>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class RequestTarget {
+
+    // Static initializers
+
+    private static final @NotNull RequestTarget ASTERISK = new RequestTarget("*", Form.ASTERISK, -1, -1, 0, 0, -1, -1, -1);
+
+    /**
+     * Checks if the string can be parsed as a valid request target.
+     *
+     * @param string the string to validate
+     * @return {@code true} if the string is a valid request target, {@code false} otherwise
+     */
+    public static boolean validate(@NotNull String string) {
+        try {
+            parse(string);
+            return true;
+        } catch (@NotNull URISyntaxException ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses the request target from the raw request line value.
+     *
+     * @param string the raw request target
+     * @return the request target
+     * @throws URISyntaxException if the string isn't a valid request target
+     */
+    public static @NotNull RequestTarget parse(@NotNull String string) throws URISyntaxException {
+        int length = string.length();
+
+        if (length == 0) {
+            throw new URISyntaxException(string, "empty request target");
+        } else if (length == 1 && string.charAt(0) == '*') {
+            return ASTERISK;
+        }
+
+        // Check illegal characters (controls, whitespaces and non-ascii characters)
+        for (int index = 0; index < length; index++) {
+            char c = string.charAt(index);
+
+            if (c <= ' ' || c >= 0x7F) {
+                throw new URISyntaxException(string, "illegal character at request target", index);
+            }
+        }
+
+        @NotNull Form form;
+        int authorityStart = -1;
+        int authorityEnd = -1;
+        int pathStart;
+
+        if (string.charAt(0) == '/') {
+            form = Form.ORIGIN;
+            pathStart = 0;
+        } else {
+            // Scheme
+            int scheme = scheme(string);
+            authorityStart = scheme == -1 ? 0 : scheme + 3;
+
+            // Authority ends at the first '/', '?' or '#'
+            authorityEnd = authorityStart;
+            while (authorityEnd < length) {
+                char c = string.charAt(authorityEnd);
+                if (c == '/' || c == '?' || c == '#') break;
+                authorityEnd++;
+            }
+
+            if (authorityEnd == authorityStart && scheme == -1) {
+                throw new URISyntaxException(string, "missing authority at request target", 0);
+            }
+
+            // A scheme-less target with a path is still accepted as an absolute form, as the previous
+            // parser did, but a target without scheme and without path is an authority form.
+            form = scheme == -1 && authorityEnd == length ? Form.AUTHORITY : Form.ABSOLUTE;
+            pathStart = authorityEnd;
+        }
+
+        // Path, query and fragment
+        int queryStart = -1;
+        int fragmentStart = -1;
+        int pathEnd = length;
+
+        for (int index = pathStart; index < length; index++) {
+            char c = string.charAt(index);
+
+            if (c == '?' && queryStart == -1) {
+                pathEnd = index;
+                queryStart = index + 1;
+            } else if (c == '#') {
+                if (queryStart == -1) pathEnd = index;
+                fragmentStart = index + 1;
+                break;
+            }
+        }
+
+        return new RequestTarget(string, form, authorityStart, authorityEnd, pathStart, pathEnd, queryStart, queryStart == -1 ? -1 : (fragmentStart == -1 ? length : fragmentStart - 1), fragmentStart);
+    }
+
+    /**
+     * Creates a request target from an already existent {@link URI}. The uri will be used as the
+     * {@link #toURI()} view, so it will not be created again.
+     *
+     * @param uri the uri of the request target
+     * @return the request target of the uri
+     * @throws IllegalArgumentException if the uri cannot be represented as a request target
+     */
+    public static @NotNull RequestTarget create(@NotNull URI uri) {
+        try {
+            @NotNull RequestTarget target = parse(uri.toASCIIString().isEmpty() ? "/" : uri.toASCIIString());
+            target.uri = uri;
+
+            return target;
+        } catch (@NotNull URISyntaxException e) {
+            throw new IllegalArgumentException("cannot create a request target from uri '" + uri + "'", e);
+        }
+    }
+
+    /**
+     * Returns the index of the "://" separator, or -1 if the string doesn't start with a valid scheme
+     */
+    private static int scheme(@NotNull String string) {
+        int length = string.length();
+
+        for (int index = 0; index < length; index++) {
+            char c = string.charAt(index);
+
+            if (c == ':') {
+                return index > 0 && string.startsWith("//", index + 1) ? index : -1;
+            } else if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(index > 0 && ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'))) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    // Object
+
+    private final @NotNull String raw;
+    private final @NotNull Form form;
+
+    private final int authorityStart;
+    private final int authorityEnd;
+    private final int pathStart;
+    private final int pathEnd;
+    private final int queryStart;
+    private final int queryEnd;
+    private final int fragmentStart;
+
+    // Lazy views
+    private volatile @Nullable String path;
+    private volatile int @Nullable [] segments;
+    private volatile @Nullable String @Nullable [] decoded;
+    private volatile @Nullable URI uri;
+    private volatile @Nullable QueryParameters parameters;
+
+    private RequestTarget(@NotNull String raw, @NotNull Form form, int authorityStart, int authorityEnd, int pathStart, int pathEnd, int queryStart, int queryEnd, int fragmentStart) {
+        this.raw = raw;
+        this.form = form;
+        this.authorityStart = authorityStart;
+        this.authorityEnd = authorityEnd;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.fragmentStart = fragmentStart;
+    }
+
+    // Getters
+
+    /**
+     * Retrieves the raw request target exactly as received.
+     *
+     * @return the raw request target
+     */
+    @Contract(pure = true)
+    public @NotNull String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Retrieves the form of this request target
+     *
+     * @return the request target form
+     */
+    @Contract(pure = true)
+    public @NotNull Form getForm() {
+        return form;
+    }
+
+    /**
+     * Retrieves the scheme of this request target ("http" or "https" as example), it's only present
+     * at the {@link Form#ABSOLUTE} form.
+     *
+     * @return the scheme of this target or null if there's no scheme
+     */
+    public @Nullable String getScheme() {
+        return authorityStart > 0 ? raw.substring(0, authorityStart - 3) : null;
+    }
+
+    /**
+     * Retrieves the raw scheme and authority of this request target ("http://user@example.com:8080" as example),
+     * it's only present at the {@link Form#ABSOLUTE} and {@link Form#AUTHORITY} forms.
+     *
+     * @return the raw authority of this target or null if there's no authority
+     */
+    public @Nullable String getRawAuthority() {
+        return authorityEnd == -1 ? null : raw.substring(0, authorityEnd);
+    }
+
+    /**
+     * Retrieves the raw (still encoded) path of this request target. It's empty at the authority and
+     * asterisk forms, and may be empty at the absolute form.
+     *
+     * @return the raw path
+     */
+    public @NotNull String getRawPath() {
+        return raw.substring(pathStart, pathEnd);
+    }
+
+    /**
+     * Retrieves the decoded path of this request target. Notice that encoded slashes will be decoded too,
+     * use {@link #getSegments()} if they must be distinguished from the path separators.
+     *
+     * @return the decoded path
+     */
+    public @NotNull String getPath() {
+        @Nullable String path = this.path;
+
+        if (path == null) {
+            if (form == Form.ASTERISK) path = "*";
+            else if (pathStart == pathEnd) path = "/";
+            else path = StringUtils.decode(raw, pathStart, pathEnd, false);
+
+            this.path = path;
+        }
+
+        return path;
+    }
+
+    /**
+     * Retrieves the raw (still encoded) query of this request target, without the '?' character.
+     *
+     * @return the raw query or null if there's no query
+     */
+    public @Nullable String getRawQuery() {
+        return queryStart == -1 ? null : raw.substring(queryStart, queryEnd);
+    }
+
+    /**
+     * Retrieves the parameters index of the query. The index is only created once, at the first call.
+     *
+     * @return the query parameters, empty if there's no query
+     */
+    public @NotNull QueryParameters getQueryParameters() {
+        @Nullable QueryParameters parameters = this.parameters;
+
+        if (parameters == null) {
+            parameters = queryStart == -1 ? QueryParameters.empty() : QueryParameters.parse(raw, queryStart, queryEnd);
+            this.parameters = parameters;
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Retrieves the raw fragment of this request target, without the '#' character. Fragments aren't
+     * expected to be sent by the clients but will not be refused.
+     *
+     * @return the raw fragment or null if there's no fragment
+     */
+    public @Nullable String getRawFragment() {
+        return fragmentStart == -1 ? null : raw.substring(fragmentStart);
+    }
+
+    /**
+     * Retrieves the number of path segments of this request target. The path "/a/b/" has three
+     * segments: "a", "b" and "".
+     *
+     * @return the number of path segments
+     */
+    public int getSegmentCount() {
+        return segments().length / 2;
+    }
+
+    /**
+     * Retrieves the decoded path segment at the index. The segments are decoded individually,
+     * so an encoded slash remains inside its segment.
+     *
+     * @param index the index of the segment
+     * @return the decoded segment
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public @NotNull String getSegment(@Range(from = 0, to = Integer.MAX_VALUE) int index) {
+        int[] segments = segments();
+
+        if (index < 0 || index >= segments.length / 2) {
+            throw new IndexOutOfBoundsException("segment index " + index + " out of range");
+        }
+
+        @Nullable String @Nullable [] decoded = this.decoded;
+        if (decoded == null) {
+            this.decoded = decoded = new String[segments.length / 2];
+        }
+
+        @Nullable String segment = decoded[index];
+        if (segment == null) {
+            decoded[index] = segment = StringUtils.decode(raw, segments[index * 2], segments[index * 2 + 1], false);
+        }
+
+        return segment;
+    }
+
+    /**
+     * Retrieves all the decoded path segments.
+     *
+     * @return an array with the decoded segments
+     * @see #getSegment(int)
+     */
+    public @NotNull String @NotNull [] getSegments() {
+        @NotNull String[] array = new String[getSegmentCount()];
+
+        for (int index = 0; index < array.length; index++) {
+            array[index] = getSegment(index);
+        }
+
+        return array;
+    }
+
+    private int @NotNull [] segments() {
+        int @Nullable [] segments = this.segments;
+
+        if (segments == null) {
+            if (pathStart == pathEnd || form == Form.ASTERISK) {
+                segments = new int[0];
+            } else {
+                int count = 0;
+                for (int index = pathStart; index < pathEnd; index++) {
+                    if (raw.charAt(index) == '/') count++;
+                }
+
+                // Paths always start with '/', each slash opens a new segment
+                segments = new int[count * 2];
+                int current = 0;
+
+                for (int index = pathStart; index < pathEnd; index++) {
+                    if (raw.charAt(index) == '/') {
+                        if (current > 0) segments[current - 1] = index;
+                        segments[current] = index + 1;
+                        current += 2;
+                    }
+                }
+
+                segments[segments.length - 1] = pathEnd;
+            }
+
+            this.segments = segments;
+        }
+
+        return segments;
+    }
+
+    // Modules
+
+    /**
+     * Retrieves the origin-form representation of this target: the raw path (or "/" if empty) followed by the
+     * raw query, if present. This is the representation that should be written in a request line when the
+     * authority is informed separately.
+     *
+     * @return the origin-form of this request target
+     */
+    public @NotNull String toOriginForm() {
+        if (form == Form.ASTERISK) {
+            return "*";
+        } else if (pathStart == 0 && (fragmentStart == -1)) {
+            return raw;
+        }
+
+        @NotNull StringBuilder builder = new StringBuilder();
+        if (pathStart == pathEnd) builder.append('/');
+        else builder.append(raw, pathStart, pathEnd);
+
+        if (queryStart != -1) {
+            builder.append('?').append(raw, queryStart, queryEnd);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Creates (or retrieves the cached) {@link URI} view of this request target. The uri only contains the
+     * origin-form of the target, and the fragment if present. The authority of the absolute form is represented by
+     * the {@link URIAuthority} class.
+     *
+     * @return the uri view of this request target
+     * @throws IllegalStateException if the target cannot be represented as an uri
+     */
+    public @NotNull URI toURI() {
+        @Nullable URI uri = this.uri;
+
+        if (uri == null) try {
+            @NotNull String string = toOriginForm();
+            if (fragmentStart != -1) string += "#" + getRawFragment();
+
+            this.uri = uri = new URI(string);
+        } catch (@NotNull URISyntaxException e) {
+            throw new IllegalStateException("cannot create an uri view of request target '" + raw + "'", e);
+        }
+
+        return uri;
+    }
+
+    // Implementations
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (this == object) return true;
+        if (!(object instanceof RequestTarget)) return false;
+        @NotNull RequestTarget that = (RequestTarget) object;
+        return raw.equals(that.raw);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(raw);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return raw;
+    }
+
+    // Classes
+
+    /**
+     * The four forms a request target can have.
+     */
+    public enum Form {
+
+        /**
+         * The most common form, an absolute path followed by an optional query: {@code /where?q=now}
+         */
+        ORIGIN,
+
+        /**
+         * An absolute uri, mostly used when the request is made to a proxy: {@code http://example.com/index}
+         */
+        ABSOLUTE,
+
+        /**
+         * Only the authority (host and port) of the target, used by the CONNECT requests: {@code example.com:443}
+         */
+        AUTHORITY,
+
+        /**
+         * The single asterisk, used by server-wide OPTIONS requests: {@code *}
+         */
+        ASTERISK,
+        ;
+
+        /**
+         * Checks if this form contains an authority component.
+         *
+         * @return {@code true} if this form has an authority, {@code false} otherwise
+         */
+        public boolean hasAuthority() {
+            return this == ABSOLUTE || this == AUTHORITY;
+        }
+
+    }
+
+}
@@ -20,11 +20,16 @@ public final class URIAuthority {
     @ApiStatus.Internal
     public static final @NotNull Pattern PARSE_PATTERN = Pattern.compile("^(https?://)?(([^:@]*:[^@]*)@)?([^:/]*)(:[0-9]+)?(/.*)?$");
 
+    private static final @NotNull ParseCache<URIAuthority> CACHE = new ParseCache<>(128);
+
     public static boolean validate(@NotNull String uri) {
         return PARSE_PATTERN.matcher(uri).matches();
     }
 
     public static @NotNull URIAuthority parse(@NotNull String string) throws URISyntaxException {
+        @Nullable URIAuthority cached = CACHE.get(string);
+        if (cached != null) return cached;
+
         @Nullable Basic userInfo = null;
         @NotNull String hostName;
         int port;
@@ -48,7 +53,8 @@ public final class URIAuthority {
                 throw new URISyntaxException(string, "invalid user info information", matcher.start(4));
             }
 
-            hostName = IDN.toASCII(hostGroup);
+            // Only international names must be converted, the ascii ones are already in the expected form
+            hostName = isAscii(hostGroup) ? hostGroup : IDN.toASCII(hostGroup);
 
             if (matcher.group(5) != null) {
                 port = Integer.parseInt(matcher.group(5).substring(1));
@@ -65,7 +71,18 @@ public final class URIAuthority {
             throw new URISyntaxException(string, "cannot parse into a valid uri authority", -1);
         }
 
-        return new URIAuthority(userInfo, InetSocketAddress.createUnresolved(hostName, port));
+        @NotNull URIAuthority authority = new URIAuthority(userInfo, InetSocketAddress.createUnresolved(hostName, port));
+
+        // Credentials can be flushed and mustn't be kept in memory, so authorities with user info are never shared
+        return userInfo == null ? CACHE.put(string, authority) : authority;
+    }
+
+    private static boolean isAscii(@NotNull String string) {
+        for (int index = 0; index < string.length(); index++) {
+            if (string.charAt(index) >= 0x80) return false;
+        }
+
+        return true;
     }
 
     public static @NotNull URIAuthority create(@NotNull Basic userInfo, @NotNull InetSocketAddress address) {
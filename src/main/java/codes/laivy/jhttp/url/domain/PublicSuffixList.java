@@ -0,0 +1,352 @@
+package codes.laivy.jhttp.url.domain;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents the <a href="https://publicsuffix.org/">Public Suffix List</a>, used to find the public suffix
+ * ("com", "co.uk", "github.io") and the registrable domain ("example.co.uk") of a host name.
+ *
+ * <p>The rules are stored in a compact trie of reversed labels: each node only has its label, the index of its
+ * first child, the number of children and the rule flags, all of them stored at plain arrays. The children of a node
+ * are sorted, so a lookup walks the host name labels from right to left doing a binary search at each level.
+ * It takes O(labels) steps and doesn't allocate anything, the labels are compared directly against the host name.</p>
+ *
+ * <p>The default list is a snapshot of the Public Suffix List bundled with JHTTP, it's only loaded at the first
+ * {@link #getDefault()} call. The international rules are stored in their ASCII (punycode) form, so the host names
+ * must be in ASCII too. The implicit "*" rule is always applied, so an unlisted TLD is still a public suffix.</p>
+ *
+ * <p>Instances of this class are immutable and thread-safe.</p>
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class PublicSuffixList {
+
+    // Static initializers
+
+    private static final byte RULE = 1;
+    private static final byte WILDCARD = 2;
+    private static final byte EXCEPTION = 4;
+
+    private static final int ROOT = 0;
+
+    /**
+     * Retrieves the bundled Public Suffix List snapshot. If the snapshot isn't available, a list without rules is
+     * returned, which only applies the implicit "*" rule (the last label is the public suffix).
+     *
+     * @return the default public suffix list
+     */
+    public static @NotNull PublicSuffixList getDefault() {
+        return Default.INSTANCE;
+    }
+
+    /**
+     * Reads a list in the Public Suffix List format (one rule per line, "//" comments).
+     *
+     * @param reader the reader of the list
+     * @return the public suffix list
+     * @throws IOException if an I/O error occurs reading the list
+     */
+    public static @NotNull PublicSuffixList read(@NotNull Reader reader) throws IOException {
+        @NotNull Node root = new Node("");
+        @NotNull BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        @Nullable String line;
+
+        while ((line = buffered.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("//")) continue;
+
+            // Only the first token is the rule
+            int space = line.indexOf(' ');
+            @NotNull String rule = space == -1 ? line : line.substring(0, space);
+
+            byte flag = RULE;
+            if (rule.startsWith("!")) {
+                flag = EXCEPTION;
+                rule = rule.substring(1);
+            } else if (rule.startsWith("*.")) {
+                flag = WILDCARD;
+                rule = rule.substring(2);
+            }
+
+            if (!isAscii(rule)) try {
+                rule = IDN.toASCII(rule, IDN.ALLOW_UNASSIGNED);
+            } catch (@NotNull IllegalArgumentException ignore) {
+                continue;
+            }
+            rule = rule.toLowerCase(Locale.ENGLISH);
+
+            // Walk the reversed labels
+            @NotNull Node node = root;
+            int end = rule.length();
+
+            while (end > 0) {
+                int start = rule.lastIndexOf('.', end - 1) + 1;
+                node = node.children.computeIfAbsent(rule.substring(start, end), Node::new);
+                end = start - 1;
+            }
+
+            node.flags |= flag;
+        }
+
+        return new PublicSuffixList(root);
+    }
+
+    // Object
+
+    private final @NotNull String @NotNull [] labels;
+    private final int @NotNull [] children;
+    private final int @NotNull [] counts;
+    private final byte @NotNull [] flags;
+
+    private PublicSuffixList(@NotNull Node root) {
+        int size = root.size();
+
+        this.labels = new String[size];
+        this.children = new int[size];
+        this.counts = new int[size];
+        this.flags = new byte[size];
+
+        // Flatten the nodes breadth-first, this way the children of each node are contiguous (and sorted)
+        @NotNull Deque<Node> queue = new ArrayDeque<>();
+        @NotNull Deque<Integer> indexes = new ArrayDeque<>();
+        queue.add(root);
+        indexes.add(ROOT);
+        labels[ROOT] = root.label;
+
+        int next = 1;
+        while (!queue.isEmpty()) {
+            @NotNull Node node = queue.poll();
+            int index = indexes.poll();
+
+            flags[index] = node.flags;
+            children[index] = next;
+            counts[index] = node.children.size();
+
+            for (@NotNull Node child : node.children.values()) {
+                labels[next] = child.label;
+                queue.add(child);
+                indexes.add(next);
+                next++;
+            }
+        }
+    }
+
+    // Getters
+
+    /**
+     * Retrieves the number of rules of this list
+     *
+     * @return the number of rules
+     */
+    public int size() {
+        int size = 0;
+        for (byte flag : flags) {
+            size += Integer.bitCount(flag);
+        }
+
+        return size;
+    }
+
+    // Modules
+
+    /**
+     * Retrieves the index where the public suffix of the host name starts. The name "www.example.co.uk"
+     * returns the index of "co.uk", and a name that is itself a public suffix returns 0.
+     *
+     * @param name the ascii host name, without port
+     * @return the start index of the public suffix, or -1 if the name has empty labels
+     */
+    public int getPublicSuffixIndex(@NotNull CharSequence name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '.') end--;
+        if (end == 0) return -1;
+
+        int node = ROOT;
+        int result = -1;
+        int labelEnd = end;
+
+        while (true) {
+            int labelStart = labelEnd - 1;
+            while (labelStart >= 0 && name.charAt(labelStart) != '.') labelStart--;
+            labelStart++;
+
+            if (labelStart == labelEnd) {
+                return -1;
+            } else if (result == -1) {
+                // The implicit "*" rule
+                result = labelStart;
+            }
+
+            int child = find(node, name, labelStart, labelEnd);
+
+            if ((flags[node] & WILDCARD) != 0) {
+                if (child != -1 && (flags[child] & EXCEPTION) != 0) {
+                    // Exception rules always prevail, the suffix is the parent
+                    return labelEnd + 1;
+                }
+
+                result = labelStart;
+            }
+
+            if (child == -1) {
+                break;
+            } else if ((flags[child] & RULE) != 0) {
+                result = labelStart;
+            }
+
+            if (labelStart == 0) break;
+
+            node = child;
+            labelEnd = labelStart - 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the index where the registrable domain (the public suffix plus one label) of the host
+     * name starts. The name "www.example.co.uk" returns the index of "example.co.uk".
+     *
+     * @param name the ascii host name, without port
+     * @return the start index of the registrable domain, or -1 if the name is a public suffix or has empty labels
+     */
+    public int getRegistrableDomainIndex(@NotNull CharSequence name) {
+        int suffix = getPublicSuffixIndex(name);
+        if (suffix <= 0) return -1;
+
+        int start = suffix - 2;
+        while (start >= 0 && name.charAt(start) != '.') start--;
+        start++;
+
+        return start == suffix - 1 ? -1 : start;
+    }
+
+    /**
+     * Retrieves the public suffix of the host name, "co.uk" for "www.example.co.uk" as example.
+     *
+     * @param name the ascii host name, without port
+     * @return the public suffix, or null if the name has empty labels
+     */
+    public @Nullable String getPublicSuffix(@NotNull String name) {
+        int index = getPublicSuffixIndex(name);
+        return index == -1 ? null : trim(name, index);
+    }
+
+    /**
+     * Retrieves the registrable domain of the host name, "example.co.uk" for "www.example.co.uk" as example.
+     *
+     * @param name the ascii host name, without port
+     * @return the registrable domain, or null if the name is a public suffix or has empty labels
+     */
+    public @Nullable String getRegistrableDomain(@NotNull String name) {
+        int index = getRegistrableDomainIndex(name);
+        return index == -1 ? null : trim(name, index);
+    }
+
+    /**
+     * Checks if the host name is itself a public suffix ("co.uk" or "github.io" as example). Cookies
+     * must not be scoped to public suffixes.
+     *
+     * @param name the ascii host name, without port
+     * @return {@code true} if the name is a public suffix, {@code false} otherwise
+     */
+    public boolean isPublicSuffix(@NotNull CharSequence name) {
+        return getPublicSuffixIndex(name) == 0;
+    }
+
+    private static boolean isAscii(@NotNull String string) {
+        for (int index = 0; index < string.length(); index++) {
+            if (string.charAt(index) >= 0x80) return false;
+        }
+
+        return true;
+    }
+    private static @NotNull String trim(@NotNull String name, int start) {
+        return name.endsWith(".") ? name.substring(start, name.length() - 1) : name.substring(start);
+    }
+
+    private int find(int node, @NotNull CharSequence name, int start, int end) {
+        int low = children[node];
+        int high = low + counts[node] - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compare(labels[middle], name, start, end);
+
+            if (compare < 0) low = middle + 1;
+            else if (compare > 0) high = middle - 1;
+            else return middle;
+        }
+
+        return -1;
+    }
+    private static int compare(@NotNull String label, @NotNull CharSequence name, int start, int end) {
+        int length = end - start;
+        int min = Math.min(label.length(), length);
+
+        for (int index = 0; index < min; index++) {
+            char a = label.charAt(index);
+            char b = name.charAt(start + index);
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+
+            if (a != b) return a - b;
+        }
+
+        return label.length() - length;
+    }
+
+    // Classes
+
+    private static final class Node {
+
+        private final @NotNull String label;
+        private final @NotNull Map<String, Node> children = new TreeMap<>();
+        private byte flags;
+
+        private Node(@NotNull String label) {
+            this.label = label;
+        }
+
+        private int size() {
+            int size = 1;
+            for (@NotNull Node child : children.values()) size += child.size();
+            return size;
+        }
+
+    }
+
+    private static final class Default {
+
+        private static final @NotNull PublicSuffixList INSTANCE;
+
+        static {
+            try (@Nullable InputStream stream = PublicSuffixList.class.getResourceAsStream("public_suffix_list.dat")) {
+                if (stream != null) {
+                    INSTANCE = read(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                } else {
+                    INSTANCE = new PublicSuffixList(new Node(""));
+                }
+            } catch (@NotNull IOException e) {
+                throw new UncheckedIOException("cannot read the bundled public suffix list", e);
+            }
+        }
+
+    }
+
+}
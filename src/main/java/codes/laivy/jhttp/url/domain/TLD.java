@@ -12,15 +12,19 @@ import java.util.Objects;
  * "com" is the TLD. TLDs are used to classify domains into different categories such as generic top-level domains (gTLDs)
  * and country code top-level domains (ccTLDs).</p>
  *
+ * <p>When parsed from a host name, the TLD is the public suffix of the name according to the {@link PublicSuffixList},
+ * so it may have more than one label: in the domain name "example.co.uk", "co.uk" is the TLD.</p>
+ *
  * <p>This class enforces that the TLD follows these rules:</p>
  * <ul>
- *   <li>Must consist of only alphabetic characters (A-Z, case insensitive).</li>
- *   <li>Must be between 2 and 6 characters in length.</li>
+ *   <li>Each label must consist of alphanumeric characters and hyphens, not starting or ending with a hyphen.</li>
+ *   <li>Each label must be between 1 and 63 characters in length.</li>
+ *   <li>The last label must not be numeric.</li>
  * </ul>
  *
  * <p>Instances of this class are immutable and thread-safe.</p>
  *
- * <p>Examples of valid TLDs include "com", "net", "org", and "uk". Examples of invalid TLDs include "com1", "c", and "toolong".</p>
+ * <p>Examples of valid TLDs include "com", "net", "co.uk", "github.io" and "xn--p1ai". Examples of invalid TLDs include "123", "-com", and "co..uk".</p>
  *
  * <p>Usage:</p>
  * <pre>
@@ -47,7 +51,32 @@ public final class TLD implements CharSequence {
      * @return {@code true} if the string is a valid TLD, {@code false} otherwise
      */
     public static boolean validate(@NotNull String string) {
-        return string.matches("^[A-Za-z]{2,6}$");
+        int length = string.length();
+        int start = 0;
+        boolean numeric = true;
+
+        for (int index = 0; index <= length; index++) {
+            char c = index == length ? '.' : string.charAt(index);
+
+            if (c == '.') {
+                // Label bounds
+                if (index == start || index - start > 63 || string.charAt(start) == '-' || string.charAt(index - 1) == '-') {
+                    return false;
+                } else if (index == length && numeric) {
+                    // The last label cannot be numeric, it would be an ip address
+                    return false;
+                }
+
+                start = index + 1;
+                numeric = true;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-') {
+                numeric = false;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
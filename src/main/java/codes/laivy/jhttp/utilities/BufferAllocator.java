@@ -0,0 +1,529 @@
+package codes.laivy.jhttp.utilities;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Allocates the short-lived buffers used to parse, store and write the HTTP messages, reusing them instead of
+ * creating a new array every time.
+ * <p>
+ * The buffers are grouped by size classes, the powers of two from 512 bytes to 1 megabyte, and every request is
+ * rounded up to its class. The released buffers are kept first at a cache of the releasing thread, without
+ * contention, and then at a cache shared by all the threads. The thread caches are limited by bytes, so the larger
+ * classes are only kept by the shared cache, and a server with a thread per connection doesn't pin many megabytes
+ * at every thread. The requests greater than the largest class aren't pooled. Heap and direct buffers have
+ * separated caches.
+ * <p>
+ * The caches of all the threads are dropped by {@link #clear()}, and when the allocator stops being the default.
+ * <p>
+ * The leased buffers are reference counted, see {@link PooledBuffer}. With the leak detection enabled (by the
+ * builder or the {@code jhttp.buffers.debug} system property) the allocation stack of every buffer is recorded, and
+ * the buffers collected by the garbage collector without being released are reported to the leak handler.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class BufferAllocator {
+
+    // Static initializers
+
+    private static final int MIN_SHIFT = 9;
+    private static final int MAX_SHIFT = 20;
+    private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    private static volatile @NotNull BufferAllocator def = builder().build();
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the allocator used by the default bodies, factories and encodings
+     */
+    public static @NotNull BufferAllocator getDefault() {
+        return def;
+    }
+    /**
+     * Replaces the default allocator. The previous one stops caching the buffers released, and its caches are
+     * cleared, so the threads don't keep its buffers.
+     *
+     * @param allocator the new default allocator
+     */
+    public static void setDefault(@NotNull BufferAllocator allocator) {
+        @NotNull BufferAllocator previous;
+
+        synchronized (BufferAllocator.class) {
+            previous = def;
+            allocator.retired = false;
+            def = allocator;
+        }
+
+        if (previous != allocator) {
+            previous.retired = true;
+            previous.clear();
+        }
+    }
+
+    /**
+     * @param size the amount of bytes
+     * @return the size class index, or -1 if the size isn't pooled
+     */
+    private static int index(int size) {
+        if (size > (1 << MAX_SHIFT)) return -1;
+        else if (size <= (1 << MIN_SHIFT)) return 0;
+
+        return (32 - Integer.numberOfLeadingZeros(size - 1)) - MIN_SHIFT;
+    }
+
+    // Object
+
+    private final int threadCache;
+    private final long threadCacheBytes;
+    private final int sharedCache;
+    private final boolean leakDetection;
+    private final @Nullable Consumer<Throwable> leakHandler;
+
+    private final @NotNull Arena heap;
+    private final @NotNull Arena direct;
+
+    private final @NotNull ReferenceQueue<PooledBuffer> queue = new ReferenceQueue<>();
+    private final @NotNull Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+    private final @NotNull LongAdder allocations = new LongAdder();
+    private final @NotNull LongAdder reuses = new LongAdder();
+    private final @NotNull LongAdder leaks = new LongAdder();
+    private final @NotNull AtomicLong leased = new AtomicLong();
+
+    // Not the default allocator anymore, the released buffers aren't cached
+    private volatile boolean retired = false;
+
+    private BufferAllocator(int threadCache, long threadCacheBytes, int sharedCache, boolean leakDetection, @Nullable Consumer<Throwable> leakHandler) {
+        this.threadCache = threadCache;
+        this.threadCacheBytes = threadCacheBytes;
+        this.sharedCache = sharedCache;
+        this.leakDetection = leakDetection;
+        this.leakHandler = leakHandler;
+
+        this.heap = new Arena(false);
+        this.direct = new Arena(true);
+    }
+
+    // Getters
+
+    public int getThreadCache() {
+        return threadCache;
+    }
+    public long getThreadCacheBytes() {
+        return threadCacheBytes;
+    }
+    public int getSharedCache() {
+        return sharedCache;
+    }
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * @return the amount of buffers created because the caches were empty
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    /**
+     * @return the amount of buffers reused from the caches
+     */
+    public long getReuses() {
+        return reuses.sum();
+    }
+
+    /**
+     * @return the amount of buffers collected without being released, only counted with the leak detection
+     */
+    public long getLeaks() {
+        return leaks.sum();
+    }
+
+    /**
+     * @return the amount of buffers leased and not released yet
+     */
+    public long getLeased() {
+        return leased.get();
+    }
+
+    // Modules
+
+    /**
+     * Leases a heap buffer, its {@link PooledBuffer#array()} can be used directly by the streams
+     *
+     * @param size the minimum amount of bytes
+     * @return the buffer
+     */
+    public @NotNull PooledBuffer heap(int size) {
+        return allocate(heap, size);
+    }
+
+    /**
+     * Leases a direct (off-heap) buffer, used by the channels without an intermediate copy
+     *
+     * @param size the minimum amount of bytes
+     * @return the buffer
+     */
+    public @NotNull PooledBuffer direct(int size) {
+        return allocate(direct, size);
+    }
+
+    private @NotNull PooledBuffer allocate(@NotNull Arena arena, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("the buffer size cannot be negative");
+        }
+
+        if (leakDetection) poll();
+
+        int index = index(size);
+        @Nullable ByteBuffer buffer = index >= 0 ? arena.poll(index) : null;
+
+        if (buffer != null) {
+            reuses.increment();
+        } else {
+            int capacity = index >= 0 ? 1 << (index + MIN_SHIFT) : size;
+            buffer = arena.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+
+            allocations.increment();
+        }
+
+        @NotNull PooledBuffer pooled = new PooledBuffer(this, buffer, size);
+        leased.incrementAndGet();
+
+        if (leakDetection) {
+            @NotNull Tracker tracker = new Tracker(pooled, queue);
+            trackers.add(tracker);
+            pooled.tracker = tracker;
+        }
+
+        return pooled;
+    }
+
+    /**
+     * Drops the buffers cached by all the threads and the shared caches, they're left to the garbage collector.
+     * The leased buffers aren't affected, and are cached again when released.
+     */
+    public void clear() {
+        heap.clear();
+        direct.clear();
+    }
+
+    /**
+     * Called by the buffer when its last reference is released
+     */
+    void free(@NotNull PooledBuffer pooled, @NotNull ByteBuffer buffer) {
+        leased.decrementAndGet();
+
+        @Nullable Object tracker = pooled.tracker;
+        if (tracker != null) {
+            trackers.remove(tracker);
+            ((Tracker) tracker).clear();
+        }
+
+        int index = index(buffer.capacity());
+        if (!retired && index >= 0 && buffer.capacity() == 1 << (index + MIN_SHIFT)) {
+            (buffer.isDirect() ? direct : heap).offer(index, buffer);
+        }
+    }
+
+    /**
+     * Reports the buffers collected without being released
+     */
+    private void poll() {
+        @Nullable Tracker tracker;
+
+        while ((tracker = (Tracker) queue.poll()) != null) {
+            if (!trackers.remove(tracker) || tracker.references.get() <= 0) {
+                continue;
+            }
+
+            leased.decrementAndGet();
+            leaks.increment();
+
+            if (leakHandler != null) {
+                leakHandler.accept(tracker.allocation);
+            }
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "BufferAllocator{" +
+                "threadCache=" + threadCache +
+                ", threadCacheBytes=" + threadCacheBytes +
+                ", sharedCache=" + sharedCache +
+                ", leakDetection=" + leakDetection +
+                ", allocations=" + getAllocations() +
+                ", reuses=" + getReuses() +
+                ", leased=" + getLeased() +
+                ", leaks=" + getLeaks() +
+                '}';
+    }
+
+    // Classes
+
+    public static final class Builder {
+
+        private int threadCache = 8;
+        private long threadCacheBytes = 256 * 1024;
+        private int sharedCache = 64;
+        private boolean leakDetection = Boolean.getBoolean("jhttp.buffers.debug");
+        private @Nullable Consumer<Throwable> leakHandler = null;
+
+        private Builder() {
+        }
+
+        // Modules
+
+        /**
+         * Sets the maximum amount of buffers of every size class kept by each thread. The default is 8.
+         *
+         * @param threadCache the amount of buffers, zero disables the thread caches
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder threadCache(int threadCache) {
+            if (threadCache < 0) {
+                throw new IllegalArgumentException("the thread cache cannot be negative");
+            }
+
+            this.threadCache = threadCache;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of bytes kept by the cache of each thread, at the heap and direct caches. The
+         * buffers of the larger classes are only kept by the shared caches. The default is 256 KiB.
+         *
+         * @param threadCacheBytes the amount of bytes, zero disables the thread caches
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder threadCacheBytes(long threadCacheBytes) {
+            if (threadCacheBytes < 0) {
+                throw new IllegalArgumentException("the thread cache bytes cannot be negative");
+            }
+
+            this.threadCacheBytes = threadCacheBytes;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of buffers of every size class shared by all the threads. The default is 64.
+         *
+         * @param sharedCache the amount of buffers, zero disables the shared caches
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder sharedCache(int sharedCache) {
+            if (sharedCache < 0) {
+                throw new IllegalArgumentException("the shared cache cannot be negative");
+            }
+
+            this.sharedCache = sharedCache;
+            return this;
+        }
+
+        /**
+         * Enables the leak detection, recording the allocation stack of every buffer. It's expensive, and should
+         * only be used while debugging. The default is the {@code jhttp.buffers.debug} system property.
+         *
+         * @param leakDetection true to detect the leaks
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder leakDetection(boolean leakDetection) {
+            this.leakDetection = leakDetection;
+            return this;
+        }
+
+        /**
+         * Sets the handler of the leaks, it receives an exception with the allocation stack of the leaked buffer.
+         * The default only counts the leaks, see {@link BufferAllocator#getLeaks()}.
+         *
+         * @param leakHandler the leak handler, or null to only count the leaks
+         * @return this builder
+         */
+        @Contract("_->this")
+        public @NotNull Builder leakHandler(@Nullable Consumer<Throwable> leakHandler) {
+            this.leakHandler = leakHandler;
+            return this;
+        }
+
+        // Builder
+
+        public @NotNull BufferAllocator build() {
+            return new BufferAllocator(threadCache, threadCacheBytes, sharedCache, leakDetection, leakHandler);
+        }
+
+    }
+
+    /**
+     * The caches of the heap or direct buffers
+     */
+    private final class Arena {
+
+        private final boolean direct;
+
+        // The caches of every size class, by the class index
+        private final @NotNull List<Queue<ByteBuffer>> shared = new ArrayList<>(CLASSES);
+        private final @NotNull AtomicInteger[] sizes = new AtomicInteger[CLASSES];
+        private final @NotNull ThreadLocal<Local> local = ThreadLocal.withInitial(this::register);
+
+        // The caches of all the threads, so they can be cleared, forgotten when their threads are collected
+        private final @NotNull Set<Reference<Local>> locals = ConcurrentHashMap.newKeySet();
+        private final @NotNull ReferenceQueue<Local> collected = new ReferenceQueue<>();
+
+        private Arena(boolean direct) {
+            this.direct = direct;
+
+            for (int index = 0; index < CLASSES; index++) {
+                shared.add(new ConcurrentLinkedQueue<>());
+                sizes[index] = new AtomicInteger();
+            }
+        }
+
+        private @NotNull Local register() {
+            @Nullable Reference<? extends Local> reference;
+            while ((reference = collected.poll()) != null) {
+                locals.remove(reference);
+            }
+
+            @NotNull Local cache = new Local();
+            locals.add(new WeakReference<>(cache, collected));
+
+            return cache;
+        }
+
+        private @Nullable ByteBuffer poll(int index) {
+            if (threadCache > 0 && threadCacheBytes > 0) {
+                @Nullable ByteBuffer buffer = local.get().poll(index);
+                if (buffer != null) return buffer;
+            }
+
+            @Nullable ByteBuffer buffer = shared.get(index).poll();
+            if (buffer != null) sizes[index].decrementAndGet();
+
+            return buffer;
+        }
+
+        private void offer(int index, @NotNull ByteBuffer buffer) {
+            if (threadCache > 0 && buffer.capacity() <= threadCacheBytes && local.get().offer(index, buffer)) {
+                return;
+            }
+
+            // Reserves a place at the shared cache, the buffer is discarded if it's full
+            int current;
+            do {
+                current = sizes[index].get();
+                if (current >= sharedCache) return;
+            } while (!sizes[index].compareAndSet(current, current + 1));
+
+            shared.get(index).offer(buffer);
+        }
+
+        private void clear() {
+            for (@NotNull Reference<Local> reference : locals) {
+                @Nullable Local cache = reference.get();
+                if (cache != null) cache.clear();
+            }
+
+            for (int index = 0; index < CLASSES; index++) {
+                while (shared.get(index).poll() != null) {
+                    sizes[index].decrementAndGet();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The cache of a thread. It's only locked by other threads to clear it, so its lock is never contended.
+     */
+    private final class Local {
+
+        private final @NotNull List<ArrayDeque<ByteBuffer>> caches = new ArrayList<>(Collections.nCopies(CLASSES, null));
+        private long bytes = 0;
+
+        private synchronized @Nullable ByteBuffer poll(int index) {
+            @Nullable ArrayDeque<ByteBuffer> cache = caches.get(index);
+            @Nullable ByteBuffer buffer = cache != null ? cache.pollLast() : null;
+
+            if (buffer != null) bytes -= buffer.capacity();
+            return buffer;
+        }
+
+        private synchronized boolean offer(int index, @NotNull ByteBuffer buffer) {
+            if (bytes + buffer.capacity() > threadCacheBytes) {
+                return false;
+            }
+
+            @Nullable ArrayDeque<ByteBuffer> cache = caches.get(index);
+
+            if (cache == null) {
+                cache = new ArrayDeque<>(threadCache);
+                caches.set(index, cache);
+            } else if (cache.size() >= threadCache) {
+                return false;
+            }
+
+            cache.addLast(buffer);
+            bytes += buffer.capacity();
+
+            return true;
+        }
+
+        private synchronized void clear() {
+            for (@Nullable ArrayDeque<ByteBuffer> cache : caches) {
+                if (cache != null) cache.clear();
+            }
+
+            bytes = 0;
+        }
+
+    }
+
+    /**
+     * Tracks a buffer with leak detection, it's enqueued when the buffer is collected
+     */
+    private static final class Tracker extends PhantomReference<PooledBuffer> {
+
+        private final @NotNull AtomicInteger references;
+        private final @NotNull Throwable allocation;
+
+        private Tracker(@NotNull PooledBuffer buffer, @NotNull ReferenceQueue<PooledBuffer> queue) {
+            super(buffer, queue);
+
+            this.references = buffer.references;
+            this.allocation = new IllegalStateException("a pooled buffer has been collected without being released, it was allocated at");
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package codes.laivy.jhttp.utilities;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted buffer leased from a {@link BufferAllocator}. It starts with one reference, every
+ * {@link #retain()} adds one and every {@link #release()} removes one. When the last reference is released, the
+ * buffer is given back to the allocator and must not be used anymore.
+ * <p>
+ * The buffer can be used with the try-with-resources, {@link #close()} releases one reference.
+ *
+ * @author Daniel Richard (Laivy)
+ * @since 1.0-SNAPSHOT
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    // Object
+
+    private final @NotNull BufferAllocator allocator;
+    private final @NotNull ByteBuffer buffer;
+    private final int size;
+
+    // It's shared with the leak tracker, which can't reference this buffer
+    final @NotNull AtomicInteger references = new AtomicInteger(1);
+    volatile @Nullable Object tracker;
+
+    PooledBuffer(@NotNull BufferAllocator allocator, @NotNull ByteBuffer buffer, int size) {
+        this.allocator = allocator;
+        this.buffer = buffer;
+        this.size = size;
+
+        buffer.clear().limit(size);
+    }
+
+    // Getters
+
+    /**
+     * @return the amount of bytes requested, the buffer capacity can be greater
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the buffer is off-heap
+     */
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    /**
+     * @return the amount of references of this buffer, zero if it has been released
+     */
+    public int references() {
+        return references.get();
+    }
+
+    /**
+     * Returns the buffer, with the position at zero and the limit at the size requested when leased.
+     *
+     * @return the byte buffer
+     * @throws IllegalStateException if the buffer has been released
+     */
+    public @NotNull ByteBuffer getBuffer() {
+        check();
+        return buffer;
+    }
+
+    /**
+     * Returns the backing array of a heap buffer. The array length can be greater than the size requested.
+     *
+     * @return the backing array
+     * @throws IllegalStateException if the buffer has been released
+     * @throws UnsupportedOperationException if the buffer is direct
+     */
+    public byte @NotNull [] array() {
+        check();
+
+        if (!buffer.hasArray()) {
+            throw new UnsupportedOperationException("a direct buffer doesn't have an array");
+        }
+
+        return buffer.array();
+    }
+
+    // Modules
+
+    /**
+     * Adds a reference to this buffer
+     *
+     * @return this buffer
+     * @throws IllegalStateException if the buffer has been released
+     */
+    @Contract("->this")
+    public @NotNull PooledBuffer retain() {
+        int current;
+
+        do {
+            current = references.get();
+            if (current <= 0) throw new IllegalStateException("this buffer has been released");
+        } while (!references.compareAndSet(current, current + 1));
+
+        return this;
+    }
+
+    /**
+     * Removes a reference from this buffer, giving it back to the allocator if it was the last one
+     *
+     * @return true if the buffer has been given back to the allocator
+     * @throws IllegalStateException if the buffer has already been released
+     */
+    public boolean release() {
+        int current;
+
+        do {
+            current = references.get();
+            if (current <= 0) throw new IllegalStateException("this buffer has already been released");
+        } while (!references.compareAndSet(current, current - 1));
+
+        if (current == 1) {
+            allocator.free(this, buffer);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    private void check() {
+        if (references.get() <= 0) {
+            throw new IllegalStateException("this buffer has been released");
+        }
+    }
+
+    // Implementations
+
+    @Override
+    public @NotNull String toString() {
+        return "PooledBuffer{" +
+                "size=" + size +
+                ", direct=" + isDirect() +
+                ", references=" + references() +
+                '}';
+    }
+
+}
@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -120,6 +121,78 @@ public final class StringUtils {
         }
     }
 
+    /**
+     * Decodes the percent-encoded (RFC 3986) region of a string using UTF-8.
+     *
+     * <p>Unlike {@link java.net.URLDecoder}, this method works over a region of the source string, so callers
+     * can decode a single path segment or query value without creating intermediate substrings. If the region
+     * doesn't contain any escape, the substring is returned directly. Malformed escapes (a '%' that isn't followed
+     * by two hexadecimal digits) are kept as they are instead of failing, since request targets are user input.
+     *
+     * @param string the string containing the encoded region
+     * @param start the start index of the region, inclusive
+     * @param end the end index of the region, exclusive
+     * @param plus if {@code true}, the '+' character is decoded as a space (form encoding)
+     * @return the decoded region
+     *
+     * @author Daniel Richard (Laivy)
+     * @since 1.0-SNAPSHOT
+     */
+    public static @NotNull String decode(@NotNull String string, int start, int end, boolean plus) {
+        int index = start;
+
+        // Fast path: nothing to decode
+        while (index < end) {
+            char c = string.charAt(index);
+            if (c == '%' || (plus && c == '+')) break;
+            index++;
+        }
+
+        if (index == end) {
+            return string.substring(start, end);
+        }
+
+        @NotNull StringBuilder builder = new StringBuilder(end - start);
+        builder.append(string, start, index);
+
+        byte @Nullable [] bytes = null;
+
+        while (index < end) {
+            char c = string.charAt(index);
+
+            if (c == '+' && plus) {
+                builder.append(' ');
+                index++;
+            } else if (c == '%') {
+                // Consecutive escapes are decoded together, they can represent a multibyte character
+                if (bytes == null) bytes = new byte[(end - index) / 3];
+                int count = 0;
+
+                while (index + 2 < end && string.charAt(index) == '%') {
+                    int high = Character.digit(string.charAt(index + 1), 16);
+                    int low = Character.digit(string.charAt(index + 2), 16);
+                    if (high == -1 || low == -1) break;
+
+                    bytes[count++] = (byte) ((high << 4) | low);
+                    index += 3;
+                }
+
+                if (count > 0) {
+                    builder.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+                } else {
+                    // Malformed escape
+                    builder.append('%');
+                    index++;
+                }
+            } else {
+                builder.append(c);
+                index++;
+            }
+        }
+
+        return builder.toString();
+    }
+
     public static @NotNull Map<String, String> readQueryParams(@NotNull URI uri) {
         @NotNull Map<String, String> map = new LinkedHashMap<>();
         @Nullable String query = uri.getQuery();
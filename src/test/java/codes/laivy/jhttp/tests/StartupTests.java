@@ -0,0 +1,163 @@
+package codes.laivy.jhttp.tests;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+/**
+ * The registries (versions, header keys and status) are loaded by a fresh class loader at every test, so the
+ * class initialization happens again, as it happens at the short-lived applications, and the deferred parts can
+ * be observed.
+ */
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class StartupTests {
+
+    private StartupTests() {
+    }
+
+    private static final int ROUNDS = 5;
+
+    private static @NotNull Loader loader() throws MalformedURLException {
+        @NotNull String[] paths = System.getProperty("java.class.path").split(File.pathSeparator);
+        @NotNull URL[] urls = new URL[paths.length];
+
+        for (int index = 0; index < paths.length; index++) {
+            urls[index] = new File(paths[index]).toURI().toURL();
+        }
+
+        return new Loader(urls);
+    }
+
+    @Test
+    @Order(value = 0)
+    void lazy() throws Exception {
+        try (@NotNull Loader loader = loader()) {
+            @NotNull Class<?> keys = Class.forName("codes.laivy.jhttp.headers.HttpHeaderKey", true, loader);
+
+            // The deferred keys table is only loaded when a lookup misses the stable keys
+            keys.getMethod("retrieve", String.class).invoke(null, "Content-Type");
+            Assertions.assertFalse(loader.isLoaded("codes.laivy.jhttp.headers.HttpHeaderKey$Rare"));
+
+            Assertions.assertEquals("DNT", keys.getMethod("retrieve", String.class).invoke(null, "DNT").toString());
+            Assertions.assertTrue(loader.isLoaded("codes.laivy.jhttp.headers.HttpHeaderKey$Rare"));
+
+            // The header types are only computed at the first request
+            @NotNull Object key = keys.getField("CONTENT_TYPE").get(null);
+            @NotNull Field types = keys.getDeclaredField("types");
+            types.setAccessible(true);
+
+            Assertions.assertNull(types.get(key));
+            keys.getMethod("getTypes").invoke(key);
+            Assertions.assertNotNull(types.get(key));
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void registries() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            try (@NotNull Loader loader = loader()) {
+                Class.forName("codes.laivy.jhttp.protocol.HttpVersion", true, loader);
+
+                @NotNull Class<?> keys = Class.forName("codes.laivy.jhttp.headers.HttpHeaderKey", true, loader);
+                Object key = keys.getMethod("retrieve", String.class).invoke(null, "Content-Type");
+
+                @NotNull Class<?> status = Class.forName("codes.laivy.jhttp.element.HttpStatus", true, loader);
+                Object found = status.getMethod("getByCode", int.class).invoke(null, 404);
+
+                Assertions.assertEquals("Content-Type", key.toString());
+                Assertions.assertEquals("404", found.toString());
+            }
+        }
+    }
+
+    @Test
+    @Order(value = 2)
+    void benchmark() throws Exception {
+        // Warm up the JIT of the class loading itself, so the first rounds don't weight the medians
+        for (int round = 0; round < ROUNDS; round++) {
+            startup(false);
+            startup(true);
+        }
+
+        long[] lazy = new long[ROUNDS * 4];
+        long[] eager = new long[ROUNDS * 4];
+
+        for (int round = 0; round < lazy.length; round++) {
+            lazy[round] = startup(false);
+            eager[round] = startup(true);
+        }
+
+        Arrays.sort(lazy);
+        Arrays.sort(eager);
+
+        long median = lazy[lazy.length / 2];
+        long reference = eager[eager.length / 2];
+        System.out.printf("Startup: lazy registries %.2f ms, eager registries %.2f ms (median of %d cold loads)%n", median / 1_000_000D, reference / 1_000_000D, lazy.length);
+
+        // The eager path does all the work of the lazy one, and the reflective registration on top of it
+        Assertions.assertTrue(median <= reference, "the lazy registries must not start slower than the eager ones");
+    }
+
+    /**
+     * Loads the registries at a fresh class loader and looks up a common key and status, as an application does
+     * at its first request.
+     *
+     * @param eager whether the registries are also filled as before: every static field reflected, the rare keys
+     *              loaded and the types of every key computed
+     * @return the time spent, in nanoseconds
+     */
+    private static long startup(boolean eager) throws Exception {
+        try (@NotNull Loader loader = loader()) {
+            long start = System.nanoTime();
+
+            Class.forName("codes.laivy.jhttp.protocol.HttpVersion", true, loader);
+            @NotNull Class<?> keys = Class.forName("codes.laivy.jhttp.headers.HttpHeaderKey", true, loader);
+            @NotNull Class<?> status = Class.forName("codes.laivy.jhttp.element.HttpStatus", true, loader);
+
+            if (eager) {
+                Class.forName("codes.laivy.jhttp.headers.HttpHeaderKey$Rare", true, loader);
+                @NotNull Method types = keys.getMethod("getTypes");
+
+                for (@NotNull Field field : keys.getFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) && keys.isAssignableFrom(field.getType())) {
+                        types.invoke(field.get(null));
+                    }
+                }
+                for (@NotNull Field field : status.getFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) && field.getType() == status) {
+                        field.get(null);
+                    }
+                }
+            }
+
+            keys.getMethod("retrieve", String.class).invoke(null, "Content-Type");
+            status.getMethod("getByCode", int.class).invoke(null, 404);
+
+            return System.nanoTime() - start;
+        }
+    }
+
+    // Classes
+
+    private static final class Loader extends URLClassLoader {
+
+        private Loader(@NotNull URL @NotNull [] urls) {
+            // The parent is the system loader's parent, so the jhttp classes are loaded again
+            super(urls, ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        public boolean isLoaded(@NotNull String name) {
+            return findLoadedClass(name) != null;
+        }
+
+    }
+
+}
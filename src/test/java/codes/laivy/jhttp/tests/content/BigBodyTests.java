@@ -0,0 +1,191 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBigBody;
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.HttpEncodedBody;
+import codes.laivy.jhttp.body.Spool;
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.encoding.GZipEncoding;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class BigBodyTests {
+
+    private BigBodyTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void map() throws Exception {
+        try (@NotNull Spool spool = spool()) {
+            @NotNull HttpBigBody body = body(spool, "mapped data");
+
+            try (@NotNull HttpBigBody.MappedView first = body.map().orElseThrow(NullPointerException::new);
+                 @NotNull HttpBigBody.MappedView second = body.map().orElseThrow(NullPointerException::new)) {
+                // Every view has its own position
+                Assertions.assertEquals("mapped data", read(first.getBuffer()));
+                Assertions.assertEquals("mapped data", read(second.getBuffer()));
+            }
+
+            // The views can't be used after closed
+            @NotNull HttpBigBody.MappedView view = body.map().orElseThrow(NullPointerException::new);
+            view.close();
+            Assertions.assertThrows(IllegalStateException.class, view::getBuffer);
+
+            body.close();
+            Assertions.assertEquals(0, spool.getFiles());
+            Assertions.assertThrows(IOException.class, body::map);
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void update() throws Exception {
+        try (@NotNull Spool spool = spool()) {
+            @NotNull HttpBigBody body = body(spool, "first");
+            @NotNull File file = body.getFile();
+
+            // Without readers, the file is rewritten in place (the mapping is released)
+            Assertions.assertEquals("first", read(body.getInputStream()));
+            body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("second", true);
+
+            Assertions.assertEquals(file, body.getFile());
+            Assertions.assertEquals(1, spool.getCreated());
+            Assertions.assertEquals("second", read(body.getInputStream()));
+
+            // A reader keeps the previous file, the new data goes to a new file of the same spool
+            @NotNull InputStream stream = body.getInputStream();
+            body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("third", true);
+
+            Assertions.assertNotEquals(file, body.getFile());
+            Assertions.assertSame(spool, body.getSpool());
+            Assertions.assertEquals(2, spool.getFiles());
+
+            Assertions.assertEquals("second", read(stream));
+            Assertions.assertEquals(1, spool.getFiles());
+            Assertions.assertFalse(file.exists());
+
+            // A clone keeps the previous file too
+            @NotNull HttpBody clone = body.clone(HttpVersion.HTTP1_1());
+            body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("fourth", true);
+
+            Assertions.assertEquals("third", read(clone.getInputStream()));
+            Assertions.assertEquals("fourth", read(body.getInputStream()));
+
+            clone.close();
+            body.close();
+            Assertions.assertEquals(0, spool.getFiles());
+        }
+    }
+    @Test
+    @Order(value = 2)
+    void cleaner() throws Exception {
+        boolean unmap = HttpBigBody.UNMAP;
+        HttpBigBody.UNMAP = false;
+
+        try (@NotNull Spool spool = spool()) {
+            @NotNull HttpBigBody body = body(spool, "first");
+            @NotNull File file = body.getFile();
+
+            // The mapping is left to the garbage collector, so its file isn't rewritten
+            Assertions.assertEquals("first", read(body.getInputStream()));
+            body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("second", true);
+
+            Assertions.assertNotEquals(file, body.getFile());
+            Assertions.assertEquals("second", read(body.getInputStream()));
+            Assertions.assertEquals(1, spool.getFiles());
+
+            body.close();
+            Assertions.assertEquals(0, spool.getFiles());
+        } finally {
+            HttpBigBody.UNMAP = unmap;
+        }
+    }
+    @Test
+    @Order(value = 3)
+    @SuppressWarnings("unchecked")
+    void encoded() throws Exception {
+        byte[] bytes = GZipEncoding.builder().build().compress("encoded data".getBytes(StandardCharsets.UTF_8));
+        @NotNull Deferred<Encoding>[] encodings = new Deferred[] { Deferred.encoding("gzip") };
+
+        @NotNull HttpEncodedBody body = new HttpEncodedBody(bytes, new Deferred[0], encodings);
+        @NotNull HttpBody clone = body.clone(HttpVersion.HTTP1_1());
+
+        // The clone keeps the data encoded, with the same encodings
+        Assertions.assertInstanceOf(HttpEncodedBody.class, clone);
+        Assertions.assertEquals("gzip", ((HttpEncodedBody) clone).getContentEncodings()[0].toString());
+        Assertions.assertEquals(0, ((HttpEncodedBody) clone).getTransferEncodings().length);
+        Assertions.assertFalse(clone.getLength().isPresent());
+
+        body.close();
+
+        try (@NotNull InputStream stream = ((HttpEncodedBody) clone).getEncodedInputStream()) {
+            Assertions.assertArrayEquals(bytes, read(stream).getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        clone.close();
+    }
+    @Test
+    @Order(value = 4)
+    void closed() throws Exception {
+        try (@NotNull Spool spool = spool()) {
+            @NotNull HttpBigBody body = body(spool, "closed");
+            @NotNull InputStream stream = body.getInputStream();
+            Assertions.assertEquals('c', stream.read());
+
+            // The mapping is released with the last reference, the stream must not read it anymore
+            body.close();
+            stream.close();
+
+            Assertions.assertThrows(IOException.class, stream::read);
+            Assertions.assertThrows(IOException.class, () -> stream.read(new byte[4], 0, 4));
+            Assertions.assertThrows(IOException.class, () -> stream.skip(1));
+            Assertions.assertThrows(IOException.class, body::map);
+        }
+    }
+
+    private static @NotNull Spool spool() throws IOException {
+        @NotNull Path directory = Files.createTempDirectory("jhttp-tests-");
+        directory.toFile().deleteOnExit();
+
+        return Spool.builder().directory(directory).build();
+    }
+    private static @NotNull HttpBigBody body(@NotNull Spool spool, @NotNull String data) throws IOException {
+        return new HttpBigBody(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), spool);
+    }
+
+    private static @NotNull String read(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.ISO_8859_1);
+        } finally {
+            stream.close();
+        }
+    }
+
+}
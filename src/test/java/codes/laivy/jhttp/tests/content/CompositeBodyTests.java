@@ -0,0 +1,111 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.HttpCompositeBody;
+import codes.laivy.jhttp.body.HttpTieredBody;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class CompositeBodyTests {
+
+    private CompositeBodyTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void segments() throws IOException {
+        @NotNull Path path = Files.createTempFile("jhttp-tests-", ".txt");
+
+        try {
+            Files.write(path, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+            @NotNull HttpCompositeBody body = HttpCompositeBody.builder()
+                    .bytes("header ".getBytes(StandardCharsets.UTF_8))
+                    .file(path, 2, 5)
+                    .body(HttpBody.create(" footer".getBytes(StandardCharsets.UTF_8)))
+                    .build();
+
+            Assertions.assertEquals(3, body.size());
+            Assertions.assertEquals(19, body.getLength().getAsLong());
+            Assertions.assertEquals("header 23456 footer", read(body.getInputStream()));
+
+            // Read byte by byte
+            try (@NotNull InputStream stream = body.getInputStream()) {
+                @NotNull StringBuilder builder = new StringBuilder();
+
+                int read;
+                while ((read = stream.read()) != -1) {
+                    builder.append((char) read);
+                }
+
+                Assertions.assertEquals("header 23456 footer", builder.toString());
+            }
+
+            body.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void flush() throws Exception {
+        long usage = HttpTieredBody.getDirectUsage();
+
+        @NotNull HttpCompositeBody body = HttpCompositeBody.builder().bytes("composite".getBytes(StandardCharsets.UTF_8)).build();
+        @NotNull Content<String> content = body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN());
+
+        // The flushed data is stored off-heap by the created body
+        content.setData(text('a'), true);
+        long flushed = HttpTieredBody.getDirectUsage();
+        Assertions.assertTrue(flushed > usage);
+
+        // The body of the previous flush is closed when replaced
+        content.setData(text('b'), true);
+        Assertions.assertEquals(flushed, HttpTieredBody.getDirectUsage());
+        Assertions.assertEquals(text('b'), read(body.getInputStream()));
+
+        // A clone keeps its data after this body is closed
+        @NotNull HttpBody clone = body.clone(HttpVersion.HTTP1_1());
+        body.close();
+
+        Assertions.assertEquals(text('b'), read(clone.getInputStream()));
+        clone.close();
+
+        Assertions.assertEquals(usage, HttpTieredBody.getDirectUsage());
+    }
+
+    private static @NotNull String text(char character) {
+        @NotNull StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < 200 * 1024; index++) {
+            builder.append(character);
+        }
+
+        return builder.toString();
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[8192];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            stream.close();
+        }
+    }
+
+}
@@ -1,11 +1,50 @@
 package codes.laivy.jhttp.tests.content;
 
+import codes.laivy.jhttp.body.BodyUtils;
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.element.Target;
+import codes.laivy.jhttp.encoding.AdaptiveCompression;
+import codes.laivy.jhttp.encoding.AdaptiveCompression.Tier;
+import codes.laivy.jhttp.encoding.ChunkedEncoding;
+import codes.laivy.jhttp.encoding.ChunkedEncoding.Chunk.Extension;
+import codes.laivy.jhttp.encoding.CompressEncoding;
+import codes.laivy.jhttp.encoding.CompressionDictionary;
+import codes.laivy.jhttp.encoding.DecompressionGuard;
+import codes.laivy.jhttp.encoding.DeflateEncoding;
+import codes.laivy.jhttp.encoding.DictionaryDeflateEncoding;
 import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.encoding.GZipEncoding;
+import codes.laivy.jhttp.encoding.ParallelGZipEncoding;
+import codes.laivy.jhttp.exception.encoding.DecompressionLimitException;
 import codes.laivy.jhttp.exception.encoding.EncodingException;
 import codes.laivy.jhttp.exception.parser.IllegalHttpVersionException;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.module.connection.EffectiveConnectionType;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_ENCODING;
+import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
+
 @TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
 public final class EncodingTests {
 
@@ -37,5 +76,355 @@ public final class EncodingTests {
         }
     }
 
-}
+    @Test
+    @Order(value = 1)
+    void streamCompressAndDecompress() throws IOException, EncodingException {
+        byte[] target = new byte[100_000];
+        new Random(0).nextBytes(target);
+        for (int index = 0; index < target.length; index += 3) target[index] = 'a'; // Something to compress
+
+        for (@NotNull Encoding encoding : Encoding.toArray()) {
+            @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            // Write in small pieces, the result must be a single stream
+            try (@NotNull OutputStream stream = encoding.wrapOutput(output)) {
+                for (int index = 0; index < target.length; index += 777) {
+                    stream.write(target, index, Math.min(777, target.length - index));
+                }
+            }
+
+            byte[] compressed = output.toByteArray();
+
+            Assertions.assertArrayEquals(target, read(encoding.wrapInput(new ByteArrayInputStream(compressed))), "cannot proceed stream compress/decompress test using '" + encoding.getName() + "' encoding");
+            Assertions.assertArrayEquals(target, encoding.decompress(compressed), "the '" + encoding.getName() + "' encoding stream isn't compatible with the byte array decompression");
+            Assertions.assertArrayEquals(target, read(encoding.wrapInput(new ByteArrayInputStream(encoding.compress(target)))), "the '" + encoding.getName() + "' encoding byte array compression isn't compatible with the stream");
+        }
+    }
+    @Test
+    @Order(value = 2)
+    void chunkedStream() throws IOException {
+        @NotNull Encoding encoding = Encoding.retrieve("chunked").orElseThrow(NullPointerException::new);
+        @NotNull String chunked = "1a;name=value\r\nabcdefghijklmnopqrstuvwxyz\r\n3\r\n123\r\n0\r\nTrailer: value\r\n\r\nNext";
+        @NotNull InputStream stream = new ByteArrayInputStream(chunked.getBytes());
+
+        Assertions.assertEquals("abcdefghijklmnopqrstuvwxyz123", new String(read(encoding.wrapInput(stream))));
+        // The chunked stream must stop right after the last chunk
+        Assertions.assertEquals("Next", new String(read(stream)));
+    }
+    @Test
+    @Order(value = 3)
+    void gzipNativeCompatibility() throws IOException, EncodingException {
+        @NotNull GZipEncoding encoding = GZipEncoding.builder().level(Deflater.BEST_COMPRESSION).strategy(Deflater.FILTERED).build();
+        byte[] target = "Just a Cool Text with\r\n Some cool characteristics and formatting!".getBytes();
+
+        // Compressed by the encoding, decompressed by the native stream
+        Assertions.assertArrayEquals(target, read(new GZIPInputStream(new ByteArrayInputStream(encoding.compress(target)))));
+
+        // Two members compressed by the native stream, decompressed by the encoding
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int index = 0; index < 2; index++) {
+            try (@NotNull GZIPOutputStream stream = new GZIPOutputStream(output) {
+                @Override
+                public void close() throws IOException {
+                    finish();
+                }
+            }) {
+                stream.write(target);
+            }
+        }
+
+        byte[] expected = new byte[target.length * 2];
+        System.arraycopy(target, 0, expected, 0, target.length);
+        System.arraycopy(target, 0, expected, target.length, target.length);
+
+        Assertions.assertArrayEquals(expected, encoding.decompress(output.toByteArray()));
+
+        // Corrupted trailer
+        byte[] corrupted = encoding.compress(target);
+        corrupted[corrupted.length - 5]++;
+        Assertions.assertThrows(EncodingException.class, () -> encoding.decompress(corrupted));
+    }
+    @Test
+    @Order(value = 4)
+    void pooledCodecs() throws EncodingException {
+        @NotNull Encoding[] encodings = new Encoding[] {
+                GZipEncoding.builder().build(),
+                DeflateEncoding.builder().level(Deflater.BEST_SPEED).build()
+        };
+        byte[] target = "Just a Cool Text with\r\n Some cool characteristics and formatting!".getBytes();
+
+        // The codecs are reused between the calls, they must be reset properly
+        for (@NotNull Encoding encoding : encodings) {
+            for (int index = 0; index < 100; index++) {
+                Assertions.assertArrayEquals(target, encoding.decompress(encoding.compress(target)), "cannot reuse the '" + encoding.getName() + "' pooled codecs");
+            }
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GZipEncoding.builder().level(10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DeflateEncoding.builder().strategy(3));
+    }
+    @Test
+    @Order(value = 5)
+    void parallelGzip() throws IOException, EncodingException {
+        @NotNull ParallelGZipEncoding encoding = ParallelGZipEncoding.builder().blockSize(32 * 1024).threshold(64 * 1024).build();
+        @NotNull Random random = new Random(0);
+
+        // Text-like data, so the dictionaries matter
+        byte[] target = new byte[1_000_000];
+        for (int index = 0; index < target.length; index++) {
+            target[index] = (byte) ('a' + random.nextInt(8));
+        }
+
+        for (int length : new int[] { 0, 1000, 64 * 1024, 64 * 1024 + 1, 32 * 1024 * 5, target.length }) {
+            byte[] data = Arrays.copyOf(target, length);
+            byte[] compressed = encoding.compress(data);
+
+            // It must be a single standard gzip member
+            Assertions.assertArrayEquals(data, read(new GZIPInputStream(new ByteArrayInputStream(compressed))), "cannot decompress parallel gzip with " + length + " bytes");
+            Assertions.assertArrayEquals(data, encoding.decompress(compressed));
+        }
+
+        // The compression ratio must be close to the sequential one
+        int sequential = GZipEncoding.builder().build().compress(target).length;
+        int parallel = encoding.compress(target).length;
+        Assertions.assertTrue(parallel < sequential * 1.05, "parallel gzip size " + parallel + " is too large compared to " + sequential);
+
+        // The content is buffered until the threshold, it can't be larger than an array
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ParallelGZipEncoding.builder().threshold(Integer.MAX_VALUE));
+    }
+    @Test
+    @Order(value = 6)
+    void unixCompress() throws EncodingException {
+        @NotNull CompressEncoding encoding = CompressEncoding.builder().build();
+
+        // Same output as the "compress" program, 16 bits and block mode
+        byte[] target = "TOBEORNOTTOBEORTOBEORNOT#TOBEORNOTTOBEORTOBEORNOT".getBytes();
+        byte[] expected = new byte[] {
+                0x1F, (byte) 0x9D, (byte) 0x90, 0x54, (byte) 0x9E, 0x08, 0x29, (byte) 0xF2, 0x44, (byte) 0x8A, (byte) 0x93,
+                0x27, 0x54, 0x02, 0x0E, 0x2C, (byte) 0xA8, (byte) 0x90, (byte) 0xA0, 0x41, (byte) 0x84, 0x23, 0x1A, 0x16,
+                0x3C, (byte) 0x98, 0x50, (byte) 0xA0, 0x43, (byte) 0x89, 0x0F, (byte) 0xA9, 0x00
+        };
+
+        Assertions.assertArrayEquals(expected, encoding.compress(target));
+        Assertions.assertArrayEquals(target, encoding.decompress(expected));
+
+        // Enough data to grow the codes up to the maximum bits and clear the dictionary
+        @NotNull Random random = new Random(0);
+        for (int bits : new int[] { 9, 12, 16 }) {
+            @NotNull CompressEncoding limited = CompressEncoding.builder().maxBits(bits).build();
+            byte[] data = new byte[500_000];
+            for (int index = 0; index < data.length; index++) {
+                data[index] = (byte) (index < 250_000 ? 'a' + random.nextInt(4) : random.nextInt());
+            }
+
+            Assertions.assertArrayEquals(data, limited.decompress(limited.compress(data)), "cannot compress/decompress with " + bits + " maximum bits");
+        }
+    }
+
+    @Test
+    @Order(value = 7)
+    void dictionaryDeflate() throws EncodingException {
+        @NotNull CompressionDictionary first = CompressionDictionary.create("api-v1", "{\"status\":\"ok\",\"data\":{\"id\":,\"name\":\"\",\"email\":\"\",\"created_at\":\"\"}}".getBytes());
+        @NotNull CompressionDictionary second = CompressionDictionary.create("api-v2", "{\"status\":\"ok\",\"result\":{\"id\":,\"name\":\"\",\"email\":\"\",\"updated_at\":\"\"}}".getBytes());
+        @NotNull DictionaryDeflateEncoding encoding = DictionaryDeflateEncoding.builder().dictionary(first).dictionary(second).build();
+
+        // The last dictionary is the default, and both can be selected by their hashes
+        Assertions.assertEquals(second, encoding.getDictionary().orElse(null));
+        Assertions.assertEquals(first, encoding.select(first.getHeader()).orElse(null));
+        Assertions.assertFalse(encoding.select(":AAAA:").isPresent());
+
+        byte[] data = "{\"status\":\"ok\",\"data\":{\"id\":10,\"name\":\"Laivy\",\"email\":\"laivy@example.com\",\"created_at\":\"2024\"}}".getBytes();
+        byte[] compressed = encoding.compress(data, first);
+
+        Assertions.assertTrue(compressed.length < DeflateEncoding.builder().build().compress(data).length, "the dictionary doesn't reduce the compressed size");
+        Assertions.assertArrayEquals(data, encoding.decompress(compressed));
+        Assertions.assertArrayEquals(data, encoding.decompress(encoding.compress(data)));
+
+        // The contents compressed with an unregistered dictionary cannot be decompressed
+        Assertions.assertTrue(encoding.unregister(first));
+        Assertions.assertThrows(EncodingException.class, () -> encoding.decompress(compressed));
+    }
+
+    @Test
+    @Order(value = 8)
+    void decompressionGuard() throws IOException, EncodingException {
+        @NotNull GZipEncoding encoding = GZipEncoding.builder().build();
+        @NotNull DecompressionGuard guard = DecompressionGuard.builder().maxSize(1024 * 1024).build();
+
+        // A few kilobytes that expand to 64 MiB
+        byte[] bomb = encoding.compress(new byte[64 * 1024 * 1024]);
+        @NotNull DecompressionLimitException exception = Assertions.assertThrows(DecompressionLimitException.class, () -> read(guard.wrap(encoding, new ByteArrayInputStream(bomb))));
+        Assertions.assertTrue(exception.getProduced() < 1024 * 1024, "the decoding wasn't aborted early");
+
+        // The absolute size limit
+        @NotNull Random random = new Random(0);
+        byte[] data = new byte[2 * 1024 * 1024];
+        random.nextBytes(data);
+
+        byte[] compressed = encoding.compress(data);
+        Assertions.assertThrows(DecompressionLimitException.class, () -> read(guard.wrap(encoding, new ByteArrayInputStream(compressed))));
+        Assertions.assertArrayEquals(data, read(DecompressionGuard.builder().build().wrap(encoding, new ByteArrayInputStream(compressed))));
+
+        // The expansion ratio by encoding
+        byte[] text = new byte[512 * 1024];
+        Arrays.fill(text, (byte) 'a');
+        byte[] repetitive = encoding.compress(text);
+
+        Assertions.assertThrows(DecompressionLimitException.class, () -> read(guard.wrap(encoding, new ByteArrayInputStream(repetitive))));
+        Assertions.assertArrayEquals(text, read(DecompressionGuard.builder().ratio("x-gzip", 2000).build().wrap(encoding, new ByteArrayInputStream(repetitive))));
+    }
+
+    @Test
+    @Order(value = 9)
+    void registry() throws EncodingException {
+        @NotNull Encoding gzip = Encoding.retrieve("gzip").orElseThrow(NullPointerException::new);
+        Assertions.assertSame(gzip, Encoding.retrieve("GZip").orElse(null));
+        Assertions.assertSame(gzip, Encoding.retrieve("x-gzip").orElse(null));
+        Assertions.assertFalse(Encoding.retrieve("unknown").isPresent());
+
+        // The deferred encodings are resolved again when the collection changes
+        @NotNull Deferred<Encoding> deferred = Deferred.encoding("x-test");
+        Assertions.assertFalse(deferred.available());
+
+        @NotNull Encoding encoding = new Encoding("x-test") {
+            @Override
+            public byte @NotNull [] decompress(byte @NotNull [] bytes) {
+                return bytes;
+            }
+            @Override
+            public byte @NotNull [] compress(byte @NotNull [] bytes) {
+                return bytes;
+            }
+        };
+
+        int version = Encoding.getVersion();
+        Assertions.assertTrue(Encoding.add(encoding));
+        Assertions.assertNotEquals(version, Encoding.getVersion());
+
+        try {
+            Assertions.assertTrue(deferred.available());
+            Assertions.assertSame(encoding, deferred.retrieve());
+            Assertions.assertTrue(Encoding.retrieve().contains(encoding));
+        } finally {
+            Assertions.assertTrue(Encoding.remove(encoding));
+        }
+
+        Assertions.assertFalse(deferred.available());
+        Assertions.assertFalse(Encoding.retrieve("X-Test").isPresent());
+    }
+
+    @Test
+    @Order(value = 10)
+    void adaptive() throws EncodingException {
+        @NotNull Duration rtt = Duration.ofMillis(20);
+        @NotNull BitMeasure lan = BitMeasure.create(BitMeasure.Level.MEGABITS, 100);
+
+        @NotNull AdaptiveCompression idle = AdaptiveCompression.builder().load(() -> 0D).build();
+        @NotNull AdaptiveCompression moderate = AdaptiveCompression.builder().load(() -> 0.6D).build();
+        @NotNull AdaptiveCompression busy = AdaptiveCompression.builder().load(() -> 0.9D).build();
+
+        // The clients that save data or have a slow connection receive the best compression, whatever the load
+        Assertions.assertEquals(Tier.BEST, busy.decide(true, null, null, null));
+        Assertions.assertEquals(Tier.BEST, busy.decide(false, EffectiveConnectionType._3G, null, null));
+        Assertions.assertEquals(Tier.BEST, busy.decide(false, null, Duration.ofMillis(400), null));
+        Assertions.assertEquals(Tier.BEST, busy.decide(false, null, null, BitMeasure.create(BitMeasure.Level.KILOBITS, 500)));
+
+        // The fast clients receive less compression as the load grows
+        Assertions.assertEquals(Tier.DEFAULT, idle.decide(false, EffectiveConnectionType._4G, rtt, lan));
+        Assertions.assertEquals(Tier.FAST, moderate.decide(false, null, rtt, lan));
+        Assertions.assertEquals(Tier.NONE, busy.decide(false, null, rtt, lan));
+
+        // The clients without hints
+        Assertions.assertEquals(Tier.DEFAULT, moderate.decide(false, null, null, null));
+        Assertions.assertEquals(Tier.FAST, busy.decide(false, null, null, null));
+
+        Assertions.assertEquals(4, busy.getMetrics().getDecisions(Tier.BEST));
+        Assertions.assertEquals(1, busy.getMetrics().getDecisions(Tier.NONE));
+        Assertions.assertEquals(1, busy.getMetrics().getDecisions(Tier.FAST));
 
+        // The best tier chooses the algorithm of the best ratio, the others keep the client preference
+        @NotNull Encoding compress = CompressEncoding.builder().build();
+        @NotNull Encoding gzip = GZipEncoding.builder().build();
+        @NotNull List<Encoding> accepted = Arrays.asList(compress, gzip);
+
+        Assertions.assertNull(idle.select(accepted, Tier.NONE));
+        Assertions.assertNull(idle.select(Collections.emptyList(), Tier.BEST));
+        Assertions.assertEquals("compress", Objects.requireNonNull(idle.select(accepted, Tier.DEFAULT)).getName());
+        Assertions.assertEquals("gzip", Objects.requireNonNull(idle.select(accepted, Tier.BEST)).getName());
+        Assertions.assertSame(idle.select(accepted, Tier.BEST), idle.adapt(gzip, Tier.BEST));
+
+        // The levels of the tiers, and the bytes saved
+        byte[] text = new byte[64 * 1024];
+        @NotNull Random random = new Random(0);
+        for (int index = 0; index < text.length; index++) {
+            text[index] = (byte) ('a' + random.nextInt(4));
+        }
+
+        byte[] best = Objects.requireNonNull(idle.adapt(gzip, Tier.BEST)).compress(text);
+        byte[] fast = Objects.requireNonNull(idle.adapt(gzip, Tier.FAST)).compress(text);
+
+        Assertions.assertTrue(best.length < fast.length);
+        Assertions.assertArrayEquals(text, gzip.decompress(best));
+        Assertions.assertEquals(2L * text.length, idle.getMetrics().getInput());
+        Assertions.assertEquals(best.length + fast.length, idle.getMetrics().getOutput());
+        Assertions.assertTrue(idle.getMetrics().getSavings() > 0);
+
+        // The parallel gzip is replaced at the fast tier, the output is still gzip
+        @NotNull Encoding parallel = Objects.requireNonNull(idle.adapt(ParallelGZipEncoding.builder().build(), Tier.FAST));
+        Assertions.assertEquals("gzip", parallel.getName());
+        Assertions.assertArrayEquals(text, gzip.decompress(parallel.compress(text)));
+    }
+    @Test
+    @Order(value = 11)
+    @SuppressWarnings("unchecked")
+    void chunkedConsistency() throws IOException, EncodingException {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+        headers.put(HttpHeader.create(CONTENT_ENCODING, new Deferred[] { Deferred.encoding("gzip") }));
+        headers.put(HttpHeader.create(TRANSFER_ENCODING, new Deferred[] { Deferred.encoding("chunked") }));
+
+        byte[] text = new byte[20000];
+        new Random(11).nextBytes(text);
+
+        // The byte array and the stream apply the chunked encoding the same way, as the last one
+        byte[] encoded = BodyUtils.encode(headers, text);
+        @NotNull Encoding[] content = new Encoding[] { Encoding.retrieve("gzip").orElseThrow(NullPointerException::new) };
+        @NotNull Encoding[] transfer = new Encoding[] { Encoding.retrieve("chunked").orElseThrow(NullPointerException::new) };
+
+        Assertions.assertArrayEquals(text, read(BodyUtils.decoder(content, transfer, new ByteArrayInputStream(encoded))));
+        Assertions.assertArrayEquals(text, BodyUtils.decode(content, transfer, encoded));
+
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (@NotNull OutputStream encoder = BodyUtils.encoder(headers, output)) {
+            encoder.write(text);
+        }
+        Assertions.assertArrayEquals(text, BodyUtils.decode(content, transfer, output.toByteArray()));
+
+        // The extensions of a subclass still receive the chunks
+        @NotNull ChunkedEncoding extended = new ChunkedEncoding(8) {
+            @Override
+            protected @NotNull Extension @NotNull [] extensions(@NotNull String bytes) {
+                return new Extension[] { Extension.create("size", String.valueOf(bytes.length())) };
+            }
+        };
+
+        @NotNull ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        try (@NotNull OutputStream encoder = extended.wrapOutput(chunks)) {
+            encoder.write("0123456789".getBytes(StandardCharsets.US_ASCII));
+        }
+        Assertions.assertTrue(new String(chunks.toByteArray(), StandardCharsets.US_ASCII).startsWith("8;size=8\r\n01234567\r\n2;size=2\r\n89\r\n"));
+    }
+
+    private static byte @NotNull [] read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return output.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.BodyUtils;
+import codes.laivy.jhttp.body.HttpFileBody;
+import codes.laivy.jhttp.body.Spool;
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.element.Target;
+import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_ENCODING;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class FileBodyTests {
+
+    private FileBodyTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void flush() throws Exception {
+        @NotNull Path source = Files.createTempFile("jhttp-tests-", ".txt");
+        @NotNull Spool spool = Spool.getDefault();
+        int files = spool.getFiles();
+
+        try {
+            Files.write(source, "original".getBytes(StandardCharsets.UTF_8));
+            @NotNull HttpFileBody body = new HttpFileBody(source);
+
+            // The readers of the previous data keep reading it
+            @NotNull InputStream stream = body.getInputStream();
+            body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("flushed", true);
+
+            // The source file isn't modified, the flushed data is at a spool file
+            Assertions.assertEquals("original", new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+            Assertions.assertNotEquals(source, body.getPath());
+            Assertions.assertEquals(files + 1, spool.getFiles());
+
+            Assertions.assertEquals("original", read(stream));
+            Assertions.assertEquals("flushed", read(body.getInputStream()));
+            Assertions.assertEquals(7, body.length());
+
+            // The spool file is only deleted after its last reader is closed
+            @NotNull Path spooled = body.getPath();
+            @NotNull InputStream reader = body.getInputStream();
+            body.close();
+
+            Assertions.assertTrue(Files.exists(spooled));
+            Assertions.assertEquals("flushed", read(reader));
+            Assertions.assertFalse(Files.exists(spooled));
+            Assertions.assertEquals(files, spool.getFiles());
+
+            Assertions.assertTrue(Files.exists(source));
+            Assertions.assertThrows(IOException.class, body::getInputStream);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void identity() throws Exception {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+        Assertions.assertTrue(BodyUtils.identity(headers));
+
+        // An explicit identity isn't an encoding
+        headers.put(HttpHeader.create(CONTENT_ENCODING, encodings("identity")));
+        Assertions.assertTrue(BodyUtils.identity(headers));
+
+        headers.put(HttpHeader.create(CONTENT_ENCODING, encodings("identity", "gzip")));
+        Assertions.assertFalse(BodyUtils.identity(headers));
+
+        // The file is written as it is
+        @NotNull Path source = Files.createTempFile("jhttp-tests-", ".txt");
+
+        try {
+            Files.write(source, "original".getBytes(StandardCharsets.UTF_8));
+            headers.put(HttpHeader.create(CONTENT_ENCODING, encodings("identity")));
+
+            @NotNull HttpFileBody body = new HttpFileBody(source);
+            @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+            body.write(headers, output);
+            body.close();
+
+            Assertions.assertEquals("original", new String(output.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull Deferred<Encoding> @NotNull [] encodings(@NotNull String @NotNull ... names) {
+        @NotNull Deferred<Encoding>[] encodings = new Deferred[names.length];
+        for (int index = 0; index < names.length; index++) {
+            encodings[index] = Deferred.encoding(names[index]);
+        }
+
+        return encodings;
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            stream.close();
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.url.Host;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class HostTests {
+
+    private HostTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void cache() {
+        Assertions.assertSame(Host.parse("www.example.com"), Host.parse("www.example.com"));
+        Assertions.assertSame(Host.parse("127.0.0.1"), Host.parse("127.0.0.1"));
+        Assertions.assertEquals(Host.parse("[2001:db8:0:0:0:0:0:1]"), Host.parse("[2001:db8:0:0:0:0:0:1]"));
+    }
+    @Test
+    @Order(value = 1)
+    void copies() {
+        @NotNull Host.IPv4 ipv4 = (Host.IPv4) Host.parse("10.0.0.1");
+        ipv4.getOctets()[0] = 192;
+        Assertions.assertEquals("10.0.0.1", Host.parse("10.0.0.1").getName());
+
+        @NotNull Host.IPv6 ipv6 = (Host.IPv6) Host.parse("[2001:db8:0:0:0:0:0:1]");
+        ipv6.getGroups()[7] = 2;
+        Assertions.assertEquals(1, ((Host.IPv6) Host.parse("[2001:db8:0:0:0:0:0:1]")).getGroups()[7]);
+
+        @NotNull Host.Name name = (Host.Name) Host.parse("www.example.com");
+        name.getSubdomains()[0] = null;
+        Assertions.assertEquals("www.example.com", Host.parse("www.example.com").getName());
+    }
+    @Test
+    @Order(value = 2)
+    void qualified() {
+        // The trailing dot of a fully qualified name isn't part of the public suffix
+        @NotNull Host.Name name = (Host.Name) Host.parse("www.example.com.");
+        Assertions.assertEquals("com", String.valueOf(name.getTLD()));
+        Assertions.assertEquals("example", name.getSLD().toString());
+        Assertions.assertEquals(1, name.getSubdomains().length);
+
+        @NotNull Host.Name suffix = (Host.Name) Host.parse("example.co.uk.");
+        Assertions.assertEquals("co.uk", String.valueOf(suffix.getTLD()));
+        Assertions.assertEquals("example", suffix.getSLD().toString());
+    }
+
+}
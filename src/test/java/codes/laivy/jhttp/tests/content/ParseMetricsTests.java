@@ -0,0 +1,76 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.element.Target;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.ParseMetrics;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.CONTENT_TYPE;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class ParseMetricsTests {
+
+    private ParseMetricsTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void deferred() throws Exception {
+        @NotNull ParseMetrics metrics = ParseMetrics.getDefault();
+        metrics.reset();
+
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.REQUEST);
+        headers.put(HttpHeader.create(CONTENT_TYPE, MediaType.TEXT_PLAIN()));
+
+        // The factory defers the content instead of parsing it
+        @NotNull HttpBody body = HttpVersion.HTTP1_1().getBodyFactory().parse(headers, "deferred");
+        @NotNull ParseMetrics.Entry entry = metrics.get(MediaType.TEXT_PLAIN().getType()).orElseThrow(NullPointerException::new);
+
+        Assertions.assertEquals(1, entry.getDeferred());
+        Assertions.assertEquals(0, entry.getParsed());
+        Assertions.assertEquals(1, entry.getSkipped());
+
+        // The first parse resolves the deferral
+        Assertions.assertEquals("deferred", body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).getData());
+        Assertions.assertEquals(1, entry.getParsed());
+        Assertions.assertEquals(1, entry.getResolved());
+        Assertions.assertEquals(0, entry.getSkipped());
+
+        metrics.reset();
+    }
+    @Test
+    @Order(value = 1)
+    void created() throws Exception {
+        @NotNull ParseMetrics metrics = ParseMetrics.getDefault();
+        metrics.reset();
+
+        @NotNull HttpBody deferred = HttpBody.create("deferred".getBytes(StandardCharsets.UTF_8));
+        metrics.defer(deferred, MediaType.TEXT_PLAIN());
+
+        // The parses of bodies never deferred don't count as resolved deferrals
+        @NotNull HttpBody created = HttpBody.create("created".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals("created", created.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).getData());
+
+        @NotNull ParseMetrics.Entry entry = metrics.get(MediaType.TEXT_PLAIN().getType()).orElseThrow(NullPointerException::new);
+        Assertions.assertEquals(1, entry.getParsed());
+        Assertions.assertEquals(0, entry.getResolved());
+        Assertions.assertEquals(1, entry.getSkipped());
+
+        // Only the first parse of a deferred body resolves it
+        deferred.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN());
+        deferred.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN());
+
+        Assertions.assertEquals(1, entry.getResolved());
+        Assertions.assertEquals(0, entry.getSkipped());
+
+        metrics.reset();
+    }
+
+}
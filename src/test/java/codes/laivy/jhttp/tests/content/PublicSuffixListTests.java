@@ -0,0 +1,55 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.url.Host;
+import codes.laivy.jhttp.url.domain.PublicSuffixList;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class PublicSuffixListTests {
+
+    private PublicSuffixListTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void suffixes() {
+        @NotNull PublicSuffixList list = PublicSuffixList.getDefault();
+
+        Assertions.assertEquals("com", list.getPublicSuffix("www.example.com"));
+        Assertions.assertEquals("co.uk", list.getPublicSuffix("www.example.co.uk"));
+        Assertions.assertEquals("github.io", list.getPublicSuffix("user.github.io"));
+        Assertions.assertEquals("unknowntld", list.getPublicSuffix("example.unknowntld"));
+        Assertions.assertNull(list.getPublicSuffix("example..com"));
+    }
+    @Test
+    @Order(value = 1)
+    void registrable() {
+        @NotNull PublicSuffixList list = PublicSuffixList.getDefault();
+
+        Assertions.assertEquals("example.com", list.getRegistrableDomain("a.b.example.com"));
+        Assertions.assertEquals("example.co.uk", list.getRegistrableDomain("www.example.co.uk"));
+        Assertions.assertNull(list.getRegistrableDomain("co.uk"));
+        Assertions.assertTrue(list.isPublicSuffix("github.io"));
+    }
+    @Test
+    @Order(value = 2)
+    void wildcards() {
+        @NotNull PublicSuffixList list = PublicSuffixList.getDefault();
+
+        // *.kawasaki.jp and !city.kawasaki.jp
+        Assertions.assertEquals("bar.kawasaki.jp", list.getPublicSuffix("foo.bar.kawasaki.jp"));
+        Assertions.assertEquals("city.kawasaki.jp", list.getRegistrableDomain("city.kawasaki.jp"));
+    }
+    @Test
+    @Order(value = 3)
+    void names() {
+        @NotNull Host.Name name = (Host.Name) Host.parse("www.example.co.uk:8080");
+
+        Assertions.assertEquals("co.uk", String.valueOf(name.getTLD()));
+        Assertions.assertEquals("example", name.getSLD().toString());
+        Assertions.assertEquals(1, name.getSubdomains().length);
+        Assertions.assertEquals("example.co.uk", name.getRegistrableDomain());
+    }
+
+}
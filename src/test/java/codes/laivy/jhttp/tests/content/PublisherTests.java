@@ -0,0 +1,272 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.HttpBodyPublisher;
+import codes.laivy.jhttp.body.HttpStreamBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.*;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class PublisherTests {
+
+    private PublisherTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void request() throws IOException {
+        @NotNull Emitter emitter = new Emitter(100, null);
+
+        try (@NotNull InputStream stream = HttpStreamBody.publisher(emitter).getInputStream()) {
+            // Nothing is requested before the first read
+            Assertions.assertEquals(0, emitter.requested);
+
+            byte[] bytes = new byte[1];
+            Assertions.assertEquals(1, stream.read(bytes));
+            Assertions.assertEquals(16, emitter.requested);
+
+            // All the data is read, requested in parts
+            Assertions.assertEquals(99, read(stream).length());
+            Assertions.assertEquals(100, emitter.emitted);
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void backpressure() throws IOException {
+        @NotNull Emitter emitter = new Emitter(Integer.MAX_VALUE, null);
+
+        try (@NotNull InputStream stream = HttpStreamBody.publisher(emitter).getInputStream()) {
+            byte[] bytes = new byte[1];
+
+            // The demand is only renewed after half of the prefetch is taken
+            for (int index = 0; index < 7; index++) {
+                Assertions.assertEquals(1, stream.read(bytes));
+            }
+            Assertions.assertEquals(16, emitter.emitted);
+
+            Assertions.assertEquals(1, stream.read(bytes));
+            Assertions.assertEquals(24, emitter.emitted);
+
+            // The publisher emits more than requested
+            emitter.onNext(32);
+
+            @NotNull IOException exception = Assertions.assertThrows(IOException.class, () -> read(stream));
+            Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+            Assertions.assertTrue(emitter.cancelled);
+        }
+    }
+    @Test
+    @Order(value = 2)
+    void cancel() throws IOException {
+        @NotNull Emitter emitter = new Emitter(Integer.MAX_VALUE, null);
+        @NotNull InputStream stream = HttpStreamBody.publisher(emitter).getInputStream();
+
+        Assertions.assertEquals(1, stream.read(new byte[1]));
+        Assertions.assertFalse(emitter.cancelled);
+
+        // The subscription is cancelled when the body stops consuming it
+        stream.close();
+        Assertions.assertTrue(emitter.cancelled);
+    }
+    @Test
+    @Order(value = 3)
+    void error() throws IOException {
+        @NotNull Emitter emitter = new Emitter(3, new IllegalArgumentException("failure"));
+
+        try (@NotNull InputStream stream = HttpStreamBody.publisher(emitter).getInputStream()) {
+            byte[] bytes = new byte[3];
+            Assertions.assertEquals(3, stream.read(bytes) + stream.read(bytes, 1, 2) + stream.read(bytes, 2, 1));
+
+            // The failure is thrown after the data emitted before it
+            @NotNull IOException exception = Assertions.assertThrows(IOException.class, () -> stream.read(bytes));
+            Assertions.assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        }
+    }
+    @Test
+    @Order(value = 4)
+    void ownership() throws IOException {
+        // The publisher reuses the same buffer for every part
+        @NotNull ByteBuffer buffer = ByteBuffer.allocate(4);
+
+        @NotNull Publisher<ByteBuffer> publisher = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int emitted = 0;
+
+            @Override
+            public void request(long amount) {
+                for (long index = 0; index < amount && emitted < 3; index++) {
+                    buffer.clear();
+                    Arrays.fill(buffer.array(), (byte) ('a' + emitted++));
+                    subscriber.onNext(buffer);
+                }
+
+                if (emitted == 3) subscriber.onComplete();
+            }
+            @Override
+            public void cancel() {
+            }
+        });
+
+        Assertions.assertEquals("aaaabbbbcccc", read(HttpStreamBody.publisher(publisher).getInputStream()));
+    }
+    @Test
+    @Order(value = 5)
+    void subscriber() throws IOException {
+        @NotNull Thread thread = Thread.currentThread();
+        @Nullable Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        @NotNull List<Throwable> reported = new ArrayList<>();
+
+        thread.setUncaughtExceptionHandler((t, throwable) -> reported.add(throwable));
+
+        try {
+            // A subscriber that throws at onNext is cancelled, it never receives onError
+            @NotNull Recorder next = new Recorder(true, false);
+            HttpBodyPublisher.builder(HttpBody.create(bytes("publisher"))).executor(Runnable::run).bufferSize(4).build().subscribe(next);
+            next.subscription.request(Long.MAX_VALUE);
+
+            Assertions.assertEquals(Collections.singletonList("next"), next.signals);
+            Assertions.assertEquals(1, reported.size());
+
+            // Neither onError after onComplete
+            @NotNull Recorder complete = new Recorder(false, true);
+            HttpBodyPublisher.builder(HttpBody.create(bytes("publisher"))).executor(Runnable::run).bufferSize(16).build().subscribe(complete);
+            complete.subscription.request(Long.MAX_VALUE);
+
+            Assertions.assertEquals(Arrays.asList("next", "complete"), complete.signals);
+            Assertions.assertEquals(2, reported.size());
+
+            // The failures of the body are signalled
+            @NotNull HttpBody closed = HttpBody.create(bytes("publisher"));
+            closed.close();
+
+            @NotNull Recorder error = new Recorder(false, false);
+            HttpBodyPublisher.builder(closed).executor(Runnable::run).build().subscribe(error);
+            error.subscription.request(1);
+
+            Assertions.assertEquals(Collections.singletonList("error"), error.signals);
+            Assertions.assertEquals(2, reported.size());
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+    }
+
+    private static byte @NotNull [] bytes(@NotNull String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+        } finally {
+            stream.close();
+        }
+    }
+
+    // Classes
+
+    /**
+     * Records the signals received, throwing at the first onNext or at onComplete
+     */
+    private static final class Recorder implements Subscriber<ByteBuffer> {
+
+        private final boolean next;
+        private final boolean complete;
+        private final @NotNull List<String> signals = new ArrayList<>();
+        private @Nullable Subscription subscription;
+
+        private Recorder(boolean next, boolean complete) {
+            this.next = next;
+            this.complete = complete;
+        }
+
+        @Override
+        public void onSubscribe(@NotNull Subscription subscription) {
+            this.subscription = subscription;
+        }
+        @Override
+        public void onNext(@NotNull ByteBuffer buffer) {
+            signals.add("next");
+            if (next) throw new IllegalStateException("failure at onNext");
+        }
+        @Override
+        public void onError(@NotNull Throwable throwable) {
+            signals.add("error");
+        }
+        @Override
+        public void onComplete() {
+            signals.add("complete");
+            if (complete) throw new IllegalStateException("failure at onComplete");
+        }
+
+    }
+
+    /**
+     * Emits single byte buffers synchronously, as they're requested, and then completes or fails
+     */
+    private static final class Emitter implements Publisher<ByteBuffer>, Subscription {
+
+        private final int amount;
+        private final @Nullable Throwable failure;
+
+        private @Nullable Subscriber<? super ByteBuffer> subscriber;
+        private long requested = 0;
+        private int emitted = 0;
+        private boolean cancelled = false;
+
+        private Emitter(int amount, @Nullable Throwable failure) {
+            this.amount = amount;
+            this.failure = failure;
+        }
+
+        @Override
+        public void subscribe(@NotNull Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long amount) {
+            requested += amount;
+            onNext(amount);
+        }
+        private void onNext(long amount) {
+            @NotNull Subscriber<? super ByteBuffer> subscriber = this.subscriber;
+            if (subscriber == null) throw new IllegalStateException();
+
+            for (long index = 0; index < amount && emitted < this.amount && !cancelled; index++) {
+                subscriber.onNext(ByteBuffer.wrap(new byte[] { (byte) ('0' + emitted++ % 10) }));
+            }
+
+            if (emitted == this.amount && !cancelled) {
+                if (failure != null) subscriber.onError(failure);
+                else subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.url.QueryParameters;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class QueryParametersTests {
+
+    private QueryParametersTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void empty() {
+        Assertions.assertTrue(QueryParameters.parse("").isEmpty());
+        Assertions.assertTrue(QueryParameters.parse("&&").isEmpty());
+        Assertions.assertNull(QueryParameters.parse("").get("name"));
+    }
+    @Test
+    @Order(value = 1)
+    void values() {
+        @NotNull QueryParameters parameters = QueryParameters.parse("name=value&flag&other=");
+
+        Assertions.assertEquals(3, parameters.size());
+        Assertions.assertEquals("value", parameters.get("name"));
+        Assertions.assertEquals("", parameters.get("flag"));
+        Assertions.assertEquals("", parameters.get("other"));
+        Assertions.assertNull(parameters.get("missing"));
+        Assertions.assertFalse(parameters.contains("missing"));
+    }
+    @Test
+    @Order(value = 2)
+    void repeated() {
+        @NotNull QueryParameters parameters = QueryParameters.parse("a=1&b=2&a=3&a=4");
+
+        Assertions.assertEquals("1", parameters.get("a"));
+        Assertions.assertEquals(Arrays.asList("1", "3", "4"), parameters.getAll("a"));
+        Assertions.assertEquals(Collections.singletonList("2"), parameters.getAll("b"));
+        Assertions.assertEquals(Arrays.asList("a", "b"), Arrays.asList(parameters.names().toArray()));
+    }
+    @Test
+    @Order(value = 3)
+    void decoding() {
+        @NotNull QueryParameters parameters = QueryParameters.parse("full+name=John+Doe&city=S%C3%A3o%20Paulo&full%20name=Jane");
+
+        Assertions.assertEquals("John Doe", parameters.get("full name"));
+        Assertions.assertEquals(Arrays.asList("John Doe", "Jane"), parameters.getAll("full name"));
+        Assertions.assertEquals("São Paulo", parameters.get("city"));
+    }
+
+}
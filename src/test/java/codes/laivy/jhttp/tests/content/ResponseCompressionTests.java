@@ -0,0 +1,200 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.element.HttpStatus;
+import codes.laivy.jhttp.element.Method;
+import codes.laivy.jhttp.element.Target;
+import codes.laivy.jhttp.element.request.HttpRequest;
+import codes.laivy.jhttp.element.response.HttpResponse;
+import codes.laivy.jhttp.encoding.DeflateEncoding;
+import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.encoding.GZipEncoding;
+import codes.laivy.jhttp.encoding.ResponseCompression;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaderKey;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.*;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class ResponseCompressionTests {
+
+    private ResponseCompressionTests() {
+    }
+
+    private static final @NotNull Encoding GZIP = GZipEncoding.builder().build();
+    private static final @NotNull Encoding DEFLATE = DeflateEncoding.builder().build();
+
+    @Test
+    @Order(value = 0)
+    void threshold() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(100).encoding(GZIP).build();
+
+        // Smaller than the threshold, by the content length
+        @NotNull HttpResponse small = response(HttpStatus.OK, 99);
+        Assertions.assertFalse(compression.apply(request("gzip"), small).isPresent());
+        Assertions.assertFalse(small.getHeaders().contains(CONTENT_ENCODING));
+
+        // Exactly the threshold
+        Assertions.assertEquals(Optional.of(GZIP), compression.apply(request("gzip"), response(HttpStatus.OK, 100)));
+
+        // The size of the body, without content length
+        @NotNull HttpResponse body = HttpResponse.create(HttpVersion.HTTP1_1(), HttpStatus.OK, headers(), HttpBody.create(new byte[50]));
+        Assertions.assertFalse(compression.apply(request("gzip"), body).isPresent());
+    }
+    @Test
+    @Order(value = 1)
+    void excluded() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).exclude(MediaType.Type.parse("application/octet-stream")).build();
+
+        // Already compressed
+        for (@NotNull String type : new String[] { "image/png", "video/mp4", "audio/ogg", "application/zip", "font/woff2" }) {
+            @NotNull HttpResponse response = response(HttpStatus.OK, 2048);
+            response.getHeaders().put(CONTENT_TYPE.read(HttpVersion.HTTP1_1(), type));
+
+            Assertions.assertFalse(compression.apply(request("gzip"), response).isPresent(), type);
+        }
+
+        // Excluded by the builder
+        @NotNull HttpResponse excluded = response(HttpStatus.OK, 2048);
+        excluded.getHeaders().put(CONTENT_TYPE.read(HttpVersion.HTTP1_1(), "application/octet-stream"));
+        Assertions.assertFalse(compression.apply(request("gzip"), excluded).isPresent());
+
+        // The svg images are text
+        @NotNull HttpResponse svg = response(HttpStatus.OK, 2048);
+        svg.getHeaders().put(CONTENT_TYPE.read(HttpVersion.HTTP1_1(), "image/svg+xml"));
+        Assertions.assertTrue(compression.apply(request("gzip"), svg).isPresent());
+    }
+    @Test
+    @Order(value = 2)
+    void transform() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).build();
+
+        @NotNull HttpResponse response = response(HttpStatus.OK, 2048);
+        response.getHeaders().put(CACHE_CONTROL.read(HttpVersion.HTTP1_1(), "public, no-transform"));
+
+        Assertions.assertFalse(compression.apply(request("gzip"), response).isPresent());
+        Assertions.assertFalse(response.getHeaders().contains(CONTENT_ENCODING));
+    }
+    @Test
+    @Order(value = 3)
+    void range() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).build();
+
+        @NotNull HttpResponse response = response(HttpStatus.PARTIAL_CONTENT, 2048);
+        response.getHeaders().put(CONTENT_RANGE.read(HttpVersion.HTTP1_1(), "bytes 0-2047/4096"));
+
+        Assertions.assertFalse(compression.apply(request("gzip"), response).isPresent());
+        Assertions.assertTrue(response.getHeaders().contains(CONTENT_LENGTH));
+    }
+    @Test
+    @Order(value = 4)
+    void status() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).build();
+
+        // The responses without content
+        for (@NotNull HttpStatus status : new HttpStatus[] { HttpStatus.CONTINUE, HttpStatus.NO_CONTENT, HttpStatus.NOT_MODIFIED }) {
+            @NotNull HttpResponse response = response(status, 2048);
+
+            Assertions.assertFalse(compression.apply(request("gzip"), response).isPresent(), status.toString());
+            Assertions.assertFalse(response.getHeaders().contains(VARY), status.toString());
+        }
+    }
+    @Test
+    @Order(value = 5)
+    void vary() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).build();
+
+        // Added, even if the client doesn't accept any encoding
+        @NotNull HttpResponse identity = response(HttpStatus.OK, 2048);
+        Assertions.assertFalse(compression.apply(request(null), identity).isPresent());
+        Assertions.assertArrayEquals(new HttpHeaderKey[] { ACCEPT_ENCODING }, vary(identity));
+
+        // Merged with the existing keys, without duplicates
+        @NotNull HttpResponse merged = response(HttpStatus.OK, 2048);
+        merged.getHeaders().put(VARY.read(HttpVersion.HTTP1_1(), "Origin, Accept-Encoding"));
+
+        Assertions.assertTrue(compression.apply(request("gzip"), merged).isPresent());
+        Assertions.assertArrayEquals(new HttpHeaderKey[] { ORIGIN, ACCEPT_ENCODING }, vary(merged));
+
+        // The wildcard is kept
+        @NotNull HttpResponse wildcard = response(HttpStatus.OK, 2048);
+        wildcard.getHeaders().put(VARY.read(HttpVersion.HTTP1_1(), "*"));
+
+        Assertions.assertTrue(compression.apply(request("gzip"), wildcard).isPresent());
+        Assertions.assertTrue(wildcard.getHeaders().first(VARY).map(HttpHeader::getValue).orElseThrow(NullPointerException::new).isWildcard());
+    }
+    @Test
+    @Order(value = 6)
+    void encoding() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP).build();
+
+        @NotNull HttpResponse response = response(HttpStatus.OK, 2048);
+        Assertions.assertEquals(Optional.of(GZIP), compression.apply(request("gzip"), response));
+
+        // The content encoding is set, the length is unknown until the body is written
+        Assertions.assertEquals("gzip", response.getHeaders().first(CONTENT_ENCODING).map(header -> header.getValue()[0].toString()).orElse(null));
+        Assertions.assertFalse(response.getHeaders().contains(CONTENT_LENGTH));
+
+        // Already encoded
+        @NotNull HttpResponse encoded = response(HttpStatus.OK, 2048);
+        encoded.getHeaders().put(CONTENT_ENCODING.read(HttpVersion.HTTP1_1(), "br"));
+
+        Assertions.assertFalse(compression.apply(request("gzip"), encoded).isPresent());
+        Assertions.assertTrue(encoded.getHeaders().contains(CONTENT_LENGTH));
+    }
+    @Test
+    @Order(value = 7)
+    void negotiation() throws Exception {
+        @NotNull ResponseCompression compression = ResponseCompression.builder().threshold(0).encoding(GZIP, DEFLATE).build();
+
+        // The highest q-value, the order of the stage breaks the ties
+        Assertions.assertEquals(Optional.of(DEFLATE), compression.negotiate(request("gzip;q=0.5, deflate").getHeaders()));
+        Assertions.assertEquals(Optional.of(GZIP), compression.negotiate(request("deflate, gzip").getHeaders()));
+        Assertions.assertEquals(Optional.of(DEFLATE), compression.negotiate(request("deflate").getHeaders()));
+
+        // The wildcard matches the encodings that aren't listed
+        Assertions.assertEquals(Optional.of(DEFLATE), compression.negotiate(request("gzip;q=0.1, *;q=0.5").getHeaders()));
+        Assertions.assertEquals(Optional.of(GZIP), compression.negotiate(request("*").getHeaders()));
+
+        // Not acceptable with q=0
+        Assertions.assertEquals(Optional.of(DEFLATE), compression.negotiate(request("gzip;q=0, *").getHeaders()));
+        Assertions.assertFalse(compression.negotiate(request("gzip;q=0, deflate;q=0").getHeaders()).isPresent());
+        Assertions.assertFalse(compression.negotiate(request("*;q=0").getHeaders()).isPresent());
+        Assertions.assertFalse(compression.negotiate(request(null).getHeaders()).isPresent());
+
+        // Identity refused, the encodings accepted are still picked
+        Assertions.assertEquals(Optional.of(GZIP), compression.negotiate(request("identity;q=0, gzip").getHeaders()));
+        Assertions.assertFalse(compression.negotiate(request("identity;q=0, br").getHeaders()).isPresent());
+    }
+
+    private static @NotNull HttpHeaders headers() {
+        return HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+    }
+    private static @NotNull HttpRequest request(@Nullable String accept) throws Exception {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.REQUEST);
+        if (accept != null) headers.put(ACCEPT_ENCODING.read(HttpVersion.HTTP1_1(), accept));
+
+        return HttpRequest.create(HttpVersion.HTTP1_1(), Method.GET, null, URI.create("/"), headers, HttpBody.empty());
+    }
+    private static @NotNull HttpResponse response(@NotNull HttpStatus status, long length) {
+        @NotNull HttpHeaders headers = headers();
+        headers.put(CONTENT_LENGTH.create(BitMeasure.create(BitMeasure.Level.BYTES, length)));
+
+        return HttpResponse.create(HttpVersion.HTTP1_1(), status, headers, HttpBody.empty());
+    }
+    private static @NotNull HttpHeaderKey<?> @NotNull [] vary(@NotNull HttpResponse response) {
+        return response.getHeaders().first(VARY).map(header -> Arrays.copyOf(header.getValue().getValue(), header.getValue().getValue().length, HttpHeaderKey[].class)).orElseThrow(NullPointerException::new);
+    }
+
+}
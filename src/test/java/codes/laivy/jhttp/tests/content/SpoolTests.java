@@ -0,0 +1,97 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.Spool;
+import codes.laivy.jhttp.body.SpoolFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class SpoolTests {
+
+    private SpoolTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void shared() throws IOException {
+        @NotNull Path directory = Files.createTempDirectory("jhttp-tests-");
+
+        try (@NotNull Spool first = Spool.builder().directory(directory).orphanAge(Duration.ZERO).build();
+             @NotNull Spool second = Spool.builder().directory(directory).orphanAge(Duration.ZERO).build()) {
+            @NotNull SpoolFile one = first.create(".tmp");
+            @NotNull SpoolFile two = second.create(".tmp");
+
+            // Every spool has its own subdirectory
+            @NotNull Path own = first.getOwnDirectory().orElseThrow(NullPointerException::new);
+            Assertions.assertEquals(directory, own.getParent());
+            Assertions.assertEquals(own, one.getPath().getParent());
+            Assertions.assertNotEquals(own, two.getPath().getParent());
+
+            // The files of the other spool aren't orphans, even without orphan age
+            first.sweep();
+            second.sweep();
+
+            Assertions.assertTrue(Files.exists(one.getPath()));
+            Assertions.assertTrue(Files.exists(two.getPath()));
+            Assertions.assertEquals(0, first.getOrphans() + second.getOrphans());
+
+            // The subdirectory is deleted when the spool is closed
+            first.close();
+            Assertions.assertFalse(Files.exists(own));
+            Assertions.assertFalse(Files.exists(one.getPath()));
+
+            second.sweep();
+            Assertions.assertTrue(Files.exists(two.getPath()));
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void dead() throws IOException {
+        @NotNull Path directory = Files.createTempDirectory("jhttp-tests-");
+
+        // A spool that died without being closed, its lock isn't held
+        @NotNull Path dead = Files.createDirectory(directory.resolve("jhttp-dead"));
+        Files.createFile(dead.resolve(".lock"));
+        Files.createFile(dead.resolve("jhttp-body.tmp"));
+
+        // A spool alive at another process, its lock is held
+        @NotNull Path alive = Files.createDirectory(directory.resolve("jhttp-alive"));
+        Files.createFile(alive.resolve("jhttp-body.tmp"));
+
+        // A spool being created, without lock file yet
+        @NotNull Path created = Files.createDirectory(directory.resolve("jhttp-created"));
+        Files.createFile(created.resolve("jhttp-body.tmp"));
+
+        try (@NotNull FileChannel channel = FileChannel.open(alive.resolve(".lock"), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             @NotNull FileLock ignore = channel.lock();
+             @NotNull Spool spool = Spool.builder().directory(directory).build()) {
+            spool.create(".tmp").release();
+            spool.sweep();
+
+            Assertions.assertFalse(Files.exists(dead));
+            Assertions.assertEquals(1, spool.getOrphans());
+
+            Assertions.assertTrue(Files.exists(alive.resolve("jhttp-body.tmp")));
+            Assertions.assertTrue(Files.exists(created.resolve("jhttp-body.tmp")));
+        } finally {
+            for (@NotNull Path path : new Path[] { alive, created }) {
+                Files.deleteIfExists(path.resolve("jhttp-body.tmp"));
+                Files.deleteIfExists(path.resolve(".lock"));
+                Files.deleteIfExists(path);
+            }
+
+            Files.deleteIfExists(directory);
+        }
+    }
+
+}
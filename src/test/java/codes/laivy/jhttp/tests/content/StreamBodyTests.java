@@ -0,0 +1,186 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpStreamBody;
+import codes.laivy.jhttp.deferred.Deferred;
+import codes.laivy.jhttp.element.Target;
+import codes.laivy.jhttp.headers.HttpHeader;
+import codes.laivy.jhttp.headers.HttpHeaders;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.laivy.jhttp.headers.HttpHeaderKey.TRANSFER_ENCODING;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class StreamBodyTests {
+
+    private StreamBodyTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    @SuppressWarnings("unchecked")
+    void chunking() throws Exception {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+        headers.put(HttpHeader.create(TRANSFER_ENCODING, new Deferred[] { Deferred.encoding("chunked") }));
+
+        // Every flush sends a chunk
+        @NotNull HttpStreamBody body = HttpStreamBody.builder().producer(sink -> {
+            sink.write(bytes("hel"));
+            sink.write(bytes("lo"));
+            sink.write(bytes("world"));
+            sink.write(bytes("!"));
+        }).flushSize(5).flushInterval(Duration.ZERO).build();
+
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.write(headers, output);
+
+        Assertions.assertEquals("5\r\nhello\r\n5\r\nworld\r\n1\r\n!\r\n0\r\n\r\n", new String(output.toByteArray(), StandardCharsets.US_ASCII));
+        Assertions.assertTrue(body.isConsumed());
+        Assertions.assertThrows(IOException.class, () -> body.write(headers, new ByteArrayOutputStream()));
+    }
+    @Test
+    @Order(value = 1)
+    void thresholds() throws Exception {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+        @NotNull Counter output = new Counter();
+
+        @NotNull HttpStreamBody body = HttpStreamBody.builder().producer(sink -> {
+            // Below the flush size, nothing is flushed
+            sink.write(bytes("1234"));
+            Assertions.assertEquals(0, output.flushes.get());
+
+            // The flush size is reached
+            sink.write(bytes("5678"));
+            Assertions.assertEquals(1, output.flushes.get());
+
+            // The pending bytes are flushed by the interval
+            sink.write(bytes("9"));
+            long start = System.nanoTime();
+            while (output.flushes.get() < 2 && System.nanoTime() - start < Duration.ofSeconds(5).toNanos()) {
+                try {
+                    Thread.sleep(10);
+                } catch (@NotNull InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            Assertions.assertEquals(2, output.flushes.get());
+        }).flushSize(8).flushInterval(Duration.ofMillis(50)).build();
+
+        body.write(headers, output);
+        Assertions.assertEquals("123456789", new String(output.toByteArray(), StandardCharsets.US_ASCII));
+    }
+    @Test
+    @Order(value = 2)
+    void length() {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+
+        // Longer than declared
+        @NotNull HttpStreamBody longer = HttpStreamBody.builder().producer(sink -> sink.write(bytes("123456"))).length(5).build();
+        Assertions.assertThrows(IOException.class, () -> longer.write(headers, new ByteArrayOutputStream()));
+
+        // Shorter than declared
+        @NotNull HttpStreamBody shorter = HttpStreamBody.builder().source(new HttpStreamBody.Source() {
+            private boolean sent = false;
+
+            @Override
+            public byte[] next() {
+                if (sent) return null;
+
+                sent = true;
+                return bytes("1234");
+            }
+        }).length(5).build();
+        Assertions.assertThrows(IOException.class, () -> shorter.write(headers, new ByteArrayOutputStream()));
+
+        // Exactly the declared length
+        @NotNull HttpStreamBody exact = HttpStreamBody.builder().producer(sink -> sink.write(bytes("12345"))).length(5).build();
+        Assertions.assertDoesNotThrow(() -> exact.write(headers, new ByteArrayOutputStream()));
+    }
+    @Test
+    @Order(value = 3)
+    void producer() throws Exception {
+        @NotNull ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            @NotNull HttpStreamBody body = HttpStreamBody.builder().producer(sink -> sink.write(bytes("produced"))).executor(executor).build();
+            Assertions.assertEquals("produced", read(body.getInputStream()));
+
+            // The failures of the producer are thrown at the end of the data
+            @NotNull HttpStreamBody failed = HttpStreamBody.builder().producer(sink -> {
+                sink.write(bytes("partial"));
+                throw new IOException("failure");
+            }).executor(executor).build();
+
+            Assertions.assertThrows(IOException.class, () -> read(failed.getInputStream()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    @Test
+    @Order(value = 4)
+    @SuppressWarnings("unchecked")
+    void failure() {
+        @NotNull HttpHeaders headers = HttpVersion.HTTP1_1().getHeaderFactory().createMutable(Target.RESPONSE);
+        headers.put(HttpHeader.create(TRANSFER_ENCODING, new Deferred[] { Deferred.encoding("chunked") }));
+
+        // A failed producer doesn't finish the chunked framing
+        @NotNull HttpStreamBody failed = HttpStreamBody.builder().producer(sink -> {
+            sink.write(bytes("partial"));
+            throw new IOException("failure");
+        }).flushSize(1).build();
+
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assertions.assertThrows(IOException.class, () -> failed.write(headers, output));
+        Assertions.assertEquals("7\r\npartial\r\n", new String(output.toByteArray(), StandardCharsets.US_ASCII));
+
+        // Neither does a producer shorter than the declared length
+        @NotNull HttpStreamBody shorter = HttpStreamBody.builder().producer(sink -> sink.write(bytes("1234"))).length(5).flushSize(1).build();
+
+        @NotNull ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+        Assertions.assertThrows(IOException.class, () -> shorter.write(headers, truncated));
+        Assertions.assertFalse(new String(truncated.toByteArray(), StandardCharsets.US_ASCII).endsWith("0\r\n\r\n"));
+    }
+
+    private static byte @NotNull [] bytes(@NotNull String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+        } finally {
+            stream.close();
+        }
+    }
+
+    // Classes
+
+    private static final class Counter extends ByteArrayOutputStream {
+
+        private final @NotNull AtomicInteger flushes = new AtomicInteger();
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.HttpTieredBody;
+import codes.laivy.jhttp.body.HttpTieredBody.Tier;
+import codes.laivy.jhttp.media.Content;
+import codes.laivy.jhttp.media.MediaParser;
+import codes.laivy.jhttp.media.MediaType;
+import codes.laivy.jhttp.media.MediaType.Parameter;
+import codes.laivy.jhttp.network.BitMeasure;
+import codes.laivy.jhttp.protocol.HttpVersion;
+import codes.laivy.jhttp.utilities.BufferAllocator;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class TieredBodyTests {
+
+    private TieredBodyTests() {
+    }
+
+    @Test
+    @Order(value = 0)
+    void tiers() throws Exception {
+        byte[] small = bytes(1024);
+        byte[] medium = bytes(200 * 1024);
+        byte[] large = bytes((int) HttpTieredBody.DISK_THRESHOLD.getBytes() + 1024);
+
+        try (@NotNull HttpTieredBody body = new HttpTieredBody(small)) {
+            Assertions.assertEquals(Tier.HEAP, body.getTier());
+            Assertions.assertArrayEquals(small, read(body.getInputStream()));
+        }
+        try (@NotNull HttpTieredBody body = new HttpTieredBody(medium)) {
+            Assertions.assertEquals(Tier.DIRECT, body.getTier());
+            Assertions.assertArrayEquals(medium, read(body.getInputStream()));
+        }
+        try (@NotNull HttpTieredBody body = new HttpTieredBody(large)) {
+            Assertions.assertEquals(Tier.DISK, body.getTier());
+            Assertions.assertEquals(large.length, body.length());
+            Assertions.assertArrayEquals(large, read(body.getInputStream()));
+        }
+    }
+    @Test
+    @Order(value = 1)
+    void budget() throws Exception {
+        @NotNull BitMeasure budget = HttpTieredBody.DIRECT_BUDGET;
+        long usage = HttpTieredBody.getDirectUsage();
+        byte[] bytes = bytes(1024 * 1024 + 123);
+
+        // The budget ends in the middle of a read chunk, the rest of it is spilled with the data
+        HttpTieredBody.DIRECT_BUDGET = BitMeasure.create(BitMeasure.Level.KILOBYTES, 100D);
+
+        try (@NotNull HttpTieredBody body = new HttpTieredBody(bytes)) {
+            Assertions.assertEquals(Tier.DISK, body.getTier());
+            Assertions.assertArrayEquals(bytes, read(body.getInputStream()));
+            Assertions.assertEquals(usage, HttpTieredBody.getDirectUsage());
+        } finally {
+            HttpTieredBody.DIRECT_BUDGET = budget;
+        }
+    }
+    @Test
+    @Order(value = 2)
+    void readers() throws Exception {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().threadCache(0).sharedCache(0).build();
+        byte[] bytes = bytes(200 * 1024);
+
+        @NotNull HttpTieredBody body = new HttpTieredBody(new ByteArrayInputStream(bytes), allocator);
+        long leased = allocator.getLeased();
+        Assertions.assertTrue(leased > 0);
+
+        // A flush replaces the data, the open stream keeps reading the previous one
+        @NotNull InputStream stream = body.getInputStream();
+        @NotNull Content<String> content = body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN());
+        content.setData("replaced", true);
+
+        Assertions.assertEquals(leased, allocator.getLeased());
+        Assertions.assertArrayEquals(bytes, read(stream));
+        Assertions.assertEquals(0, allocator.getLeased());
+        Assertions.assertEquals("replaced", new String(read(body.getInputStream()), StandardCharsets.UTF_8));
+
+        body.close();
+        Assertions.assertThrows(IOException.class, body::getInputStream);
+    }
+    @Test
+    @Order(value = 3)
+    void views() throws Exception {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().threadCache(0).sharedCache(0).build();
+        byte[] bytes = bytes(200 * 1024);
+
+        @NotNull HttpTieredBody body = new HttpTieredBody(new ByteArrayInputStream(bytes), allocator);
+        @NotNull ByteBuffer[] buffers = body.getBuffers();
+
+        // The views stay valid until the body is closed, even after a flush
+        body.getContent(HttpVersion.HTTP1_1(), MediaType.TEXT_PLAIN()).setData("replaced", true);
+        Assertions.assertArrayEquals(bytes, read(buffers));
+
+        // A clone shares the data, which is only freed by the last body
+        @NotNull HttpBody clone = body.clone(HttpVersion.HTTP1_1());
+        body.close();
+
+        Assertions.assertEquals(0, allocator.getLeased());
+        Assertions.assertEquals("replaced", new String(read(clone.getInputStream()), StandardCharsets.UTF_8));
+        clone.close();
+    }
+    @Test
+    @Order(value = 4)
+    void shared() throws Exception {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().threadCache(0).sharedCache(0).build();
+        byte[] bytes = bytes(200 * 1024);
+
+        @NotNull HttpTieredBody body = new HttpTieredBody(new ByteArrayInputStream(bytes), allocator);
+        @NotNull HttpBody clone = body.clone(HttpVersion.HTTP1_1());
+        @NotNull InputStream stream = clone.getInputStream();
+
+        // Both bodies closed, the stream still reads the data
+        body.close();
+        clone.close();
+        Assertions.assertTrue(allocator.getLeased() > 0);
+
+        Assertions.assertArrayEquals(bytes, read(stream));
+        Assertions.assertEquals(0, allocator.getLeased());
+    }
+    @Test
+    @Order(value = 5)
+    void parse() throws Exception {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().threadCache(0).sharedCache(0).build();
+
+        // A parser that doesn't read the whole stream, neither closes it
+        @NotNull MediaType<String> media = new MediaType<String>(MediaType.Type.parse("text/first"), new MediaParser<String>() {
+            @Override
+            public @NotNull String deserialize(@NotNull HttpVersion version, @NotNull InputStream stream, @NotNull Parameter @NotNull ... parameters) throws IOException {
+                return String.valueOf((char) stream.read());
+            }
+            @Override
+            public @NotNull InputStream serialize(@NotNull HttpVersion version, @NotNull String content, @NotNull Parameter @NotNull ... parameters) {
+                return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }, new Parameter[0]) {
+        };
+
+        // The stream read by the parse is closed, so the data is freed with the body
+        @NotNull HttpTieredBody body = new HttpTieredBody(new ByteArrayInputStream(bytes(200 * 1024)), allocator);
+        body.getContent(HttpVersion.HTTP1_1(), media);
+        body.close();
+
+        Assertions.assertEquals(0, allocator.getLeased());
+    }
+
+    private static byte @NotNull [] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+
+        return bytes;
+    }
+    private static byte @NotNull [] read(@NotNull ByteBuffer @NotNull [] buffers) {
+        @NotNull ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        for (@NotNull ByteBuffer buffer : buffers) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            output.write(bytes, 0, bytes.length);
+        }
+
+        return output.toByteArray();
+    }
+    private static byte @NotNull [] read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[8192];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return output.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+}
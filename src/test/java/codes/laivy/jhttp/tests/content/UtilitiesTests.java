@@ -1,10 +1,13 @@
 package codes.laivy.jhttp.tests.content;
 
+import codes.laivy.jhttp.utilities.BufferAllocator;
 import codes.laivy.jhttp.utilities.DateUtils.RFC822;
+import codes.laivy.jhttp.utilities.PooledBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
 
 import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
 public final class UtilitiesTests {
@@ -18,5 +21,107 @@ public final class UtilitiesTests {
         @NotNull String expected = "Wed, 12 Feb 1997 16:29:51 -0500";
         Assertions.assertEquals(RFC822.convert(expected), RFC822.convert(RFC822.convert(RFC822.convert(expected))));
     }
+    @Test
+    @Order(value = 1)
+    void bufferAllocator() {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().build();
+
+        // Rounded up to the size class, and reused after released
+        @NotNull PooledBuffer first = allocator.heap(1000);
+        byte[] array = first.array();
+
+        Assertions.assertEquals(1024, array.length);
+        Assertions.assertEquals(1000, first.getBuffer().limit());
+
+        first.retain();
+        Assertions.assertFalse(first.release());
+        Assertions.assertTrue(first.release());
+        Assertions.assertThrows(IllegalStateException.class, first::release);
+        Assertions.assertThrows(IllegalStateException.class, first::array);
+
+        try (@NotNull PooledBuffer second = allocator.heap(600)) {
+            Assertions.assertSame(array, second.array());
+        }
+
+        try (@NotNull PooledBuffer direct = allocator.direct(4096)) {
+            Assertions.assertTrue(direct.getBuffer().isDirect());
+        }
+
+        Assertions.assertEquals(2, allocator.getAllocations());
+        Assertions.assertEquals(1, allocator.getReuses());
+        Assertions.assertEquals(0, allocator.getLeased());
+    }
+    @Test
+    @Order(value = 2)
+    void threadCache() {
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().threadCacheBytes(2048).sharedCache(0).build();
+
+        // Only two buffers of 1 KiB fit at the thread cache
+        @NotNull PooledBuffer[] buffers = new PooledBuffer[] { allocator.heap(1024), allocator.heap(1024), allocator.heap(1024) };
+        for (@NotNull PooledBuffer buffer : buffers) buffer.close();
+
+        for (int index = 0; index < buffers.length; index++) {
+            buffers[index] = allocator.heap(1024);
+        }
+        Assertions.assertEquals(2, allocator.getReuses());
+
+        // The larger classes aren't kept by the thread
+        allocator.heap(4096).close();
+        allocator.heap(4096).close();
+        Assertions.assertEquals(2, allocator.getReuses());
+
+        // The cleared caches are empty
+        for (@NotNull PooledBuffer buffer : buffers) buffer.close();
+        allocator.clear();
+
+        allocator.heap(1024).close();
+        Assertions.assertEquals(2, allocator.getReuses());
+    }
+    @Test
+    @Order(value = 3)
+    void replaced() {
+        @NotNull BufferAllocator previous = BufferAllocator.getDefault();
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().build();
+
+        try {
+            BufferAllocator.setDefault(allocator);
+            allocator.heap(1024).close();
+
+            // The replaced allocator drops its caches, and doesn't cache the buffers released later
+            @NotNull PooledBuffer leased = allocator.heap(1024);
+            BufferAllocator.setDefault(previous);
+            leased.close();
+
+            allocator.heap(1024).close();
+            Assertions.assertEquals(1, allocator.getReuses());
+            Assertions.assertEquals(2, allocator.getAllocations());
+        } finally {
+            BufferAllocator.setDefault(previous);
+        }
+    }
+    @Test
+    @Order(value = 4)
+    void leaks() throws InterruptedException {
+        @NotNull AtomicReference<Throwable> reported = new AtomicReference<>();
+        @NotNull BufferAllocator allocator = BufferAllocator.builder().leakDetection(true).leakHandler(reported::set).build();
+
+        // Never released
+        leak(allocator);
+
+        // The leaks are reported by the next allocations after the buffer is collected
+        for (int attempt = 0; attempt < 50 && allocator.getLeaks() == 0; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+            allocator.heap(16).close();
+        }
+
+        Assertions.assertEquals(1, allocator.getLeaks());
+        Assertions.assertEquals(0, allocator.getLeased());
+        Assertions.assertNotNull(reported.get());
+    }
+
+    private static void leak(@NotNull BufferAllocator allocator) {
+        allocator.heap(1024);
+    }
 
 }
@@ -0,0 +1,128 @@
+package codes.laivy.jhttp.tests.content;
+
+import codes.laivy.jhttp.body.HttpBody;
+import codes.laivy.jhttp.body.Spool;
+import codes.laivy.jhttp.body.VariantCache;
+import codes.laivy.jhttp.encoding.Encoding;
+import codes.laivy.jhttp.encoding.GZipEncoding;
+import codes.laivy.jhttp.exception.encoding.EncodingException;
+import codes.laivy.jhttp.module.EntityTag;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
+public final class VariantCacheTests {
+
+    private VariantCacheTests() {
+    }
+
+    private static final @NotNull EntityTag TAG = EntityTag.create("v1", false);
+
+    @Test
+    @Order(value = 0)
+    void resources() throws IOException {
+        @NotNull VariantCache cache = VariantCache.builder().build();
+        @NotNull Encoding gzip = GZipEncoding.builder().build();
+
+        // The same entity tag at different resources
+        @NotNull VariantCache.Variant index = cache.get("/index.html", TAG, gzip, HttpBody.create("index".getBytes(StandardCharsets.UTF_8)));
+        @NotNull VariantCache.Variant about = cache.get("/about.html", TAG, gzip, HttpBody.create("about".getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals("index", read(index.getInputStream()));
+        Assertions.assertEquals("about", read(about.getInputStream()));
+        Assertions.assertEquals(2, cache.getMisses());
+
+        Assertions.assertSame(index, cache.get("/index.html", TAG, gzip).orElse(null));
+        Assertions.assertEquals(1, cache.getHits());
+
+        // Only the variants of the resource are removed
+        cache.invalidate("/index.html");
+        Assertions.assertFalse(cache.get("/index.html", TAG, gzip).isPresent());
+        Assertions.assertTrue(cache.get("/about.html", TAG, gzip).isPresent());
+
+        cache.invalidate(TAG);
+        Assertions.assertFalse(cache.get("/about.html", TAG, gzip).isPresent());
+        Assertions.assertEquals(0, cache.getSize());
+    }
+    @Test
+    @Order(value = 1)
+    void levels() throws IOException {
+        @NotNull VariantCache cache = VariantCache.builder().build();
+        @NotNull Encoding fast = GZipEncoding.builder().level(1).build();
+        @NotNull Encoding best = GZipEncoding.builder().level(9).build();
+
+        // The encodings with the same name and different levels have their own variants
+        @NotNull VariantCache.Variant first = cache.get("/", TAG, fast, HttpBody.create(text()));
+        @NotNull VariantCache.Variant second = cache.get("/", TAG, best, HttpBody.create(text()));
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(fast, first.getEncoding());
+        Assertions.assertSame(best, second.getEncoding());
+        Assertions.assertTrue(second.getLength().getAsLong() < first.getLength().getAsLong());
+        Assertions.assertEquals(0, cache.getHits());
+    }
+    @Test
+    @Order(value = 2)
+    void spill() throws IOException, EncodingException {
+        @NotNull Path directory = Files.createTempDirectory("jhttp-tests-");
+
+        try (@NotNull Spool spool = Spool.builder().directory(directory).build()) {
+            @NotNull Encoding gzip = GZipEncoding.builder().build();
+            @NotNull VariantCache cache = VariantCache.builder().capacity(1).spill(spool, 1024 * 1024).build();
+
+            // Bigger than the memory capacity, it goes to a spool file
+            cache.put("/", TAG, gzip, gzip.compress(text()), text().length);
+            Assertions.assertEquals(0, cache.getSize());
+            Assertions.assertTrue(cache.getDiskSize() > 0);
+            Assertions.assertEquals(1, spool.getFiles());
+
+            // Still bigger than the memory capacity, it's read from the same file instead of spilled again
+            for (int hit = 0; hit < 3; hit++) {
+                @NotNull VariantCache.Variant variant = cache.get("/", TAG, gzip).orElseThrow(NullPointerException::new);
+                Assertions.assertArrayEquals(text(), read(variant.getInputStream()).getBytes(StandardCharsets.UTF_8));
+            }
+
+            Assertions.assertEquals(0, cache.getSize());
+            Assertions.assertEquals(1, spool.getFiles());
+            Assertions.assertEquals(1, spool.getCreated());
+            Assertions.assertEquals(3, cache.getHits());
+
+            cache.clear();
+            Assertions.assertEquals(0, cache.getDiskSize());
+            Assertions.assertEquals(0, spool.getFiles());
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static byte @NotNull [] text() {
+        @NotNull StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < 2048; index++) {
+            builder.append("line ").append(index % 97).append(" of the cached response\n");
+        }
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    private static @NotNull String read(@NotNull InputStream stream) throws IOException {
+        try (@NotNull ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            stream.close();
+        }
+    }
+
+}